@@ -2,34 +2,258 @@ package org.weatherwear;
 
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import org.weatherwear.cache.LastKnownGoodStore;
+import org.weatherwear.cache.SharedForecastCache;
+import org.weatherwear.clients.GenericRestClient.BulkheadRestClient;
+import org.weatherwear.clients.GenericRestClient.ConnectionWarmup;
+import org.weatherwear.clients.GenericRestClient.PriorityRestClient;
+import org.weatherwear.clients.GenericRestClient.RecordingRestClient;
+import org.weatherwear.clients.GenericRestClient.ReplayRestClient;
 import org.weatherwear.clients.GenericRestClient.RestClient;
 import org.weatherwear.clients.GenericRestClient.IRestClient;
+import org.weatherwear.clients.LocationClient.CachingLocationClient;
+import org.weatherwear.clients.LocationClient.GeoIpLocationClient;
+import org.weatherwear.clients.LocationClient.IpRangeTable;
 import org.weatherwear.clients.LocationClient.LocationClient;
 import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.LocationClient.SharedCacheLocationClient;
+import org.weatherwear.clients.LocationClient.StaleIfErrorLocationClient;
 import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.WeatherClient.CachingWeatherClient;
+import org.weatherwear.clients.WeatherClient.RoutingWeatherClient;
+import org.weatherwear.clients.WeatherClient.SharedCacheWeatherClient;
+import org.weatherwear.clients.WeatherClient.StaleIfErrorWeatherClient;
 import org.weatherwear.clients.WeatherClient.WeatherClient;
 import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.cluster.Cluster;
+import org.weatherwear.cluster.ClusteredLocationClient;
+import org.weatherwear.cluster.ClusteredWeatherClient;
+import org.weatherwear.cluster.PeerServer;
 import org.weatherwear.menu.Menu;
 import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.server.AdmissionControl;
+import org.weatherwear.server.HttpRecommendationServer;
+import org.weatherwear.server.NioRecommendationServer;
+import org.weatherwear.telemetry.AuditLog;
+import org.weatherwear.telemetry.RotatingFile;
+import org.weatherwear.weatherdecider.ForecastColumns;
+import org.weatherwear.weatherdecider.IWeatherDecider;
+import org.weatherwear.weatherdecider.NearestAirportIndex;
+import org.weatherwear.weatherdecider.NearestAirportWeatherDecider;
+import org.weatherwear.weatherdecider.PrefetchingWeatherDecider;
 import org.weatherwear.weatherdecider.WeatherDecider;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 public class Main {
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Integer portArgument(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return Integer.parseInt(args[i + 1]);
+            }
+        }
+        return null;
+    }
+
     public static void main(String[] args) throws Exception {
+        //DNS_CACHE_TTL (seconds) keeps resolved upstream addresses for that long, it must be set before the first lookup
+        String dnsCacheTtl = System.getenv("DNS_CACHE_TTL");
+        if (dnsCacheTtl != null) {
+            ConnectionWarmup.cacheDnsFor(Duration.ofSeconds(Long.parseLong(dnsCacheTtl)));
+        }
+        //there is nothing to warm when upstream exchanges are replayed from a file
+        boolean warmup = Boolean.parseBoolean(System.getenv("WARMUP")) && System.getenv("REPLAY_UPSTREAM") == null;
+        if (warmup) {
+            //warmed connections are of no use if they are closed after the default 5 idle seconds
+            ConnectionWarmup.keepIdleConnectionsFor(Duration.ofMinutes(1));
+        }
         //Link all the components together
         Client client = ClientBuilder.newBuilder()
                 .connectTimeout(3, TimeUnit.SECONDS)
                 .readTimeout(3, TimeUnit.SECONDS)
                 .build();
-        IRestClient IRestClient = new RestClient(client);
+        RestClient restClient = new RestClient(client);
+        //Forecasts can come from several open-meteo compatible providers, WEATHER_PROVIDERS lists their base URLs
+        List<String> weatherTargets = new ArrayList<>();
+        for (String target : System.getenv().getOrDefault("WEATHER_PROVIDERS", WeatherClient.OPEN_METEO).split(",")) {
+            weatherTargets.add(target.trim());
+        }
+        //RECORD_UPSTREAM records every upstream exchange to a file, REPLAY_UPSTREAM answers from such a file instead of the network
+        IRestClient upstream = restClient;
+        String replayPath = System.getenv("REPLAY_UPSTREAM");
+        String recordPath = System.getenv("RECORD_UPSTREAM");
+        if (replayPath != null) {
+            upstream = new ReplayRestClient(Path.of(replayPath), ReplayRestClient.Latency.RECORDED);
+        } else if (recordPath != null) {
+            RecordingRestClient recording = new RecordingRestClient(restClient, Path.of(recordPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recording.close();
+                } catch (IOException e) {
+                    //nothing left to report to
+                }
+            }));
+            upstream = recording;
+        }
+        //Every upstream host gets its own bounded pool and queue so a slow one cannot starve the others
+        IRestClient bulkheads = new BulkheadRestClient(upstream, Map.of(
+                "api.open-meteo.com", new BulkheadRestClient.Limits(64, 64),
+                "airport-info.p.rapidapi.com", new BulkheadRestClient.Limits(4, 8)),
+                new BulkheadRestClient.Limits(32, 32));
+        //Each host gets as many calls in flight as its latency and errors show it can take, up to its pool size;
+        //calls beyond that queue by priority: interactive first, and background is held to one call while interactive calls take over a second
+        IRestClient IRestClient = PriorityRestClient.adaptive(bulkheads, Map.of(
+                "api.open-meteo.com", 64,
+                "airport-info.p.rapidapi.com", 4),
+                32, Duration.ofSeconds(1));
+        //With WARMUP=true resolve and connect to every upstream in the background while the menu or servers start, unless replaying
+        if (warmup) {
+            List<String> targets = new ArrayList<>(LocationClient.TARGETS);
+            targets.addAll(weatherTargets);
+            new ConnectionWarmup(restClient, Executors.newCachedThreadPool(daemonThreads("warmup"))).warm(targets);
+        }
         //Setup Location and Weather Clients using Generic Rest Client
+        //Cache resolved locations and forecasts so that lookups prefetched by the menu are reused
         ILocationClient ILocationClient;
+        //When upstream fails, answer from the last known good data, kept for a day and flushed every minute to LAST_KNOWN_GOOD_FILE if set
+        String lastKnownGoodFile = System.getenv("LAST_KNOWN_GOOD_FILE");
+        LastKnownGoodStore lastKnownGood = new LastKnownGoodStore(lastKnownGoodFile != null ? Path.of(lastKnownGoodFile) : null, Duration.ofDays(1), Clock.systemDefaultZone());
+        if (lastKnownGoodFile != null) {
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("last-known-good")).scheduleWithFixedDelay(() -> {
+                try {
+                    lastKnownGood.flush();
+                } catch (IOException e) {
+                    //flushed again next minute
+                }
+            }, 1, 1, TimeUnit.MINUTES);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    lastKnownGood.flush();
+                } catch (IOException e) {
+                    //nothing left to report to
+                }
+            }));
+        }
         ILocationClient = new LocationClient(IRestClient);
-        IWeatherClient IWeatherClient = new WeatherClient(IRestClient);
+        List<IWeatherClient> weatherProviders = new ArrayList<>();
+        for (String target : weatherTargets) {
+            weatherProviders.add(new WeatherClient(IRestClient, target));
+        }
+        IWeatherClient IWeatherClient = RoutingWeatherClient.racing(weatherProviders, Executors.newCachedThreadPool(daemonThreads("weather-race")));
+        //SHARED_CACHE_FILE shares fetched airports and forecasts with the other WeatherWear processes on this host through that memory-mapped file
+        String sharedCacheFile = System.getenv("SHARED_CACHE_FILE");
+        if (sharedCacheFile != null) {
+            SharedForecastCache sharedCache = new SharedForecastCache(Path.of(sharedCacheFile), 4096, 4096, Duration.ofMinutes(10), Duration.ofDays(1), Clock.systemDefaultZone());
+            ILocationClient = new SharedCacheLocationClient(ILocationClient, sharedCache);
+            IWeatherClient = new SharedCacheWeatherClient(IWeatherClient, sharedCache);
+        }
+        ILocationClient = new StaleIfErrorLocationClient(new CachingLocationClient(ILocationClient), lastKnownGood);
+        //GEOIP_TABLE geolocates client IPs offline from that compiled IP range table, compiled first from GEOIP_CSV if set;
+        //addresses it does not cover are still looked up upstream
+        String geoIpTable = System.getenv("GEOIP_TABLE");
+        if (geoIpTable != null) {
+            String geoIpCsv = System.getenv("GEOIP_CSV");
+            if (geoIpCsv != null) {
+                IpRangeTable.compile(IpRangeTable.readCsv(Path.of(geoIpCsv)), Path.of(geoIpTable));
+            }
+            ILocationClient = new GeoIpLocationClient(ILocationClient, new IpRangeTable(Path.of(geoIpTable)));
+        }
+        IWeatherClient = new StaleIfErrorWeatherClient(new CachingWeatherClient(IWeatherClient), lastKnownGood);
+        //Optionally share caches with other nodes listed in CLUSTER_PEERS, this node listening on CLUSTER_SELF (host:port)
+        String clusterSelf = System.getenv("CLUSTER_SELF");
+        if (clusterSelf != null) {
+            List<String> peers = new ArrayList<>();
+            for (String peer : System.getenv().getOrDefault("CLUSTER_PEERS", "").split(",")) {
+                if (!peer.isBlank()) {
+                    peers.add(peer.trim());
+                }
+            }
+            Cluster cluster = new Cluster(clusterSelf, peers);
+            //listen on this node's cluster address only, answering only the listed peers
+            Set<InetAddress> peerAddresses = new HashSet<>();
+            for (String peer : peers) {
+                peerAddresses.add(Cluster.toSocketAddress(peer).getAddress());
+            }
+            InetSocketAddress self = Cluster.toSocketAddress(clusterSelf);
+            new PeerServer(self.getAddress(), self.getPort(), peerAddresses, ILocationClient, IWeatherClient);
+            ILocationClient = new ClusteredLocationClient(cluster, ILocationClient);
+            IWeatherClient = new ClusteredWeatherClient(cluster, IWeatherClient);
+        }
         //Set up weather decider
-        WeatherDecider weatherDecider = new WeatherDecider(ILocationClient, IWeatherClient);
+        //Keep the forecast of every airport looked up in columns, for queries across airports such as where it will rain
+        ForecastColumns forecastColumns = new ForecastColumns(Clock.systemDefaultZone());
+        IWeatherDecider weatherDecider = new WeatherDecider(ILocationClient, IWeatherClient, forecastColumns);
+        //PREFETCH_TOP_K keeps the location and forecast of that many of the most requested airports warm
+        String prefetchTopK = System.getenv("PREFETCH_TOP_K");
+        if (prefetchTopK != null) {
+            weatherDecider = PrefetchingWeatherDecider.start(weatherDecider, Integer.parseInt(prefetchTopK),
+                    Executors.newSingleThreadScheduledExecutor(daemonThreads("prefetch")), Duration.ofMinutes(1));
+        }
+        //AIRPORTS_CSV (IATA,latitude,longitude lines) lets the current location and client IPs be answered as the nearest
+        //airport within NEAREST_AIRPORT_KM (default 50), sharing that airport's caches and prefetching
+        String airportsCsv = System.getenv("AIRPORTS_CSV");
+        if (airportsCsv != null) {
+            double nearestAirportKm = Double.parseDouble(System.getenv().getOrDefault("NEAREST_AIRPORT_KM", "50"));
+            weatherDecider = new NearestAirportWeatherDecider(weatherDecider, ILocationClient,
+                    new NearestAirportIndex(NearestAirportIndex.readCsv(Path.of(airportsCsv))), nearestAirportKm);
+        }
+        //Optionally write one audit line per recommendation to AUDIT_LOG, dropping (default) or waiting when it falls behind per AUDIT_LOG_POLICY
+        AuditLog auditLog = null;
+        String auditPath = System.getenv("AUDIT_LOG");
+        if (auditPath != null) {
+            AuditLog.FullPolicy policy = AuditLog.FullPolicy.valueOf(System.getenv().getOrDefault("AUDIT_LOG_POLICY", "drop").toUpperCase());
+            auditLog = AuditLog.start(new RotatingFile(Path.of(auditPath), 64L * 1024 * 1024, 5), 8192, policy);
+            AuditLog closing = auditLog;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    closing.close();
+                } catch (IOException e) {
+                    //nothing left to report to
+                }
+            }));
+        }
         //Set up clothing recommender
-        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider);
+        //Each recommendation must be answered within REQUEST_BUDGET_MILLIS (default 5000), however many upstream hops it takes
+        Duration budget = Duration.ofMillis(Long.parseLong(System.getenv().getOrDefault("REQUEST_BUDGET_MILLIS", "5000")));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider, Clock.systemDefaultZone(), auditLog, budget);
+        //Serve other services instead of the menu when --binary-port and/or --http-port are given
+        Integer binaryPort = portArgument(args, "--binary-port");
+        Integer httpPort = portArgument(args, "--http-port");
+        if (binaryPort != null || httpPort != null) {
+            //SERVER_WORKERS (default 64) requests are decided at once, the others queue for a worker
+            ExecutorService workers = Executors.newFixedThreadPool(Integer.parseInt(System.getenv().getOrDefault("SERVER_WORKERS", "64")), daemonThreads("recommendation-worker"));
+            //Once requests keep queueing longer than SHED_TARGET_MILLIS (default 10, 0 to never shed) only cached answers are given, the rest are told to retry
+            long shedTargetMillis = Long.parseLong(System.getenv().getOrDefault("SHED_TARGET_MILLIS", "10"));
+            AdmissionControl admissionControl = shedTargetMillis > 0 ? new AdmissionControl(Duration.ofMillis(shedTargetMillis), Duration.ofMillis(shedTargetMillis * 10)) : null;
+            if (binaryPort != null) {
+                new NioRecommendationServer(new InetSocketAddress(binaryPort), recommendClothing, workers, admissionControl);
+            }
+            if (httpPort != null) {
+                new HttpRecommendationServer(new InetSocketAddress(httpPort), recommendClothing, workers, admissionControl).answerWhereQueries(forecastColumns);
+            }
+            return;
+        }
         //Boot menu
         new Menu(System.in, System.out, recommendClothing).start();
     }
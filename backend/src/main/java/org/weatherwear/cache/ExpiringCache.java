@@ -0,0 +1,163 @@
+package org.weatherwear.cache;
+
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe cache whose entries expire a fixed time after they were loaded.
+ * Concurrent lookups of a key that is still loading wait for that load instead of starting another one,
+ * so a speculative lookup and the real one never hit the upstream service twice.
+ * Failed loads are not cached. A load runs on the thread of the lookup that started it, within that request's deadline;
+ * when that deadline is what makes it fail, the waiters are not failed with it but one of them loads again within its own,
+ * as a single caller with almost no time left must not fail every caller with time to spare.
+ * Lookups made with {@link RequestContext#cacheOnly} only answer with values already loaded.
+ * Expired entries are swept out once per time to live, and a cache given a maximum size evicts the entries closest
+ * to expiring once it grows past it, so a cache keyed by something unbounded such as client addresses stays bounded.
+ */
+public class ExpiringCache<K, V> {
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    //completes a load given up on the loading caller's own deadline, for the waiters to load again
+    private static final class LoadAbandoned extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        //entries being loaded never expire
+        private volatile long expiresAtMillis = Long.MAX_VALUE;
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Clock clock;
+    private final AtomicLong nextSweepMillis;
+
+    public ExpiringCache(long ttlMillis, int maxEntries, Clock clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.nextSweepMillis = new AtomicLong(clock.millis() + ttlMillis);
+    }
+
+    public ExpiringCache(long ttlMillis, Clock clock) {
+        this(ttlMillis, Integer.MAX_VALUE, clock);
+    }
+
+    public ExpiringCache(long ttlMillis) {
+        this(ttlMillis, Clock.systemUTC());
+    }
+
+    public V get(K key, Loader<K, V> loader) throws Exception {
+        while (true) {
+            long now = clock.millis();
+            if (RequestContext.isCacheOnly()) {
+                //neither start a load nor wait for one in progress
+                Entry<V> cached = entries.get(key);
+                if (cached == null || cached.expiresAtMillis <= now || !cached.value.isDone()) {
+                    throw new NotCachedException("Not cached: " + key);
+                }
+                return await(cached.value);
+            }
+            Entry<V> candidate = new Entry<>();
+            Entry<V> entry = entries.compute(key, (k, existing) -> existing == null || existing.expiresAtMillis <= now ? candidate : existing);
+            if (entry == candidate) {
+                evict(now);
+                return load(key, candidate, loader);
+            }
+            try {
+                return await(entry.value);
+            } catch (LoadAbandoned e) {
+                //the loading caller ran out of time, this one loads within its own
+            }
+        }
+    }
+
+    private V load(K key, Entry<V> candidate, Loader<K, V> loader) throws Exception {
+        try {
+            V value = loader.load(key);
+            candidate.expiresAtMillis = clock.millis() + ttlMillis;
+            candidate.value.complete(value);
+            return value;
+        } catch (Throwable e) {
+            //errors too, or the waiters on this load would wait forever
+            entries.remove(key, candidate);
+            candidate.value.completeExceptionally(isOwnDeadline(e) ? new LoadAbandoned() : e);
+            throw e;
+        }
+    }
+
+    private static boolean isOwnDeadline(Throwable e) {
+        if (RequestContext.remainingNanos() <= 0) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //called on every load, so a cache that is not loading is not growing either
+    private void evict(long now) {
+        long sweepAt = nextSweepMillis.get();
+        if (now >= sweepAt && nextSweepMillis.compareAndSet(sweepAt, now + ttlMillis)) {
+            entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+        }
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            //a tenth more than needed, so that a full cache does not sort its entries on every load
+            entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().value.isDone())
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAtMillis))
+                    .limit(excess + maxEntries / 10)
+                    .toList()
+                    .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            //a waiter gives up when its own request runs out of time, the load itself carries on for the others
+            long remainingNanos = RequestContext.remainingNanos();
+            return remainingNanos == Long.MAX_VALUE ? future.get() : future.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Deadline exceeded waiting for a value being loaded");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,195 @@
+package org.weatherwear.cache;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last successfully fetched forecast series per location and resolved location per airport, kept to answer
+ * with (marked stale) when the upstream services fail. Unlike the caches nothing here expires on a short TTL;
+ * forecasts are only served up to a maximum age and are shifted to start at today.
+ * The store lives in memory and can be flushed to a local file, from which it is reloaded at startup.
+ */
+public class LastKnownGoodStore {
+    private static final int MAGIC = 0x57574C4B;
+    private static final byte VERSION = 1;
+
+    private record StoredForecast(Forecast forecast, long fetchedAtMillis) {
+    }
+
+    /**
+     * A stored forecast shifted to today, and how old it is.
+     */
+    public record Stale(Forecast forecast, long ageMillis) {
+    }
+
+    private final Map<Location, StoredForecast> forecasts = new ConcurrentHashMap<>();
+    private final Map<String, Location> airports = new ConcurrentHashMap<>();
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+    private volatile boolean dirty;
+
+    /**
+     * A file that cannot be read is reported and left to be replaced by the next flush, the store then starts empty:
+     * it only holds fallbacks, which are not worth failing startup over.
+     *
+     * @param file where the store is flushed to and loaded from, or null to keep it in memory only
+     */
+    public LastKnownGoodStore(Path file, Duration maxAge, Clock clock) {
+        this.file = file;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        if (file != null && Files.exists(file)) {
+            try {
+                load();
+            } catch (IOException | RuntimeException e) {
+                forecasts.clear();
+                airports.clear();
+                System.err.println("Ignoring unreadable last known good store " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * The series handed in again, as a cache in front of the upstream does until it expires, keeps the time it was
+     * first stored, so that its age stays the age of the fetch.
+     */
+    public void putForecast(Location location, Forecast forecast) {
+        StoredForecast stored = forecasts.get(location);
+        if (stored != null && stored.forecast == forecast) {
+            return;
+        }
+        forecasts.put(location, new StoredForecast(forecast, clock.millis()));
+        dirty = true;
+    }
+
+    public void putAirport(String IATA, Location location) {
+        if (!location.equals(airports.put(IATA, location))) {
+            dirty = true;
+        }
+    }
+
+    public Location getAirport(String IATA) {
+        return airports.get(IATA);
+    }
+
+    /**
+     * @return the last known forecast for the location with day 0 being today, or null if there is none young enough
+     */
+    public Stale getForecast(Location location) {
+        return getForecast(location, 0);
+    }
+
+    /**
+     * @param day the day from today the forecast has to cover
+     * @return the last known forecast for the location with day 0 being today, or null if there is none young enough
+     * or it does not reach the day
+     */
+    public Stale getForecast(Location location, int day) {
+        StoredForecast stored = forecasts.get(location);
+        if (stored == null) {
+            return null;
+        }
+        long now = clock.millis();
+        long ageMillis = now - stored.fetchedAtMillis;
+        if (ageMillis > maxAge.toMillis()) {
+            return null;
+        }
+        LocalDate fetchedOn = LocalDate.ofInstant(Instant.ofEpochMilli(stored.fetchedAtMillis), clock.getZone());
+        int elapsedDays = (int) (LocalDate.now(clock).toEpochDay() - fetchedOn.toEpochDay());
+        Forecast forecast = stored.forecast;
+        if (elapsedDays + day >= forecast.getDays()) {
+            return null;
+        }
+        return new Stale(elapsedDays == 0 ? forecast : shift(forecast, elapsedDays), ageMillis);
+    }
+
+    private static Forecast shift(Forecast forecast, int days) {
+        double[] tempInCelsius = new double[forecast.getDays() - days];
+        double[] precipitation = new double[tempInCelsius.length];
+        for (int day = 0; day < tempInCelsius.length; day++) {
+            tempInCelsius[day] = forecast.getTempInCelsius(day + days);
+            precipitation[day] = forecast.getPrecipitationProbability(day + days);
+        }
+        return new Forecast(tempInCelsius, precipitation);
+    }
+
+    /**
+     * Forgets the forecasts too old to be served, then writes the store to its file if anything changed
+     * since the last flush, replacing the file atomically.
+     */
+    public synchronized void flush() throws IOException {
+        long oldest = clock.millis() - maxAge.toMillis();
+        if (forecasts.values().removeIf(stored -> stored.fetchedAtMillis < oldest)) {
+            dirty = true;
+        }
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            Map<Location, StoredForecast> forecastsSnapshot = Map.copyOf(forecasts);
+            output.writeInt(forecastsSnapshot.size());
+            for (Map.Entry<Location, StoredForecast> entry : forecastsSnapshot.entrySet()) {
+                Forecast forecast = entry.getValue().forecast;
+                output.writeLong(entry.getKey().packed());
+                output.writeLong(entry.getValue().fetchedAtMillis);
+                output.writeShort(forecast.getDays());
+                for (int day = 0; day < forecast.getDays(); day++) {
+                    output.writeDouble(forecast.getTempInCelsius(day));
+                    output.writeDouble(forecast.getPrecipitationProbability(day));
+                }
+            }
+            Map<String, Location> airportsSnapshot = Map.copyOf(airports);
+            output.writeInt(airportsSnapshot.size());
+            for (Map.Entry<String, Location> entry : airportsSnapshot.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue().packed());
+            }
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Not a last known good store: " + file);
+            }
+            for (int count = input.readInt(); count > 0; count--) {
+                Location location = Location.fromPacked(input.readLong());
+                long fetchedAtMillis = input.readLong();
+                double[] tempInCelsius = new double[input.readShort()];
+                double[] precipitation = new double[tempInCelsius.length];
+                for (int day = 0; day < tempInCelsius.length; day++) {
+                    tempInCelsius[day] = input.readDouble();
+                    precipitation[day] = input.readDouble();
+                }
+                forecasts.put(location, new StoredForecast(new Forecast(tempInCelsius, precipitation), fetchedAtMillis));
+            }
+            for (int count = input.readInt(); count > 0; count--) {
+                airports.put(input.readUTF(), Location.fromPacked(input.readLong()));
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.weatherwear.cache;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Forecast and airport location cache shared by every WeatherWear process on a host through a memory-mapped file,
+ * so that a process starting with empty in-memory caches can reuse what another one already fetched.
+ * The file holds two open-addressed tables of fixed-size slots, probed over a short window. Every slot is guarded by
+ * a sequence counter: a writer makes it odd, writes and makes it even again, and a reader copies the slot and retries
+ * if the counter was odd or changed meanwhile, so readers take no lock and never see a torn entry. Writers claim a
+ * slot with a compare-and-set on its counter and give up if another writer holds it, since caching is best effort.
+ * Entries expire by the time they were written, which is kept in the slot, and a full window evicts its oldest entry.
+ * A process that dies mid-write leaves its slot odd; that slot is skipped until the file is recreated.
+ */
+public class SharedForecastCache implements AutoCloseable {
+    private static final int MAGIC = 0x57575343;
+    private static final int VERSION = 1;
+    static final int MAX_DAYS = 16;
+    private static final int HEADER_BYTES = 64;
+    private static final int PROBES = 8;
+    //copies retried while writers keep changing a slot, after which it counts as a miss
+    private static final int RETRIES = 16;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    //slot layout: sequence | key | written at millis | payload, every field a long
+    private static final int SEQUENCE = 0;
+    private static final int KEY = 8;
+    private static final int WRITTEN_AT = 16;
+    private static final int PAYLOAD = 24;
+    //first epoch day and day count, then the temperature and precipitation bits of every day
+    private static final int FORECAST_PAYLOAD_LONGS = 1 + 2 * MAX_DAYS;
+    //packed location
+    private static final int AIRPORT_PAYLOAD_LONGS = 1;
+
+    private record Region(int offset, int slots, int slotBytes) {
+        private static Region after(int offset, int slots, int payloadLongs) {
+            return new Region(offset, slots, PAYLOAD + payloadLongs * Long.BYTES);
+        }
+
+        private int end() {
+            return offset + slots * slotBytes;
+        }
+
+        private int slotOffset(int slot) {
+            return offset + (slot & (slots - 1)) * slotBytes;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Region forecasts;
+    private final Region airports;
+    private final long forecastTtlMillis;
+    private final long airportTtlMillis;
+    private final Clock clock;
+
+    /**
+     * Opens the cache file, creating it if no process has yet. Every process sharing it must use the same slot counts.
+     *
+     * @param forecastSlots slots for forecasts, rounded up to a power of two
+     * @param airportSlots  slots for airport locations, rounded up to a power of two
+     */
+    public SharedForecastCache(Path file, int forecastSlots, int airportSlots, Duration forecastTtl, Duration airportTtl, Clock clock) throws IOException {
+        this.forecasts = Region.after(HEADER_BYTES, powerOfTwo(forecastSlots), FORECAST_PAYLOAD_LONGS);
+        this.airports = Region.after(forecasts.end(), powerOfTwo(airportSlots), AIRPORT_PAYLOAD_LONGS);
+        this.forecastTtlMillis = forecastTtl.toMillis();
+        this.airportTtlMillis = airportTtl.toMillis();
+        this.clock = clock;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            initialise(file);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, airports.end());
+            buffer.order(ByteOrder.nativeOrder());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int powerOfTwo(int slots) {
+        return Integer.highestOneBit(Math.max(PROBES, slots) - 1) << 1;
+    }
+
+    //the first process to get the lock sizes the file and writes the header, the others check they agree with it
+    private void initialise(Path file) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+            if (channel.size() == 0) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(forecasts.slots()).putInt(airports.slots()).flip();
+                channel.write(header, 0);
+                channel.write(ByteBuffer.allocate(1), airports.end() - 1);
+                return;
+            }
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != forecasts.slots() || header.getInt() != airports.slots()) {
+                throw new IOException("Not a shared forecast cache with this layout: " + file);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    private static int hash(long key) {
+        //murmur3 finaliser, so that nearby coordinates spread over the table
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Copies the payload of the key's entry into the array.
+     *
+     * @return the time the entry was written, or 0 if the key has no entry
+     */
+    private long read(Region region, long key, long[] payload) {
+        int first = hash(key);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int offset = region.slotOffset(first + probe);
+            for (int attempt = 0; attempt < RETRIES; attempt++) {
+                long sequence = (long) LONGS.getAcquire(buffer, offset + SEQUENCE);
+                if ((sequence & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long writtenAt = buffer.getLong(offset + WRITTEN_AT);
+                if (writtenAt == 0 || buffer.getLong(offset + KEY) != key) {
+                    //possibly torn, but a missed entry is only a cache miss
+                    break;
+                }
+                for (int index = 0; index < payload.length; index++) {
+                    payload[index] = buffer.getLong(offset + PAYLOAD + index * Long.BYTES);
+                }
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getOpaque(buffer, offset + SEQUENCE) == sequence) {
+                    return writtenAt;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void write(Region region, long key, long[] payload) {
+        int first = hash(key);
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int offset = region.slotOffset(first + probe);
+            long writtenAt = buffer.getLong(offset + WRITTEN_AT);
+            if (writtenAt != 0 && buffer.getLong(offset + KEY) == key) {
+                victim = offset;
+                break;
+            }
+            //empty slots have written at 0, so they are taken before any eviction
+            if (writtenAt < oldest) {
+                oldest = writtenAt;
+                victim = offset;
+            }
+        }
+        long sequence = (long) LONGS.getVolatile(buffer, victim + SEQUENCE);
+        if ((sequence & 1) != 0 || !LONGS.compareAndSet(buffer, victim + SEQUENCE, sequence, sequence + 1)) {
+            return;
+        }
+        buffer.putLong(victim + KEY, key);
+        buffer.putLong(victim + WRITTEN_AT, Math.max(1, clock.millis()));
+        for (int index = 0; index < payload.length; index++) {
+            buffer.putLong(victim + PAYLOAD + index * Long.BYTES, payload[index]);
+        }
+        LONGS.setRelease(buffer, victim + SEQUENCE, sequence + 2);
+    }
+
+    private boolean isFresh(long writtenAt, long ttlMillis) {
+        return writtenAt != 0 && clock.millis() - writtenAt < ttlMillis;
+    }
+
+    /**
+     * @return the location's forecast with day 0 being today, or null if no process stored one that is still fresh
+     */
+    public Forecast getForecast(Location location) {
+        long[] payload = new long[FORECAST_PAYLOAD_LONGS];
+        if (!isFresh(read(forecasts, location.packed(), payload), forecastTtlMillis)) {
+            return null;
+        }
+        //a series stored before midnight no longer starts today
+        if ((int) (payload[0] >>> 32) != LocalDate.now(clock).toEpochDay()) {
+            return null;
+        }
+        double[] tempInCelsius = new double[(int) payload[0]];
+        double[] precipitationProbability = new double[tempInCelsius.length];
+        for (int day = 0; day < tempInCelsius.length; day++) {
+            tempInCelsius[day] = Double.longBitsToDouble(payload[1 + 2 * day]);
+            precipitationProbability[day] = Double.longBitsToDouble(payload[2 + 2 * day]);
+        }
+        return new Forecast(tempInCelsius, precipitationProbability);
+    }
+
+    /**
+     * Shares the location's forecast, day 0 being today. Only the first {@link #MAX_DAYS} days are kept.
+     */
+    public void putForecast(Location location, Forecast forecast) {
+        int days = Math.min(forecast.getDays(), MAX_DAYS);
+        long[] payload = new long[FORECAST_PAYLOAD_LONGS];
+        payload[0] = (LocalDate.now(clock).toEpochDay() << 32) | days;
+        for (int day = 0; day < days; day++) {
+            payload[1 + 2 * day] = Double.doubleToRawLongBits(forecast.getTempInCelsius(day));
+            payload[2 + 2 * day] = Double.doubleToRawLongBits(forecast.getPrecipitationProbability(day));
+        }
+        write(forecasts, location.packed(), payload);
+    }
+
+    private static long airportKey(String IATA) {
+        long key = 0;
+        for (byte character : IATA.getBytes(StandardCharsets.US_ASCII)) {
+            key = key << 8 | (character & 0xFF);
+        }
+        return key;
+    }
+
+    /**
+     * @return the airport's location, or null if no process stored one that is still fresh
+     */
+    public Location getAirport(String IATA) {
+        long[] payload = new long[AIRPORT_PAYLOAD_LONGS];
+        return isFresh(read(airports, airportKey(IATA), payload), airportTtlMillis) ? Location.fromPacked(payload[0]) : null;
+    }
+
+    public void putAirport(String IATA, Location location) {
+        write(airports, airportKey(IATA), new long[]{location.packed()});
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,86 @@
+package org.weatherwear.clients.GenericRestClient;
+
+/**
+ * Number of calls one upstream host is allowed in flight, adjusted from how its calls go.
+ * Latency drives the limit the gradient way: the lowest latency seen is the host's unloaded latency, a moving
+ * average the current one, and their ratio scales the limit down once current latency is more than
+ * {@link #TOLERANCE} times the unloaded one, while a headroom of sqrt(limit) lets it probe upwards otherwise.
+ * Every {@link #PROBE_EVERY} calls the limit drops to that headroom for a moment and, once the calls in flight have
+ * drained down to it, the unloaded latency is measured afresh without queueing at the host; otherwise a host that is
+ * always busy would look unloaded at its busy latency and the limit would creep up unchecked. The calls that started
+ * before the drain still measure the old load and are not sampled.
+ * Errors drive the limit the AIMD way: a timed out or failed call cuts it by {@link #BACKOFF}.
+ * The limit only grows while calls actually use it, so a quiet host does not build up a limit it never tested.
+ * A limit whose minimum and maximum are equal never moves, which is how fixed limits are expressed.
+ */
+public class AdaptiveConcurrencyLimit {
+    //current latency may be this many times the unloaded latency before the limit shrinks
+    static final double TOLERANCE = 1.5;
+    static final double BACKOFF = 0.9;
+    static final int PROBE_EVERY = 1000;
+    private static final double ALPHA = 0.2;
+    //weight of each new estimate in the limit, so that one sample cannot swing it
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    //everything below is guarded by this
+    private double limit;
+    //0 until measured
+    private long unloadedLatencyNanos;
+    private double averageLatencyNanos;
+    private int samples;
+    //set from a probe's drop of the limit until a call starts with no more than the new limit in flight
+    private boolean probing;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public static AdaptiveConcurrencyLimit fixed(int limit) {
+        return new AdaptiveConcurrencyLimit(limit, limit, limit);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Adjusts the limit after a call.
+     *
+     * @param latencyNanos how long the call took, not counting any wait for a slot
+     * @param dropped      whether the call timed out or was refused, a sign the host is past its capacity;
+     *                     otherwise the host answered and the latency is a sample of its load
+     * @param inFlight     calls in flight when this one started, itself included
+     */
+    public synchronized void record(long latencyNanos, boolean dropped, int inFlight) {
+        if (minLimit == maxLimit) {
+            return;
+        }
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            return;
+        }
+        if (probing) {
+            if (inFlight > limit) {
+                return;
+            }
+            probing = false;
+            unloadedLatencyNanos = 0;
+        } else if (++samples % PROBE_EVERY == 0) {
+            probing = true;
+            limit = Math.max(minLimit, Math.sqrt(limit));
+            return;
+        }
+        unloadedLatencyNanos = unloadedLatencyNanos == 0 ? latencyNanos : Math.min(unloadedLatencyNanos, latencyNanos);
+        averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos : averageLatencyNanos + ALPHA * (latencyNanos - averageLatencyNanos);
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * unloadedLatencyNanos / averageLatencyNanos));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        if (estimate > limit && inFlight * 2 < limit) {
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, limit + SMOOTHING * (estimate - limit)));
+    }
+}
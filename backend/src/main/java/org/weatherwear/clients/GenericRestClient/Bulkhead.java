@@ -0,0 +1,55 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of workers and bounded wait queue dedicated to one upstream host.
+ * A slow host can only exhaust its own bulkhead; work for it is rejected once both are full.
+ */
+public class Bulkhead {
+    public record Saturation(String host, int active, int maxConcurrent, int queued, int queueCapacity, long rejected) {
+        public double utilization() {
+            return (double) (active + queued) / (maxConcurrent + queueCapacity);
+        }
+    }
+
+    private final String host;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String host, int maxConcurrent, int queueCapacity) {
+        this.host = host;
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS, queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + host);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> Future<T> submit(Callable<T> task) throws BulkheadFullException {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new BulkheadFullException("Bulkhead for " + host + " is full");
+        }
+    }
+
+    public Saturation getSaturation() {
+        return new Saturation(host, executor.getActiveCount(), executor.getMaximumPoolSize(), executor.getQueue().size(), queueCapacity, rejected.get());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
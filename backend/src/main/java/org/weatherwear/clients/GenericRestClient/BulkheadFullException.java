@@ -0,0 +1,21 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown when the bulkhead of a host has no free worker and no room left in its queue.
+ * It extends SocketTimeoutException because callers should treat it the same way: the host cannot answer in time,
+ * so backups and fallbacks apply. It is thrown under load, so no stack trace is captured.
+ */
+public class BulkheadFullException extends SocketTimeoutException {
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(String errorMessage) {
+        super(errorMessage);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,94 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * REST client that runs the requests for each upstream host in that host's own {@link Bulkhead},
+ * so that one degraded host cannot take the threads needed to talk to the healthy ones.
+ */
+public class BulkheadRestClient implements IRestClient {
+    public record Limits(int maxConcurrent, int queueCapacity) {
+    }
+
+    private final IRestClient restClientInterface;
+    private final Map<String, Limits> limitsByHost;
+    private final Limits defaultLimits;
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public BulkheadRestClient(IRestClient restClientInterface, Map<String, Limits> limitsByHost, Limits defaultLimits) {
+        this.restClientInterface = restClientInterface;
+        this.limitsByHost = limitsByHost;
+        this.defaultLimits = defaultLimits;
+    }
+
+    static String hostOf(String target) {
+        String host = URI.create(target).getHost();
+        return host != null ? host : target;
+    }
+
+    private Bulkhead bulkheadFor(String target) {
+        return bulkheads.computeIfAbsent(hostOf(target), host -> {
+            Limits limits = limitsByHost.getOrDefault(host, defaultLimits);
+            return new Bulkhead(host, limits.maxConcurrent(), limits.queueCapacity());
+        });
+    }
+
+    public List<Bulkhead.Saturation> getSaturation() {
+        return bulkheads.values().stream().map(Bulkhead::getSaturation).toList();
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        MultivaluedMap<String, Object> emptyMap = new MultivaluedHashMap<>();
+        return request(verb, target, path, emptyMap, emptyMap);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(target, () -> restClientInterface.request(verb, target, path, headers, queryParams));
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(target, () -> restClientInterface.request(verb, target, path, headers, queryParams, jsonBody));
+    }
+
+    private HttpResponse request(String target, Callable<HttpResponse> call) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        Future<HttpResponse> response = bulkheadFor(target).submit(RequestContext.propagate(call));
+        try {
+            long remainingNanos = RequestContext.remainingNanos();
+            return remainingNanos == Long.MAX_VALUE ? response.get() : response.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            //the request's deadline passed while queued or in flight
+            response.cancel(true);
+            throw new DeadlineExceededException("Deadline exceeded waiting for " + target);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SocketTimeoutException socketTimeoutException) {
+                throw socketTimeoutException;
+            }
+            if (cause instanceof HttpStatusCodeUnknown httpStatusCodeUnknown) {
+                throw httpStatusCodeUnknown;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SocketTimeoutException("Interrupted while waiting for " + target);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Moves the DNS lookup, TCP handshake and TLS handshake of every upstream off the first recommendation:
+ * each target is resolved and connected to in parallel, in the background, and the open connection is left in the pool
+ * for the first real request to reuse.
+ */
+public class ConnectionWarmup {
+    private final RestClient restClient;
+    private final Executor executor;
+
+    public ConnectionWarmup(RestClient restClient, Executor executor) {
+        this.restClient = restClient;
+        this.executor = executor;
+    }
+
+    /**
+     * Keeps successful DNS lookups for the given time instead of the JVM default.
+     * Only takes effect when called before the first lookup.
+     */
+    public static void cacheDnsFor(Duration ttl) {
+        Security.setProperty("networkaddress.cache.ttl", Long.toString(ttl.toSeconds()));
+    }
+
+    /**
+     * Keeps idle pooled connections open for the given time instead of the default 5 seconds,
+     * unless the server asks for less. Only takes effect when called before the first connection.
+     */
+    public static void keepIdleConnectionsFor(Duration time) {
+        System.setProperty("http.keepAlive.time.server", Long.toString(time.toSeconds()));
+    }
+
+    private boolean warm(String target) {
+        try {
+            InetAddress.getAllByName(URI.create(target).getHost());
+            restClient.connect(target);
+            return true;
+        } catch (UnknownHostException | RuntimeException e) {
+            //a target that cannot be warmed is simply left cold for its first request
+            return false;
+        }
+    }
+
+    /**
+     * @return completes with the number of targets that were reached, once every target has been tried
+     */
+    public CompletableFuture<Integer> warm(Collection<String> targets) {
+        List<CompletableFuture<Boolean>> warmed = new ArrayList<>();
+        for (String target : targets) {
+            warmed.add(CompletableFuture.supplyAsync(() -> warm(target), executor));
+        }
+        return CompletableFuture.allOf(warmed.toArray(CompletableFuture[]::new))
+                .thenApply(done -> (int) warmed.stream().filter(CompletableFuture::join).count());
+    }
+}
@@ -1,5 +1,6 @@
 package org.weatherwear.clients.GenericRestClient;
 
 public enum HttpRequestMethods {
-    GET
+    GET,
+    POST
 }
@@ -1,7 +1,30 @@
 package org.weatherwear.clients.GenericRestClient;
 
+/**
+ * Thrown for any response status other than 200. Upstream services return these in bursts during outages,
+ * so no stack trace is captured.
+ */
 public class HttpStatusCodeUnknown extends Exception {
-    public HttpStatusCodeUnknown(String errorMessage) {
+    private final int status;
+
+    public HttpStatusCodeUnknown(int status, String errorMessage) {
         super(errorMessage);
+        this.status = status;
+    }
+
+    public HttpStatusCodeUnknown(String errorMessage) {
+        this(0, errorMessage);
+    }
+
+    /**
+     * @return the response status, or 0 if it is not known
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
     }
-}
\ No newline at end of file
+}
@@ -8,4 +8,7 @@ public interface IRestClient {
     HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown;
 
     HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown;
+
+    //jsonBody is sent as the request entity, null for none
+    HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown;
 }
@@ -0,0 +1,103 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * REST client that admits the requests for each upstream host through that host's own {@link PriorityScheduler},
+ * so that when a host is busy the calls made for waiting users go before batch and background traffic.
+ * The priority of a call is that of the work running on the calling thread, see {@link org.weatherwear.telemetry.RequestContext#priority()}.
+ * Each host's slots are either fixed or, with {@link #adaptive}, an {@link AdaptiveConcurrencyLimit} that follows
+ * what the host can take.
+ */
+public class PriorityRestClient implements IRestClient {
+    public record HostQueueWait(String host, int limit, PriorityScheduler.QueueWait queueWait) {
+    }
+
+    private final IRestClient restClientInterface;
+    private final Function<String, AdaptiveConcurrencyLimit> limitForHost;
+    private final Duration interactiveLatencyTarget;
+    private final ConcurrentHashMap<String, PriorityScheduler> schedulers = new ConcurrentHashMap<>();
+
+    private PriorityRestClient(IRestClient restClientInterface, Function<String, AdaptiveConcurrencyLimit> limitForHost, Duration interactiveLatencyTarget) {
+        this.restClientInterface = restClientInterface;
+        this.limitForHost = limitForHost;
+        this.interactiveLatencyTarget = interactiveLatencyTarget;
+    }
+
+    public PriorityRestClient(IRestClient restClientInterface, Map<String, Integer> maxConcurrentByHost, int defaultMaxConcurrent, Duration interactiveLatencyTarget) {
+        this(restClientInterface, host -> AdaptiveConcurrencyLimit.fixed(maxConcurrentByHost.getOrDefault(host, defaultMaxConcurrent)), interactiveLatencyTarget);
+    }
+
+    /**
+     * Scheduler whose per-host limits adapt between 1 and the host's maximum, starting at a quarter of it.
+     */
+    public static PriorityRestClient adaptive(IRestClient restClientInterface, Map<String, Integer> maxConcurrentByHost, int defaultMaxConcurrent, Duration interactiveLatencyTarget) {
+        return new PriorityRestClient(restClientInterface, host -> {
+            int maxConcurrent = maxConcurrentByHost.getOrDefault(host, defaultMaxConcurrent);
+            return new AdaptiveConcurrencyLimit(Math.max(1, maxConcurrent / 4), 1, maxConcurrent);
+        }, interactiveLatencyTarget);
+    }
+
+    private PriorityScheduler schedulerFor(String host) {
+        return schedulers.computeIfAbsent(host, ignored -> new PriorityScheduler(host, limitForHost.apply(host), interactiveLatencyTarget));
+    }
+
+    /**
+     * @return the current concurrency limit of every host called so far
+     */
+    public Map<String, Integer> getLimits() {
+        Map<String, Integer> limits = new TreeMap<>();
+        schedulers.forEach((host, scheduler) -> limits.put(host, scheduler.getLimit()));
+        return limits;
+    }
+
+    /**
+     * @return calls, mean and max queue wait per host and priority since startup, with the host's current concurrency limit
+     */
+    public List<HostQueueWait> getQueueWaits() {
+        return schedulers.entrySet().stream()
+                .flatMap(entry -> entry.getValue().getQueueWaits().stream().map(wait -> new HostQueueWait(entry.getKey(), entry.getValue().getLimit(), wait)))
+                .toList();
+    }
+
+    public boolean isThrottlingBackground(String host) {
+        PriorityScheduler scheduler = schedulers.get(host);
+        return scheduler != null && scheduler.isThrottled();
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        MultivaluedMap<String, Object> emptyMap = new MultivaluedHashMap<>();
+        return request(verb, target, path, emptyMap, emptyMap);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(target, () -> restClientInterface.request(verb, target, path, headers, queryParams));
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(target, () -> restClientInterface.request(verb, target, path, headers, queryParams, jsonBody));
+    }
+
+    private HttpResponse request(String target, Callable<HttpResponse> call) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        try {
+            return schedulerFor(BulkheadRestClient.hostOf(target)).run(call);
+        } catch (SocketTimeoutException | HttpStatusCodeUnknown | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SocketTimeoutException("Interrupted while queued for " + target);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.telemetry.UpstreamQueueWaitEvent;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits a bounded number of concurrent calls to one upstream host, in priority order.
+ * When every slot is taken, callers wait in one FIFO queue per {@link Priority} and a freed slot goes to the head of
+ * the most urgent non-empty queue, so interactive calls jump ahead of batch and background ones.
+ * While the moving average of interactive call latency (queue wait included) is above the target, background calls
+ * are throttled to a single slot, leaving the others to interactive and batch work. The average halves every
+ * {@link #LATENCY_HALF_LIFE} without interactive calls, so one slow burst does not hold background work back for good.
+ * A caller whose request deadline passes while queued gives up its place and fails fast.
+ * The number of slots is an {@link AdaptiveConcurrencyLimit}, told how every call the host answered or dropped went;
+ * calls that failed on this side, such as those whose request deadline ran out, say nothing about the host.
+ */
+public class PriorityScheduler {
+    //weight of the latest interactive call in the latency moving average
+    private static final double ALPHA = 0.2;
+    static final Duration LATENCY_HALF_LIFE = Duration.ofSeconds(10);
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    public record QueueWait(Priority priority, long calls, double meanWaitMillis, double maxWaitMillis) {
+    }
+
+    //what a call's outcome tells the concurrency limit about the host
+    private enum Sample {
+        ANSWERED, DROPPED, NONE
+    }
+
+    private static final class Waiter {
+        private boolean granted;
+    }
+
+    private final String host;
+    private final AdaptiveConcurrencyLimit limit;
+    private final long interactiveLatencyTargetNanos;
+    private final long latencyHalfLifeNanos;
+    //everything below is guarded by this
+    private final List<ArrayDeque<Waiter>> queues = new ArrayList<>();
+    private final int[] running = new int[PRIORITIES.length];
+    private int runningTotal;
+    private double interactiveLatencyNanos;
+    //System.nanoTime() of the last interactive call in the average
+    private long interactiveLatencyAtNanos;
+    private final long[] calls = new long[PRIORITIES.length];
+    private final long[] totalWaitNanos = new long[PRIORITIES.length];
+    private final long[] maxWaitNanos = new long[PRIORITIES.length];
+
+    public PriorityScheduler(String host, AdaptiveConcurrencyLimit limit, Duration interactiveLatencyTarget, Duration latencyHalfLife) {
+        this.host = host;
+        this.limit = limit;
+        this.interactiveLatencyTargetNanos = interactiveLatencyTarget.toNanos();
+        this.latencyHalfLifeNanos = latencyHalfLife.toNanos();
+        for (Priority ignored : PRIORITIES) {
+            queues.add(new ArrayDeque<>());
+        }
+    }
+
+    public PriorityScheduler(String host, AdaptiveConcurrencyLimit limit, Duration interactiveLatencyTarget) {
+        this(host, limit, interactiveLatencyTarget, LATENCY_HALF_LIFE);
+    }
+
+    public PriorityScheduler(String host, int maxConcurrent, Duration interactiveLatencyTarget) {
+        this(host, AdaptiveConcurrencyLimit.fixed(maxConcurrent), interactiveLatencyTarget);
+    }
+
+    //the average as it stands now, having halved every half-life since the last interactive call
+    private double interactiveLatencyNanos(long now) {
+        return interactiveLatencyNanos * Math.pow(0.5, (double) (now - interactiveLatencyAtNanos) / latencyHalfLifeNanos);
+    }
+
+    private boolean isThrottlingBackground() {
+        return interactiveLatencyNanos(System.nanoTime()) > interactiveLatencyTargetNanos;
+    }
+
+    private boolean canRun(Priority priority) {
+        if (runningTotal >= limit.getLimit()) {
+            return false;
+        }
+        return priority != Priority.BACKGROUND || !isThrottlingBackground() || running[Priority.BACKGROUND.ordinal()] == 0;
+    }
+
+    private void start(Priority priority) {
+        running[priority.ordinal()]++;
+        runningTotal++;
+    }
+
+    //hands free slots to the heads of the queues, most urgent first
+    private void dispatch() {
+        boolean granted = false;
+        for (Priority priority : PRIORITIES) {
+            ArrayDeque<Waiter> queue = queues.get(priority.ordinal());
+            while (!queue.isEmpty() && canRun(priority)) {
+                queue.poll().granted = true;
+                start(priority);
+                granted = true;
+            }
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private boolean hasMoreUrgentOrEqualWaiters(Priority priority) {
+        for (int ordinal = 0; ordinal <= priority.ordinal(); ordinal++) {
+            if (!queues.get(ordinal).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //returns the calls in flight once this one started, itself included
+    private synchronized int acquire(Priority priority) throws DeadlineExceededException, InterruptedException {
+        if (!hasMoreUrgentOrEqualWaiters(priority) && canRun(priority)) {
+            start(priority);
+            return runningTotal;
+        }
+        Waiter waiter = new Waiter();
+        queues.get(priority.ordinal()).add(waiter);
+        try {
+            while (!waiter.granted) {
+                long remainingNanos = RequestContext.remainingNanos();
+                if (remainingNanos <= 0) {
+                    queues.get(priority.ordinal()).remove(waiter);
+                    throw new DeadlineExceededException("Deadline exceeded while queued for an upstream call");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            }
+            return runningTotal;
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                release(priority);
+            } else {
+                queues.get(priority.ordinal()).remove(waiter);
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void release(Priority priority) {
+        running[priority.ordinal()]--;
+        runningTotal--;
+        dispatch();
+    }
+
+    private synchronized void recordWait(Priority priority, long waitNanos) {
+        int ordinal = priority.ordinal();
+        calls[ordinal]++;
+        totalWaitNanos[ordinal] += waitNanos;
+        maxWaitNanos[ordinal] = Math.max(maxWaitNanos[ordinal], waitNanos);
+    }
+
+    private synchronized void recordInteractiveLatency(long latencyNanos) {
+        long now = System.nanoTime();
+        double average = interactiveLatencyNanos(now);
+        interactiveLatencyNanos = average + ALPHA * (latencyNanos - average);
+        interactiveLatencyAtNanos = now;
+    }
+
+    /**
+     * Runs the call once a slot is free for the priority of the work running on this thread.
+     */
+    public <T> T run(Callable<T> call) throws Exception {
+        Priority priority = RequestContext.priority();
+        UpstreamQueueWaitEvent event = new UpstreamQueueWaitEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int inFlight = acquire(priority);
+        long callStart = System.nanoTime();
+        recordWait(priority, callStart - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.correlationId = RequestContext.correlationId();
+            event.host = host;
+            event.priority = priority.name();
+            event.limit = limit.getLimit();
+            event.inFlight = inFlight;
+            event.commit();
+        }
+        Sample sample = Sample.NONE;
+        try {
+            T result = call.call();
+            sample = Sample.ANSWERED;
+            return result;
+        } catch (Exception e) {
+            sample = sampleOf(e);
+            throw e;
+        } finally {
+            if (sample != Sample.NONE) {
+                limit.record(System.nanoTime() - callStart, sample == Sample.DROPPED, inFlight);
+            }
+            if (priority == Priority.INTERACTIVE) {
+                recordInteractiveLatency(System.nanoTime() - start);
+            }
+            release(priority);
+        }
+    }
+
+    //timeouts, 429 and 5xx say the host is struggling and other statuses are answers like any other;
+    //a request's own deadline running out, or any other failure on this side, says nothing about the host
+    private static Sample sampleOf(Exception e) {
+        if (e instanceof HttpStatusCodeUnknown badStatus) {
+            int status = badStatus.getStatus();
+            if (status == 429 || status >= 500) {
+                return Sample.DROPPED;
+            }
+            return status == 0 ? Sample.NONE : Sample.ANSWERED;
+        }
+        if (e instanceof DeadlineExceededException) {
+            return Sample.NONE;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException) {
+                return Sample.NONE;
+            }
+            if (cause instanceof SocketTimeoutException) {
+                return Sample.DROPPED;
+            }
+        }
+        return Sample.NONE;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public synchronized List<QueueWait> getQueueWaits() {
+        List<QueueWait> waits = new ArrayList<>();
+        for (Priority priority : PRIORITIES) {
+            int ordinal = priority.ordinal();
+            double meanWaitNanos = calls[ordinal] == 0 ? 0 : (double) totalWaitNanos[ordinal] / calls[ordinal];
+            waits.add(new QueueWait(priority, calls[ordinal], meanWaitNanos / 1_000_000, maxWaitNanos[ordinal] / 1_000_000d));
+        }
+        return waits;
+    }
+
+    public synchronized boolean isThrottled() {
+        return isThrottlingBackground();
+    }
+}
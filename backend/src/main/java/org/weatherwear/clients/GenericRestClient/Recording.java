@@ -0,0 +1,82 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File format shared by {@link RecordingRestClient} and {@link ReplayRestClient}: a gzip stream holding a header
+ * and then one exchange after another until the end of the stream.
+ * An exchange is the request key, the outcome, the status and body (or error message) and the latency.
+ * The key of a request with a body ends with that body, so recordings of GET requests keep their keys.
+ * Request headers are not part of the key and are never written, so API keys stay out of recordings.
+ */
+final class Recording {
+    static final int MAGIC = 0x57575252;
+    static final int VERSION = 1;
+
+    static final byte OK = 0;
+    static final byte BAD_STATUS = 1;
+    static final byte TIMEOUT = 2;
+
+    record Exchange(String key, byte kind, int status, String body, long nanos) {
+    }
+
+    private Recording() {
+    }
+
+    static String key(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> queryParams, String jsonBody) {
+        StringBuilder key = new StringBuilder().append(verb).append(' ').append(target).append(path);
+        char separator = '?';
+        for (Map.Entry<String, List<Object>> queryParam : queryParams.entrySet()) {
+            for (Object value : queryParam.getValue()) {
+                key.append(separator).append(queryParam.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        if (jsonBody != null) {
+            key.append(' ').append(jsonBody);
+        }
+        return key.toString();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    static void readHeader(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+            throw new IOException("Not a recording of upstream responses");
+        }
+    }
+
+    static void write(DataOutputStream output, Exchange exchange) throws IOException {
+        writeString(output, exchange.key());
+        output.writeByte(exchange.kind());
+        output.writeShort(exchange.status());
+        writeString(output, exchange.body() != null ? exchange.body() : "");
+        output.writeLong(exchange.nanos());
+    }
+
+    static Exchange read(DataInputStream input) throws IOException {
+        return new Exchange(readString(input), input.readByte(), input.readShort(), readString(input), input.readLong());
+    }
+}
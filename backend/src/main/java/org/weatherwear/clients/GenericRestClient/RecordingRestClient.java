@@ -0,0 +1,85 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST client that passes every request through and records its key, full response and latency to a file,
+ * to be served again by {@link ReplayRestClient}. Bad statuses and timeouts are recorded as well, so that a replay
+ * takes the same fallback paths; other failures are passed through unrecorded.
+ */
+public class RecordingRestClient implements IRestClient, AutoCloseable {
+    private final IRestClient restClientInterface;
+    //guarded by this
+    private final DataOutputStream output;
+
+    public RecordingRestClient(IRestClient restClientInterface, Path file) throws IOException {
+        this.restClientInterface = restClientInterface;
+        this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))));
+        Recording.writeHeader(output);
+    }
+
+    private static boolean isTimeout(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void record(Recording.Exchange exchange) {
+        try {
+            Recording.write(output, exchange);
+        } catch (IOException e) {
+            //a recording that cannot be written must not fail the request it records
+        }
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        MultivaluedMap<String, Object> emptyMap = new MultivaluedHashMap<>();
+        return request(verb, target, path, emptyMap, emptyMap);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return record(Recording.key(verb, target, path, queryParams, null), () -> restClientInterface.request(verb, target, path, headers, queryParams));
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return record(Recording.key(verb, target, path, queryParams, jsonBody), () -> restClientInterface.request(verb, target, path, headers, queryParams, jsonBody));
+    }
+
+    private interface Call {
+        HttpResponse send() throws SocketTimeoutException, HttpStatusCodeUnknown;
+    }
+
+    private HttpResponse record(String key, Call call) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        long start = System.nanoTime();
+        try {
+            HttpResponse response = call.send();
+            record(new Recording.Exchange(key, Recording.OK, response.getStatusCode(), response.getResponseBody(), System.nanoTime() - start));
+            return response;
+        } catch (HttpStatusCodeUnknown e) {
+            record(new Recording.Exchange(key, Recording.BAD_STATUS, e.getStatus(), e.getMessage(), System.nanoTime() - start));
+            throw e;
+        } catch (SocketTimeoutException | RuntimeException e) {
+            if (isTimeout(e)) {
+                record(new Recording.Exchange(key, Recording.TIMEOUT, 0, e.getMessage(), System.nanoTime() - start));
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,117 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * REST client that answers from a recording made by {@link RecordingRestClient}, entirely from memory.
+ * When a request was recorded several times its responses are served in recorded order and then again from the start.
+ * Each answer can be delayed by its recorded latency or by a synthetic one.
+ */
+public class ReplayRestClient implements IRestClient {
+    /**
+     * How long to hold back an answer, given the latency it was recorded with.
+     */
+    public interface Latency {
+        Latency NONE = recordedNanos -> 0;
+        Latency RECORDED = recordedNanos -> recordedNanos;
+
+        long delayNanos(long recordedNanos);
+
+        static Latency fixed(Duration delay) {
+            long nanos = delay.toNanos();
+            return recordedNanos -> nanos;
+        }
+    }
+
+    private record Replays(List<Recording.Exchange> exchanges, AtomicInteger next) {
+    }
+
+    private final Map<String, Replays> replaysByKey = new HashMap<>();
+    private final Latency latency;
+
+    public ReplayRestClient(InputStream recording, Latency latency) throws IOException {
+        this.latency = latency;
+        load(recording);
+    }
+
+    public ReplayRestClient(Path file, Latency latency) throws IOException {
+        this.latency = latency;
+        try (InputStream recording = Files.newInputStream(file)) {
+            load(recording);
+        }
+    }
+
+    private void load(InputStream recording) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(recording)));
+        Recording.readHeader(input);
+        while (true) {
+            Recording.Exchange exchange;
+            try {
+                exchange = Recording.read(input);
+            } catch (EOFException e) {
+                break;
+            }
+            replaysByKey.computeIfAbsent(exchange.key(), key -> new Replays(new ArrayList<>(), new AtomicInteger())).exchanges().add(exchange);
+        }
+    }
+
+    /**
+     * @return number of distinct requests in the recording
+     */
+    public int size() {
+        return replaysByKey.size();
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        MultivaluedMap<String, Object> emptyMap = new MultivaluedHashMap<>();
+        return request(verb, target, path, emptyMap, emptyMap);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(verb, target, path, headers, queryParams, null);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        String key = Recording.key(verb, target, path, queryParams, jsonBody);
+        Replays replays = replaysByKey.get(key);
+        if (replays == null) {
+            throw new IllegalStateException("No recorded response for " + key);
+        }
+        List<Recording.Exchange> exchanges = replays.exchanges();
+        Recording.Exchange exchange = exchanges.get(Math.floorMod(replays.next().getAndIncrement(), exchanges.size()));
+        long deadline = System.nanoTime() + latency.delayNanos(exchange.nanos());
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            //parking returns at once while interrupted, so answer early and leave the interrupt for the caller
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            LockSupport.parkNanos(remaining);
+        }
+        switch (exchange.kind()) {
+            case Recording.BAD_STATUS:
+                throw new HttpStatusCodeUnknown(exchange.status(), exchange.body());
+            case Recording.TIMEOUT:
+                throw new SocketTimeoutException(exchange.body());
+            default:
+                return new HttpResponse(exchange.status(), exchange.body());
+        }
+    }
+}
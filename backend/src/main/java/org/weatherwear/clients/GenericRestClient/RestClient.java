@@ -2,10 +2,20 @@ package org.weatherwear.clients.GenericRestClient;
 
 
 import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
+import org.glassfish.jersey.client.ClientProperties;
+import org.weatherwear.telemetry.AuditTrail;
+import org.weatherwear.telemetry.Outcome;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.telemetry.UpstreamRequestEvent;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
 
 
 public class RestClient implements IRestClient {
@@ -15,30 +25,77 @@ public class RestClient implements IRestClient {
         this.client = client;
     }
 
-    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws HttpStatusCodeUnknown {
+    public HttpResponse request(HttpRequestMethods verb, String target, String path) throws SocketTimeoutException, HttpStatusCodeUnknown {
         MultivaluedMap<String, Object> emptyMap = new MultivaluedHashMap<>();
         return request(verb, target, path, emptyMap, emptyMap);
     }
 
+    /**
+     * Opens a connection to the target with a HEAD request and hands it back to the connection pool, whatever the status.
+     */
+    public void connect(String target) {
+        client.target(target).request().head().close();
+    }
+
     private void  checkIfResponseStatusIsIdentified(int status) throws HttpStatusCodeUnknown {
         //the system only handles responses having code 200
         //others are unknown to our system
         if(status!=200){
-            throw new HttpStatusCodeUnknown("Code status "+status+" is unhandled by this implementation of REST CLIENT");
+            throw new HttpStatusCodeUnknown(status, "Code status "+status+" is unhandled by this implementation of REST CLIENT");
 
         }
     }
 
-    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws HttpStatusCodeUnknown {
-        WebTarget webTarget = client.target(target).path(path);
-        for (String queryParam : queryParams.keySet()) {
-            webTarget = webTarget.queryParam(queryParam, queryParams.getFirst(queryParam));
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        return request(verb, target, path, headers, queryParams, null);
+    }
+
+    public HttpResponse request(HttpRequestMethods verb, String target, String path, MultivaluedMap<String, Object> headers, MultivaluedMap<String, Object> queryParams, String jsonBody) throws SocketTimeoutException, HttpStatusCodeUnknown {
+        UpstreamRequestEvent event = new UpstreamRequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String outcome = Outcome.ERROR;
+        try {
+            RequestContext.checkDeadline("calling " + target);
+            WebTarget webTarget = client.target(target).path(path);
+            for (String queryParam : queryParams.keySet()) {
+                webTarget = webTarget.queryParam(queryParam, queryParams.getFirst(queryParam));
+            }
+            Invocation.Builder builder = webTarget.request().headers(headers);
+            long remainingNanos = RequestContext.remainingNanos();
+            if (remainingNanos != Long.MAX_VALUE) {
+                //this hop may only use what is left of the request's budget, not the client's full timeouts
+                int remainingMillis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+                builder = builder.property(ClientProperties.CONNECT_TIMEOUT, remainingMillis).property(ClientProperties.READ_TIMEOUT, remainingMillis);
+            }
+            //closed on every path, an unread response would otherwise hold on to its pooled connection
+            try (Response response = jsonBody != null ? builder.method(verb.name(), Entity.json(jsonBody))
+                    : verb == HttpRequestMethods.GET ? builder.get() : builder.method(verb.name())) {
+                event.status = response.getStatus();
+                checkIfResponseStatusIsIdentified(response.getStatus());
+                HttpResponse httpResponse = new HttpResponse(response.getStatus(), response.readEntity(String.class));
+                response.getDate();
+                event.bytes = response.getLength() >= 0 ? response.getLength() : httpResponse.getResponseBody().length();
+                outcome = Outcome.OK;
+                return httpResponse;
+            }
+        } catch (SocketTimeoutException | HttpStatusCodeUnknown | RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            AuditTrail trail = RequestContext.trail();
+            if (trail != null) {
+                trail.upstreamCall(target, System.nanoTime() - start);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.correlationId = RequestContext.correlationId();
+                event.host = target;
+                event.path = path;
+                event.outcome = outcome;
+                event.commit();
+            }
         }
-        Response response = webTarget.request().headers(headers).get();
-        checkIfResponseStatusIsIdentified(response.getStatus());
-        HttpResponse httpResponse = new HttpResponse(response.getStatus(), response.readEntity(String.class));
-        response.getDate();
-        return httpResponse;
     }
 
 }
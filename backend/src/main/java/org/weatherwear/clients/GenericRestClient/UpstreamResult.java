@@ -0,0 +1,168 @@
+package org.weatherwear.clients.GenericRestClient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Outcome of a call to an upstream service. Clients pass it around instead of throwing so that the decision
+ * to try a backup service is a plain branch, and missing fields or bad statuses cost no stack trace during partial outages.
+ * {@link #orThrow()} turns a failure back into the exception the public client APIs have always thrown,
+ * also without a stack trace unless a library already captured one.
+ */
+public final class UpstreamResult<T> {
+    public enum Kind {
+        OK, TIMEOUT, BAD_STATUS, PARSE_ERROR, MISSING_FIELD
+    }
+
+    public interface Request {
+        HttpResponse send() throws SocketTimeoutException, HttpStatusCodeUnknown;
+    }
+
+    private final Kind kind;
+    private final T value;
+    private final String detail;
+    //exception a library already threw (e.g. Jackson), rethrown as is at the edge; null when the failure was detected without one
+    private final Exception cause;
+
+    private UpstreamResult(Kind kind, T value, String detail, Exception cause) {
+        this.kind = kind;
+        this.value = value;
+        this.detail = detail;
+        this.cause = cause;
+    }
+
+    public static <T> UpstreamResult<T> ok(T value) {
+        return new UpstreamResult<>(Kind.OK, value, null, null);
+    }
+
+    public static <T> UpstreamResult<T> failure(Kind kind, String detail) {
+        return new UpstreamResult<>(kind, null, detail, null);
+    }
+
+    public static <T> UpstreamResult<T> failure(Kind kind, Exception cause) {
+        return new UpstreamResult<>(kind, null, cause.getMessage(), cause);
+    }
+
+    /**
+     * Sends the request and captures the transport failures worth a fallback: timeouts, including the ones
+     * the JAX-RS client wraps in a runtime exception, and unexpected statuses. Any other exception propagates.
+     */
+    public static UpstreamResult<HttpResponse> of(Request request) {
+        try {
+            return ok(request.send());
+        } catch (SocketTimeoutException e) {
+            return failure(Kind.TIMEOUT, e);
+        } catch (HttpStatusCodeUnknown e) {
+            return failure(Kind.BAD_STATUS, e);
+        } catch (RuntimeException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof SocketTimeoutException) {
+                    return failure(Kind.TIMEOUT, e);
+                }
+            }
+            throw e;
+        }
+    }
+
+    public boolean isOk() {
+        return kind == Kind.OK;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public Exception getCause() {
+        return cause;
+    }
+
+    /**
+     * The same failure, typed for the caller's own result.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> UpstreamResult<R> asFailure() {
+        if (isOk()) {
+            throw new IllegalStateException("Expected a failed result");
+        }
+        return (UpstreamResult<R>) this;
+    }
+
+    public T orThrow() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        if (isOk()) {
+            return value;
+        }
+        if (cause instanceof JsonProcessingException jsonProcessingException) {
+            throw jsonProcessingException;
+        }
+        if (cause instanceof SocketTimeoutException socketTimeoutException) {
+            throw socketTimeoutException;
+        }
+        if (cause instanceof HttpStatusCodeUnknown httpStatusCodeUnknown) {
+            throw httpStatusCodeUnknown;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        switch (kind) {
+            case TIMEOUT -> throw new StacklessSocketTimeoutException(detail);
+            case BAD_STATUS -> throw new HttpStatusCodeUnknown(detail);
+            case PARSE_ERROR -> throw new StacklessNumberFormatException(detail);
+            default -> throw new StacklessNullPointerException(detail);
+        }
+    }
+
+    //the types callers have always caught, without the stack trace nobody reads during an outage
+
+    private static final class StacklessSocketTimeoutException extends SocketTimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        private StacklessSocketTimeoutException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class StacklessNumberFormatException extends NumberFormatException {
+        private static final long serialVersionUID = 1L;
+
+        private StacklessNumberFormatException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class StacklessNullPointerException extends NullPointerException {
+        private static final long serialVersionUID = 1L;
+
+        private StacklessNullPointerException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isOk() ? "UpstreamResult{OK, " + value + "}" : "UpstreamResult{" + kind + ", " + detail + "}";
+    }
+}
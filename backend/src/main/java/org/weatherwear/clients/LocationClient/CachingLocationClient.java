@@ -0,0 +1,75 @@
+package org.weatherwear.clients.LocationClient;
+
+import org.weatherwear.cache.ExpiringCache;
+import org.weatherwear.clients.Models.Location;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location client that remembers resolved locations.
+ * Airports do not move, so IATA lookups are kept for a day; the current location is kept for a few minutes.
+ * Client IPs are kept for an hour by network prefix (/24 for IPv4, /48 for IPv6), since addresses that close
+ * are geolocated to the same place, so one lookup answers a whole office or provider block. As clients choose the
+ * addresses, at most {@link #MAX_IP_PREFIXES} prefixes are kept.
+ * The backup lookups are passed through untouched.
+ */
+public class CachingLocationClient implements ILocationClient {
+    private static final String CURRENT_LOCATION = "";
+    static final int MAX_IP_PREFIXES = 100_000;
+
+    private final ILocationClient locationClientInterface;
+    private final ExpiringCache<String, Location> airportLocations;
+    private final ExpiringCache<String, Location> currentLocation;
+    private final ExpiringCache<String, Location> ipLocations;
+
+    public CachingLocationClient(ILocationClient locationClientInterface, Clock clock) {
+        this.locationClientInterface = locationClientInterface;
+        this.airportLocations = new ExpiringCache<>(TimeUnit.DAYS.toMillis(1), clock);
+        this.currentLocation = new ExpiringCache<>(TimeUnit.MINUTES.toMillis(5), clock);
+        this.ipLocations = new ExpiringCache<>(TimeUnit.HOURS.toMillis(1), MAX_IP_PREFIXES, clock);
+    }
+
+    public CachingLocationClient(ILocationClient locationClientInterface) {
+        this(locationClientInterface, Clock.systemUTC());
+    }
+
+    public Location getLocation() throws Exception {
+        return currentLocation.get(CURRENT_LOCATION, key -> locationClientInterface.getLocation());
+    }
+
+    public Location getLocation(String IATA) throws Exception {
+        return airportLocations.get(IATA, locationClientInterface::getLocation);
+    }
+
+    public Location getLocationBackup() throws Exception {
+        return locationClientInterface.getLocationBackup();
+    }
+
+    public Location getLocationBackup(String IATA) throws Exception {
+        return locationClientInterface.getLocationBackup(IATA);
+    }
+
+    public Location getLocationForIp(String ip) throws Exception {
+        return ipLocations.get(prefixOf(ip), prefix -> locationClientInterface.getLocationForIp(ip));
+    }
+
+    /**
+     * @return the IP's network prefix, e.g. 203.0.113.0/24
+     * @throws IllegalArgumentException if the string is not an IP literal; host names are refused rather than resolved
+     */
+    static String prefixOf(String ip) {
+        byte[] address = IpLiterals.parse(ip);
+        int prefixBytes = address.length == 4 ? 3 : 6;
+        Arrays.fill(address, prefixBytes, address.length, (byte) 0);
+        try {
+            return InetAddress.getByAddress(address).getHostAddress() + "/" + prefixBytes * 8;
+        } catch (UnknownHostException e) {
+            //only thrown for an address of the wrong length
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.weatherwear.clients.LocationClient;
+
+import org.weatherwear.clients.Models.Location;
+
+/**
+ * Location client that geolocates client IPs from an offline {@link IpRangeTable}, asking the IP location
+ * services only for the addresses the table does not cover. Every other lookup is passed through untouched.
+ */
+public class GeoIpLocationClient implements ILocationClient {
+    private final ILocationClient locationClientInterface;
+    private final IpRangeTable table;
+
+    public GeoIpLocationClient(ILocationClient locationClientInterface, IpRangeTable table) {
+        this.locationClientInterface = locationClientInterface;
+        this.table = table;
+    }
+
+    public Location getLocation() throws Exception {
+        return locationClientInterface.getLocation();
+    }
+
+    public Location getLocation(String IATA) throws Exception {
+        return locationClientInterface.getLocation(IATA);
+    }
+
+    public Location getLocationBackup() throws Exception {
+        return locationClientInterface.getLocationBackup();
+    }
+
+    public Location getLocationBackup(String IATA) throws Exception {
+        return locationClientInterface.getLocationBackup(IATA);
+    }
+
+    public Location getLocationForIp(String ip) throws Exception {
+        Location location = table.lookup(ip);
+        return location != null ? location : locationClientInterface.getLocationForIp(ip);
+    }
+}
@@ -10,4 +10,7 @@ public interface ILocationClient {
 
     Location getLocationBackup(String IATA) throws Exception;
 
+    //location of a server-mode client from the IP its request came from
+    Location getLocationForIp(String ip) throws Exception;
+
 }
@@ -0,0 +1,147 @@
+package org.weatherwear.clients.LocationClient;
+
+import java.util.Arrays;
+
+/**
+ * Parsing of IP address literals. The octets and groups are parsed here rather than by {@link java.net.InetAddress},
+ * which hands anything it does not recognise as a literal to the resolver, so that a client supplied string never
+ * causes a DNS lookup. IPv6 zone ids (the %eth0 of a link-local address) are ignored.
+ */
+final class IpLiterals {
+    private IpLiterals() {
+    }
+
+    /**
+     * @return the address bytes, 4 for IPv4 (including IPv4-mapped IPv6) and 16 for IPv6
+     * @throws IllegalArgumentException if the string is not an IP literal
+     */
+    static byte[] parse(String ip) {
+        byte[] address = ip.indexOf(':') < 0 ? parseIpv4(ip, 0, ip.length()) : parseIpv6(ip);
+        if (address == null) {
+            throw new IllegalArgumentException("Not an IP address: " + ip);
+        }
+        return address;
+    }
+
+    //the dotted quad in ip[start, end), or null if it is not one
+    private static byte[] parseIpv4(String ip, int start, int end) {
+        byte[] address = new byte[4];
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int index = start; index <= end; index++) {
+            char c = index < end ? ip.charAt(index) : '.';
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == '.' && digits > 0 && value <= 255 && octet < 4) {
+                address[octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else {
+                return null;
+            }
+        }
+        return octet == 4 ? address : null;
+    }
+
+    //eight colon separated hex groups, one run of which may be left out as ::, the last two possibly as a dotted quad
+    private static byte[] parseIpv6(String ip) {
+        int end = ip.indexOf('%');
+        if (end < 0) {
+            end = ip.length();
+        }
+        byte[] address = new byte[16];
+        int groups = 0;
+        //group the :: stands before, -1 if there is none
+        int gap = -1;
+        int index = 0;
+        if (ip.startsWith("::")) {
+            gap = 0;
+            index = 2;
+        }
+        while (index < end) {
+            if (groups == 8) {
+                return null;
+            }
+            int start = index;
+            int value = 0;
+            int digit;
+            while (index < end && (digit = hexDigit(ip.charAt(index))) >= 0) {
+                if (index - start == 4) {
+                    return null;
+                }
+                value = value << 4 | digit;
+                index++;
+            }
+            if (index < end && ip.charAt(index) == '.') {
+                byte[] ipv4 = groups <= 6 ? parseIpv4(ip, start, end) : null;
+                if (ipv4 == null) {
+                    return null;
+                }
+                System.arraycopy(ipv4, 0, address, groups * 2, 4);
+                groups += 2;
+                break;
+            }
+            if (index == start) {
+                return null;
+            }
+            address[groups * 2] = (byte) (value >>> 8);
+            address[groups * 2 + 1] = (byte) value;
+            groups++;
+            if (index == end) {
+                break;
+            }
+            if (ip.charAt(index++) != ':' || index == end) {
+                return null;
+            }
+            if (ip.charAt(index) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = groups;
+                index++;
+            }
+        }
+        if (gap >= 0) {
+            //:: stands for at least one group of zeros
+            if (groups == 8) {
+                return null;
+            }
+            int shift = (8 - groups) * 2;
+            System.arraycopy(address, gap * 2, address, gap * 2 + shift, (groups - gap) * 2);
+            Arrays.fill(address, gap * 2, gap * 2 + shift, (byte) 0);
+        } else if (groups != 8) {
+            return null;
+        }
+        if (isIpv4Mapped(address)) {
+            return Arrays.copyOfRange(address, 12, 16);
+        }
+        return address;
+    }
+
+    //unlike Character.digit, only ASCII
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        for (int index = 0; index < 10; index++) {
+            if (address[index] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+    }
+}
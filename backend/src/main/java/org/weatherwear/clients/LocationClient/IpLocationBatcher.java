@@ -0,0 +1,222 @@
+package org.weatherwear.clients.LocationClient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.weatherwear.clients.GenericRestClient.HttpRequestMethods;
+import org.weatherwear.clients.GenericRestClient.HttpResponse;
+import org.weatherwear.clients.GenericRestClient.IRestClient;
+import org.weatherwear.clients.GenericRestClient.UpstreamResult;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent IP geolocation lookups into ip-api's batch endpoint, which resolves up to 100 IPs per POST.
+ * A lookup arriving while no batch is in flight sends at once, and the lookups arriving while one is in flight queue
+ * up and go out together in the next, so a single lookup pays no extra latency and a burst costs one call per
+ * hundred IPs. The endpoint only takes {@link #BATCHES_PER_MINUTE} calls a minute, so once that many have gone out
+ * the next batch lingers until the endpoint would take it, gathering every lookup that arrives meanwhile.
+ * The sender is whichever waiting caller finds no batch in flight, but the batch goes out on behalf of all of its
+ * lookups: with the most urgent of their priorities and the latest of their deadlines, not the sender's own.
+ */
+class IpLocationBatcher {
+    static final int MAX_BATCH = 100;
+    static final int BATCHES_PER_MINUTE = 15;
+    private static final String FIELDS = "status,message,query,lat,lon";
+
+    private static final class Pending {
+        private final String ip;
+        private final Priority priority = RequestContext.priority();
+        private final long remainingNanos = RequestContext.remainingNanos();
+        private final long queuedAtNanos = System.nanoTime();
+        private UpstreamResult<Location> result;
+
+        private Pending(String ip) {
+            this.ip = ip;
+        }
+
+        private long remainingNanos(long now) {
+            return remainingNanos == Long.MAX_VALUE ? Long.MAX_VALUE : remainingNanos - (now - queuedAtNanos);
+        }
+    }
+
+    private final IRestClient restClientInterface;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    //everything below is guarded by this
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private boolean sending;
+    //batches the endpoint would still take right now, refilled continuously up to a full window's worth
+    private final int maxPermits;
+    private final long nanosPerPermit;
+    private double permits;
+    private long refilledAtNanos = System.nanoTime();
+
+    IpLocationBatcher(IRestClient restClientInterface, int batches, Duration per) {
+        this.restClientInterface = restClientInterface;
+        this.maxPermits = batches;
+        this.nanosPerPermit = per.toNanos() / batches;
+        this.permits = batches;
+    }
+
+    IpLocationBatcher(IRestClient restClientInterface) {
+        this(restClientInterface, BATCHES_PER_MINUTE, Duration.ofMinutes(1));
+    }
+
+    UpstreamResult<Location> lookup(String ip) throws DeadlineExceededException {
+        Pending pending = new Pending(ip);
+        synchronized (this) {
+            queue.add(pending);
+        }
+        //a caller beyond the first hundred of a batch it sends keeps its place and waits for the next one
+        while (true) {
+            List<Pending> batch;
+            synchronized (this) {
+                while (sending && pending.result == null) {
+                    awaitBatch(pending);
+                }
+                if (pending.result != null) {
+                    return pending.result;
+                }
+                sending = true;
+                try {
+                    awaitPermit(pending);
+                } catch (DeadlineExceededException e) {
+                    //another waiter takes over sending
+                    sending = false;
+                    notifyAll();
+                    throw e;
+                }
+                batch = new ArrayList<>(Math.min(queue.size(), MAX_BATCH));
+                while (!queue.isEmpty() && batch.size() < MAX_BATCH) {
+                    batch.add(queue.poll());
+                }
+            }
+            List<UpstreamResult<Location>> results = null;
+            try {
+                results = send(batch);
+            } finally {
+                synchronized (this) {
+                    for (int index = 0; index < batch.size(); index++) {
+                        batch.get(index).result = results != null ? results.get(index)
+                                : UpstreamResult.failure(UpstreamResult.Kind.BAD_STATUS, "Batch lookup failed");
+                    }
+                    sending = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    //called holding the lock; takes a permit for the next batch, waiting for one unless the request's deadline passes first
+    private void awaitPermit(Pending pending) throws DeadlineExceededException {
+        while (true) {
+            long now = System.nanoTime();
+            permits = Math.min(maxPermits, permits + (double) (now - refilledAtNanos) / nanosPerPermit);
+            refilledAtNanos = now;
+            if (permits >= 1) {
+                permits--;
+                return;
+            }
+            long remainingNanos = RequestContext.remainingNanos();
+            if (remainingNanos <= 0) {
+                queue.remove(pending);
+                throw new DeadlineExceededException("Deadline exceeded waiting for the location of " + pending.ip);
+            }
+            long untilPermitNanos = (long) Math.ceil((1 - permits) * nanosPerPermit);
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, Math.min(untilPermitNanos, remainingNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.remove(pending);
+                throw new DeadlineExceededException("Interrupted while waiting for the location of " + pending.ip);
+            }
+        }
+    }
+
+    //called holding the lock; leaves the queue if the request's deadline passes first
+    private void awaitBatch(Pending pending) throws DeadlineExceededException {
+        long remainingNanos = RequestContext.remainingNanos();
+        try {
+            if (remainingNanos == Long.MAX_VALUE) {
+                wait();
+            } else if (remainingNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.remove(pending);
+            throw new DeadlineExceededException("Interrupted while waiting for the location of " + pending.ip);
+        }
+        if (pending.result == null && RequestContext.remainingNanos() <= 0) {
+            queue.remove(pending);
+            throw new DeadlineExceededException("Deadline exceeded waiting for the location of " + pending.ip);
+        }
+    }
+
+    private List<UpstreamResult<Location>> send(List<Pending> batch) {
+        List<String> ips = new ArrayList<>(batch.size());
+        Priority priority = Priority.BACKGROUND;
+        long remainingNanos = 0;
+        long now = System.nanoTime();
+        for (Pending pending : batch) {
+            ips.add(pending.ip);
+            if (pending.priority.compareTo(priority) < 0) {
+                priority = pending.priority;
+            }
+            remainingNanos = Math.max(remainingNanos, pending.remainingNanos(now));
+        }
+        UpstreamResult<HttpResponse> response;
+        try {
+            String body = objectMapper.writeValueAsString(ips);
+            MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+            queryParams.add("fields", FIELDS);
+            response = RequestContext.callOnBehalf(priority, remainingNanos, () -> UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.POST, LocationClient.IP_API, "/batch", new MultivaluedHashMap<>(), queryParams, body)));
+        } catch (Exception e) {
+            //every caller of the batch sees the failure, not only the one that happened to send it
+            response = UpstreamResult.failure(UpstreamResult.Kind.BAD_STATUS, e);
+        }
+        return toLocations(response, batch.size());
+    }
+
+    private List<UpstreamResult<Location>> toLocations(UpstreamResult<HttpResponse> response, int size) {
+        List<UpstreamResult<Location>> results = new ArrayList<>(size);
+        UpstreamResult<Location> failure = null;
+        JsonNode answers = null;
+        if (!response.isOk()) {
+            failure = response.asFailure();
+        } else {
+            try {
+                answers = objectMapper.readTree(response.getValue().getResponseBody());
+            } catch (JsonProcessingException e) {
+                failure = UpstreamResult.failure(UpstreamResult.Kind.PARSE_ERROR, e);
+            }
+            if (failure == null && (!answers.isArray() || answers.size() != size)) {
+                failure = UpstreamResult.failure(UpstreamResult.Kind.MISSING_FIELD, "Expected " + size + " answers in the batch response");
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            results.add(failure != null ? failure : toLocation(answers.get(index)));
+        }
+        return results;
+    }
+
+    //answers come back in the order the IPs were sent
+    private static UpstreamResult<Location> toLocation(JsonNode answer) {
+        JsonNode latitude = answer.get("lat");
+        JsonNode longitude = answer.get("lon");
+        if (!"success".equals(answer.path("status").asText()) || latitude == null || longitude == null) {
+            return UpstreamResult.failure(UpstreamResult.Kind.MISSING_FIELD, "No location for " + answer.path("query").asText() + ": " + answer.path("message").asText());
+        }
+        return UpstreamResult.ok(new Location(latitude.doubleValue(), longitude.doubleValue()));
+    }
+}
@@ -0,0 +1,243 @@
+package org.weatherwear.clients.LocationClient;
+
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Offline IP geolocation: address ranges and their locations, compiled from a CSV into a file that is memory-mapped
+ * and searched in place, so a lookup costs no network call, no quota and no heap beyond the answer.
+ * The file holds IPv4 and IPv6 ranges as sorted arrays of first addresses, last addresses and packed locations,
+ * little-endian so that common hardware reads them without swapping bytes.
+ * IPv6 ranges are kept to /64 precision, below which geolocation data does not go; ranges narrower than that which
+ * end up sharing a /64 are clipped so that it goes to the first of them. Addresses are stored with their
+ * sign bit flipped, so that signed comparisons order them as the unsigned numbers they are.
+ * A lookup is a binary search for the last range starting at or before the address, written so that every step
+ * is a conditional move rather than a branch, followed by a check that the address is not past that range's end.
+ */
+public class IpRangeTable {
+    private static final int MAGIC = 0x57574950;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * An inclusive range of addresses, both ends IPv4 or both IPv6, located at one place.
+     */
+    public record Range(String first, String last, Location location) {
+    }
+
+    private final IntBuffer ipv4Firsts;
+    private final IntBuffer ipv4Lasts;
+    private final LongBuffer ipv4Locations;
+    private final LongBuffer ipv6Firsts;
+    private final LongBuffer ipv6Lasts;
+    private final LongBuffer ipv6Locations;
+
+    public IpRangeTable(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //the mapping outlives the channel
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an IP range table: " + file);
+        }
+        int ipv4Count = buffer.getInt(8);
+        int ipv6Count = buffer.getInt(12);
+        if (buffer.capacity() != HEADER_BYTES + ipv4Count * 16L + ipv6Count * 24L) {
+            throw new IOException("Truncated IP range table: " + file);
+        }
+        int offset = HEADER_BYTES;
+        this.ipv4Firsts = buffer.slice(offset, ipv4Count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        this.ipv4Lasts = buffer.slice(offset += ipv4Count * Integer.BYTES, ipv4Count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        this.ipv4Locations = buffer.slice(offset += ipv4Count * Integer.BYTES, ipv4Count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.ipv6Firsts = buffer.slice(offset += ipv4Count * Long.BYTES, ipv6Count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.ipv6Lasts = buffer.slice(offset += ipv6Count * Long.BYTES, ipv6Count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.ipv6Locations = buffer.slice(offset + ipv6Count * Long.BYTES, ipv6Count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * @return the location of the address, or null if no range covers it
+     * @throws IllegalArgumentException if the string is not an IP literal
+     */
+    public Location lookup(String ip) {
+        byte[] address = IpLiterals.parse(ip);
+        return address.length == 4 ? lookupIpv4(ByteBuffer.wrap(address).getInt()) : lookupIpv6(ByteBuffer.wrap(address).getLong());
+    }
+
+    /**
+     * @param ipv4 the address as a big-endian int, e.g. 0xCB007107 for 203.0.113.7
+     */
+    public Location lookupIpv4(int ipv4) {
+        int key = ipv4 ^ Integer.MIN_VALUE;
+        int count = ipv4Firsts.limit();
+        if (count == 0) {
+            return null;
+        }
+        int base = 0;
+        for (int remaining = count; remaining > 1; ) {
+            int half = remaining >>> 1;
+            base = ipv4Firsts.get(base + half) <= key ? base + half : base;
+            remaining -= half;
+        }
+        if (ipv4Firsts.get(base) > key || ipv4Lasts.get(base) < key) {
+            return null;
+        }
+        return Location.fromPacked(ipv4Locations.get(base));
+    }
+
+    /**
+     * @param ipv6Prefix the address's first 64 bits as a big-endian long
+     */
+    public Location lookupIpv6(long ipv6Prefix) {
+        long key = ipv6Prefix ^ Long.MIN_VALUE;
+        int count = ipv6Firsts.limit();
+        if (count == 0) {
+            return null;
+        }
+        int base = 0;
+        for (int remaining = count; remaining > 1; ) {
+            int half = remaining >>> 1;
+            base = ipv6Firsts.get(base + half) <= key ? base + half : base;
+            remaining -= half;
+        }
+        if (ipv6Firsts.get(base) > key || ipv6Lasts.get(base) < key) {
+            return null;
+        }
+        return Location.fromPacked(ipv6Locations.get(base));
+    }
+
+    public int getIpv4RangeCount() {
+        return ipv4Firsts.limit();
+    }
+
+    public int getIpv6RangeCount() {
+        return ipv6Firsts.limit();
+    }
+
+    //an address reduced to the sortable key it is stored as
+    private record Key(boolean ipv4, long first, long last, long location) {
+    }
+
+    private static long keyOf(byte[] address) {
+        return address.length == 4 ? ByteBuffer.wrap(address).getInt() ^ Integer.MIN_VALUE : ByteBuffer.wrap(address).getLong() ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Reads ranges from a CSV of {@code first,last,latitude,longitude} lines, e.g. {@code 203.0.113.0,203.0.113.255,35.9,14.5}.
+     * Blank lines and lines starting with # are skipped.
+     */
+    public static List<Range> readCsv(Path csv) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(csv)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 4) {
+                throw new IOException("Expected first,last,latitude,longitude on line " + lineNumber + " of " + csv);
+            }
+            try {
+                ranges.add(new Range(fields[0].trim(), fields[1].trim(), Location.parse(fields[2].trim(), fields[3].trim())));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid coordinates on line " + lineNumber + " of " + csv, e);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Sorts the ranges and writes them as a table file, replacing the file atomically.
+     *
+     * @throws IllegalArgumentException if a range is not made of IP literals of one family, or IPv4 ranges overlap
+     */
+    public static void compile(List<Range> ranges, Path table) throws IOException {
+        List<Key> keys = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            byte[] first = IpLiterals.parse(range.first());
+            byte[] last = IpLiterals.parse(range.last());
+            if (first.length != last.length) {
+                throw new IllegalArgumentException("Range mixes IPv4 and IPv6: " + range.first() + " - " + range.last());
+            }
+            long firstKey = keyOf(first);
+            long lastKey = keyOf(last);
+            if (firstKey > lastKey) {
+                throw new IllegalArgumentException("Range ends before it starts: " + range.first() + " - " + range.last());
+            }
+            keys.add(new Key(first.length == 4, firstKey, lastKey, range.location().packed()));
+        }
+        keys.sort(Comparator.comparingLong(Key::first));
+        List<Key> ipv4 = keys.stream().filter(Key::ipv4).toList();
+        List<Key> ipv6 = clipTruncated(keys.stream().filter(key -> !key.ipv4()).toList());
+        checkDisjoint(ipv4);
+        ByteBuffer output = ByteBuffer.allocate(HEADER_BYTES + ipv4.size() * 16 + ipv6.size() * 24).order(ByteOrder.LITTLE_ENDIAN);
+        output.putInt(MAGIC).putInt(VERSION).putInt(ipv4.size()).putInt(ipv6.size());
+        for (Key key : ipv4) {
+            output.putInt((int) key.first());
+        }
+        for (Key key : ipv4) {
+            output.putInt((int) key.last());
+        }
+        for (Key key : ipv4) {
+            output.putLong(key.location());
+        }
+        for (Key key : ipv6) {
+            output.putLong(key.first());
+        }
+        for (Key key : ipv6) {
+            output.putLong(key.last());
+        }
+        for (Key key : ipv6) {
+            output.putLong(key.location());
+        }
+        Path temporary = table.resolveSibling(table.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            output.flip();
+            while (output.hasRemaining()) {
+                channel.write(output);
+            }
+        }
+        Files.move(temporary, table, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //ranges narrower than a /64 meet or overlap once truncated to it, each /64 is kept for the first range covering it
+    private static List<Key> clipTruncated(List<Key> sorted) {
+        List<Key> clipped = new ArrayList<>(sorted.size());
+        for (Key key : sorted) {
+            Key previous = clipped.isEmpty() ? null : clipped.get(clipped.size() - 1);
+            if (previous != null && key.first() <= previous.last()) {
+                if (key.last() <= previous.last()) {
+                    continue;
+                }
+                key = new Key(false, previous.last() + 1, key.last(), key.location());
+            }
+            clipped.add(key);
+        }
+        return clipped;
+    }
+
+    //a search only finds the last range starting at or before an address, so ranges must not overlap
+    private static void checkDisjoint(List<Key> sorted) {
+        for (int index = 1; index < sorted.size(); index++) {
+            if (sorted.get(index).first() <= sorted.get(index - 1).last()) {
+                throw new IllegalArgumentException("IP ranges overlap at range " + index + " of the " + (sorted.get(index).ipv4() ? "IPv4" : "IPv6") + " ranges");
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.weatherwear.clients.LocationClient;
 
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,10 +8,22 @@ import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.MultivaluedMap;
 import org.weatherwear.clients.GenericRestClient.*;
 import org.weatherwear.clients.Models.Location;
+import org.weatherwear.telemetry.LocationLookupEvent;
+import org.weatherwear.telemetry.Outcome;
+import org.weatherwear.telemetry.RequestContext;
 
 import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
 
 public class LocationClient implements ILocationClient {
+    public static final String IP_API = "http://ip-api.com";
+    public static final String IATA_GEO = "https://www.iatageo.com";
+    public static final String IPAPI_CO = "https://ipapi.co";
+    public static final String AIRPORT_INFO = "https://airport-info.p.rapidapi.com";
+    //every service a lookup may call, primary ones first
+    public static final List<String> TARGETS = List.of(IP_API, IATA_GEO, IPAPI_CO, AIRPORT_INFO);
+
     private final Dotenv dotenv = Dotenv.load();
 
     private MultivaluedMap<String, Object> getHeaders() {
@@ -29,41 +40,207 @@ public class LocationClient implements ILocationClient {
     }
 
     private final IRestClient restClientInterface;
+    //codes the primary service reported not found, or both services answered without coordinates for,
+    //failed fast instead of spending quota on them again
+    private final NegativeIATACache unknownIATACodes;
+    private final IpLocationBatcher ipLocations;
 
-    public LocationClient(IRestClient restClientInterface) {
+    public LocationClient(IRestClient restClientInterface, NegativeIATACache unknownIATACodes) {
         this.restClientInterface = restClientInterface;
+        this.unknownIATACodes = unknownIATACodes;
+        this.ipLocations = new IpLocationBatcher(restClientInterface);
+    }
+
+    public LocationClient(IRestClient restClientInterface) {
+        this(restClientInterface, new NegativeIATACache(Duration.ofHours(1)));
+    }
+
+    private UpstreamResult<Location> toLocation(UpstreamResult<HttpResponse> response, String latitudeField, String longitudeField) {
+        if (!response.isOk()) {
+            return response.asFailure();
+        }
+        JsonNode node;
+        try {
+            node = new ObjectMapper().readTree(response.getValue().getResponseBody());
+        } catch (JsonProcessingException e) {
+            return UpstreamResult.failure(UpstreamResult.Kind.PARSE_ERROR, e);
+        }
+        JsonNode latitude = node.get(latitudeField);
+        JsonNode longitude = node.get(longitudeField);
+        if (latitude == null || longitude == null) {
+            return UpstreamResult.failure(UpstreamResult.Kind.MISSING_FIELD, "Expected " + latitudeField + " and " + longitudeField + " in the response");
+        }
+        //services return coordinates either as JSON numbers or as strings, both end up in the same canonical Location
+        if (latitude.isNumber() && longitude.isNumber()) {
+            return UpstreamResult.ok(new Location(latitude.doubleValue(), longitude.doubleValue()));
+        }
+        try {
+            return UpstreamResult.ok(Location.parse(latitude.asText(), longitude.asText()));
+        } catch (NumberFormatException e) {
+            return UpstreamResult.failure(UpstreamResult.Kind.PARSE_ERROR, e);
+        }
+    }
+
+    //the backup services are worth trying for anything but an unexpected status, which is reported as is
+    //the primary's answer for a code it has no airport for, or null; other client errors, such as a refused key,
+    //say nothing about the code
+    private static NegativeIATACache.Reason notFoundReason(UpstreamResult<Location> result) {
+        if (result.getKind() != UpstreamResult.Kind.BAD_STATUS || !(result.getCause() instanceof HttpStatusCodeUnknown e)) {
+            return null;
+        }
+        return switch (e.getStatus()) {
+            case 404 -> NegativeIATACache.Reason.NOT_FOUND;
+            case 400 -> NegativeIATACache.Reason.BAD_REQUEST;
+            default -> null;
+        };
+    }
+
+    //the failure the first lookup of a code failed with, so that repeated lookups fail the same way
+    private static UpstreamResult<Location> knownUnknown(String IATA, NegativeIATACache.Reason reason) {
+        String detail = "IATA " + IATA + " is unknown to the location services";
+        if (reason == NegativeIATACache.Reason.NO_COORDINATES) {
+            return UpstreamResult.failure(UpstreamResult.Kind.MISSING_FIELD, detail);
+        }
+        return UpstreamResult.failure(UpstreamResult.Kind.BAD_STATUS, new HttpStatusCodeUnknown(reason.getStatus(), detail));
+    }
+
+    private static boolean shouldTryBackup(UpstreamResult<Location> result) {
+        return !result.isOk() && result.getKind() != UpstreamResult.Kind.BAD_STATUS;
+    }
+
+    private static LocationLookupEvent beginLookup() {
+        LocationLookupEvent event = new LocationLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void endLookup(LocationLookupEvent event, String host, String IATA, boolean backup, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.correlationId = RequestContext.correlationId();
+            event.host = host;
+            event.iata = IATA;
+            event.backup = backup;
+            event.outcome = outcome;
+            event.commit();
+        }
     }
 
     public Location getLocation() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        LocationLookupEvent event = beginLookup();
+        String outcome = Outcome.ERROR;
+        UpstreamResult<Location> result;
         try {
-            HttpResponse response = restClientInterface.request(HttpRequestMethods.GET, "http://ip-api.com", "/json");
-            JsonNode node = new ObjectMapper().readTree(response.getResponseBody());
-            return new Location(node.get("lat").asText(), node.get("lon").asText());
-        } catch (SocketTimeoutException | JsonParseException | NullPointerException e) {
-            return getLocationBackup();
+            result = toLocation(UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, IP_API, "/json")), "lat", "lon");
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, IP_API, "", false, outcome);
         }
+        return shouldTryBackup(result) ? getLocationBackup() : result.orThrow();
     }
 
     public Location getLocation(String IATA) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        NegativeIATACache.Reason knownReason = unknownIATACodes.reasonUnknown(IATA);
+        if (knownReason != null) {
+            return knownUnknown(IATA, knownReason).orThrow();
+        }
+        LocationLookupEvent event = beginLookup();
+        String outcome = Outcome.ERROR;
+        UpstreamResult<Location> result;
         try {
-            HttpResponse response = restClientInterface.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + IATA);
-            JsonNode node = new ObjectMapper().readTree(response.getResponseBody());
-            return new Location(node.get("latitude").asText(), node.get("longitude").asText());
-        } catch (SocketTimeoutException | JsonParseException | NullPointerException e) {
-            return getLocationBackup(IATA);
+            result = toLocation(UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, IATA_GEO, "/getLatLng/" + IATA)), "latitude", "longitude");
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, IATA_GEO, IATA, false, outcome);
+        }
+        NegativeIATACache.Reason notFound = notFoundReason(result);
+        if (notFound != null) {
+            unknownIATACodes.markUnknown(IATA, notFound);
         }
+        if (!shouldTryBackup(result)) {
+            return result.orThrow();
+        }
+        UpstreamResult<Location> backupResult = lookupBackup(IATA);
+        //only an answer without coordinates means the code is unknown, timeouts and bad statuses may be transient
+        if (backupResult.getKind() == UpstreamResult.Kind.MISSING_FIELD) {
+            unknownIATACodes.markUnknown(IATA);
+        }
+        return backupResult.orThrow();
     }
 
     public Location getLocationBackup() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        HttpResponse httpResponse = restClientInterface.request(HttpRequestMethods.GET, "https://ipapi.co", "/json");
-        JsonNode node = new ObjectMapper().readTree(httpResponse.getResponseBody());
-        return new Location(node.get("latitude").toString(), node.get("longitude").toString());
-
+        LocationLookupEvent event = beginLookup();
+        String outcome = Outcome.ERROR;
+        UpstreamResult<Location> result;
+        try {
+            result = toLocation(UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, IPAPI_CO, "/json")), "latitude", "longitude");
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, IPAPI_CO, "", true, outcome);
+        }
+        return result.orThrow();
     }
 
     public Location getLocationBackup(String IATA) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        HttpResponse httpResponse = restClientInterface.request(HttpRequestMethods.GET, "https://airport-info.p.rapidapi.com", "/airport", getHeaders(), getQueryParam(IATA));
-        JsonNode node = new ObjectMapper().readTree(httpResponse.getResponseBody());
-        return new Location(node.get("latitude").toString(), node.get("longitude").toString());
+        return lookupBackup(IATA).orThrow();
+    }
+
+    private UpstreamResult<Location> lookupBackup(String IATA) {
+        LocationLookupEvent event = beginLookup();
+        String outcome = Outcome.ERROR;
+        UpstreamResult<Location> result;
+        try {
+            result = toLocation(UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, AIRPORT_INFO, "/airport", getHeaders(), getQueryParam(IATA))), "latitude", "longitude");
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, AIRPORT_INFO, IATA, true, outcome);
+        }
+        return result;
+    }
+
+    /**
+     * Looks the IP up through ip-api's batch endpoint, sharing the call with the lookups made concurrently,
+     * and falls back to a single ipapi.co lookup of the IP.
+     */
+    public Location getLocationForIp(String ip) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        LocationLookupEvent event = beginLookup();
+        String outcome = Outcome.ERROR;
+        UpstreamResult<Location> result;
+        try {
+            result = ipLocations.lookup(ip);
+            outcome = Outcome.of(result);
+        } catch (SocketTimeoutException | RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, IP_API, "", false, outcome);
+        }
+        if (!shouldTryBackup(result)) {
+            return result.orThrow();
+        }
+        event = beginLookup();
+        outcome = Outcome.ERROR;
+        try {
+            result = toLocation(UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, IPAPI_CO, "/" + ip + "/json")), "latitude", "longitude");
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endLookup(event, IPAPI_CO, "", true, outcome);
+        }
+        return result.orThrow();
     }
 }
@@ -0,0 +1,149 @@
+package org.weatherwear.clients.LocationClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the IATA codes that no location service knows, and why, so that repeated lookups of a mistyped code
+ * fail the way the first one did without calling upstream. There are only 26^3 = 17,576 possible codes, so the cache
+ * is two bits per code, holding its {@link Reason}, in two generations: codes are marked in the current generation,
+ * a code is known bad while marked in either, and every half TTL the older generation is cleared and becomes the current one.
+ * A code is therefore forgotten between half a TTL and a full TTL after it was last marked, in constant memory (about 8.8 KB).
+ */
+public class NegativeIATACache {
+    static final int CODES = 26 * 26 * 26;
+    private static final int BITS = 2;
+    private static final int CODES_PER_WORD = Long.SIZE / BITS;
+    private static final int WORDS = (CODES + CODES_PER_WORD - 1) / CODES_PER_WORD;
+    private static final long REASON_MASK = (1L << BITS) - 1;
+
+    /**
+     * How the services said they did not know a code.
+     */
+    public enum Reason {
+        //answered without coordinates
+        NO_COORDINATES(0),
+        BAD_REQUEST(400),
+        NOT_FOUND(404);
+
+        private final int status;
+
+        Reason(int status) {
+            this.status = status;
+        }
+
+        /**
+         * @return the response status the code was refused with, 0 if it was answered without coordinates
+         */
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final Clock clock;
+    private final long halfTtlMillis;
+    private final AtomicLongArray[] generations = {new AtomicLongArray(WORDS), new AtomicLongArray(WORDS)};
+    private volatile int current;
+    private volatile long nextRotationMillis;
+
+    public NegativeIATACache(Duration ttl, Clock clock) {
+        this.clock = clock;
+        this.halfTtlMillis = Math.max(1, ttl.toMillis() / 2);
+        this.nextRotationMillis = clock.millis() + halfTtlMillis;
+    }
+
+    public NegativeIATACache(Duration ttl) {
+        this(ttl, Clock.systemUTC());
+    }
+
+    /**
+     * @return index of the code among all three uppercase letter codes, or -1 if it is not one
+     */
+    static int indexOf(String IATA) {
+        if (IATA == null || IATA.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = IATA.charAt(i) - 'A';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            index = index * 26 + letter;
+        }
+        return index;
+    }
+
+    private void rotateIfDue() {
+        long now = clock.millis();
+        if (now < nextRotationMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now < nextRotationMillis) {
+                return;
+            }
+            //rotations stay on a fixed grid of half TTLs even when nobody looked up a code for a while
+            long due = (now - nextRotationMillis) / halfTtlMillis + 1;
+            for (long rotation = 0; rotation < Math.min(due, 2); rotation++) {
+                int older = 1 - current;
+                AtomicLongArray bits = generations[older];
+                for (int word = 0; word < WORDS; word++) {
+                    bits.set(word, 0);
+                }
+                current = older;
+            }
+            nextRotationMillis += due * halfTtlMillis;
+        }
+    }
+
+    public void markUnknown(String IATA) {
+        markUnknown(IATA, Reason.NO_COORDINATES);
+    }
+
+    public void markUnknown(String IATA, Reason reason) {
+        int index = indexOf(IATA);
+        if (index < 0) {
+            return;
+        }
+        rotateIfDue();
+        int word = index / CODES_PER_WORD;
+        int shift = index % CODES_PER_WORD * BITS;
+        long marked = (long) (reason.ordinal() + 1) << shift;
+        //under the rotation lock, so that a mark always lands in the current generation and never in one being cleared;
+        //marks are rare, lookups stay lock free
+        synchronized (this) {
+            AtomicLongArray bits = generations[current];
+            long value;
+            do {
+                value = bits.get(word);
+            } while ((value & REASON_MASK << shift) != marked && !bits.compareAndSet(word, value, value & ~(REASON_MASK << shift) | marked));
+        }
+    }
+
+    public boolean isKnownUnknown(String IATA) {
+        return reasonUnknown(IATA) != null;
+    }
+
+    /**
+     * @return why the code is known to be unknown, the latest reason if it was marked more than once, or null if it is not
+     */
+    public Reason reasonUnknown(String IATA) {
+        int index = indexOf(IATA);
+        if (index < 0) {
+            return null;
+        }
+        rotateIfDue();
+        int word = index / CODES_PER_WORD;
+        int shift = index % CODES_PER_WORD * BITS;
+        int newer = current;
+        int reason = (int) (generations[newer].get(word) >>> shift & REASON_MASK);
+        if (reason == 0) {
+            reason = (int) (generations[1 - newer].get(word) >>> shift & REASON_MASK);
+        }
+        return reason == 0 ? null : REASONS[reason - 1];
+    }
+}
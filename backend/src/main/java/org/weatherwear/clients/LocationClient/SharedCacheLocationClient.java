@@ -0,0 +1,44 @@
+package org.weatherwear.clients.LocationClient;
+
+import org.weatherwear.cache.SharedForecastCache;
+import org.weatherwear.clients.Models.Location;
+
+/**
+ * Location client that looks for an airport in the cache shared by the processes on this host before resolving it,
+ * and shares every airport it resolves. The current location, client IP lookups and the backup lookups are passed
+ * through untouched.
+ */
+public class SharedCacheLocationClient implements ILocationClient {
+    private final ILocationClient locationClientInterface;
+    private final SharedForecastCache sharedCache;
+
+    public SharedCacheLocationClient(ILocationClient locationClientInterface, SharedForecastCache sharedCache) {
+        this.locationClientInterface = locationClientInterface;
+        this.sharedCache = sharedCache;
+    }
+
+    public Location getLocation() throws Exception {
+        return locationClientInterface.getLocation();
+    }
+
+    public Location getLocation(String IATA) throws Exception {
+        Location location = sharedCache.getAirport(IATA);
+        if (location == null) {
+            location = locationClientInterface.getLocation(IATA);
+            sharedCache.putAirport(IATA, location);
+        }
+        return location;
+    }
+
+    public Location getLocationBackup() throws Exception {
+        return locationClientInterface.getLocationBackup();
+    }
+
+    public Location getLocationBackup(String IATA) throws Exception {
+        return locationClientInterface.getLocationBackup(IATA);
+    }
+
+    public Location getLocationForIp(String ip) throws Exception {
+        return locationClientInterface.getLocationForIp(ip);
+    }
+}
@@ -0,0 +1,50 @@
+package org.weatherwear.clients.LocationClient;
+
+import org.weatherwear.cache.LastKnownGoodStore;
+import org.weatherwear.clients.Models.Location;
+
+/**
+ * Location client that remembers every airport it resolved and answers with that location when the
+ * location services fail or the request's deadline runs out. Airports do not move, so such answers are not stale.
+ * The current location, client IP lookups and the backup lookups are passed through untouched.
+ */
+public class StaleIfErrorLocationClient implements ILocationClient {
+    private final ILocationClient locationClientInterface;
+    private final LastKnownGoodStore store;
+
+    public StaleIfErrorLocationClient(ILocationClient locationClientInterface, LastKnownGoodStore store) {
+        this.locationClientInterface = locationClientInterface;
+        this.store = store;
+    }
+
+    public Location getLocation() throws Exception {
+        return locationClientInterface.getLocation();
+    }
+
+    public Location getLocation(String IATA) throws Exception {
+        Location location;
+        try {
+            location = locationClientInterface.getLocation(IATA);
+        } catch (Exception e) {
+            Location known = store.getAirport(IATA);
+            if (known == null) {
+                throw e;
+            }
+            return known;
+        }
+        store.putAirport(IATA, location);
+        return location;
+    }
+
+    public Location getLocationBackup() throws Exception {
+        return locationClientInterface.getLocationBackup();
+    }
+
+    public Location getLocationBackup(String IATA) throws Exception {
+        return locationClientInterface.getLocationBackup(IATA);
+    }
+
+    public Location getLocationForIp(String ip) throws Exception {
+        return locationClientInterface.getLocationForIp(ip);
+    }
+}
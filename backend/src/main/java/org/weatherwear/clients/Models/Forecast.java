@@ -0,0 +1,53 @@
+package org.weatherwear.clients.Models;
+
+import java.util.Arrays;
+
+/**
+ * Daily forecast series for one location, day 0 being today.
+ * A single series answers every {@link Weather} question for the days it covers, which is what makes it worth caching.
+ */
+public final class Forecast {
+    private final double[] tempInCelsius;
+    private final double[] precipitationProbability;
+
+    public Forecast(double[] tempInCelsius, double[] precipitationProbability) {
+        if (tempInCelsius.length != precipitationProbability.length) {
+            throw new IllegalArgumentException("Expected one temperature and one precipitation value per day");
+        }
+        this.tempInCelsius = tempInCelsius.clone();
+        this.precipitationProbability = precipitationProbability.clone();
+    }
+
+    public int getDays() {
+        return tempInCelsius.length;
+    }
+
+    public double getTempInCelsius(int day) {
+        return tempInCelsius[day];
+    }
+
+    public double getPrecipitationProbability(int day) {
+        return precipitationProbability[day];
+    }
+
+    public Weather getDay(int day) {
+        return new Weather(tempInCelsius[day], precipitationProbability[day]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Forecast other
+                && Arrays.equals(tempInCelsius, other.tempInCelsius)
+                && Arrays.equals(precipitationProbability, other.precipitationProbability));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(tempInCelsius) + Arrays.hashCode(precipitationProbability);
+    }
+
+    @Override
+    public String toString() {
+        return "Forecast{tempInCelsius=" + Arrays.toString(tempInCelsius) + ", precipitationProbability=" + Arrays.toString(precipitationProbability) + "}";
+    }
+}
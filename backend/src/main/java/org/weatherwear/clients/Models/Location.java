@@ -1,23 +1,100 @@
 package org.weatherwear.clients.Models;
 
-import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
 
-public class Location {
-    private final @NotNull @NotBlank String latitude;
-    private final @NotNull @NotBlank String longitude;
+/**
+ * Geographic point stored at a fixed precision of one micro-degree.
+ * Latitude and longitude are packed into a single long (latitude in the high 32 bits,
+ * longitude in the low 32 bits) so that the same point always has the same representation,
+ * no matter which upstream service (or which JSON number format) it was parsed from.
+ */
+public final class Location {
+    private static final double MICRO_DEGREES = 1_000_000d;
 
-    public Location(@NotNull @NotBlank String latitude, @NotNull @NotBlank String longitude) {
-        this.latitude = latitude;
-        this.longitude = longitude;
+    private final long packed;
+
+    public Location(double latitude, double longitude) {
+        this(pack(toMicroDegrees(latitude), toMicroDegrees(longitude)));
+    }
+
+    private Location(long packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Parses coordinates received as text (e.g. "35.857498") into a location.
+     *
+     * @throws NumberFormatException if either coordinate is not a number
+     */
+    public static Location parse(String latitude, String longitude) {
+        return new Location(Double.parseDouble(latitude), Double.parseDouble(longitude));
+    }
+
+    public static Location fromPacked(long packed) {
+        return new Location(packed);
+    }
+
+    private static int toMicroDegrees(double degrees) {
+        if (Double.isNaN(degrees) || Double.isInfinite(degrees)) {
+            throw new IllegalArgumentException("Coordinate " + degrees + " is not a finite number");
+        }
+        return Math.toIntExact(Math.round(degrees * MICRO_DEGREES));
+    }
+
+    private static long pack(int latitudeMicroDegrees, int longitudeMicroDegrees) {
+        return ((long) latitudeMicroDegrees << 32) | (longitudeMicroDegrees & 0xFFFFFFFFL);
+    }
+
+    private static String format(int microDegrees) {
+        return BigDecimal.valueOf(microDegrees, 6).stripTrailingZeros().toPlainString();
+    }
+
+    public long packed() {
+        return packed;
+    }
+
+    public int getLatitudeMicroDegrees() {
+        return (int) (packed >> 32);
+    }
+
+    public int getLongitudeMicroDegrees() {
+        return (int) packed;
+    }
+
+    public double getLatitude() {
+        return getLatitudeMicroDegrees() / MICRO_DEGREES;
     }
 
-    public String getLatitude() {
-        return latitude;
+    public double getLongitude() {
+        return getLongitudeMicroDegrees() / MICRO_DEGREES;
     }
 
-    public String getLongitude() {
-        return longitude;
+    /**
+     * Canonical decimal text of the latitude, as sent to upstream HTTP services (e.g. "20.69").
+     */
+    public String getLatitudeText() {
+        return format(getLatitudeMicroDegrees());
     }
 
-}
\ No newline at end of file
+    /**
+     * Canonical decimal text of the longitude, as sent to upstream HTTP services (e.g. "4.2").
+     */
+    public String getLongitudeText() {
+        return format(getLongitudeMicroDegrees());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Location other && packed == other.packed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(packed * 0x9E3779B97F4A7C15L);
+    }
+
+    @Override
+    public String toString() {
+        return "Location{" + getLatitudeText() + "," + getLongitudeText() + "}";
+    }
+}
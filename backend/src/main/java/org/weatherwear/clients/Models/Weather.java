@@ -4,15 +4,17 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
 /**
- *
+ * Forecast values for a single day. Equality is by value so instances can be compared
+ * and used as keys (e.g. to detect whether a forecast changed between two fetches).
  */
 public final class Weather {
     private final @NotNull @NotBlank double tempInCelsius;
     private final @NotNull @NotBlank double precipitationProbability;
 
     public Weather(@NotNull @NotBlank double tempInCelsius, @NotNull @NotBlank double precipitationProbability) {
-        this.tempInCelsius = tempInCelsius;
-        this.precipitationProbability = precipitationProbability;
+        // adding 0.0 folds -0.0 into 0.0 so both compare and hash the same
+        this.tempInCelsius = tempInCelsius + 0.0;
+        this.precipitationProbability = precipitationProbability + 0.0;
     }
 
     public @NotNull @NotBlank double getTempInCelsius() {
@@ -23,4 +25,20 @@ public final class Weather {
         return precipitationProbability;
     }
 
-}
\ No newline at end of file
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Weather other
+                && Double.compare(tempInCelsius, other.tempInCelsius) == 0
+                && Double.compare(precipitationProbability, other.precipitationProbability) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(tempInCelsius) + Double.hashCode(precipitationProbability);
+    }
+
+    @Override
+    public String toString() {
+        return "Weather{tempInCelsius=" + tempInCelsius + ", precipitationProbability=" + precipitationProbability + "}";
+    }
+}
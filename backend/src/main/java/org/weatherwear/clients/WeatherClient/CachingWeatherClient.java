@@ -0,0 +1,39 @@
+package org.weatherwear.clients.WeatherClient;
+
+import org.weatherwear.cache.ExpiringCache;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weather client that keeps the full forecast series per location for a few minutes.
+ * Current and future weather for a location are both answered from the same cached series.
+ */
+public class CachingWeatherClient implements IWeatherClient {
+    private final IWeatherClient weatherClientInterface;
+    private final ExpiringCache<Location, Forecast> forecasts;
+
+    public CachingWeatherClient(IWeatherClient weatherClientInterface, Clock clock) {
+        this.weatherClientInterface = weatherClientInterface;
+        this.forecasts = new ExpiringCache<>(TimeUnit.MINUTES.toMillis(10), clock);
+    }
+
+    public CachingWeatherClient(IWeatherClient weatherClientInterface) {
+        this(weatherClientInterface, Clock.systemUTC());
+    }
+
+    public Weather getWeather(Location location) throws Exception {
+        return getForecast(location).getDay(0);
+    }
+
+    public Weather getWeather(Location location, int day) throws Exception {
+        return getForecast(location).getDay(day);
+    }
+
+    public Forecast getForecast(Location location) throws Exception {
+        return forecasts.get(location, weatherClientInterface::getForecast);
+    }
+}
@@ -1,9 +1,11 @@
 package org.weatherwear.clients.WeatherClient;
 
+import org.weatherwear.clients.Models.Forecast;
 import org.weatherwear.clients.Models.Location;
 import org.weatherwear.clients.Models.Weather;
 
 public interface IWeatherClient {
         Weather getWeather(Location location) throws Exception;
         Weather getWeather(Location location, int day) throws Exception;
+        Forecast getForecast(Location location) throws Exception;
 }
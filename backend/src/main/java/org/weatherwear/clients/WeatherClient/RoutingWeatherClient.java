@@ -0,0 +1,221 @@
+package org.weatherwear.clients.WeatherClient;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weather client backed by several interchangeable providers.
+ * Every call is timed and an exponentially weighted moving average of latency and error rate is kept per provider.
+ * Calls that fail for the caller's own reasons, such as the request's deadline running out or the call being
+ * cancelled, are not held against the provider and are left out of both averages.
+ * Calls go to the provider with the best score and fall back to the next ones if it fails.
+ * Providers start with a score of zero, so each one is tried at least once before the scores settle.
+ * A provider's score halves every {@link #SCORE_HALF_LIFE_MILLIS} it goes without calls, so a provider demoted
+ * for errors or latency is tried again once it has been left alone long enough, instead of never recovering.
+ * When a race executor is given, the best two providers are asked at the same time for interactive calls and the
+ * first answer wins; background calls such as prefetches and watches are not worth doubling the upstream load for.
+ */
+public class RoutingWeatherClient implements IWeatherClient {
+    //weight of the latest observation in the moving averages
+    private static final double ALPHA = 0.2;
+    //a provider failing every call scores as if every call took this long (the client timeout),
+    //so that a provider failing fast is not mistaken for a fast one
+    private static final double ERROR_PENALTY_NANOS = 3_000_000_000d;
+    public static final long SCORE_HALF_LIFE_MILLIS = 30_000;
+
+    public record ProviderScore(String provider, double latencyMillis, double errorRate) {
+    }
+
+    private interface Call<T> {
+        T call(IWeatherClient provider) throws Exception;
+    }
+
+    private static final class Provider {
+        private final IWeatherClient client;
+        private final Clock clock;
+        private double latencyNanos;
+        private double errorRate;
+        private long lastCallMillis;
+
+        private Provider(IWeatherClient client, Clock clock) {
+            this.client = client;
+            this.clock = clock;
+            this.lastCallMillis = clock.millis();
+        }
+
+        //how much of the averages still counts after the time since the last call
+        private double decay(long now) {
+            return Math.pow(0.5, (double) (now - lastCallMillis) / SCORE_HALF_LIFE_MILLIS);
+        }
+
+        private synchronized void record(long latencyNanos, boolean failed) {
+            long now = clock.millis();
+            double decay = decay(now);
+            this.latencyNanos *= decay;
+            this.errorRate *= decay;
+            this.lastCallMillis = now;
+            this.latencyNanos += ALPHA * (latencyNanos - this.latencyNanos);
+            this.errorRate += ALPHA * ((failed ? 1 : 0) - this.errorRate);
+        }
+
+        private synchronized double score() {
+            return (latencyNanos + ERROR_PENALTY_NANOS * errorRate) * decay(clock.millis());
+        }
+
+        private synchronized ProviderScore toScore() {
+            return new ProviderScore(client.toString(), latencyNanos / 1_000_000, errorRate);
+        }
+    }
+
+    private final List<Provider> providers = new ArrayList<>();
+    private final Executor raceExecutor;
+
+    private RoutingWeatherClient(List<IWeatherClient> providers, Executor raceExecutor, Clock clock) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one weather provider");
+        }
+        for (IWeatherClient provider : providers) {
+            this.providers.add(new Provider(provider, clock));
+        }
+        this.raceExecutor = raceExecutor;
+    }
+
+    /**
+     * Routes every call to the currently best provider only.
+     */
+    public RoutingWeatherClient(List<IWeatherClient> providers, Clock clock) {
+        this(providers, null, clock);
+    }
+
+    public RoutingWeatherClient(List<IWeatherClient> providers) {
+        this(providers, Clock.systemUTC());
+    }
+
+    /**
+     * Races the best two providers on the given executor for every interactive call.
+     */
+    public static RoutingWeatherClient racing(List<IWeatherClient> providers, Executor raceExecutor) {
+        return new RoutingWeatherClient(providers, raceExecutor, Clock.systemUTC());
+    }
+
+    public List<ProviderScore> getScores() {
+        return providers.stream().map(Provider::toScore).toList();
+    }
+
+    private List<Provider> rank() {
+        List<Provider> ranked = new ArrayList<>(providers);
+        ranked.sort(Comparator.comparingDouble(Provider::score));
+        return ranked;
+    }
+
+    private static <T> T timed(Provider provider, Call<T> call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T result = call.call(provider.client);
+            provider.record(System.nanoTime() - start, false);
+            return result;
+        } catch (Exception e) {
+            if (isProviderFailure(e)) {
+                provider.record(System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+    }
+
+    //a spent request budget, which also cuts the provider's timeouts short, a cache-only request and a cancelled
+    //race say nothing about the provider
+    private static boolean isProviderFailure(Exception e) {
+        if (Thread.currentThread().isInterrupted() || RequestContext.remainingNanos() <= 0) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException || cause instanceof NotCachedException || cause instanceof InterruptedException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T> T route(Call<T> call) throws Exception {
+        List<Provider> ranked = rank();
+        Exception failure = null;
+        int next = 0;
+        if (raceExecutor != null && ranked.size() >= 2 && RequestContext.priority() == Priority.INTERACTIVE) {
+            try {
+                return race(ranked.get(0), ranked.get(1), call);
+            } catch (Exception e) {
+                failure = e;
+                next = 2;
+            }
+        }
+        for (; next < ranked.size(); next++) {
+            try {
+                return timed(ranked.get(next), call);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private <T> T race(Provider first, Provider second, Call<T> call) throws Exception {
+        CompletionService<T> completionService = new ExecutorCompletionService<>(raceExecutor);
+        Future<T> firstCall = completionService.submit(RequestContext.propagate(() -> timed(first, call)));
+        Future<T> secondCall = completionService.submit(RequestContext.propagate(() -> timed(second, call)));
+        Exception failure = null;
+        for (int pending = 2; pending > 0; pending--) {
+            //the loser is left to finish on its own so that its latency is still recorded
+            long remainingNanos = RequestContext.remainingNanos();
+            Future<T> done = remainingNanos == Long.MAX_VALUE ? completionService.take() : completionService.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                //out of time, neither provider's answer is of any use any more
+                firstCall.cancel(true);
+                secondCall.cancel(true);
+                throw new DeadlineExceededException("Deadline exceeded racing weather providers");
+            }
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception exception ? exception : e;
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    public Weather getWeather(Location location) throws Exception {
+        return route(provider -> provider.getWeather(location));
+    }
+
+    public Weather getWeather(Location location, int day) throws Exception {
+        return route(provider -> provider.getWeather(location, day));
+    }
+
+    public Forecast getForecast(Location location) throws Exception {
+        return route(provider -> provider.getForecast(location));
+    }
+}
@@ -0,0 +1,37 @@
+package org.weatherwear.clients.WeatherClient;
+
+import org.weatherwear.cache.SharedForecastCache;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+
+/**
+ * Weather client that looks for a forecast series in the cache shared by the processes on this host before fetching it,
+ * and shares every series it fetches.
+ */
+public class SharedCacheWeatherClient implements IWeatherClient {
+    private final IWeatherClient weatherClientInterface;
+    private final SharedForecastCache sharedCache;
+
+    public SharedCacheWeatherClient(IWeatherClient weatherClientInterface, SharedForecastCache sharedCache) {
+        this.weatherClientInterface = weatherClientInterface;
+        this.sharedCache = sharedCache;
+    }
+
+    public Weather getWeather(Location location) throws Exception {
+        return getForecast(location).getDay(0);
+    }
+
+    public Weather getWeather(Location location, int day) throws Exception {
+        return getForecast(location).getDay(day);
+    }
+
+    public Forecast getForecast(Location location) throws Exception {
+        Forecast forecast = sharedCache.getForecast(location);
+        if (forecast == null) {
+            forecast = weatherClientInterface.getForecast(location);
+            sharedCache.putForecast(location, forecast);
+        }
+        return forecast;
+    }
+}
@@ -0,0 +1,52 @@
+package org.weatherwear.clients.WeatherClient;
+
+import org.weatherwear.cache.LastKnownGoodStore;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.telemetry.RequestContext;
+
+/**
+ * Weather client that remembers every forecast series it fetched and, when the upstream fails or the request's
+ * deadline runs out, answers with the last known good series for the location instead of the error.
+ * Such answers are marked stale, with their age, on the request's {@link RequestContext}.
+ * Like the caching client, current and future weather are both answered from the forecast series.
+ */
+public class StaleIfErrorWeatherClient implements IWeatherClient {
+    private final IWeatherClient weatherClientInterface;
+    private final LastKnownGoodStore store;
+
+    public StaleIfErrorWeatherClient(IWeatherClient weatherClientInterface, LastKnownGoodStore store) {
+        this.weatherClientInterface = weatherClientInterface;
+        this.store = store;
+    }
+
+    public Weather getWeather(Location location) throws Exception {
+        return getForecast(location, 0).getDay(0);
+    }
+
+    public Weather getWeather(Location location, int day) throws Exception {
+        return getForecast(location, day).getDay(day);
+    }
+
+    public Forecast getForecast(Location location) throws Exception {
+        return getForecast(location, 0);
+    }
+
+    //a last known good series that has been shifted past the day asked for is no answer, the upstream error is
+    private Forecast getForecast(Location location, int day) throws Exception {
+        Forecast forecast;
+        try {
+            forecast = weatherClientInterface.getForecast(location);
+        } catch (Exception e) {
+            LastKnownGoodStore.Stale stale = store.getForecast(location, day);
+            if (stale == null) {
+                throw e;
+            }
+            RequestContext.servedStale(stale.ageMillis());
+            return stale.forecast();
+        }
+        store.putForecast(location, forecast);
+        return forecast;
+    }
+}
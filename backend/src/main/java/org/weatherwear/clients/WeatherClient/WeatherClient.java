@@ -1,6 +1,7 @@
 package org.weatherwear.clients.WeatherClient;
 
 import org.weatherwear.clients.GenericRestClient.*;
+import org.weatherwear.clients.Models.Forecast;
 import org.weatherwear.clients.Models.Location;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -8,14 +9,27 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.MultivaluedMap;
 import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.telemetry.ForecastFetchEvent;
+import org.weatherwear.telemetry.Outcome;
+import org.weatherwear.telemetry.RequestContext;
 
 import java.net.SocketTimeoutException;
 
 public class WeatherClient implements IWeatherClient {
+    //today plus the 10 days a recommendation can be asked for
+    public static final int FORECAST_DAYS = 11;
+    public static final String OPEN_METEO = "https://api.open-meteo.com/v1";
     private final IRestClient restClientInterface;
+    //base URL of an open-meteo compatible forecast API (the public service, a mirror or a self-hosted instance)
+    private final String target;
 
-    public WeatherClient(IRestClient restClientInterface) {
+    public WeatherClient(IRestClient restClientInterface, String target) {
         this.restClientInterface = restClientInterface;
+        this.target = target;
+    }
+
+    public WeatherClient(IRestClient restClientInterface) {
+        this(restClientInterface, OPEN_METEO);
     }
 
     private MultivaluedMap<String, Object> getHeaders() {
@@ -25,8 +39,8 @@ public class WeatherClient implements IWeatherClient {
 
     private MultivaluedMap<String, Object> getQueryParam(Location location, String days) {
         MultivaluedMap<String, Object> queryParam = new MultivaluedHashMap<>();
-        queryParam.add("latitude", location.getLatitude());
-        queryParam.add("longitude", location.getLongitude());
+        queryParam.add("latitude", location.getLatitudeText());
+        queryParam.add("longitude", location.getLongitudeText());
         queryParam.add("daily", "temperature_2m_max,precipitation_sum");
         queryParam.add("timezone", "auto");
         queryParam.add("forecast_days", days);
@@ -34,23 +48,77 @@ public class WeatherClient implements IWeatherClient {
     }
 
 
-    private Weather getWeatherFromService(Location location) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        return getWeatherFromService(location, "1", 0);
+    private static double[] toArray(JsonNode values) {
+        double[] array = new double[values.size()];
+        for (int day = 0; day < array.length; day++) {
+            array[day] = values.get(day).asDouble();
+        }
+        return array;
+    }
+
+    private static UpstreamResult<Forecast> toForecast(UpstreamResult<HttpResponse> response) {
+        if (!response.isOk()) {
+            return response.asFailure();
+        }
+        JsonNode node;
+        try {
+            node = new ObjectMapper().readTree(response.getValue().getResponseBody());
+        } catch (JsonProcessingException e) {
+            return UpstreamResult.failure(UpstreamResult.Kind.PARSE_ERROR, e);
+        }
+        JsonNode daily = node.get("daily");
+        JsonNode tempInCelsius = daily != null ? daily.get("temperature_2m_max") : null;
+        JsonNode precipitationProbability = daily != null ? daily.get("precipitation_sum") : null;
+        if (tempInCelsius == null || precipitationProbability == null) {
+            return UpstreamResult.failure(UpstreamResult.Kind.MISSING_FIELD, "Expected daily temperature_2m_max and precipitation_sum in the response");
+        }
+        return UpstreamResult.ok(new Forecast(toArray(tempInCelsius), toArray(precipitationProbability)));
     }
 
-    private Weather getWeatherFromService(Location location, String days, int day) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        HttpResponse response = restClientInterface.request(HttpRequestMethods.GET, "https://api.open-meteo.com/v1", "/forecast", getHeaders(), getQueryParam(location, days));
-        final JsonNode node = new ObjectMapper().readTree(response.getResponseBody());
-        double tempInCelsius = node.get("daily").get("temperature_2m_max").get(day).asDouble();
-        double precipitationProbability = node.get("daily").get("precipitation_sum").get(day).asDouble();
-        return new Weather(tempInCelsius, precipitationProbability);
+    private Forecast getForecastFromService(Location location, String days) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        ForecastFetchEvent event = new ForecastFetchEvent();
+        event.begin();
+        String outcome = Outcome.ERROR;
+        long bytes = 0;
+        UpstreamResult<Forecast> result;
+        try {
+            UpstreamResult<HttpResponse> response = UpstreamResult.of(() -> restClientInterface.request(HttpRequestMethods.GET, target, "/forecast", getHeaders(), getQueryParam(location, days)));
+            if (response.isOk()) {
+                bytes = response.getValue().getResponseBody().length();
+            }
+            result = toForecast(response);
+            outcome = Outcome.of(result);
+        } catch (RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.correlationId = RequestContext.correlationId();
+                event.host = target;
+                event.forecastDays = Integer.parseInt(days);
+                event.bytes = bytes;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        return result.orThrow();
     }
 
     public Weather getWeather(Location location) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        return getWeatherFromService(location);
+        return getForecastFromService(location, "1").getDay(0);
     }
 
     public Weather getWeather(Location location, int day) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
-        return getWeatherFromService(location, "11", day);
+        return getForecast(location).getDay(day);
+    }
+
+    public Forecast getForecast(Location location) throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        return getForecastFromService(location, String.valueOf(FORECAST_DAYS));
+    }
+
+    @Override
+    public String toString() {
+        return target;
     }
 }
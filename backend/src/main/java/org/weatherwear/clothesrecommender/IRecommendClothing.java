@@ -1,6 +1,19 @@
 package org.weatherwear.clothesrecommender;
 
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.time.LocalDate;
+
 public interface IRecommendClothing {
     String recommendClothing() throws Exception;
     String recommendClothing(String IATA, String date) throws  Exception;
+    //for callers that already parsed the date, so that no date string is formatted or parsed per request
+    String recommendClothing(String IATA, LocalDate date) throws Exception;
+    //the decision behind recommendClothing(IATA, date), for callers that format the answer themselves
+    WeatherPossibility decideWeather(String IATA, String date) throws Exception;
+    WeatherPossibility decideWeather(String IATA, LocalDate date) throws Exception;
+    //the decision for a server-mode client without an airport, at the location of the IP its request came from
+    WeatherPossibility decideWeatherForIp(String ip, LocalDate date) throws Exception;
+    void prefetch() throws Exception;
+    void prefetch(String IATA) throws Exception;
 }
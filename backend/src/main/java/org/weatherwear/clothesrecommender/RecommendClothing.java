@@ -1,55 +1,170 @@
 package org.weatherwear.clothesrecommender;
 
+import org.weatherwear.telemetry.AuditLog;
+import org.weatherwear.telemetry.Outcome;
+import org.weatherwear.telemetry.RecommendationEvent;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.utilities.Today;
 import org.weatherwear.utilities.Validation;
 import org.weatherwear.weatherdecider.IWeatherDecider;
 import org.weatherwear.weatherdecider.WeatherPossibility;
 
 import java.time.Clock;
 import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 public class RecommendClothing implements IRecommendClothing {
     private final IWeatherDecider IWeatherDecider;
-    private final Clock clock;
-    public RecommendClothing(IWeatherDecider IWeatherDecider, Clock clock){
+    private final Today today;
+    private final Validation validation = new Validation();
+    //null when auditing is disabled
+    private final AuditLog auditLog;
+    //time each request may take from entering here to its answer, null for no deadline
+    private final Duration budget;
+    public RecommendClothing(IWeatherDecider IWeatherDecider, Clock clock, AuditLog auditLog, Duration budget){
         this.IWeatherDecider = IWeatherDecider;
-        this.clock=clock;
+        this.today = new Today(clock);
+        this.auditLog = auditLog;
+        this.budget = budget;
+    }
+    public RecommendClothing(IWeatherDecider IWeatherDecider, Clock clock, AuditLog auditLog){
+        this(IWeatherDecider, clock, auditLog, null);
+    }
+    public RecommendClothing(IWeatherDecider IWeatherDecider, Clock clock){
+        this(IWeatherDecider, clock, null);
     }
     public RecommendClothing(IWeatherDecider IWeatherDecider){
-        this.IWeatherDecider = IWeatherDecider;
-        this.clock = Clock.systemDefaultZone();
+        this(IWeatherDecider, Clock.systemDefaultZone());
     }
-    private String message(boolean isCold, boolean isRaining){
+    private String message(WeatherPossibility weather){
+        boolean isCold = weather.isCold();
+        boolean isRaining = weather.isRaining();
         String coldOrWarm = (isCold) ? "cold" : "warm";
         String warmOrLight = (isCold) ? "warm" : "light";
         String notOrCurrently = (isRaining) ? "currently" : "not";
         String doOrDont = (isRaining) ? "do" : "don't";
-        return "It is "+coldOrWarm+" so you should wear "+warmOrLight+" clothing.\n"+"It is "+notOrCurrently+" raining so you "+doOrDont+" need an umbrella.";
+        String message = "It is "+coldOrWarm+" so you should wear "+warmOrLight+" clothing.\n"+"It is "+notOrCurrently+" raining so you "+doOrDont+" need an umbrella.";
+        if (weather.isStale()) {
+            message += "\nThe weather service is unavailable, this is based on a forecast from "+TimeUnit.MILLISECONDS.toMinutes(weather.staleAgeMillis())+" minutes ago.";
+        }
+        return message;
+    }
+    //marks the possibility stale when the decision had to fall back on last known good data
+    private static WeatherPossibility withStaleness(WeatherPossibility weather) {
+        long staleAgeMillis = RequestContext.staleAgeMillis();
+        return staleAgeMillis >= 0 ? weather.withStaleAge(staleAgeMillis) : weather;
     }
-    private int getNumberOfDaysFromToday(String date) {
-        Validation validation = new Validation();
-        String today = LocalDate.now(clock).format(DateTimeFormatter.ISO_LOCAL_DATE);
-        long days = validation.dayDifference(today,date);
+    private int getNumberOfDaysFromToday(LocalDate date) {
+        long days = date.toEpochDay() - today.epochDay();
         if(days<0 || days>10)
             throw new DateTimeException("Expected date to be between 0 and 10 days in the future");
         return (int) days;
     }
     private void validateIATA(String IATA){
-        Validation validation = new Validation();
-        if(!validation.isIATAValid(IATA)){
-            throw new IllegalArgumentException("IATA is invalid");
+        validation.requireValidIATA(IATA);
+    }
+    private static void endRecommendation(RecommendationEvent event, String IATA, int day, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.correlationId = RequestContext.correlationId();
+            event.iata = IATA;
+            event.day = day;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    //must run before RequestContext.end(), which discards the trail
+    private void audit(String IATA, long epochDay, WeatherPossibility decision, String outcome) {
+        if (auditLog != null) {
+            auditLog.record(RequestContext.correlationId(), IATA, epochDay, RequestContext.trail(), decision, outcome);
         }
     }
     @Override
+    public void prefetch() throws Exception {
+        IWeatherDecider.prefetch();
+    }
+    @Override
+    public void prefetch(String IATA) throws Exception {
+        validateIATA(IATA);
+        IWeatherDecider.prefetch(IATA);
+    }
+    @Override
     public String recommendClothing() throws Exception {
-       WeatherPossibility weather = IWeatherDecider.decideWeather();
-       return message(weather.isCold(), weather.isRaining());
+        boolean startedRequest = RequestContext.beginIfAbsent(budget, auditLog != null);
+        RecommendationEvent event = new RecommendationEvent();
+        event.begin();
+        String outcome = Outcome.ERROR;
+        WeatherPossibility weather = null;
+        try {
+            weather = withStaleness(IWeatherDecider.decideWeather());
+            outcome = Outcome.OK;
+            return message(weather);
+        } catch (Exception e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endRecommendation(event, "", 0, outcome);
+            if (startedRequest) {
+                audit("", AuditLog.NO_DATE, weather, outcome);
+                RequestContext.end();
+            }
+        }
     }
     @Override
     public String recommendClothing(String IATA, String date) throws Exception {
-        validateIATA(IATA);
-        WeatherPossibility weather = IWeatherDecider.decideWeather(IATA,getNumberOfDaysFromToday(date));
-        return message(weather.isCold(), weather.isRaining());
+        WeatherPossibility weather = decideWeather(IATA, date);
+        return message(weather);
+    }
+    @Override
+    public String recommendClothing(String IATA, LocalDate date) throws Exception {
+        WeatherPossibility weather = decideWeather(IATA, date);
+        return message(weather);
+    }
+    @Override
+    public WeatherPossibility decideWeather(String IATA, String date) throws Exception {
+        return decideWeather(IATA, null, date, null);
+    }
+    @Override
+    public WeatherPossibility decideWeather(String IATA, LocalDate date) throws Exception {
+        return decideWeather(IATA, null, null, date);
+    }
+    @Override
+    public WeatherPossibility decideWeatherForIp(String ip, LocalDate date) throws Exception {
+        return decideWeather("", ip, null, date);
+    }
+    //takes either the date text, parsed here once, or the already parsed date; the IP, when given, stands in for the airport
+    private WeatherPossibility decideWeather(String IATA, String ip, String dateText, LocalDate date) throws Exception {
+        boolean startedRequest = RequestContext.beginIfAbsent(budget, auditLog != null);
+        RecommendationEvent event = new RecommendationEvent();
+        event.begin();
+        String outcome = Outcome.ERROR;
+        int day = -1;
+        WeatherPossibility weather = null;
+        //whatever the client sent is only audited once it is known to be an airport code
+        String auditedIATA = ip == null ? AuditLog.INVALID_IATA : IATA;
+        try {
+            if (ip == null) {
+                validateIATA(IATA);
+                auditedIATA = IATA;
+            }
+            if (date == null) {
+                date = validation.parseDate(dateText);
+            }
+            day = getNumberOfDaysFromToday(date);
+            weather = withStaleness(ip == null ? IWeatherDecider.decideWeather(IATA, day) : IWeatherDecider.decideWeatherForIp(ip, day));
+            outcome = Outcome.OK;
+            return weather;
+        } catch (Exception e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            endRecommendation(event, IATA, day, outcome);
+            if (startedRequest) {
+                audit(auditedIATA, date != null ? date.toEpochDay() : AuditLog.NO_DATE, weather, outcome);
+                RequestContext.end();
+            }
+        }
     }
 }
@@ -0,0 +1,73 @@
+package org.weatherwear.cluster;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Membership of this node in a static group of peers, each identified by its "host:port" address.
+ * Keys are assigned to owners on a consistent hash ring that includes this node.
+ */
+public class Cluster implements AutoCloseable {
+    private final String self;
+    private final ConsistentHashRing ring = new ConsistentHashRing();
+    private final Map<String, PeerClient> peers = new HashMap<>();
+
+    public Cluster(String self, Collection<String> members) {
+        this.self = self;
+        ring.add(self);
+        for (String member : members) {
+            add(member);
+        }
+    }
+
+    public static InetSocketAddress toSocketAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Expected peer address " + address + " to be in format host:port");
+        }
+        return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    public synchronized void addPeer(String address) {
+        add(address);
+    }
+
+    //not overridable, so the constructor can call it before a subclass is initialized
+    private void add(String address) {
+        if (address.equals(self) || peers.containsKey(address)) {
+            return;
+        }
+        peers.put(address, new PeerClient(toSocketAddress(address)));
+        ring.add(address);
+    }
+
+    public synchronized void removePeer(String address) {
+        PeerClient peer = peers.remove(address);
+        if (peer != null) {
+            ring.remove(address);
+            peer.close();
+        }
+    }
+
+    public synchronized String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+
+    /**
+     * Returns the peer owning the key, or null if this node owns it.
+     */
+    synchronized PeerClient peerOwning(String key) {
+        String owner = ring.ownerOf(key);
+        return owner.equals(self) ? null : peers.get(owner);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (PeerClient peer : peers.values()) {
+            peer.close();
+        }
+        peers.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package org.weatherwear.cluster;
+
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+
+/**
+ * Location client that asks the peer owning an airport before looking it up upstream.
+ * The current location depends on the node's own address and is always looked up locally, as are client IPs.
+ */
+public class ClusteredLocationClient implements ILocationClient {
+    private final Cluster cluster;
+    private final ILocationClient locationClientInterface;
+
+    public ClusteredLocationClient(Cluster cluster, ILocationClient locationClientInterface) {
+        this.cluster = cluster;
+        this.locationClientInterface = locationClientInterface;
+    }
+
+    static String key(String IATA) {
+        return "location:" + IATA;
+    }
+
+    public Location getLocation() throws Exception {
+        return locationClientInterface.getLocation();
+    }
+
+    public Location getLocation(String IATA) throws Exception {
+        PeerClient owner = cluster.peerOwning(key(IATA));
+        if (owner != null) {
+            try {
+                return owner.getLocation(IATA);
+            } catch (IOException e) {
+                //owner unreachable or failed itself, go upstream from here
+            }
+        }
+        return locationClientInterface.getLocation(IATA);
+    }
+
+    public Location getLocationBackup() throws Exception {
+        return locationClientInterface.getLocationBackup();
+    }
+
+    public Location getLocationBackup(String IATA) throws Exception {
+        return locationClientInterface.getLocationBackup(IATA);
+    }
+
+    public Location getLocationForIp(String ip) throws Exception {
+        return locationClientInterface.getLocationForIp(ip);
+    }
+}
@@ -0,0 +1,45 @@
+package org.weatherwear.cluster;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.clients.WeatherClient.IWeatherClient;
+
+import java.io.IOException;
+
+/**
+ * Weather client that asks the peer owning a location for its forecast series before fetching it upstream.
+ */
+public class ClusteredWeatherClient implements IWeatherClient {
+    private final Cluster cluster;
+    private final IWeatherClient weatherClientInterface;
+
+    public ClusteredWeatherClient(Cluster cluster, IWeatherClient weatherClientInterface) {
+        this.cluster = cluster;
+        this.weatherClientInterface = weatherClientInterface;
+    }
+
+    static String key(Location location) {
+        return "forecast:" + location.packed();
+    }
+
+    public Weather getWeather(Location location) throws Exception {
+        return getForecast(location).getDay(0);
+    }
+
+    public Weather getWeather(Location location, int day) throws Exception {
+        return getForecast(location).getDay(day);
+    }
+
+    public Forecast getForecast(Location location) throws Exception {
+        PeerClient owner = cluster.peerOwning(key(location));
+        if (owner != null) {
+            try {
+                return owner.getForecast(location);
+            } catch (IOException e) {
+                //owner unreachable or failed itself, go upstream from here
+            }
+        }
+        return weatherClientInterface.getForecast(location);
+    }
+}
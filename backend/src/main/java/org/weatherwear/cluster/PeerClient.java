@@ -0,0 +1,168 @@
+package org.weatherwear.cluster;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends lookups to one peer, reusing idle connections to it.
+ * A peer that cannot be reached is marked down for a back-off that doubles with every failed attempt, up to
+ * {@link #MAX_BACKOFF_MILLIS}; meanwhile lookups fail at once instead of each waiting out the connect timeout.
+ * A peer that accepts a new connection but then fails the exchange on it, as one shutting down does, is marked down too.
+ */
+public class PeerClient implements AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 250;
+    private static final int READ_TIMEOUT_MILLIS = 3000;
+    static final long MIN_BACKOFF_MILLIS = 1000;
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final InetSocketAddress address;
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+    //both guarded by this; 0 while the peer is up
+    private long downUntilNanos;
+    private long backoffMillis;
+
+    private static final class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                //nothing left to release
+            }
+        }
+    }
+
+    private interface Exchange<T> {
+        T exchange(DataInputStream in, DataOutputStream out) throws IOException;
+    }
+
+    public PeerClient(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    private synchronized void checkUp() throws IOException {
+        if (downUntilNanos != 0 && System.nanoTime() - downUntilNanos < 0) {
+            throw new IOException("Peer " + address + " is marked down");
+        }
+    }
+
+    private synchronized void markUp() {
+        downUntilNanos = 0;
+        backoffMillis = 0;
+    }
+
+    private synchronized void markDown() {
+        backoffMillis = backoffMillis == 0 ? MIN_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, 2 * backoffMillis);
+        downUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+    }
+
+    private <T> T send(Exchange<T> exchange) throws IOException {
+        RequestContext.checkDeadline("asking peer " + address);
+        RequestContext.checkNotCacheOnly("asking peer " + address);
+        checkUp();
+        Connection connection = idleConnections.pollFirst();
+        boolean opened = connection == null;
+        if (opened) {
+            try {
+                connection = new Connection(address);
+            } catch (IOException e) {
+                markDown();
+                throw e;
+            }
+        }
+        //a peer may only use what is left of the request's budget
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(RequestContext.remainingNanos());
+        int readTimeoutMillis = (int) Math.max(1, Math.min(READ_TIMEOUT_MILLIS, remainingMillis));
+        try {
+            connection.socket.setSoTimeout(readTimeoutMillis);
+            T result = exchange.exchange(connection.in, connection.out);
+            idleConnections.offerFirst(connection);
+            if (opened) {
+                markUp();
+            }
+            return result;
+        } catch (IOException e) {
+            connection.close();
+            if (opened && isPeerFailure(e, readTimeoutMillis)) {
+                markDown();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    //an error the peer answered with means it is up, and running out of a short request budget is not its fault
+    private static boolean isPeerFailure(IOException e, int readTimeoutMillis) {
+        if (e instanceof PeerException) {
+            return false;
+        }
+        return !(e instanceof SocketTimeoutException) || readTimeoutMillis == READ_TIMEOUT_MILLIS;
+    }
+
+    private static void checkStatus(DataInputStream in) throws IOException {
+        if (in.readByte() != PeerProtocol.OK) {
+            throw new PeerException(in.readUTF());
+        }
+    }
+
+    public Location getLocation(String IATA) throws IOException {
+        return send((in, out) -> {
+            out.writeByte(PeerProtocol.GET_LOCATION);
+            PeerProtocol.writePriority(out, RequestContext.priority());
+            out.writeUTF(IATA);
+            out.flush();
+            checkStatus(in);
+            return Location.fromPacked(in.readLong());
+        });
+    }
+
+    public Forecast getForecast(Location location) throws IOException {
+        return send((in, out) -> {
+            out.writeByte(PeerProtocol.GET_FORECAST);
+            PeerProtocol.writePriority(out, RequestContext.priority());
+            out.writeLong(location.packed());
+            out.flush();
+            checkStatus(in);
+            return PeerProtocol.readForecast(in);
+        });
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+}
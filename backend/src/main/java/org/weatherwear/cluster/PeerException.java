@@ -0,0 +1,14 @@
+package org.weatherwear.cluster;
+
+import java.io.IOException;
+
+/**
+ * The owning peer answered, but could not look the key up itself.
+ */
+public class PeerException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public PeerException(String errorMessage) {
+        super(errorMessage);
+    }
+}
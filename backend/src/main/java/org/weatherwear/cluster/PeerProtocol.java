@@ -0,0 +1,58 @@
+package org.weatherwear.cluster;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.telemetry.Priority;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary protocol spoken between cluster peers over a persistent TCP connection.
+ * A request is an opcode, the priority of the work it is made for and its key, a response is a status byte followed
+ * by the value or an error message. The priority travels along so that a peer's prefetch does not become
+ * interactive work on the peer answering it.
+ */
+final class PeerProtocol {
+    static final byte GET_LOCATION = 1;
+    static final byte GET_FORECAST = 2;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private PeerProtocol() {
+    }
+
+    static void writePriority(DataOutputStream out, Priority priority) throws IOException {
+        out.writeByte(priority.ordinal());
+    }
+
+    static Priority readPriority(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= PRIORITIES.length) {
+            throw new IOException("Unknown priority " + ordinal);
+        }
+        return PRIORITIES[ordinal];
+    }
+
+    static void writeForecast(DataOutputStream out, Forecast forecast) throws IOException {
+        out.writeShort(forecast.getDays());
+        for (int day = 0; day < forecast.getDays(); day++) {
+            out.writeDouble(forecast.getTempInCelsius(day));
+            out.writeDouble(forecast.getPrecipitationProbability(day));
+        }
+    }
+
+    static Forecast readForecast(DataInputStream in) throws IOException {
+        int days = in.readUnsignedShort();
+        double[] tempInCelsius = new double[days];
+        double[] precipitationProbability = new double[days];
+        for (int day = 0; day < days; day++) {
+            tempInCelsius[day] = in.readDouble();
+            precipitationProbability[day] = in.readDouble();
+        }
+        return new Forecast(tempInCelsius, precipitationProbability);
+    }
+}
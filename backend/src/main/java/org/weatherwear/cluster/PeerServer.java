@@ -0,0 +1,176 @@
+package org.weatherwear.cluster;
+
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.utilities.Validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers the lookups other peers send for the keys this node owns.
+ * Requests are served from this node's own (cached) clients, never from the clustered ones,
+ * so a request is forwarded at most once. Given the peers' addresses, connections from any other address are
+ * closed unanswered, and IATA codes are validated before they are looked up, since they are forwarded upstream.
+ */
+public class PeerServer implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final ServerSocket serverSocket;
+    //null to accept any address
+    private final Set<InetAddress> allowedPeers;
+    private final ILocationClient locationClientInterface;
+    private final IWeatherClient weatherClientInterface;
+    private final Validation validation = new Validation();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "peer-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param port         port to listen on, 0 to pick a free one
+     * @param allowedPeers addresses connections are accepted from, null for any
+     */
+    public PeerServer(InetAddress bindAddress, int port, Set<InetAddress> allowedPeers, ILocationClient locationClientInterface, IWeatherClient weatherClientInterface) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, bindAddress);
+        this.allowedPeers = allowedPeers;
+        this.locationClientInterface = locationClientInterface;
+        this.weatherClientInterface = weatherClientInterface;
+        connections.execute(this::acceptConnections);
+    }
+
+    public PeerServer(InetAddress bindAddress, int port, ILocationClient locationClientInterface, IWeatherClient weatherClientInterface) throws IOException {
+        this(bindAddress, port, null, locationClientInterface, weatherClientInterface);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                //closed, or a connection failed to be accepted
+                continue;
+            }
+            if (allowedPeers != null && !allowedPeers.contains(socket.getInetAddress())) {
+                closeQuietly(socket);
+                continue;
+            }
+            openSockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                //closed while accepting
+                openSockets.remove(socket);
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            //nothing left to release
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte operation = in.readByte();
+                switch (operation) {
+                    case PeerProtocol.GET_LOCATION -> respondWithLocation(PeerProtocol.readPriority(in), in.readUTF(), out);
+                    case PeerProtocol.GET_FORECAST -> respondWithForecast(PeerProtocol.readPriority(in), Location.fromPacked(in.readLong()), out);
+                    default -> throw new IOException("Unknown peer operation " + operation);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            //peer closed the connection
+        } catch (IOException e) {
+            //connection is dropped, the peer will go upstream itself
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private static void respondWithError(Exception e, DataOutputStream out) throws IOException {
+        out.writeByte(PeerProtocol.ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+    }
+
+    //the lookups run with the priority of the work the peer asked for, as if made there
+    private void respondWithLocation(Priority priority, String IATA, DataOutputStream out) throws IOException {
+        if (!validation.isIATAValid(IATA)) {
+            respondWithError(new IllegalArgumentException("IATA is invalid"), out);
+            return;
+        }
+        Location location;
+        try {
+            location = RequestContext.callWithPriority(priority, () -> locationClientInterface.getLocation(IATA));
+        } catch (Exception e) {
+            respondWithError(e, out);
+            return;
+        }
+        out.writeByte(PeerProtocol.OK);
+        out.writeLong(location.packed());
+    }
+
+    private void respondWithForecast(Priority priority, Location location, DataOutputStream out) throws IOException {
+        Forecast forecast;
+        try {
+            forecast = RequestContext.callWithPriority(priority, () -> weatherClientInterface.getForecast(location));
+        } catch (Exception e) {
+            respondWithError(e, out);
+            return;
+        }
+        out.writeByte(PeerProtocol.OK);
+        PeerProtocol.writeForecast(out, forecast);
+    }
+
+    /**
+     * Returns once the listening socket is released, so that peers connecting afterwards are refused.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        try {
+            //a socket closed while accepting is only released once accept returns
+            connections.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package org.weatherwear.menu;
 
 import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.utilities.Validation;
+
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.time.LocalDate;
 import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class Menu {
 
@@ -12,10 +17,37 @@ public class Menu {
 
     private final Scanner scanner;
 
-    public Menu(InputStream inputStream, PrintStream printStream, IRecommendClothing IRecommendClothing) {
+    //runs lookups speculatively while the user is still reading or typing
+    private final Executor prefetchExecutor;
+    private final Validation validation = new Validation();
+
+    private interface Prefetch {
+        void run() throws Exception;
+    }
+
+    public Menu(InputStream inputStream, PrintStream printStream, IRecommendClothing IRecommendClothing, Executor prefetchExecutor) {
         this.printStream = printStream;
         scanner = new Scanner(inputStream);
         this.IRecommendClothing = IRecommendClothing;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    public Menu(InputStream inputStream, PrintStream printStream, IRecommendClothing IRecommendClothing) {
+        this(inputStream, printStream, IRecommendClothing, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "menu-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    private void prefetch(Prefetch prefetch) {
+        prefetchExecutor.execute(() -> {
+            try {
+                prefetch.run();
+            } catch (Exception ignored) {
+                //a failed prefetch is retried (and reported) by the real request
+            }
+        });
     }
 
     private void printMenu(String[] options) {
@@ -35,6 +67,8 @@ public class Menu {
                 "3- Exit",
         };
 
+        //most users ask about where they are, so start resolving it while the menu is being read
+        prefetch(IRecommendClothing::prefetch);
         int option = 1;
         while (option != 3) {
             printMenu(options);
@@ -68,8 +102,14 @@ public class Menu {
         try {
             printStream.print("Enter 3 digit airport IATA (in uppercase format) : ");
             String IATA = scanner.next();
+            if (validation.isIATAValid(IATA)) {
+                prefetch(() -> IRecommendClothing.prefetch(IATA));
+            }
             printStream.print("Enter day of arrival (in format YYYY-MM-DD): ");
-            String futureDate = scanner.next();
+            String dateText = scanner.next();
+            //the IATA is reported before the date, as the recommender always has; the date is parsed once here
+            validation.requireValidIATA(IATA);
+            LocalDate futureDate = validation.parseDate(dateText);
             printStream.println(IRecommendClothing.recommendClothing(IATA, futureDate));
         } catch (Exception e) {
             printStream.println("Error - " + e.getMessage());
@@ -0,0 +1,92 @@
+package org.weatherwear.server;
+
+import org.weatherwear.telemetry.RequestContext;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Sheds requests based on how long they queued for a worker, the way CoDel controls a packet queue.
+ * A queue that never drains below the target delay within an interval is standing rather than absorbing a burst;
+ * while it stands, requests that queued longer than the target are shed, otherwise only those that queued longer
+ * than a whole interval are. Shed requests are still answered when everything they need is cached, since that costs
+ * no upstream call; the others fail fast with {@link org.weatherwear.telemetry.NotCachedException}, which servers
+ * answer with {@link BinaryProtocol#OVERLOADED}. Answering those early drains the queue, so the admitted requests keep
+ * finishing within their deadline and goodput stays near capacity instead of every request timing out.
+ */
+public class AdmissionControl {
+    private final long targetNanos;
+    private final long intervalNanos;
+    //queue delay of the task running on each worker thread, set by the measuring executor
+    private final ThreadLocal<long[]> queueDelayNanos = ThreadLocal.withInitial(() -> new long[1]);
+    //everything below is guarded by this
+    private long intervalEndNanos;
+    //Long.MAX_VALUE until the first request
+    private long minDelayNanos = Long.MAX_VALUE;
+    private boolean overloaded;
+    private long admitted;
+    private long shed;
+
+    public AdmissionControl(Duration target, Duration interval) {
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.intervalEndNanos = System.nanoTime() + intervalNanos;
+    }
+
+    /**
+     * Wraps the workers so that every task records how long it queued before a worker picked it up.
+     * Servers run their requests on the returned executor and decide them with {@link #decide}.
+     */
+    public Executor measuring(Executor workers) {
+        return task -> {
+            long enqueuedNanos = System.nanoTime();
+            workers.execute(() -> {
+                queueDelayNanos.get()[0] = System.nanoTime() - enqueuedNanos;
+                task.run();
+            });
+        };
+    }
+
+    /**
+     * Makes the decision of the request running on this worker, from cached data only when the request is shed.
+     */
+    public <T> T decide(Callable<T> decision) throws Exception {
+        if (admit(queueDelayNanos.get()[0], System.nanoTime())) {
+            return decision.call();
+        }
+        return RequestContext.cacheOnly(decision);
+    }
+
+    synchronized boolean admit(long delayNanos, long nowNanos) {
+        if (nowNanos - intervalEndNanos >= 0) {
+            //a whole interval without any request means the queue was empty
+            overloaded = nowNanos - intervalEndNanos < intervalNanos && minDelayNanos != Long.MAX_VALUE && minDelayNanos > targetNanos;
+            minDelayNanos = delayNanos;
+            intervalEndNanos = nowNanos + intervalNanos;
+        } else {
+            minDelayNanos = Math.min(minDelayNanos, delayNanos);
+        }
+        if (delayNanos <= (overloaded ? targetNanos : intervalNanos)) {
+            admitted++;
+            return true;
+        }
+        shed++;
+        return false;
+    }
+
+    public synchronized boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * @return requests restricted to cached data, whether or not the cache could answer them
+     */
+    public synchronized long getShed() {
+        return shed;
+    }
+}
@@ -0,0 +1,82 @@
+package org.weatherwear.server;
+
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.utilities.InvalidIATAException;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+
+/**
+ * Length-prefixed binary protocol of the internal recommendation server.
+ * <pre>
+ * request  = int length (15) | long requestId | 3 bytes IATA (ASCII) | int date (epoch day)
+ * response = int length (10) | long requestId | byte status | byte result (bit 0 raining, bit 1 cold)
+ * </pre>
+ * Any number of requests can be pipelined on one connection; responses carry the request id and may come back in any order.
+ */
+public final class BinaryProtocol {
+    public static final int LENGTH_PREFIX = Integer.BYTES;
+    public static final int REQUEST_LENGTH = Long.BYTES + 3 + Integer.BYTES;
+    public static final int RESPONSE_LENGTH = Long.BYTES + 2;
+
+    public static final byte OK = 0;
+    public static final byte INVALID_IATA = 1;
+    public static final byte INVALID_DATE = 2;
+    public static final byte UPSTREAM_ERROR = 3;
+    public static final byte OVERLOADED = 4;
+
+    private static final byte RAINING = 1;
+    private static final byte COLD = 2;
+
+    private BinaryProtocol() {
+    }
+
+    public record Request(long requestId, String IATA, int epochDay) {
+    }
+
+    public static void writeRequest(ByteBuffer buffer, long requestId, String IATA, int epochDay) {
+        byte[] code = IATA.getBytes(StandardCharsets.US_ASCII);
+        if (code.length != 3) {
+            throw new IllegalArgumentException("IATA is invalid");
+        }
+        buffer.putInt(REQUEST_LENGTH).putLong(requestId).put(code).putInt(epochDay);
+    }
+
+    /**
+     * Reads the request following a length prefix that was already checked to be {@link #REQUEST_LENGTH}.
+     */
+    public static Request readRequest(ByteBuffer buffer) {
+        long requestId = buffer.getLong();
+        byte[] code = new byte[3];
+        buffer.get(code);
+        return new Request(requestId, new String(code, StandardCharsets.US_ASCII), buffer.getInt());
+    }
+
+    public static void writeResponse(ByteBuffer buffer, long requestId, byte status, WeatherPossibility weatherPossibility) {
+        byte result = 0;
+        if (weatherPossibility != null) {
+            result = (byte) ((weatherPossibility.isRaining() ? RAINING : 0) | (weatherPossibility.isCold() ? COLD : 0));
+        }
+        buffer.putInt(RESPONSE_LENGTH).putLong(requestId).put(status).put(result);
+    }
+
+    public static WeatherPossibility toWeatherPossibility(byte result) {
+        return new WeatherPossibility((result & RAINING) != 0, (result & COLD) != 0);
+    }
+
+    public static byte statusOf(Exception e) {
+        if (e instanceof NotCachedException) {
+            return OVERLOADED;
+        }
+        if (e instanceof DateTimeException) {
+            return INVALID_DATE;
+        }
+        //other illegal arguments, such as malformed coordinates, come from upstream answers
+        if (e instanceof InvalidIATAException) {
+            return INVALID_IATA;
+        }
+        return UPSTREAM_ERROR;
+    }
+}
@@ -0,0 +1,102 @@
+package org.weatherwear.server;
+
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of {@link NioRecommendationServer}. Requests are pipelined on a single connection:
+ * {@link #decideWeather} returns as soon as the request is written and the returned future
+ * completes when the matching response arrives, so many requests can be in flight at once.
+ * Safe to use from several threads.
+ */
+public class BinaryProtocolClient implements AutoCloseable {
+    private final Socket socket;
+    private final OutputStream out;
+    private final ByteBuffer requestBuffer = ByteBuffer.allocate(BinaryProtocol.LENGTH_PREFIX + BinaryProtocol.REQUEST_LENGTH);
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<Long, CompletableFuture<WeatherPossibility>> pending = new ConcurrentHashMap<>();
+    private final Thread reader;
+
+    public BinaryProtocolClient(InetSocketAddress address) throws IOException {
+        this.socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+        this.reader = new Thread(this::readResponses, "binary-protocol-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public CompletableFuture<WeatherPossibility> decideWeather(String IATA, LocalDate date) {
+        long requestId = nextRequestId.getAndIncrement();
+        CompletableFuture<WeatherPossibility> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        try {
+            synchronized (requestBuffer) {
+                requestBuffer.clear();
+                BinaryProtocol.writeRequest(requestBuffer, requestId, IATA, Math.toIntExact(date.toEpochDay()));
+                out.write(requestBuffer.array(), 0, requestBuffer.position());
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.remove(requestId);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Sends every request written so far. Requests are buffered so that a burst goes out in few packets.
+     */
+    public void flush() throws IOException {
+        synchronized (requestBuffer) {
+            out.flush();
+        }
+    }
+
+    private void readResponses() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                int length = in.readInt();
+                if (length != BinaryProtocol.RESPONSE_LENGTH) {
+                    throw new IOException("Unexpected frame length " + length);
+                }
+                long requestId = in.readLong();
+                byte status = in.readByte();
+                byte result = in.readByte();
+                CompletableFuture<WeatherPossibility> future = pending.remove(requestId);
+                if (future == null) {
+                    continue;
+                }
+                if (status == BinaryProtocol.OK) {
+                    future.complete(BinaryProtocol.toWeatherPossibility(result));
+                } else {
+                    future.completeExceptionally(new RecommendationServerException(status));
+                }
+            }
+        } catch (IOException e) {
+            for (Long requestId : pending.keySet()) {
+                CompletableFuture<WeatherPossibility> future = pending.remove(requestId);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,156 @@
+package org.weatherwear.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.utilities.Validation;
+import org.weatherwear.weatherdecider.ForecastColumns;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/JSON mode of the recommendation server: {@code GET /recommend?iata=MLA&date=2024-01-31}
+ * answers {@code {"isRaining":false,"isCold":true}} (plus {@code "stale":true,"ageSeconds":..} when based on a last known good forecast), 400 for an invalid IATA or date and 502 when upstream services fail.
+ * Without {@code iata} the answer is for where the client is, geolocated from the address its request came from.
+ * With an {@link AdmissionControl}, requests that queued too long for a worker and are not cached get a 503.
+ * With {@link #answerWhereQueries}, {@code GET /where?date=2024-01-31&raining=true&cold=true} answers
+ * {@code {"airports":["MLA","LHR"]}}, every airport looked up so far with that weather on the date.
+ */
+public class HttpRecommendationServer implements AutoCloseable {
+    static {
+        //the JDK server writes headers and body separately, without this every response waits on a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final IRecommendClothing IRecommendClothing;
+    private final HttpServer server;
+    //null when nothing is shed
+    private final AdmissionControl admissionControl;
+    private final Validation validation = new Validation();
+
+    public HttpRecommendationServer(InetSocketAddress address, IRecommendClothing IRecommendClothing, Executor workers, AdmissionControl admissionControl) throws IOException {
+        this.IRecommendClothing = IRecommendClothing;
+        this.admissionControl = admissionControl;
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/recommend", this::recommend);
+        server.setExecutor(admissionControl != null ? admissionControl.measuring(workers) : workers);
+        server.start();
+    }
+
+    public HttpRecommendationServer(InetSocketAddress address, IRecommendClothing IRecommendClothing, Executor workers) throws IOException {
+        this(address, IRecommendClothing, workers, null);
+    }
+
+    /**
+     * Serves {@code /where} from the forecasts kept in the columns.
+     */
+    public void answerWhereQueries(ForecastColumns forecastColumns) {
+        server.createContext("/where", exchange -> where(exchange, forecastColumns));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static Map<String, String> queryParameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private void recommend(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            Map<String, String> parameters = queryParameters(exchange.getRequestURI().getRawQuery());
+            try {
+                String IATA = parameters.get("iata");
+                String ip = exchange.getRemoteAddress().getAddress().getHostAddress();
+                //an invalid IATA is reported before an invalid date, as the recommender does
+                if (IATA != null) {
+                    validation.requireValidIATA(IATA);
+                }
+                LocalDate date = validation.parseDate(parameters.getOrDefault("date", ""));
+                Callable<WeatherPossibility> decision = IATA != null
+                        ? () -> IRecommendClothing.decideWeather(IATA, date)
+                        : () -> IRecommendClothing.decideWeatherForIp(ip, date);
+                WeatherPossibility weatherPossibility = admissionControl != null ? admissionControl.decide(decision) : decision.call();
+                String stale = weatherPossibility.isStale() ? ",\"stale\":true,\"ageSeconds\":" + TimeUnit.MILLISECONDS.toSeconds(weatherPossibility.staleAgeMillis()) : "";
+                respond(exchange, 200, "{\"isRaining\":" + weatherPossibility.isRaining() + ",\"isCold\":" + weatherPossibility.isCold() + stale + "}");
+            } catch (Exception e) {
+                byte status = BinaryProtocol.statusOf(e);
+                if (status == BinaryProtocol.OVERLOADED) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                }
+                respond(exchange, switch (status) {
+                            case BinaryProtocol.UPSTREAM_ERROR -> 502;
+                            case BinaryProtocol.OVERLOADED -> 503;
+                            default -> 400;
+                        },
+                        "{\"error\":\"" + new RecommendationServerException(status).getMessage() + "\"}");
+            }
+        }
+    }
+
+    private void where(HttpExchange exchange, ForecastColumns forecastColumns) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            Map<String, String> parameters = queryParameters(exchange.getRequestURI().getRawQuery());
+            LocalDate date;
+            try {
+                date = validation.parseDate(parameters.getOrDefault("date", ""));
+            } catch (DateTimeException e) {
+                respond(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+                return;
+            }
+            WeatherPossibility possibility = new WeatherPossibility(Boolean.parseBoolean(parameters.get("raining")), Boolean.parseBoolean(parameters.get("cold")));
+            StringBuilder json = new StringBuilder("{\"airports\":[");
+            for (String IATA : forecastColumns.airportsWhere(date, possibility)) {
+                json.append(json.charAt(json.length() - 1) == '[' ? "\"" : ",\"").append(IATA).append('"');
+            }
+            respond(exchange, 200, json.append("]}").toString());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
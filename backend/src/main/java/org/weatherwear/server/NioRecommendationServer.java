@@ -0,0 +1,227 @@
+package org.weatherwear.server;
+
+import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Recommendation server speaking {@link BinaryProtocol} for internal high-rate clients.
+ * A single selector thread does all socket I/O; decisions, which may wait on upstream services,
+ * run on the given executor and their responses are handed back to the selector thread for writing.
+ * With an {@link AdmissionControl}, requests that queued too long for a worker are shed.
+ * A connection with {@link #MAX_OUTSTANDING} requests whose responses have not been written yet is not read from
+ * until some are, so a client that pipelines without reading its responses is held back by TCP flow control
+ * instead of filling the worker queue and the heap.
+ */
+public class NioRecommendationServer implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_OUTSTANDING = 256;
+    private static final long SELECT_RETRY_MILLIS = 100;
+
+    private final IRecommendClothing IRecommendClothing;
+    private final Executor workers;
+    //null when nothing is shed
+    private final AdmissionControl admissionControl;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<Connection> connectionsWithOutput = new ConcurrentLinkedQueue<>();
+    private final Thread eventLoop;
+    private volatile boolean running = true;
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        //responses completed by workers, waiting to be copied into the output buffer by the event loop
+        private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        //requests handed to workers whose responses are not in the output buffer yet, only used by the event loop
+        private int outstanding;
+        private SelectionKey key;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            output.flip();
+        }
+
+        private void respond(ByteBuffer response) {
+            responses.add(response);
+            connectionsWithOutput.add(this);
+            selector.wakeup();
+        }
+    }
+
+    public NioRecommendationServer(InetSocketAddress address, IRecommendClothing IRecommendClothing, Executor workers, AdmissionControl admissionControl) throws IOException {
+        this.IRecommendClothing = IRecommendClothing;
+        this.workers = admissionControl != null ? admissionControl.measuring(workers) : workers;
+        this.admissionControl = admissionControl;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        eventLoop = new Thread(this::runEventLoop, "nio-recommendation-server");
+        eventLoop.start();
+    }
+
+    public NioRecommendationServer(InetSocketAddress address, IRecommendClothing IRecommendClothing, Executor workers) throws IOException {
+        this(address, IRecommendClothing, workers, null);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void runEventLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Connection connection;
+                while ((connection = connectionsWithOutput.poll()) != null) {
+                    if (connection.key.isValid()) {
+                        write(connection);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read((Connection) key.attachment());
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write((Connection) key.attachment());
+                            }
+                        }
+                    } catch (IOException e) {
+                        close(key);
+                    }
+                }
+            } catch (IOException e) {
+                //selector failure, keep serving the other connections after a pause rather than spinning on it
+                try {
+                    Thread.sleep(SELECT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            close(connection.key);
+            return;
+        }
+        dispatch(connection);
+    }
+
+    //hands the complete requests in the input buffer to workers, as many as the connection may have outstanding
+    private void dispatch(Connection connection) throws IOException {
+        ByteBuffer input = connection.input.flip();
+        while (connection.outstanding < MAX_OUTSTANDING && input.remaining() >= BinaryProtocol.LENGTH_PREFIX) {
+            int length = input.getInt(input.position());
+            if (length != BinaryProtocol.REQUEST_LENGTH) {
+                throw new IOException("Unexpected frame length " + length);
+            }
+            if (input.remaining() < BinaryProtocol.LENGTH_PREFIX + length) {
+                break;
+            }
+            input.position(input.position() + BinaryProtocol.LENGTH_PREFIX);
+            BinaryProtocol.Request request = BinaryProtocol.readRequest(input);
+            connection.outstanding++;
+            workers.execute(() -> connection.respond(decide(request)));
+        }
+        input.compact();
+        updateInterest(connection);
+    }
+
+    private ByteBuffer decide(BinaryProtocol.Request request) {
+        ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.LENGTH_PREFIX + BinaryProtocol.RESPONSE_LENGTH);
+        try {
+            LocalDate date = LocalDate.ofEpochDay(request.epochDay());
+            WeatherPossibility weatherPossibility = admissionControl != null
+                    ? admissionControl.decide(() -> IRecommendClothing.decideWeather(request.IATA(), date))
+                    : IRecommendClothing.decideWeather(request.IATA(), date);
+            BinaryProtocol.writeResponse(response, request.requestId(), BinaryProtocol.OK, weatherPossibility);
+        } catch (Exception e) {
+            BinaryProtocol.writeResponse(response, request.requestId(), BinaryProtocol.statusOf(e), null);
+        }
+        return response.flip();
+    }
+
+    private void write(Connection connection) throws IOException {
+        ByteBuffer output = connection.output;
+        //gather every finished response into one buffer so that a pipelined burst goes out in few writes
+        output.compact();
+        ByteBuffer response;
+        while (output.remaining() >= BinaryProtocol.LENGTH_PREFIX + BinaryProtocol.RESPONSE_LENGTH && (response = connection.responses.poll()) != null) {
+            output.put(response);
+            connection.outstanding--;
+        }
+        output.flip();
+        connection.channel.write(output);
+        if (connection.input.position() > 0) {
+            //requests held back while the connection had too many outstanding may go now
+            dispatch(connection);
+        } else {
+            updateInterest(connection);
+        }
+    }
+
+    private static void updateInterest(Connection connection) {
+        boolean pending = connection.output.hasRemaining() || !connection.responses.isEmpty();
+        int ops = (connection.outstanding < MAX_OUTSTANDING ? SelectionKey.OP_READ : 0) | (pending ? SelectionKey.OP_WRITE : 0);
+        connection.key.interestOps(ops);
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        selector.close();
+    }
+}
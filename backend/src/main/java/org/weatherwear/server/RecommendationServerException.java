@@ -0,0 +1,24 @@
+package org.weatherwear.server;
+
+/**
+ * Error status returned by the binary recommendation server.
+ */
+public class RecommendationServerException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final byte status;
+
+    public RecommendationServerException(byte status) {
+        super(switch (status) {
+            case BinaryProtocol.INVALID_IATA -> "IATA is invalid";
+            case BinaryProtocol.INVALID_DATE -> "Expected date to be between 0 and 10 days in the future";
+            case BinaryProtocol.OVERLOADED -> "Server is overloaded";
+            default -> "Upstream services failed";
+        });
+        this.status = status;
+    }
+
+    public byte getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,270 @@
+package org.weatherwear.telemetry;
+
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit log with one JSON line per recommendation.
+ * Requests copy their entry into a preallocated ring buffer slot, claimed with a single CAS and no lock and no allocation,
+ * and return at once; one consumer thread formats whole batches of entries and appends them to a {@link RotatingFile}.
+ * When the consumer falls behind and the ring is full, entries are either dropped (and counted) or the request waits for a free slot.
+ */
+public class AuditLog implements AutoCloseable {
+    public enum FullPolicy {
+        DROP, BLOCK
+    }
+
+    //no day requested, e.g. for the current weather
+    public static final long NO_DATE = Long.MIN_VALUE;
+    //recorded instead of an airport code that failed validation, which is the client's text and not worth keeping
+    public static final String INVALID_IATA = "invalid";
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private static final class Entry {
+        //sequence of the entry currently in the slot, written last by the producer
+        private volatile long published = -1;
+        private long timestampMillis;
+        private long correlationId;
+        private String IATA;
+        private long epochDay;
+        private boolean hasLocation;
+        private double latitude;
+        private double longitude;
+        private boolean hasWeather;
+        private double tempInCelsius;
+        private double precipitation;
+        private boolean hasDecision;
+        private boolean isRaining;
+        private boolean isCold;
+        private String outcome;
+        private long staleAgeMillis;
+        private int upstreamCalls;
+        private final String[] upstreamHosts = new String[AuditTrail.MAX_UPSTREAM_CALLS];
+        private final long[] upstreamNanos = new long[AuditTrail.MAX_UPSTREAM_CALLS];
+    }
+
+    private final Entry[] ring;
+    private final int mask;
+    private final FullPolicy fullPolicy;
+    private final RotatingFile file;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    //every sequence below this one has been formatted and its slot can be reused; written by the consumer only
+    private volatile long consumed;
+    private volatile boolean running = true;
+    private final Thread consumer;
+
+    private AuditLog(RotatingFile file, int capacity, FullPolicy fullPolicy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new Entry[size];
+        for (int slot = 0; slot < size; slot++) {
+            ring[slot] = new Entry();
+        }
+        this.mask = size - 1;
+        this.fullPolicy = fullPolicy;
+        this.file = file;
+        this.consumer = new Thread(this::consume, "audit-log");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * Creates the log and starts its consumer thread, once the log is fully constructed.
+     *
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public static AuditLog start(RotatingFile file, int capacity, FullPolicy fullPolicy) {
+        AuditLog auditLog = new AuditLog(file, capacity, fullPolicy);
+        auditLog.consumer.start();
+        return auditLog;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private long claim() {
+        while (running) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= ring.length) {
+                if (fullPolicy == FullPolicy.DROP) {
+                    return -1;
+                }
+                LockSupport.parkNanos(10_000);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records one request.
+     *
+     * @param epochDay day asked for, or {@link #NO_DATE}
+     * @param decision the decision, or null if the request failed
+     * @return false if the entry was dropped because the ring was full or the log is closed
+     */
+    public boolean record(long correlationId, String IATA, long epochDay, AuditTrail trail, WeatherPossibility decision, String outcome) {
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        Entry entry = ring[(int) sequence & mask];
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.correlationId = correlationId;
+        entry.IATA = IATA;
+        entry.epochDay = epochDay;
+        Location location = trail != null ? trail.getLocation() : null;
+        entry.hasLocation = location != null;
+        if (location != null) {
+            entry.latitude = location.getLatitude();
+            entry.longitude = location.getLongitude();
+        }
+        Weather weather = trail != null ? trail.getWeather() : null;
+        entry.hasWeather = weather != null;
+        if (weather != null) {
+            entry.tempInCelsius = weather.getTempInCelsius();
+            entry.precipitation = weather.getPrecipitationProbability();
+        }
+        entry.hasDecision = decision != null;
+        if (decision != null) {
+            entry.isRaining = decision.isRaining();
+            entry.isCold = decision.isCold();
+        }
+        entry.outcome = outcome;
+        entry.staleAgeMillis = trail != null ? trail.getStaleAgeMillis() : -1;
+        entry.upstreamCalls = trail != null ? trail.getUpstreamCalls() : 0;
+        for (int call = 0; call < Math.min(entry.upstreamCalls, AuditTrail.MAX_UPSTREAM_CALLS); call++) {
+            entry.upstreamHosts[call] = trail.getUpstreamHost(call);
+            entry.upstreamNanos[call] = trail.getUpstreamNanos(call);
+        }
+        entry.published = sequence;
+        return true;
+    }
+
+    //quotes and escapes a string so that no value can end its field or its line early
+    private static void appendString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f || c == '\u2028' || c == '\u2029') {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private static void format(Entry entry, StringBuilder line) {
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(entry.timestampMillis))
+                .append("\",\"correlationId\":").append(entry.correlationId)
+                .append(",\"iata\":");
+        appendString(line, entry.IATA);
+        if (entry.epochDay != NO_DATE) {
+            line.append(",\"date\":\"").append(LocalDate.ofEpochDay(entry.epochDay)).append('"');
+        }
+        if (entry.hasLocation) {
+            line.append(",\"latitude\":").append(entry.latitude).append(",\"longitude\":").append(entry.longitude);
+        }
+        if (entry.hasWeather) {
+            line.append(",\"tempInCelsius\":").append(entry.tempInCelsius).append(",\"precipitation\":").append(entry.precipitation);
+        }
+        if (entry.hasDecision) {
+            line.append(",\"isRaining\":").append(entry.isRaining).append(",\"isCold\":").append(entry.isCold);
+        }
+        if (entry.staleAgeMillis >= 0) {
+            line.append(",\"staleAgeMillis\":").append(entry.staleAgeMillis);
+        }
+        line.append(",\"outcome\":");
+        appendString(line, entry.outcome);
+        line.append(",\"upstreamCalls\":").append(entry.upstreamCalls).append(",\"upstream\":[");
+        for (int call = 0; call < Math.min(entry.upstreamCalls, AuditTrail.MAX_UPSTREAM_CALLS); call++) {
+            if (call > 0) {
+                line.append(',');
+            }
+            line.append("{\"host\":");
+            appendString(line, entry.upstreamHosts[call]);
+            line.append(",\"millis\":").append(entry.upstreamNanos[call] / 1_000_000d).append('}');
+        }
+        line.append("]}\n");
+    }
+
+    /**
+     * Formats every published entry available, up to a batch, and appends them to the file.
+     *
+     * @return number of entries written
+     */
+    int drain(StringBuilder batch) throws IOException {
+        long next = consumed;
+        int count = 0;
+        batch.setLength(0);
+        while (count < MAX_BATCH) {
+            Entry entry = ring[(int) next & mask];
+            if (entry.published != next) {
+                break;
+            }
+            format(entry, batch);
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            //the slots are free again as soon as they are formatted, before the (slower) write
+            consumed = next;
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+            file.write(bytes);
+        }
+        return count;
+    }
+
+    private void consume() {
+        StringBuilder batch = new StringBuilder(64 * 1024);
+        while (running || consumed != claimed.get()) {
+            try {
+                if (drain(batch) == 0) {
+                    if (!running) {
+                        //a claimed slot that is never published (producer died) must not block shutdown
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                //the batch is lost, later batches are still attempted
+            }
+        }
+    }
+
+    /**
+     * Stops accepting entries and waits until every recorded entry is written.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        file.close();
+    }
+}
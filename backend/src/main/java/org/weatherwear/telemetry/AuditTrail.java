@@ -0,0 +1,71 @@
+package org.weatherwear.telemetry;
+
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+
+/**
+ * What one request found out on its way through the clients, collected for the {@link AuditLog}.
+ * Each audited request started with {@link RequestContext#beginIfAbsent()} gets its own trail, reachable through
+ * {@link RequestContext#trail()} on every thread the request is propagated to.
+ */
+public final class AuditTrail {
+    //upstream calls beyond this are counted but not itemised
+    public static final int MAX_UPSTREAM_CALLS = 8;
+
+    private final String[] upstreamHosts = new String[MAX_UPSTREAM_CALLS];
+    private final long[] upstreamNanos = new long[MAX_UPSTREAM_CALLS];
+    private int upstreamCalls;
+    private Location location;
+    private Weather weather;
+    private long staleAgeMillis = -1;
+
+    AuditTrail() {
+    }
+
+    public synchronized void upstreamCall(String host, long nanos) {
+        if (upstreamCalls < MAX_UPSTREAM_CALLS) {
+            upstreamHosts[upstreamCalls] = host;
+            upstreamNanos[upstreamCalls] = nanos;
+        }
+        upstreamCalls++;
+    }
+
+    public synchronized void resolved(Location location, Weather weather) {
+        this.location = location;
+        this.weather = weather;
+    }
+
+    /**
+     * Records that part of the answer came from the last known good store instead of upstream.
+     */
+    public synchronized void servedStale(long ageMillis) {
+        staleAgeMillis = Math.max(staleAgeMillis, ageMillis);
+    }
+
+    /**
+     * @return age of the oldest stale data the answer is based on, or -1 if it is all fresh
+     */
+    public synchronized long getStaleAgeMillis() {
+        return staleAgeMillis;
+    }
+
+    synchronized int getUpstreamCalls() {
+        return upstreamCalls;
+    }
+
+    synchronized String getUpstreamHost(int call) {
+        return upstreamHosts[call];
+    }
+
+    synchronized long getUpstreamNanos(int call) {
+        return upstreamNanos[call];
+    }
+
+    synchronized Location getLocation() {
+        return location;
+    }
+
+    synchronized Weather getWeather() {
+        return weather;
+    }
+}
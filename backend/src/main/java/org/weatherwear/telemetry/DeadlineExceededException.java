@@ -0,0 +1,20 @@
+package org.weatherwear.telemetry;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown when a request runs out of its time budget. It is a timeout, so every client already handles it
+ * as one; no stack trace is captured since it is expected under load.
+ */
+public class DeadlineExceededException extends SocketTimeoutException {
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,28 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * One forecast request made by the weather client, including parsing the response.
+ */
+@Name("org.weatherwear.ForecastFetch")
+@Label("Forecast Fetch")
+@Category({"WeatherWear", "Weather"})
+@StackTrace(false)
+public class ForecastFetchEvent extends Event {
+    @Label("Correlation Id")
+    public long correlationId;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Forecast Days")
+    public int forecastDays;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,29 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * One attempt of the location client to resolve a location, including parsing the response.
+ * A failed primary attempt is followed by a second event for the backup service.
+ */
+@Name("org.weatherwear.LocationLookup")
+@Label("Location Lookup")
+@Category({"WeatherWear", "Location"})
+@StackTrace(false)
+public class LocationLookupEvent extends Event {
+    @Label("Correlation Id")
+    public long correlationId;
+
+    @Label("Host")
+    public String host;
+
+    @Label("IATA")
+    @Description("Airport code looked up, empty when looking up the current location")
+    public String iata;
+
+    @Label("Backup")
+    public boolean backup;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,21 @@
+package org.weatherwear.telemetry;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request restricted to cached data needs something that is not cached, see {@link RequestContext#cacheOnly}.
+ * It is an IOException so that, like an unreachable peer, it makes clustered clients fall back to their local caches;
+ * no stack trace is captured since it is expected under load.
+ */
+public class NotCachedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public NotCachedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+package org.weatherwear.telemetry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.weatherwear.clients.GenericRestClient.HttpStatusCodeUnknown;
+import org.weatherwear.clients.GenericRestClient.UpstreamResult;
+
+import java.net.SocketTimeoutException;
+import java.time.DateTimeException;
+
+/**
+ * Outcome labels recorded on Flight Recorder events.
+ */
+public final class Outcome {
+    public static final String OK = "OK";
+    public static final String TIMEOUT = "TIMEOUT";
+    public static final String BAD_STATUS = "BAD_STATUS";
+    public static final String PARSE_ERROR = "PARSE_ERROR";
+    public static final String MISSING_FIELD = "MISSING_FIELD";
+    public static final String INVALID_INPUT = "INVALID_INPUT";
+    public static final String SHED = "SHED";
+    public static final String ERROR = "ERROR";
+
+    private Outcome() {
+    }
+
+    public static String of(UpstreamResult<?> result) {
+        //the result kinds are named after the labels above
+        return result.getKind().name();
+    }
+
+    public static String of(Throwable throwable) {
+        if (throwable instanceof NotCachedException) {
+            return SHED;
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return TIMEOUT;
+            }
+        }
+        if (throwable instanceof HttpStatusCodeUnknown) {
+            return BAD_STATUS;
+        }
+        if (throwable instanceof JsonProcessingException || throwable instanceof NumberFormatException) {
+            return PARSE_ERROR;
+        }
+        if (throwable instanceof NullPointerException) {
+            return MISSING_FIELD;
+        }
+        if (throwable instanceof IllegalArgumentException || throwable instanceof DateTimeException) {
+            return INVALID_INPUT;
+        }
+        return ERROR;
+    }
+}
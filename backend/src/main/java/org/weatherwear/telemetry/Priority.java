@@ -0,0 +1,13 @@
+package org.weatherwear.telemetry;
+
+/**
+ * Class of the work an upstream call is made for, most urgent first.
+ */
+public enum Priority {
+    //a user or client is waiting for the answer
+    INTERACTIVE,
+    //bulk work that must finish but nobody is waiting on call by call
+    BATCH,
+    //speculative or maintenance work such as prefetching, which may be held back
+    BACKGROUND
+}
@@ -0,0 +1,26 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * A complete clothing recommendation, spanning every lookup and fetch it needed.
+ */
+@Name("org.weatherwear.Recommendation")
+@Label("Recommendation")
+@Category({"WeatherWear"})
+@StackTrace(false)
+public class RecommendationEvent extends Event {
+    @Label("Correlation Id")
+    public long correlationId;
+
+    @Label("IATA")
+    @Description("Airport code requested, empty for the current location")
+    public String iata;
+
+    @Label("Day")
+    @Description("Number of days from today, 0 for the current weather")
+    public int day;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,283 @@
+package org.weatherwear.telemetry;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread state of the request currently being served.
+ * The correlation id ties together every Flight Recorder event emitted for one recommendation,
+ * the audit trail collects what the request resolved for its audit log entry
+ * the deadline bounds how long every hop of the request may still take,
+ * the priority decides which upstream calls go first when they have to queue
+ * and the cache-only flag keeps a request that was shed from making any remote call.
+ */
+public final class RequestContext {
+    private static final AtomicLong NEXT_CORRELATION_ID = new AtomicLong(1);
+    private static final ThreadLocal<RequestContext> CURRENT = ThreadLocal.withInitial(RequestContext::new);
+
+    private long correlationId;
+    private AuditTrail trail;
+    //age of the oldest last known good data the request was answered from, -1 while it is all fresh
+    private long staleAgeMillis = -1;
+    private boolean hasDeadline;
+    //System.nanoTime() by which the request must be answered, only meaningful with hasDeadline
+    private long deadlineNanos;
+    //set for work explicitly run with a priority, otherwise derived from whether a request is running
+    private Priority priority;
+    private boolean cacheOnly;
+
+    private RequestContext() {
+    }
+
+    /**
+     * Returns the correlation id of the request running on this thread, or 0 if there is none.
+     */
+    public static long correlationId() {
+        return CURRENT.get().correlationId;
+    }
+
+    /**
+     * Returns the audit trail of the request running on this thread, or null if there is none or it is not audited.
+     */
+    public static AuditTrail trail() {
+        return CURRENT.get().trail;
+    }
+
+    /**
+     * Records that the answer to the request running on this thread is based on last known good data of the given age.
+     */
+    public static void servedStale(long ageMillis) {
+        RequestContext context = CURRENT.get();
+        context.staleAgeMillis = Math.max(context.staleAgeMillis, ageMillis);
+        if (context.trail != null) {
+            context.trail.servedStale(ageMillis);
+        }
+    }
+
+    /**
+     * Returns the age of the oldest stale data the request running on this thread is based on, or -1 if it is all fresh.
+     * Staleness recorded on another thread the request was propagated to is only seen through the audit trail.
+     */
+    public static long staleAgeMillis() {
+        RequestContext context = CURRENT.get();
+        return context.trail != null ? Math.max(context.staleAgeMillis, context.trail.getStaleAgeMillis()) : context.staleAgeMillis;
+    }
+
+    /**
+     * Returns the time left until the deadline of the request running on this thread, negative once it has passed,
+     * or Long.MAX_VALUE if there is no deadline.
+     */
+    public static long remainingNanos() {
+        RequestContext context = CURRENT.get();
+        return context.hasDeadline ? context.deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the priority of the work running on this thread: the priority it was explicitly run with,
+     * else interactive while a request is running and background otherwise.
+     */
+    public static Priority priority() {
+        RequestContext context = CURRENT.get();
+        if (context.priority != null) {
+            return context.priority;
+        }
+        return context.correlationId != 0 ? Priority.INTERACTIVE : Priority.BACKGROUND;
+    }
+
+    /**
+     * Wraps a task so that it runs, and every request it makes, with the given priority.
+     */
+    public static Runnable withPriority(Priority priority, Runnable task) {
+        return () -> {
+            RequestContext context = CURRENT.get();
+            Priority previous = context.priority;
+            context.priority = priority;
+            try {
+                task.run();
+            } finally {
+                context.priority = previous;
+            }
+        };
+    }
+
+    /**
+     * Runs the task so that it, and every request it makes, runs with the given priority.
+     */
+    public static <T> T callWithPriority(Priority priority, Callable<T> task) throws Exception {
+        RequestContext context = CURRENT.get();
+        Priority previous = context.priority;
+        context.priority = priority;
+        try {
+            return task.call();
+        } finally {
+            context.priority = previous;
+        }
+    }
+
+    /**
+     * Runs the task so that it, and every request it makes, is answered from local caches only:
+     * anything that would need an upstream service or a peer fails with {@link NotCachedException} instead.
+     */
+    public static <T> T cacheOnly(Callable<T> task) throws Exception {
+        RequestContext context = CURRENT.get();
+        boolean previous = context.cacheOnly;
+        context.cacheOnly = true;
+        try {
+            return task.call();
+        } finally {
+            context.cacheOnly = previous;
+        }
+    }
+
+    public static boolean isCacheOnly() {
+        return CURRENT.get().cacheOnly;
+    }
+
+    /**
+     * Fails fast when the work running on this thread may only use cached data.
+     *
+     * @param before what was about to be done, for the exception message
+     */
+    public static void checkNotCacheOnly(String before) throws NotCachedException {
+        if (CURRENT.get().cacheOnly) {
+            throw new NotCachedException("Not cached, refusing to start " + before);
+        }
+    }
+
+    /**
+     * Fails fast when the deadline of the request running on this thread has passed.
+     *
+     * @param before what was about to be done, for the exception message
+     */
+    public static void checkDeadline(String before) throws DeadlineExceededException {
+        if (remainingNanos() <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded before " + before);
+        }
+    }
+
+    /**
+     * Starts a new request on this thread unless one is already running.
+     *
+     * @return true if a new request was started, in which case the caller must call {@link #end()}
+     */
+    public static boolean beginIfAbsent() {
+        return beginIfAbsent(null);
+    }
+
+    /**
+     * Starts a new request on this thread, which must be answered within the budget, unless one is already running.
+     *
+     * @param budget time the whole request may take, or null for no deadline
+     * @return true if a new request was started, in which case the caller must call {@link #end()}
+     */
+    public static boolean beginIfAbsent(Duration budget) {
+        return beginIfAbsent(budget, true);
+    }
+
+    /**
+     * Starts a new request on this thread, which must be answered within the budget, unless one is already running.
+     *
+     * @param budget time the whole request may take, or null for no deadline
+     * @param audited whether the request collects an {@link AuditTrail}, left out when nothing will read it
+     * @return true if a new request was started, in which case the caller must call {@link #end()}
+     */
+    public static boolean beginIfAbsent(Duration budget, boolean audited) {
+        RequestContext context = CURRENT.get();
+        if (context.correlationId != 0) {
+            return false;
+        }
+        context.correlationId = NEXT_CORRELATION_ID.getAndIncrement();
+        context.trail = audited ? new AuditTrail() : null;
+        context.staleAgeMillis = -1;
+        context.hasDeadline = budget != null;
+        if (budget != null) {
+            context.deadlineNanos = System.nanoTime() + budget.toNanos();
+        }
+        return true;
+    }
+
+    public static void end() {
+        RequestContext context = CURRENT.get();
+        context.correlationId = 0;
+        context.trail = null;
+        context.staleAgeMillis = -1;
+        context.hasDeadline = false;
+    }
+
+    /**
+     * Runs the task outside of the request running on this thread, as shared work done on behalf of several requests:
+     * with the given priority and time left, but no correlation id, audit trail or cache-only restriction of its own.
+     *
+     * @param remainingNanos time the task may take, or Long.MAX_VALUE for no deadline
+     */
+    public static <T> T callOnBehalf(Priority priority, long remainingNanos, Callable<T> task) throws Exception {
+        RequestContext context = CURRENT.get();
+        long previous = context.correlationId;
+        AuditTrail previousTrail = context.trail;
+        long previousStaleAgeMillis = context.staleAgeMillis;
+        boolean previousHasDeadline = context.hasDeadline;
+        long previousDeadlineNanos = context.deadlineNanos;
+        Priority previousPriority = context.priority;
+        boolean previousCacheOnly = context.cacheOnly;
+        context.correlationId = 0;
+        context.trail = null;
+        context.staleAgeMillis = -1;
+        context.hasDeadline = remainingNanos != Long.MAX_VALUE;
+        context.deadlineNanos = System.nanoTime() + remainingNanos;
+        context.priority = priority;
+        context.cacheOnly = false;
+        try {
+            return task.call();
+        } finally {
+            context.correlationId = previous;
+            context.trail = previousTrail;
+            context.staleAgeMillis = previousStaleAgeMillis;
+            context.hasDeadline = previousHasDeadline;
+            context.deadlineNanos = previousDeadlineNanos;
+            context.priority = previousPriority;
+            context.cacheOnly = previousCacheOnly;
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs as part of the calling thread's request when handed over to another thread.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestContext caller = CURRENT.get();
+        long correlationId = caller.correlationId;
+        AuditTrail trail = caller.trail;
+        boolean hasDeadline = caller.hasDeadline;
+        long deadlineNanos = caller.deadlineNanos;
+        Priority priority = caller.priority;
+        boolean cacheOnly = caller.cacheOnly;
+        return () -> {
+            RequestContext context = CURRENT.get();
+            long previous = context.correlationId;
+            AuditTrail previousTrail = context.trail;
+            long previousStaleAgeMillis = context.staleAgeMillis;
+            boolean previousHasDeadline = context.hasDeadline;
+            long previousDeadlineNanos = context.deadlineNanos;
+            Priority previousPriority = context.priority;
+            boolean previousCacheOnly = context.cacheOnly;
+            context.correlationId = correlationId;
+            context.trail = trail;
+            context.staleAgeMillis = -1;
+            context.hasDeadline = hasDeadline;
+            context.deadlineNanos = deadlineNanos;
+            context.priority = priority;
+            context.cacheOnly = cacheOnly;
+            try {
+                return task.call();
+            } finally {
+                context.correlationId = previous;
+                context.trail = previousTrail;
+                context.staleAgeMillis = previousStaleAgeMillis;
+                context.hasDeadline = previousHasDeadline;
+                context.deadlineNanos = previousDeadlineNanos;
+                context.priority = previousPriority;
+                context.cacheOnly = previousCacheOnly;
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package org.weatherwear.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file that is rolled over once it reaches a size limit: {@code audit.log} becomes {@code audit.log.1},
+ * {@code audit.log.1} becomes {@code audit.log.2} and so on, the oldest of {@code maxBackups} files being deleted.
+ * Not thread safe; meant for a single writer thread.
+ */
+public class RotatingFile implements AutoCloseable {
+    private final Path path;
+    private final long maxBytes;
+    private final int maxBackups;
+    private FileChannel channel;
+    private long size;
+
+    public RotatingFile(Path path, long maxBytes, int maxBackups) throws IOException {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.maxBackups = maxBackups;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private Path backup(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        Files.deleteIfExists(backup(maxBackups));
+        for (int index = maxBackups - 1; index >= 1; index--) {
+            if (Files.exists(backup(index))) {
+                Files.move(backup(index), backup(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxBackups > 0) {
+            Files.move(path, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open();
+    }
+
+    /**
+     * Appends the buffer as one batch; the file is only rotated between batches, so lines are never split.
+     */
+    public void write(ByteBuffer batch) throws IOException {
+        if (size > 0 && size + batch.remaining() > maxBytes) {
+            rotate();
+        }
+        while (batch.hasRemaining()) {
+            size += channel.write(batch);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,29 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * Time an upstream call spent queued for a free slot to its host, behind calls of higher priority.
+ */
+@Name("org.weatherwear.UpstreamQueueWait")
+@Label("Upstream Queue Wait")
+@Category({"WeatherWear", "Upstream"})
+@StackTrace(false)
+public class UpstreamQueueWaitEvent extends Event {
+    @Label("Correlation Id")
+    public long correlationId;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Priority")
+    public String priority;
+
+    @Label("Concurrency Limit")
+    @Description("Calls the host was allowed in flight when this one was admitted")
+    public int limit;
+
+    @Label("In Flight")
+    @Description("Calls in flight to the host once this one was admitted, itself included")
+    public int inFlight;
+}
@@ -0,0 +1,31 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * One HTTP round trip made by the REST client, from building the request to reading the body.
+ */
+@Name("org.weatherwear.UpstreamRequest")
+@Label("Upstream Request")
+@Category({"WeatherWear", "Upstream"})
+@StackTrace(false)
+public class UpstreamRequestEvent extends Event {
+    @Label("Correlation Id")
+    public long correlationId;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,13 @@
+package org.weatherwear.utilities;
+
+/**
+ * Thrown when a client supplied IATA code is not three capital letters. Unlike other illegal arguments, which
+ * can come from malformed upstream data, it always means the client's request was at fault.
+ */
+public class InvalidIATAException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidIATAException() {
+        super("IATA is invalid");
+    }
+}
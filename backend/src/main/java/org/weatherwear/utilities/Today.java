@@ -0,0 +1,37 @@
+package org.weatherwear.utilities;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Today's date in the clock's zone, computed once per day instead of on every request.
+ * The cached date is replaced when the clock reaches the next midnight of its zone and never moves backwards.
+ */
+public class Today {
+    private record Cached(LocalDate date, long nextMidnightMillis) {
+    }
+
+    private final Clock clock;
+    private volatile Cached cached;
+
+    public Today(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LocalDate get() {
+        Cached current = cached;
+        if (current == null || clock.millis() >= current.nextMidnightMillis) {
+            LocalDate date = LocalDate.now(clock);
+            if (current != null && date.isBefore(current.date)) {
+                date = current.date;
+            }
+            current = new Cached(date, date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli());
+            cached = current;
+        }
+        return current.date;
+    }
+
+    public long epochDay() {
+        return get().toEpochDay();
+    }
+}
@@ -8,6 +8,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 public class Validation {
     // validation methods used in the entirity of the project
+    private static final Pattern IATA_PATTERN = Pattern.compile("[A-Z]{3}+");
     private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ISO_LOCAL_DATE;
     public boolean isDateValid(String date) {
         try {
@@ -17,18 +18,25 @@ public class Validation {
         }
         return true;
     }
-    public long dayDifference(String date1, String date2) {
-        if (!isDateValid(date1) || !isDateValid(date2)) {
+    // parses a date given by the user, once, at the edge of the system
+    public LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date, dateTimeFormat);
+        } catch (DateTimeException e) {
             throw new DateTimeException("Expected argument date to be in format YYYY-MM-DD");
-        } else {
-            LocalDate localDate1 = LocalDate.parse(date1, dateTimeFormat);
-            LocalDate localDate2 = LocalDate.parse(date2, dateTimeFormat);
-            return ChronoUnit.DAYS.between(localDate1, localDate2);
         }
     }
+    public long dayDifference(String date1, String date2) {
+        return ChronoUnit.DAYS.between(parseDate(date1), parseDate(date2));
+    }
     public boolean isIATAValid(String IATA) {
-        Pattern IATOPattern = Pattern.compile("[A-Z]{3}+");
-        Matcher IATOMatcher = IATOPattern.matcher(IATA);
+        Matcher IATOMatcher = IATA_PATTERN.matcher(IATA);
         return IATOMatcher.matches();
     }
+    // rejects an invalid IATA with the error every entry point reports for it
+    public void requireValidIATA(String IATA) {
+        if (!isIATAValid(IATA)) {
+            throw new InvalidIATAException();
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.utilities.Today;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Column store of the forecasts of every airport looked up, for questions across airports such as
+ * "where will it be cold and raining on this date". Each date has one primitive array per value with one lane per
+ * airport; a batch kernel turns those into packed bitmaps of cold and rainy airports, which queries scan 64 airports
+ * at a time. Dates are kept in a ring of {@link #DATES} slots from today on, so the store never grows with time.
+ * Storing a forecast only records it as pending, without taking the store's lock, so deciding requests never wait on
+ * each other or on a query; queries fold the pending forecasts into the columns first. An airport's forecast counts
+ * for {@link #MAX_AGE} after it was last stored and is left out of answers after that.
+ */
+public class ForecastColumns {
+    //forecasts cover 11 days, the ring has room to spare so that today's slot is not reused before midnight
+    static final int DATES = 16;
+    private static final int INITIAL_AIRPORTS = 256;
+    static final Duration MAX_AGE = Duration.ofHours(1);
+
+    public record Match(String IATA, LocalDate date) {
+    }
+
+    private record Stored(int airport, Forecast forecast, long firstEpochDay, long storedAtMillis) {
+    }
+
+    private final Clock clock;
+    private final Today today;
+    private final long maxAgeMillis;
+    //lanes are handed out when an airport is first stored, so that answers list airports in that order
+    private final ConcurrentHashMap<String, Integer> airportIndex = new ConcurrentHashMap<>();
+    private final AtomicInteger nextAirport = new AtomicInteger();
+    //latest forecast per airport not yet in the columns
+    private final ConcurrentHashMap<String, Stored> pending = new ConcurrentHashMap<>();
+    //everything below is guarded by this
+    private String[] airports = new String[INITIAL_AIRPORTS];
+    private int airportCount;
+    //per airport: when its forecast was last stored
+    private long[] storedAtMillis = new long[INITIAL_AIRPORTS];
+    //per slot: epoch day held, one lane per airport and bitmaps with one bit per airport
+    private final long[] slotEpochDays = new long[DATES];
+    private final double[][] tempInCelsius = new double[DATES][INITIAL_AIRPORTS];
+    private final double[][] precipitationProbability = new double[DATES][INITIAL_AIRPORTS];
+    private final long[][] known = new long[DATES][INITIAL_AIRPORTS / Long.SIZE];
+    private final long[][] cold = new long[DATES][INITIAL_AIRPORTS / Long.SIZE];
+    private final long[][] raining = new long[DATES][INITIAL_AIRPORTS / Long.SIZE];
+    //slots whose bitmaps are behind their columns
+    private final boolean[] dirty = new boolean[DATES];
+
+    public ForecastColumns(Clock clock, Duration maxAge) {
+        this.clock = clock;
+        this.today = new Today(clock);
+        this.maxAgeMillis = maxAge.toMillis();
+        Arrays.fill(slotEpochDays, Long.MIN_VALUE);
+    }
+
+    public ForecastColumns(Clock clock) {
+        this(clock, MAX_AGE);
+    }
+
+    /**
+     * Stores the forecast of the airport, day 0 being today, replacing the one stored before.
+     */
+    public void put(String IATA, Forecast forecast) {
+        int airport = airportIndex.computeIfAbsent(IATA, ignored -> nextAirport.getAndIncrement());
+        pending.put(IATA, new Stored(airport, forecast, today.epochDay(), clock.millis()));
+    }
+
+    private void applyPending() {
+        for (Map.Entry<String, Stored> entry : pending.entrySet()) {
+            store(entry.getKey(), entry.getValue());
+            //one stored meanwhile stays pending for the next query
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void store(String IATA, Stored stored) {
+        int airport = stored.airport();
+        if (airport >= airports.length) {
+            grow(Math.max(airports.length * 2, Integer.highestOneBit(airport) * 2));
+        }
+        airports[airport] = IATA;
+        //a lane handed out to an airport still on its way to pending stays unknown until it arrives
+        airportCount = Math.max(airportCount, airport + 1);
+        int word = airport >>> 6;
+        long bit = 1L << airport;
+        //the previous forecast no longer counts, also for the dates this one does not cover
+        for (int slot = 0; slot < DATES; slot++) {
+            known[slot][word] &= ~bit;
+        }
+        long firstEpochDay = today.epochDay();
+        Forecast forecast = stored.forecast();
+        for (int day = 0; day < Math.min(forecast.getDays(), DATES); day++) {
+            long epochDay = stored.firstEpochDay() + day;
+            if (epochDay < firstEpochDay) {
+                //stored before midnight and already past
+                continue;
+            }
+            int slot = slotFor(epochDay);
+            tempInCelsius[slot][airport] = forecast.getTempInCelsius(day);
+            precipitationProbability[slot][airport] = forecast.getPrecipitationProbability(day);
+            known[slot][word] |= bit;
+            dirty[slot] = true;
+        }
+        storedAtMillis[airport] = stored.storedAtMillis();
+    }
+
+    private void grow(int capacity) {
+        airports = Arrays.copyOf(airports, capacity);
+        storedAtMillis = Arrays.copyOf(storedAtMillis, capacity);
+        for (int slot = 0; slot < DATES; slot++) {
+            tempInCelsius[slot] = Arrays.copyOf(tempInCelsius[slot], capacity);
+            precipitationProbability[slot] = Arrays.copyOf(precipitationProbability[slot], capacity);
+            known[slot] = Arrays.copyOf(known[slot], capacity / Long.SIZE);
+            cold[slot] = Arrays.copyOf(cold[slot], capacity / Long.SIZE);
+            raining[slot] = Arrays.copyOf(raining[slot], capacity / Long.SIZE);
+        }
+    }
+
+    //the slot holding the epoch day, taken over from the date it held before if needed
+    private int slotFor(long epochDay) {
+        int slot = Math.floorMod(epochDay, DATES);
+        if (slotEpochDays[slot] != epochDay) {
+            slotEpochDays[slot] = epochDay;
+            Arrays.fill(known[slot], 0);
+        }
+        return slot;
+    }
+
+    /**
+     * Decides every lane at once into packed bitmaps, bit i of word w standing for lane 64w+i.
+     * Same thresholds as {@link WeatherDecider}, evaluated branch free from the sign bit of a subtraction so that the
+     * loop body has no data dependent jump: 15 - temp is +0.0 or positive exactly when temp <= 15, and 0.0 - precipitation
+     * is negative exactly when precipitation > 0. Lanes beyond the airports stored are left to the known bitmap to mask.
+     */
+    static void decide(double[] tempInCelsius, double[] precipitationProbability, int lanes, long[] cold, long[] raining) {
+        for (int word = 0; word * Long.SIZE < lanes; word++) {
+            int base = word * Long.SIZE;
+            int end = Math.min(Long.SIZE, lanes - base);
+            long coldBits = 0;
+            long rainingBits = 0;
+            for (int lane = 0; lane < end; lane++) {
+                coldBits |= (~Double.doubleToRawLongBits(WeatherDecider.COLD_AT_OR_BELOW_CELSIUS - tempInCelsius[base + lane]) >>> 63) << lane;
+                rainingBits |= (Double.doubleToRawLongBits(0.0 - precipitationProbability[base + lane]) >>> 63) << lane;
+            }
+            cold[word] = coldBits;
+            raining[word] = rainingBits;
+        }
+    }
+
+    private void refresh(int slot) {
+        if (dirty[slot]) {
+            decide(tempInCelsius[slot], precipitationProbability[slot], airportCount, cold[slot], raining[slot]);
+            dirty[slot] = false;
+        }
+    }
+
+    //bitmap of the airports whose forecast is young enough to answer with
+    private long[] fresh() {
+        long oldest = clock.millis() - maxAgeMillis;
+        long[] fresh = new long[(airportCount + Long.SIZE - 1) / Long.SIZE];
+        for (int airport = 0; airport < airportCount; airport++) {
+            if (storedAtMillis[airport] >= oldest) {
+                fresh[airport >>> 6] |= 1L << airport;
+            }
+        }
+        return fresh;
+    }
+
+    private static long matching(long[] known, long[] fresh, long[] cold, long[] raining, int word, WeatherPossibility possibility) {
+        return known[word] & fresh[word] & (possibility.isCold() ? cold[word] : ~cold[word]) & (possibility.isRaining() ? raining[word] : ~raining[word]);
+    }
+
+    private void collect(int slot, long[] fresh, WeatherPossibility possibility, LocalDate date, List<Match> matches) {
+        refresh(slot);
+        long[] knownBits = known[slot];
+        for (int word = 0; word * Long.SIZE < airportCount; word++) {
+            long bits = matching(knownBits, fresh, cold[slot], raining[slot], word, possibility);
+            while (bits != 0) {
+                matches.add(new Match(airports[word * Long.SIZE + Long.numberOfTrailingZeros(bits)], date));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * @return every airport with that possibility on the date, in the order they were first stored
+     */
+    public synchronized List<String> airportsWhere(LocalDate date, WeatherPossibility possibility) {
+        applyPending();
+        int slot = Math.floorMod(date.toEpochDay(), DATES);
+        if (slotEpochDays[slot] != date.toEpochDay()) {
+            return List.of();
+        }
+        List<Match> matches = new ArrayList<>();
+        collect(slot, fresh(), possibility, date, matches);
+        return matches.stream().map(Match::IATA).toList();
+    }
+
+    /**
+     * @return every airport and date from today on with that possibility, by date
+     */
+    public synchronized List<Match> where(WeatherPossibility possibility) {
+        applyPending();
+        long[] fresh = fresh();
+        List<Match> matches = new ArrayList<>();
+        long firstEpochDay = today.epochDay();
+        for (long epochDay = firstEpochDay; epochDay < firstEpochDay + DATES; epochDay++) {
+            int slot = Math.floorMod(epochDay, DATES);
+            if (slotEpochDays[slot] == epochDay) {
+                collect(slot, fresh, possibility, LocalDate.ofEpochDay(epochDay), matches);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return how many airport and date pairs from today on have that possibility
+     */
+    public synchronized int count(WeatherPossibility possibility) {
+        applyPending();
+        long[] fresh = fresh();
+        int count = 0;
+        long firstEpochDay = today.epochDay();
+        for (long epochDay = firstEpochDay; epochDay < firstEpochDay + DATES; epochDay++) {
+            int slot = Math.floorMod(epochDay, DATES);
+            if (slotEpochDays[slot] == epochDay) {
+                refresh(slot);
+                for (int word = 0; word * Long.SIZE < airportCount; word++) {
+                    count += Long.bitCount(matching(known[slot], fresh, cold[slot], raining[slot], word, possibility));
+                }
+            }
+        }
+        return count;
+    }
+
+    public synchronized int getAirportCount() {
+        applyPending();
+        return airportCount;
+    }
+}
@@ -0,0 +1,177 @@
+package org.weatherwear.weatherdecider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming estimate of the most frequent keys in fixed memory.
+ * Counts are kept in a count-min sketch with conservative update, so an estimate is never below the true count
+ * and only overestimates when keys collide in every row; the k keys with the highest estimates are kept in a min-heap.
+ * Counts can be halved with {@link #decay()} so that the top keys follow current demand rather than all time demand.
+ */
+public class HeavyHitters<K> {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[][] sketch;
+    private final int widthMask;
+    //min-heap on counts, with each key's heap position so that a key already in the top can be found and sifted
+    private final Object[] heapKeys;
+    private final int[] heapCounts;
+    private final Map<K, Integer> heapPositions;
+    private int heapSize;
+
+    /**
+     * @param k     number of top keys kept
+     * @param width counters per sketch row, rounded up to a power of two
+     */
+    public HeavyHitters(int k, int width) {
+        int size = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.sketch = new int[DEPTH][size];
+        this.widthMask = size - 1;
+        this.heapKeys = new Object[k];
+        this.heapCounts = new int[k];
+        this.heapPositions = new HashMap<>(k * 2);
+    }
+
+    private int column(int row, int hash) {
+        //murmur3 finaliser over the seeded hash, one independent-enough hash per row
+        int h = hash ^ SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & widthMask;
+    }
+
+    /**
+     * Counts one occurrence of the key.
+     *
+     * @return the key's estimated count including this occurrence
+     */
+    public synchronized int add(K key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, sketch[row][column(row, hash)]);
+        }
+        estimate++;
+        //conservative update: only the counters below the new estimate are raised
+        for (int row = 0; row < DEPTH; row++) {
+            int[] counters = sketch[row];
+            int col = column(row, hash);
+            if (counters[col] < estimate) {
+                counters[col] = estimate;
+            }
+        }
+        offer(key, estimate);
+        return estimate;
+    }
+
+    public synchronized int estimate(K key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, sketch[row][column(row, hash)]);
+        }
+        return estimate;
+    }
+
+    private void offer(K key, int count) {
+        Integer position = heapPositions.get(key);
+        if (position != null) {
+            heapCounts[position] = count;
+            siftDown(position);
+        } else if (heapSize < heapKeys.length) {
+            place(heapSize, key, count);
+            siftUp(heapSize++);
+        } else if (heapSize > 0 && count > heapCounts[0]) {
+            heapPositions.remove(key(0));
+            place(0, key, count);
+            siftDown(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int position) {
+        return (K) heapKeys[position];
+    }
+
+    private void place(int position, K key, int count) {
+        heapKeys[position] = key;
+        heapCounts[position] = count;
+        heapPositions.put(key, position);
+    }
+
+    private void swap(int a, int b) {
+        K keyA = key(a);
+        int countA = heapCounts[a];
+        place(a, key(b), heapCounts[b]);
+        place(b, keyA, countA);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (heapCounts[parent] <= heapCounts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < heapSize; child++) {
+                if (heapCounts[child] < heapCounts[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+
+    /**
+     * Halves every count. Halving keeps the heap order, so the heap needs no rebuilding.
+     */
+    public synchronized void decay() {
+        for (int[] counters : sketch) {
+            for (int col = 0; col < counters.length; col++) {
+                counters[col] >>>= 1;
+            }
+        }
+        for (int position = 0; position < heapSize; position++) {
+            heapCounts[position] >>>= 1;
+        }
+    }
+
+    public synchronized boolean isTop(K key) {
+        return heapPositions.containsKey(key);
+    }
+
+    /**
+     * @return the top keys, most frequent first
+     */
+    public synchronized List<K> top() {
+        List<Integer> positions = new ArrayList<>(heapSize);
+        for (int position = 0; position < heapSize; position++) {
+            positions.add(position);
+        }
+        positions.sort(Comparator.comparingInt((Integer position) -> heapCounts[position]).reversed());
+        List<K> keys = new ArrayList<>(heapSize);
+        for (int position : positions) {
+            keys.add(key(position));
+        }
+        return keys;
+    }
+}
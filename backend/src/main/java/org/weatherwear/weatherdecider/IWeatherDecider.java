@@ -3,4 +3,10 @@ package org.weatherwear.weatherdecider;
 public interface IWeatherDecider {
     WeatherPossibility decideWeather() throws Exception;
     WeatherPossibility decideWeather(String IATA, int day) throws Exception;
+    //weather at the location of a server-mode client, found from the IP its request came from
+    WeatherPossibility decideWeatherForIp(String ip, int day) throws Exception;
+
+    //warm up whatever decideWeather will need, so that a later call is answered without waiting on upstream services
+    void prefetch() throws Exception;
+    void prefetch(String IATA) throws Exception;
 }
@@ -0,0 +1,12 @@
+package org.weatherwear.weatherdecider;
+
+import java.time.LocalDate;
+import java.util.concurrent.Flow;
+
+public interface IWeatherWatcher extends AutoCloseable {
+    //publishes the weather possibility for the trip once subscribed and again every time it changes,
+    //a watch is meant for one subscriber since later subscribers only receive later changes
+    Flow.Publisher<WatchUpdate> watch(String IATA, LocalDate date);
+
+    void close();
+}
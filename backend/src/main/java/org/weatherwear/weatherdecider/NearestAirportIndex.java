@@ -0,0 +1,201 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index mapping any point to the nearest airport within a distance, so that a location from geolocation
+ * can be answered with that airport's data.
+ * Airports are stored as points on the unit sphere, where the straight-line distance between two points grows with
+ * their great-circle distance, so a plain 3-d tree finds the true nearest airport with no special case at the poles
+ * or the antimeridian. The tree is implicit: the arrays are ordered so that the middle of every range is the node
+ * splitting it, which costs no per-node objects or pointers.
+ */
+public class NearestAirportIndex {
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final String[] codes;
+    //coordinates[3 * i .. 3 * i + 2] is airport i on the unit sphere
+    private final double[] coordinates;
+
+    public NearestAirportIndex(Map<String, Location> airports) {
+        this.codes = new String[airports.size()];
+        this.coordinates = new double[3 * airports.size()];
+        int index = 0;
+        for (Map.Entry<String, Location> airport : airports.entrySet()) {
+            codes[index] = airport.getKey();
+            toUnitVector(airport.getValue(), coordinates, 3 * index);
+            index++;
+        }
+        build(0, codes.length, 0);
+    }
+
+    private static void toUnitVector(Location location, double[] into, int offset) {
+        double latitude = Math.toRadians(location.getLatitude());
+        double longitude = Math.toRadians(location.getLongitude());
+        double cosLatitude = Math.cos(latitude);
+        into[offset] = cosLatitude * Math.cos(longitude);
+        into[offset + 1] = cosLatitude * Math.sin(longitude);
+        into[offset + 2] = Math.sin(latitude);
+    }
+
+    //squared straight-line distance through the unit sphere between points the given great-circle distance apart
+    static double squaredChord(double distanceKm) {
+        double halfAngle = Math.min(Math.PI, distanceKm / EARTH_RADIUS_KM) / 2;
+        double chord = 2 * Math.sin(halfAngle);
+        return chord * chord;
+    }
+
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis);
+        build(from, middle, (axis + 1) % 3);
+        build(middle + 1, to, (axis + 1) % 3);
+    }
+
+    //quickselect: puts the airport with the k-th smallest coordinate on the axis at k, smaller ones before it
+    private void select(int low, int high, int k, int axis) {
+        while (low < high) {
+            double pivot = coordinates[3 * ((low + high) >>> 1) + axis];
+            int left = low;
+            int right = high;
+            while (left <= right) {
+                while (coordinates[3 * left + axis] < pivot) {
+                    left++;
+                }
+                while (coordinates[3 * right + axis] > pivot) {
+                    right--;
+                }
+                if (left <= right) {
+                    swap(left++, right--);
+                }
+            }
+            if (k <= right) {
+                high = right;
+            } else if (k >= left) {
+                low = left;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        String code = codes[a];
+        codes[a] = codes[b];
+        codes[b] = code;
+        for (int axis = 0; axis < 3; axis++) {
+            double coordinate = coordinates[3 * a + axis];
+            coordinates[3 * a + axis] = coordinates[3 * b + axis];
+            coordinates[3 * b + axis] = coordinate;
+        }
+    }
+
+    //best match so far of one query, reused across the queries of a bulk lookup
+    private static final class Search {
+        private final double[] point = new double[3];
+        private double bestSquared;
+        private int best;
+
+        private void reset(Location location, double maxSquared) {
+            toUnitVector(location, point, 0);
+            bestSquared = maxSquared;
+            best = -1;
+        }
+    }
+
+    private void search(int from, int to, int axis, Search search) {
+        while (to > from) {
+            int middle = (from + to) >>> 1;
+            int offset = 3 * middle;
+            double dx = search.point[0] - coordinates[offset];
+            double dy = search.point[1] - coordinates[offset + 1];
+            double dz = search.point[2] - coordinates[offset + 2];
+            double squared = dx * dx + dy * dy + dz * dz;
+            if (squared <= search.bestSquared) {
+                search.bestSquared = squared;
+                search.best = middle;
+            }
+            double split = search.point[axis] - coordinates[offset + axis];
+            int nextAxis = axis == 2 ? 0 : axis + 1;
+            //the side holding the query first, the other only if the splitting plane is closer than the best match
+            if (split < 0) {
+                search(from, middle, nextAxis, search);
+                if (split * split > search.bestSquared) {
+                    return;
+                }
+                from = middle + 1;
+            } else {
+                search(middle + 1, to, nextAxis, search);
+                if (split * split > search.bestSquared) {
+                    return;
+                }
+                to = middle;
+            }
+            axis = nextAxis;
+        }
+    }
+
+    /**
+     * @return the IATA code of the airport nearest to the location, or null if none is within the distance
+     */
+    public String nearest(Location location, double maxDistanceKm) {
+        Search search = new Search();
+        search.reset(location, squaredChord(maxDistanceKm));
+        search(0, codes.length, 0, search);
+        return search.best >= 0 ? codes[search.best] : null;
+    }
+
+    /**
+     * @return the IATA code of the airport nearest to each location, null where none is within the distance
+     */
+    public String[] nearest(List<Location> locations, double maxDistanceKm) {
+        double maxSquared = squaredChord(maxDistanceKm);
+        Search search = new Search();
+        String[] nearest = new String[locations.size()];
+        for (int index = 0; index < nearest.length; index++) {
+            search.reset(locations.get(index), maxSquared);
+            search(0, codes.length, 0, search);
+            nearest[index] = search.best >= 0 ? codes[search.best] : null;
+        }
+        return nearest;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Reads airports from a CSV of {@code IATA,latitude,longitude} lines, e.g. {@code MLA,35.857498,14.4775}.
+     * Blank lines and lines starting with # are skipped.
+     */
+    public static Map<String, Location> readCsv(Path csv) throws IOException {
+        Map<String, Location> airports = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(csv)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3) {
+                throw new IOException("Expected IATA,latitude,longitude on line " + lineNumber + " of " + csv);
+            }
+            try {
+                airports.put(fields[0].trim(), Location.parse(fields[1].trim(), fields[2].trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid coordinates on line " + lineNumber + " of " + csv, e);
+            }
+        }
+        return airports;
+    }
+}
@@ -0,0 +1,80 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Location;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Weather decider that answers requests for a geolocated place (the current location or a client IP) as a request
+ * for the nearest airport within a distance, so that they share the airport-keyed location and forecast caches,
+ * the forecast columns and the prefetching instead of each fetching a forecast of its own.
+ * Places with no airport that close are decided for the place itself, and so are places whose airport cannot be
+ * decided: looking the airport up is a call the request itself never needed, which must not make it fail.
+ */
+public class NearestAirportWeatherDecider implements IWeatherDecider {
+    private final IWeatherDecider weatherDeciderInterface;
+    private final ILocationClient locationClientInterface;
+    private final NearestAirportIndex airports;
+    private final double maxDistanceKm;
+
+    public NearestAirportWeatherDecider(IWeatherDecider weatherDeciderInterface, ILocationClient locationClientInterface, NearestAirportIndex airports, double maxDistanceKm) {
+        this.weatherDeciderInterface = weatherDeciderInterface;
+        this.locationClientInterface = locationClientInterface;
+        this.airports = airports;
+        this.maxDistanceKm = maxDistanceKm;
+    }
+
+    //with no airport near, the decorated decider looks the place up again, which the location cache answers
+    private String nearestAirport(Location location) {
+        return airports.nearest(location, maxDistanceKm);
+    }
+
+    private WeatherPossibility decideAtAirport(String IATA, int day, Callable<WeatherPossibility> decideForPlace) throws Exception {
+        if (IATA != null) {
+            try {
+                return weatherDeciderInterface.decideWeather(IATA, day);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                //the airport's location may be unknown to the location services or they may be down,
+                //the place's own coordinates are already known
+            }
+        }
+        return decideForPlace.call();
+    }
+
+    public WeatherPossibility decideWeather() throws Exception {
+        //today's forecast at the airport stands in for the current weather at the place
+        String IATA = nearestAirport(locationClientInterface.getLocation());
+        return decideAtAirport(IATA, 0, weatherDeciderInterface::decideWeather);
+    }
+
+    public WeatherPossibility decideWeather(String IATA, int day) throws Exception {
+        return weatherDeciderInterface.decideWeather(IATA, day);
+    }
+
+    public WeatherPossibility decideWeatherForIp(String ip, int day) throws Exception {
+        String IATA = nearestAirport(locationClientInterface.getLocationForIp(ip));
+        return decideAtAirport(IATA, day, () -> weatherDeciderInterface.decideWeatherForIp(ip, day));
+    }
+
+    public void prefetch() throws Exception {
+        String IATA = nearestAirport(locationClientInterface.getLocation());
+        if (IATA != null) {
+            try {
+                weatherDeciderInterface.prefetch(IATA);
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                //prefetched for the place instead, as it is then decided
+            }
+        }
+        weatherDeciderInterface.prefetch();
+    }
+
+    public void prefetch(String IATA) throws Exception {
+        weatherDeciderInterface.prefetch(IATA);
+    }
+}
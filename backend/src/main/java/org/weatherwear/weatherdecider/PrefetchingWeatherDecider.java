@@ -0,0 +1,114 @@
+package org.weatherwear.weatherdecider;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weather decider that tracks which airports are asked for most and keeps their location and forecast warm.
+ * Every interval the current top airports are prefetched through the decorated decider, whose caches then answer
+ * the requests for them without waiting on upstream services. Only real requests count towards popularity,
+ * speculative prefetches do not.
+ * A request is a prefetch hit when its airport was successfully prefetched in the latest round.
+ */
+public class PrefetchingWeatherDecider implements IWeatherDecider {
+    //counts are halved every this many rounds so that the top follows current demand
+    static final int DECAY_EVERY_ROUNDS = 60;
+    private static final int SKETCH_WIDTH = 4096;
+
+    private final IWeatherDecider weatherDeciderInterface;
+    private final HeavyHitters<String> airports;
+    private ScheduledFuture<?> prefetching;
+    private volatile Set<String> prefetched = Set.of();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong prefetchHits = new AtomicLong();
+    //only touched by the scheduled rounds
+    private int rounds;
+
+    private PrefetchingWeatherDecider(IWeatherDecider weatherDeciderInterface, int topAirports) {
+        this.weatherDeciderInterface = weatherDeciderInterface;
+        this.airports = new HeavyHitters<>(topAirports, SKETCH_WIDTH);
+    }
+
+    /**
+     * Creates a decider and schedules its prefetch rounds every interval, once the decider is fully constructed.
+     */
+    public static PrefetchingWeatherDecider start(IWeatherDecider weatherDeciderInterface, int topAirports, ScheduledExecutorService scheduler, Duration interval) {
+        PrefetchingWeatherDecider prefetchingWeatherDecider = new PrefetchingWeatherDecider(weatherDeciderInterface, topAirports);
+        prefetchingWeatherDecider.prefetching = scheduler.scheduleWithFixedDelay(prefetchingWeatherDecider::prefetchTop,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return prefetchingWeatherDecider;
+    }
+
+    /**
+     * Prefetches every current top airport once.
+     */
+    void prefetchTop() {
+        Set<String> warmed = new HashSet<>();
+        for (String IATA : airports.top()) {
+            try {
+                weatherDeciderInterface.prefetch(IATA);
+                warmed.add(IATA);
+            } catch (Exception e) {
+                //tried again next round
+            }
+        }
+        prefetched = warmed;
+        if (++rounds % DECAY_EVERY_ROUNDS == 0) {
+            airports.decay();
+        }
+    }
+
+    public WeatherPossibility decideWeather() throws Exception {
+        return weatherDeciderInterface.decideWeather();
+    }
+
+    public WeatherPossibility decideWeather(String IATA, int day) throws Exception {
+        airports.add(IATA);
+        requests.incrementAndGet();
+        if (prefetched.contains(IATA)) {
+            prefetchHits.incrementAndGet();
+        }
+        return weatherDeciderInterface.decideWeather(IATA, day);
+    }
+
+    public WeatherPossibility decideWeatherForIp(String ip, int day) throws Exception {
+        return weatherDeciderInterface.decideWeatherForIp(ip, day);
+    }
+
+    public void prefetch() throws Exception {
+        weatherDeciderInterface.prefetch();
+    }
+
+    public void prefetch(String IATA) throws Exception {
+        weatherDeciderInterface.prefetch(IATA);
+    }
+
+    /**
+     * @return the airports currently kept warm, most requested first
+     */
+    public List<String> getTopAirports() {
+        return airports.top();
+    }
+
+    public boolean isTopAirport(String IATA) {
+        return airports.isTop(IATA);
+    }
+
+    /**
+     * @return share of airport requests that were prefetch hits, 0 before the first request
+     */
+    public double getPrefetchHitRate() {
+        long total = requests.get();
+        return total == 0 ? 0 : (double) prefetchHits.get() / total;
+    }
+
+    public void close() {
+        prefetching.cancel(false);
+    }
+}
@@ -0,0 +1,5 @@
+package org.weatherwear.weatherdecider;
+
+import java.time.LocalDate;
+
+public record WatchUpdate(String IATA, LocalDate date, WeatherPossibility weatherPossibility) {}
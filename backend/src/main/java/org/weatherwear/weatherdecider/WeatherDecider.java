@@ -1,34 +1,76 @@
 package org.weatherwear.weatherdecider;
 
+import org.weatherwear.clients.Models.Forecast;
 import org.weatherwear.clients.Models.Location;
 import org.weatherwear.clients.LocationClient.ILocationClient;
 import org.weatherwear.clients.Models.Weather;
 import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.telemetry.AuditTrail;
+import org.weatherwear.telemetry.RequestContext;
 
 public class WeatherDecider implements IWeatherDecider {
+    static final double COLD_AT_OR_BELOW_CELSIUS = 15;
 
     //LocationClient and WeatherClient are 2 required dependencies hence we pass them to constructor
     private final ILocationClient locationClientInterface;
     private final IWeatherClient weatherClientInterface;
-    public WeatherDecider(ILocationClient locationClientInterface, IWeatherClient weatherClientInterface){
+    //null unless airport forecasts are also kept for queries across airports
+    private final ForecastColumns forecastColumns;
+    public WeatherDecider(ILocationClient locationClientInterface, IWeatherClient weatherClientInterface, ForecastColumns forecastColumns){
         this.locationClientInterface = locationClientInterface;
         this.weatherClientInterface = weatherClientInterface;
+        this.forecastColumns = forecastColumns;
+    }
+    public WeatherDecider(ILocationClient locationClientInterface, IWeatherClient weatherClientInterface){
+        this(locationClientInterface, weatherClientInterface, null);
     }
 
-    private WeatherPossibility getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(Weather weather){
+    static WeatherPossibility getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(Weather weather){
         boolean isRaining = weather.getPrecipitationProbability()>0;
-        boolean isCold = weather.getTempInCelsius()<=15;
+        boolean isCold = weather.getTempInCelsius()<=COLD_AT_OR_BELOW_CELSIUS;
         return new WeatherPossibility(isRaining, isCold);
     }
 
+    private static void audit(Location location, Weather weather) {
+        AuditTrail trail = RequestContext.trail();
+        if (trail != null) {
+            trail.resolved(location, weather);
+        }
+    }
+
     public WeatherPossibility decideWeather() throws Exception {
         Location location = locationClientInterface.getLocation();
         Weather weather = weatherClientInterface.getWeather(location);
+        audit(location, weather);
         return getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(weather);
     }
     public WeatherPossibility decideWeather(String IATA, int day) throws Exception {
         Location location =  locationClientInterface.getLocation(IATA);
-        Weather weather = weatherClientInterface.getWeather(location,day);
+        Weather weather;
+        if (forecastColumns != null) {
+            //the whole series is cached anyway, so keeping it costs no extra upstream call
+            Forecast forecast = weatherClientInterface.getForecast(location);
+            forecastColumns.put(IATA, forecast);
+            weather = forecast.getDay(day);
+        } else {
+            weather = weatherClientInterface.getWeather(location,day);
+        }
+        audit(location, weather);
         return  getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(weather);
     }
+    public WeatherPossibility decideWeatherForIp(String ip, int day) throws Exception {
+        Location location = locationClientInterface.getLocationForIp(ip);
+        Weather weather = weatherClientInterface.getWeather(location, day);
+        audit(location, weather);
+        return getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(weather);
+    }
+    public void prefetch() throws Exception {
+        weatherClientInterface.getForecast(locationClientInterface.getLocation());
+    }
+    public void prefetch(String IATA) throws Exception {
+        Forecast forecast = weatherClientInterface.getForecast(locationClientInterface.getLocation(IATA));
+        if (forecastColumns != null) {
+            forecastColumns.put(IATA, forecast);
+        }
+    }
 }
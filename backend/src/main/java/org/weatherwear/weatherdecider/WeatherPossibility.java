@@ -1,3 +1,19 @@
 package org.weatherwear.weatherdecider;
 
-public record WeatherPossibility(boolean isRaining, boolean isCold) {}
+/**
+ * @param staleAgeMillis age of the forecast the possibility was decided on when upstream failed and
+ *                       a last known good one was used instead, or -1 if it is fresh
+ */
+public record WeatherPossibility(boolean isRaining, boolean isCold, long staleAgeMillis) {
+    public WeatherPossibility(boolean isRaining, boolean isCold) {
+        this(isRaining, isCold, -1);
+    }
+
+    public boolean isStale() {
+        return staleAgeMillis >= 0;
+    }
+
+    public WeatherPossibility withStaleAge(long staleAgeMillis) {
+        return new WeatherPossibility(isRaining, isCold, staleAgeMillis);
+    }
+}
@@ -0,0 +1,238 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.utilities.Validation;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the weather possibility of saved trips up to date through the weather decider.
+ * Every interval the possibility is decided once per distinct trip, however many watches there are on it, and
+ * watches on the same airport share the decider's cached forecast, so a poll costs one forecast fetch per location.
+ * A subscriber receives the current possibility shortly after subscribing and then one update per change; every
+ * subscriber has a publisher of its own, so that one subscribing to a watch already decided is sent the last known
+ * possibility without the others receiving it again.
+ * Updates are published without holding the watcher's lock and are dropped for a subscriber that has fallen
+ * a whole buffer behind, so a slow subscriber cannot stall polling for everyone else.
+ * Watches end when their date has passed, when their subscribers have all cancelled or when the watcher is closed.
+ */
+public class WeatherWatcher implements IWeatherWatcher {
+    private final IWeatherDecider weatherDeciderInterface;
+    private final ScheduledExecutorService scheduler;
+    private final Clock clock;
+    private final Validation validation = new Validation();
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> polling;
+
+    private record Trip(String IATA, LocalDate date) {
+    }
+
+    //the publishers of the watch's subscribers when the update was decided
+    private record Update(List<SubmissionPublisher<WatchUpdate>> publishers, WatchUpdate update) {
+    }
+
+    private final class Watch implements Flow.Publisher<WatchUpdate> {
+        private final Trip trip;
+        //all guarded by the enclosing watcher
+        private final List<SubmissionPublisher<WatchUpdate>> publishers = new ArrayList<>();
+        private boolean subscribed;
+        private boolean ended;
+        private WeatherPossibility lastPossibility;
+
+        private Watch(Trip trip) {
+            this.trip = trip;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super WatchUpdate> subscriber) {
+            SubmissionPublisher<WatchUpdate> publisher = new SubmissionPublisher<>();
+            publisher.subscribe(subscriber);
+            boolean decided;
+            synchronized (WeatherWatcher.this) {
+                if (ended) {
+                    publisher.close();
+                    return;
+                }
+                publishers.add(publisher);
+                subscribed = true;
+                decided = lastPossibility != null;
+                if (decided) {
+                    offer(publisher, toUpdate(lastPossibility));
+                }
+            }
+            if (!decided) {
+                scheduler.execute(() -> evaluateNow(this));
+            }
+        }
+
+        //forgets the publishers whose subscriber cancelled
+        private boolean hasSubscribers() {
+            publishers.removeIf(publisher -> {
+                if (publisher.hasSubscribers()) {
+                    return false;
+                }
+                publisher.close();
+                return true;
+            });
+            return !publishers.isEmpty();
+        }
+
+        private boolean isAbandoned() {
+            return subscribed && !hasSubscribers();
+        }
+
+        private WatchUpdate toUpdate(WeatherPossibility weatherPossibility) {
+            return new WatchUpdate(trip.IATA(), trip.date(), weatherPossibility);
+        }
+
+        private void end() {
+            ended = true;
+            for (SubmissionPublisher<WatchUpdate> publisher : publishers) {
+                publisher.close();
+            }
+            publishers.clear();
+        }
+    }
+
+    private WeatherWatcher(IWeatherDecider weatherDeciderInterface, ScheduledExecutorService scheduler, Clock clock) {
+        this.weatherDeciderInterface = weatherDeciderInterface;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a watcher and schedules its polling every interval, once the watcher is fully constructed.
+     */
+    public static WeatherWatcher start(IWeatherDecider weatherDeciderInterface, ScheduledExecutorService scheduler, Duration interval, Clock clock) {
+        WeatherWatcher weatherWatcher = new WeatherWatcher(weatherDeciderInterface, scheduler, clock);
+        weatherWatcher.polling = scheduler.scheduleAtFixedRate(weatherWatcher::poll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return weatherWatcher;
+    }
+
+    public static WeatherWatcher start(IWeatherDecider weatherDeciderInterface, ScheduledExecutorService scheduler, Duration interval) {
+        return start(weatherDeciderInterface, scheduler, interval, Clock.systemDefaultZone());
+    }
+
+    @Override
+    public Flow.Publisher<WatchUpdate> watch(String IATA, LocalDate date) {
+        validation.requireValidIATA(IATA);
+        long days = ChronoUnit.DAYS.between(LocalDate.now(clock), date);
+        if (days < 0 || days > 10) {
+            throw new DateTimeException("Expected date to be between 0 and 10 days in the future");
+        }
+        Watch watch = new Watch(new Trip(IATA, date));
+        watches.add(watch);
+        return watch;
+    }
+
+    private boolean hasEnded(Watch watch, LocalDate today) {
+        if (watch.isAbandoned() || watch.trip.date().isBefore(today)) {
+            watches.remove(watch);
+            watch.end();
+            return true;
+        }
+        return false;
+    }
+
+    private WeatherPossibility decide(Trip trip, LocalDate today) throws Exception {
+        return weatherDeciderInterface.decideWeather(trip.IATA(), (int) ChronoUnit.DAYS.between(today, trip.date()));
+    }
+
+    /**
+     * Decides every watched trip once and notifies the watches whose possibility changed.
+     */
+    void poll() {
+        publish(evaluateAll());
+    }
+
+    private synchronized List<Update> evaluateAll() {
+        LocalDate today = LocalDate.now(clock);
+        Map<Trip, List<Watch>> watchesByTrip = new HashMap<>();
+        for (Watch watch : watches) {
+            if (!hasEnded(watch, today) && watch.hasSubscribers()) {
+                watchesByTrip.computeIfAbsent(watch.trip, trip -> new ArrayList<>()).add(watch);
+            }
+        }
+        List<Update> updates = new ArrayList<>();
+        for (Map.Entry<Trip, List<Watch>> entry : watchesByTrip.entrySet()) {
+            WeatherPossibility weatherPossibility;
+            try {
+                weatherPossibility = decide(entry.getKey(), today);
+            } catch (Exception e) {
+                //keep the previous state, the trip is decided again at the next interval
+                continue;
+            }
+            for (Watch watch : entry.getValue()) {
+                evaluate(watch, weatherPossibility, updates);
+            }
+        }
+        return updates;
+    }
+
+    private void evaluateNow(Watch watch) {
+        List<Update> updates = new ArrayList<>();
+        synchronized (this) {
+            LocalDate today = LocalDate.now(clock);
+            if (watch.lastPossibility != null || hasEnded(watch, today)) {
+                return;
+            }
+            try {
+                evaluate(watch, decide(watch.trip, today), updates);
+            } catch (Exception e) {
+                //the watch is evaluated again at the next interval
+            }
+        }
+        publish(updates);
+    }
+
+    private static void evaluate(Watch watch, WeatherPossibility weatherPossibility, List<Update> updates) {
+        if (!weatherPossibility.equals(watch.lastPossibility)) {
+            watch.lastPossibility = weatherPossibility;
+            updates.add(new Update(List.copyOf(watch.publishers), watch.toUpdate(weatherPossibility)));
+        }
+    }
+
+    private static void publish(List<Update> updates) {
+        for (Update update : updates) {
+            for (SubmissionPublisher<WatchUpdate> publisher : update.publishers()) {
+                offer(publisher, update.update());
+            }
+        }
+    }
+
+    private static void offer(SubmissionPublisher<WatchUpdate> publisher, WatchUpdate update) {
+        try {
+            //a subscriber this far behind misses the update rather than holding up the others, later ones still reach it
+            publisher.offer(update, (subscriber, dropped) -> false);
+        } catch (IllegalStateException e) {
+            //the watch ended after the update was decided, there is nobody left to tell
+        }
+    }
+
+    int getWatchCount() {
+        return watches.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        polling.cancel(false);
+        for (Watch watch : watches) {
+            watch.end();
+        }
+        watches.clear();
+    }
+}
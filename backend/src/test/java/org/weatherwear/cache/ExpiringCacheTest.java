@@ -0,0 +1,197 @@
+package org.weatherwear.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExpiringCacheTest {
+    private static final long TTL_MILLIS = 1000;
+    private MutableClock clock;
+    private AtomicInteger loads;
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2023-01-01T00:00:00.00Z");
+
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setupBeforeEach() {
+        clock = new MutableClock();
+        loads = new AtomicInteger();
+    }
+
+    private String load(String key) {
+        return key + loads.incrementAndGet();
+    }
+
+    @Test
+    public void get_sameKeyWithinTtl_loadsOnce() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        Assertions.assertEquals("MLA1", cache.get("MLA", this::load));
+        Assertions.assertEquals("MLA1", cache.get("MLA", this::load));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_afterTtl_loadsAgain() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        cache.get("MLA", this::load);
+        clock.now = clock.now.plus(Duration.ofMillis(TTL_MILLIS));
+        Assertions.assertEquals("MLA2", cache.get("MLA", this::load));
+    }
+
+    @Test
+    public void get_loaderThrows_exceptionIsRethrownAndNotCached() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.get("MLA", key -> {
+            throw new IllegalStateException("upstream down");
+        }));
+        Assertions.assertEquals("MLA1", cache.get("MLA", this::load));
+    }
+
+    @Test
+    public void get_whileSameKeyIsLoading_waitsForThatLoad() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("MLA", key -> {
+                    loading.countDown();
+                    release.await();
+                    return load(key);
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("MLA", this::load);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        release.countDown();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("MLA1", first.get(5, TimeUnit.SECONDS)),
+                () -> Assertions.assertEquals("MLA1", second.get(5, TimeUnit.SECONDS)),
+                () -> Assertions.assertEquals(1, loads.get())
+        );
+    }
+
+    @Test
+    public void get_cacheOnly_answersLoadedValuesAndRefusesMisses() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        cache.get("MLA", this::load);
+        Assertions.assertEquals("MLA1", RequestContext.cacheOnly(() -> cache.get("MLA", this::load)));
+        Assertions.assertThrows(NotCachedException.class, () -> RequestContext.cacheOnly(() -> cache.get("LHR", this::load)));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void get_afterTtl_sweepsOutExpiredEntries() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        cache.get("MLA", this::load);
+        cache.get("LHR", this::load);
+        clock.now = clock.now.plus(Duration.ofMillis(TTL_MILLIS));
+        cache.get("CDG", this::load);
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void get_pastMaxEntries_evictsEntriesClosestToExpiring() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, 2, clock);
+        cache.get("MLA", this::load);
+        clock.now = clock.now.plus(Duration.ofMillis(1));
+        cache.get("LHR", this::load);
+        clock.now = clock.now.plus(Duration.ofMillis(1));
+        cache.get("CDG", this::load);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("LHR2", cache.get("LHR", this::load));
+        Assertions.assertEquals("MLA4", cache.get("MLA", this::load));
+    }
+
+    @Test
+    public void get_loaderThrowsError_waitersGetTheErrorInsteadOfHanging() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("MLA", key -> {
+                    loading.countDown();
+                    release.await();
+                    throw new AssertionError("loader bug");
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Throwable> second = CompletableFuture.supplyAsync(() -> Assertions.assertThrows(AssertionError.class, () -> cache.get("MLA", this::load)));
+        Thread.sleep(100);
+        release.countDown();
+        Assertions.assertInstanceOf(AssertionError.class, second.get(5, TimeUnit.SECONDS));
+        Assertions.assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("MLA1", cache.get("MLA", this::load));
+    }
+
+    @Test
+    public void get_loaderRunsOutOfItsOwnDeadline_waiterLoadsWithinItsOwn() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(TTL_MILLIS, clock);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            RequestContext.beginIfAbsent(Duration.ofMillis(50));
+            try {
+                return cache.get("MLA", key -> {
+                    loading.countDown();
+                    release.await();
+                    RequestContext.checkDeadline("calling upstream");
+                    return load(key);
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            } finally {
+                RequestContext.end();
+            }
+        });
+        Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("MLA", this::load);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        release.countDown();
+        Assertions.assertEquals("MLA1", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+    }
+}
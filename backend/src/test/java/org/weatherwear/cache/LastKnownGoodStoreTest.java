@@ -0,0 +1,121 @@
+package org.weatherwear.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+public class LastKnownGoodStoreTest {
+    private static final Location MALTA = new Location(35.857498, 14.4775);
+    private static final Forecast FORECAST = new Forecast(new double[]{20, 10, 5}, new double[]{0, 1, 2});
+    private MutableClock clock;
+
+    @TempDir
+    Path directory;
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2023-01-01T22:00:00.00Z");
+
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setupBeforeEach() {
+        clock = new MutableClock();
+    }
+
+    @Test
+    public void getForecast_sameDay_servesStoredSeriesWithItsAge() throws Exception {
+        //setup
+        LastKnownGoodStore store = new LastKnownGoodStore(null, Duration.ofDays(1), clock);
+        store.putForecast(MALTA, FORECAST);
+        clock.now = clock.now.plus(Duration.ofMinutes(30));
+        //exercise
+        LastKnownGoodStore.Stale stale = store.getForecast(MALTA);
+        //verify
+        Assertions.assertEquals(FORECAST, stale.forecast());
+        Assertions.assertEquals(Duration.ofMinutes(30).toMillis(), stale.ageMillis());
+    }
+
+    @Test
+    public void putForecast_sameSeriesAgain_keepsItsAge() throws Exception {
+        //setup
+        LastKnownGoodStore store = new LastKnownGoodStore(null, Duration.ofDays(1), clock);
+        store.putForecast(MALTA, FORECAST);
+        clock.now = clock.now.plus(Duration.ofMinutes(30));
+        //exercise
+        store.putForecast(MALTA, FORECAST);
+        //verify
+        Assertions.assertEquals(Duration.ofMinutes(30).toMillis(), store.getForecast(MALTA).ageMillis());
+    }
+
+    @Test
+    public void getForecast_afterMidnight_shiftsSeriesToStartToday() throws Exception {
+        //setup
+        LastKnownGoodStore store = new LastKnownGoodStore(null, Duration.ofDays(1), clock);
+        store.putForecast(MALTA, FORECAST);
+        clock.now = clock.now.plus(Duration.ofHours(3));
+        //exercise
+        LastKnownGoodStore.Stale stale = store.getForecast(MALTA);
+        //verify
+        Assertions.assertEquals(new Forecast(new double[]{10, 5}, new double[]{1, 2}), stale.forecast());
+    }
+
+    @Test
+    public void getForecast_olderThanMaxAge_servesNothing() throws Exception {
+        //setup
+        LastKnownGoodStore store = new LastKnownGoodStore(null, Duration.ofHours(1), clock);
+        store.putForecast(MALTA, FORECAST);
+        clock.now = clock.now.plus(Duration.ofMinutes(61));
+        //exercise + verify
+        Assertions.assertNull(store.getForecast(MALTA));
+    }
+
+    @Test
+    public void flush_thenNewStore_reloadsForecastsAndAirports() throws Exception {
+        //setup
+        Path file = directory.resolve("last-known-good.bin");
+        LastKnownGoodStore store = new LastKnownGoodStore(file, Duration.ofDays(1), clock);
+        store.putForecast(MALTA, FORECAST);
+        store.putAirport("MLA", MALTA);
+        //exercise
+        store.flush();
+        LastKnownGoodStore reloaded = new LastKnownGoodStore(file, Duration.ofDays(1), clock);
+        //verify
+        Assertions.assertEquals(FORECAST, reloaded.getForecast(MALTA).forecast());
+        Assertions.assertEquals(MALTA, reloaded.getAirport("MLA"));
+    }
+
+    @Test
+    public void newStore_corruptFile_startsEmptyAndFlushesOverIt() throws Exception {
+        //setup
+        Path file = directory.resolve("last-known-good.bin");
+        Files.write(file, new byte[]{0x57, 0x57, 0x4C, 0x4B, 1, 0, 0, 0, 1, 0});
+        //exercise
+        LastKnownGoodStore store = new LastKnownGoodStore(file, Duration.ofDays(1), clock);
+        store.putAirport("MLA", MALTA);
+        store.flush();
+        //verify
+        Assertions.assertNull(store.getForecast(MALTA));
+        Assertions.assertEquals(MALTA, new LastKnownGoodStore(file, Duration.ofDays(1), clock).getAirport("MLA"));
+    }
+}
@@ -0,0 +1,197 @@
+package org.weatherwear.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SharedForecastCacheTest {
+    private static final Location MALTA = new Location(35.857498, 14.4775);
+    private static final Duration FORECAST_TTL = Duration.ofMinutes(10);
+    private static final Duration AIRPORT_TTL = Duration.ofDays(1);
+    //an empty series stored for this location stops the writer process
+    private static final Location STOP = new Location(1, 1);
+    @TempDir
+    Path directory;
+    private Path file;
+    private MutableClock clock;
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now = Instant.parse("2024-01-31T10:00:00.00Z");
+
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setupBeforeEach() {
+        file = directory.resolve("shared-cache");
+        clock = new MutableClock();
+    }
+
+    private SharedForecastCache open(Clock clock) throws IOException {
+        return new SharedForecastCache(file, 64, 64, FORECAST_TTL, AIRPORT_TTL, clock);
+    }
+
+    //every value of the series is the same, so that a torn copy shows up as a series with two values
+    private static Forecast uniform(double value) {
+        double[] values = new double[11];
+        Arrays.fill(values, value);
+        return new Forecast(values, values);
+    }
+
+    private static void assertNotTorn(Forecast forecast) {
+        double first = forecast.getTempInCelsius(0);
+        for (int day = 0; day < forecast.getDays(); day++) {
+            Assertions.assertEquals(first, forecast.getTempInCelsius(day));
+            Assertions.assertEquals(first, forecast.getPrecipitationProbability(day));
+        }
+    }
+
+    @Test
+    public void get_storedThroughAnotherMapping_isFound() throws Exception {
+        //setup
+        try (SharedForecastCache writer = open(clock); SharedForecastCache reader = open(clock)) {
+            Forecast forecast = new Forecast(new double[]{10.5, 12, 14}, new double[]{0, 30, 100});
+            //exercise
+            writer.putForecast(MALTA, forecast);
+            writer.putAirport("MLA", MALTA);
+            //verify
+            Assertions.assertEquals(forecast, reader.getForecast(MALTA));
+            Assertions.assertEquals(MALTA, reader.getAirport("MLA"));
+            Assertions.assertNull(reader.getAirport("LHR"));
+            Assertions.assertNull(reader.getForecast(new Location(51.47, -0.4543)));
+        }
+    }
+
+    @Test
+    public void get_afterTtlOrMidnight_misses() throws Exception {
+        //setup
+        try (SharedForecastCache cache = open(clock)) {
+            cache.putForecast(MALTA, uniform(10));
+            cache.putAirport("MLA", MALTA);
+            clock.now = clock.now.plus(FORECAST_TTL);
+            //exercise and verify
+            Assertions.assertNull(cache.getForecast(MALTA));
+            Assertions.assertEquals(MALTA, cache.getAirport("MLA"));
+            clock.now = Instant.parse("2024-01-31T23:59:00.00Z");
+            cache.putForecast(MALTA, uniform(10));
+            clock.now = Instant.parse("2024-02-01T00:01:00.00Z");
+            Assertions.assertNull(cache.getForecast(MALTA));
+        }
+    }
+
+    @Test
+    public void put_moreEntriesThanSlots_evictsTheOldest() throws Exception {
+        //setup
+        try (SharedForecastCache cache = new SharedForecastCache(file, 8, 8, FORECAST_TTL, AIRPORT_TTL, clock)) {
+            //exercise
+            for (int airport = 0; airport < 20; airport++) {
+                clock.now = clock.now.plusSeconds(1);
+                cache.putAirport("A" + (char) ('A' + airport), new Location(airport, airport));
+            }
+            //verify
+            Assertions.assertNull(cache.getAirport("AA"));
+            Assertions.assertEquals(new Location(19, 19), cache.getAirport("AT"));
+        }
+    }
+
+    @Test
+    public void open_fileWithOtherLayout_isRefused() throws Exception {
+        //setup
+        open(clock).close();
+        //exercise and verify
+        Assertions.assertThrows(IOException.class, () -> new SharedForecastCache(file, 128, 64, FORECAST_TTL, AIRPORT_TTL, clock));
+    }
+
+    @Test
+    public void get_whileAnotherThreadKeepsWriting_neverSeesATornEntry() throws Exception {
+        //setup
+        try (SharedForecastCache cache = open(Clock.systemUTC())) {
+            cache.putForecast(MALTA, uniform(0));
+            AtomicBoolean writing = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                for (int value = 1; writing.get(); value++) {
+                    cache.putForecast(MALTA, uniform(value));
+                }
+            });
+            writer.start();
+            //exercise and verify
+            try {
+                for (int read = 0; read < 200_000; read++) {
+                    Forecast forecast = cache.getForecast(MALTA);
+                    if (forecast != null) {
+                        assertNotTorn(forecast);
+                    }
+                }
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+        }
+    }
+
+    @Test
+    public void get_whileAnotherJvmKeepsWriting_seesItsEntriesAndNeverATornOne() throws Exception {
+        //setup - the other JVM writes ever increasing series for MALTA until told to stop
+        try (SharedForecastCache cache = open(Clock.systemUTC())) {
+            cache.putForecast(STOP, uniform(0));
+            Process writer = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                    "-cp", System.getProperty("java.class.path"), SharedForecastCacheTest.class.getName(), file.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            //exercise
+            double latest = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            try {
+                while (latest < 10_000 && System.nanoTime() < deadline) {
+                    Forecast forecast = cache.getForecast(MALTA);
+                    if (forecast != null) {
+                        assertNotTorn(forecast);
+                        latest = Math.max(latest, forecast.getTempInCelsius(0));
+                    }
+                }
+            } finally {
+                cache.putForecast(STOP, new Forecast(new double[0], new double[0]));
+                Assertions.assertTrue(writer.waitFor(30, TimeUnit.SECONDS));
+            }
+            //verify
+            Assertions.assertEquals(0, writer.exitValue(), new String(writer.getInputStream().readAllBytes()));
+            Assertions.assertTrue(latest >= 10_000);
+        }
+    }
+
+    //the writer process of the test above
+    public static void main(String[] args) throws Exception {
+        try (SharedForecastCache cache = new SharedForecastCache(Path.of(args[0]), 64, 64, FORECAST_TTL, AIRPORT_TTL, Clock.systemUTC())) {
+            for (int value = 1; ; value++) {
+                cache.putForecast(MALTA, uniform(value));
+                Forecast stop = cache.getForecast(STOP);
+                if (stop != null && stop.getDays() == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
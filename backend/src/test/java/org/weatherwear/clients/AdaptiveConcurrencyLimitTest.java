@@ -0,0 +1,96 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.weatherwear.clients.GenericRestClient.AdaptiveConcurrencyLimit;
+
+import java.util.Random;
+
+public class AdaptiveConcurrencyLimitTest {
+    private static final long LATENCY_NANOS = 10_000_000;
+
+    //calls to a host that serves this many at once at full speed and queues the rest, with the limit always in use
+    private static void callHostWithCapacity(AdaptiveConcurrencyLimit limit, int capacity, int calls) {
+        Random random = new Random(42);
+        for (int call = 0; call < calls; call++) {
+            int inFlight = limit.getLimit();
+            double latency = LATENCY_NANOS * Math.max(1, (double) inFlight / capacity) * (0.9 + 0.2 * random.nextDouble());
+            limit.record((long) latency, false, inFlight);
+        }
+    }
+
+    @Test
+    public void record_latencyStaysFlat_limitGrowsToMax() {
+        //setup
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 64);
+        //exercise
+        callHostWithCapacity(limit, Integer.MAX_VALUE, 500);
+        //verify
+        Assertions.assertEquals(64, limit.getLimit());
+    }
+
+    @Test
+    public void record_hostPastItsCapacity_limitSettlesNearCapacity() {
+        //setup
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 200);
+        //exercise
+        callHostWithCapacity(limit, 20, 1500);
+        //verify - latency may grow by the tolerance before the limit stops growing, so it settles somewhat above capacity
+        Assertions.assertTrue(limit.getLimit() >= 20 && limit.getLimit() <= 40, "limit " + limit.getLimit());
+    }
+
+    @Test
+    public void record_droppedCall_cutsLimitMultiplicatively() {
+        //setup
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 64);
+        //exercise
+        limit.record(LATENCY_NANOS, true, 20);
+        limit.record(LATENCY_NANOS, true, 20);
+        //verify
+        Assertions.assertEquals(16, limit.getLimit());
+    }
+
+    @Test
+    public void record_fewCallsInFlight_limitDoesNotGrow() {
+        //setup
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 64);
+        //exercise
+        for (int call = 0; call < 100; call++) {
+            limit.record(LATENCY_NANOS, false, 1);
+        }
+        //verify
+        Assertions.assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void record_probeWithCallsStillInFlight_waitsForThemToDrainBeforeRemeasuring() {
+        //setup - flat latency at the maximum until the 1000th call probes, dropping the limit to its square root
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(64, 1, 64);
+        for (int call = 0; call < 1000; call++) {
+            limit.record(LATENCY_NANOS, false, 64);
+        }
+        Assertions.assertEquals(8, limit.getLimit());
+        //exercise - the calls started before the probe finish slowly, then light ones follow
+        for (int call = 0; call < 56; call++) {
+            limit.record(3 * LATENCY_NANOS, false, 64);
+        }
+        int drained = limit.getLimit();
+        for (int call = 0; call < 50; call++) {
+            limit.record(LATENCY_NANOS, false, limit.getLimit());
+        }
+        //verify
+        Assertions.assertEquals(8, drained);
+        Assertions.assertTrue(limit.getLimit() > 8, "limit " + limit.getLimit());
+    }
+
+    @Test
+    public void record_fixedLimit_neverMoves() {
+        //setup
+        AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.fixed(8);
+        //exercise
+        limit.record(LATENCY_NANOS, true, 8);
+        callHostWithCapacity(limit, Integer.MAX_VALUE, 100);
+        //verify
+        Assertions.assertEquals(8, limit.getLimit());
+    }
+}
@@ -0,0 +1,125 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.weatherwear.clients.GenericRestClient.*;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BulkheadRestClientTest {
+    private static final String SLOW_HOST = "https://airport-info.p.rapidapi.com";
+    private static final String HEALTHY_HOST = "https://api.open-meteo.com/v1";
+    private static final HttpResponse GOOD_RESPONSE = new HttpResponse(200, "{}");
+    private IRestClient restClientMock;
+    private final CountDownLatch releaseSlowHost = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        restClientMock = Mockito.mock(IRestClient.class);
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(SLOW_HOST), Mockito.anyString(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            releaseSlowHost.await();
+            return GOOD_RESPONSE;
+        });
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(HEALTHY_HOST), Mockito.anyString(), Mockito.any(), Mockito.any())).thenReturn(GOOD_RESPONSE);
+    }
+
+    @AfterEach
+    public void teardownAfterEach() {
+        releaseSlowHost.countDown();
+    }
+
+    private CompletableFuture<HttpResponse> requestAsync(BulkheadRestClient restClient, String target) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return restClient.request(HttpRequestMethods.GET, target, "/airport");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static Bulkhead.Saturation saturationOf(BulkheadRestClient restClient, String host) {
+        return restClient.getSaturation().stream().filter(saturation -> saturation.host().equals(host)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void request_slowHostBulkheadFull_rejectsWithBulkheadFullException() throws Exception {
+        //setup - one worker and one queue slot for the slow host
+        BulkheadRestClient restClient = new BulkheadRestClient(restClientMock, Map.of("airport-info.p.rapidapi.com", new BulkheadRestClient.Limits(1, 1)), new BulkheadRestClient.Limits(4, 4));
+        requestAsync(restClient, SLOW_HOST);
+        requestAsync(restClient, SLOW_HOST);
+        Mockito.verify(restClientMock, Mockito.timeout(1000)).request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(SLOW_HOST), Mockito.anyString(), Mockito.any(), Mockito.any());
+        while (saturationOf(restClient, "airport-info.p.rapidapi.com").queued() < 1) {
+            Thread.sleep(5);
+        }
+        //exercise + verify
+        Assertions.assertThrows(BulkheadFullException.class, () -> restClient.request(HttpRequestMethods.GET, SLOW_HOST, "/airport"));
+        Bulkhead.Saturation saturation = saturationOf(restClient, "airport-info.p.rapidapi.com");
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, saturation.active()),
+                () -> Assertions.assertEquals(1, saturation.queued()),
+                () -> Assertions.assertEquals(1, saturation.rejected()),
+                () -> Assertions.assertEquals(1.0, saturation.utilization())
+        );
+    }
+
+    @Test
+    public void request_slowHostBulkheadFull_healthyHostStillServed() throws Exception {
+        //setup
+        BulkheadRestClient restClient = new BulkheadRestClient(restClientMock, Map.of(), new BulkheadRestClient.Limits(1, 0));
+        requestAsync(restClient, SLOW_HOST);
+        Mockito.verify(restClientMock, Mockito.timeout(1000)).request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(SLOW_HOST), Mockito.anyString(), Mockito.any(), Mockito.any());
+        //exercise
+        HttpResponse response = requestAsync(restClient, HEALTHY_HOST).get(1, TimeUnit.SECONDS);
+        //verify
+        Assertions.assertEquals(200, response.getStatusCode());
+    }
+
+    @Test
+    public void request_upstreamTimesOut_rethrowsSocketTimeoutException() throws Exception {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(HEALTHY_HOST), Mockito.anyString(), Mockito.any(), Mockito.any())).thenThrow(new SocketTimeoutException("Read timed out"));
+        BulkheadRestClient restClient = new BulkheadRestClient(restClientMock, Map.of(), new BulkheadRestClient.Limits(1, 1));
+        //exercise + verify
+        SocketTimeoutException exception = Assertions.assertThrows(SocketTimeoutException.class, () -> restClient.request(HttpRequestMethods.GET, HEALTHY_HOST, "/forecast"));
+        Assertions.assertEquals("Read timed out", exception.getMessage());
+    }
+
+    @Test
+    public void request_badStatus_rethrowsHttpStatusCodeUnknown() throws Exception {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(HEALTHY_HOST), Mockito.anyString(), Mockito.any(), Mockito.any())).thenThrow(new HttpStatusCodeUnknown("Code status 500 is unhandled by this implementation of REST CLIENT"));
+        BulkheadRestClient restClient = new BulkheadRestClient(restClientMock, Map.of(), new BulkheadRestClient.Limits(1, 1));
+        //exercise + verify
+        Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> restClient.request(HttpRequestMethods.GET, HEALTHY_HOST, "/forecast"));
+    }
+
+    @Test
+    public void request_deadlinePassesWhileInFlight_failsFastAndCancelsTheCall() throws Exception {
+        //setup
+        BulkheadRestClient restClient = new BulkheadRestClient(restClientMock, Map.of(), new BulkheadRestClient.Limits(1, 0));
+        RequestContext.beginIfAbsent(Duration.ofMillis(100));
+        try {
+            //exercise
+            long start = System.nanoTime();
+            Assertions.assertThrows(DeadlineExceededException.class, () -> restClient.request(HttpRequestMethods.GET, SLOW_HOST, "/airport"));
+            //verify
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            RequestContext.end();
+        }
+        //the cancelled call gave its worker back, so the one slot is free again
+        Assertions.assertEquals(GOOD_RESPONSE, restClient.request(HttpRequestMethods.GET, HEALTHY_HOST, "/forecast"));
+    }
+}
@@ -0,0 +1,54 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clients.LocationClient.CachingLocationClient;
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Location;
+
+public class CachingLocationClientTest {
+    private ILocationClient locationClientMock;
+    private CachingLocationClient cachingLocationClient;
+
+    @BeforeEach
+    public void setupBeforeEachTest() {
+        locationClientMock = Mockito.mock(ILocationClient.class);
+        cachingLocationClient = new CachingLocationClient(locationClientMock);
+    }
+
+    @Test
+    public void WhenGettingLocationForIps_SameIpv4Slash24_LooksUpOnce() throws Exception {
+        //setup
+        Mockito.when(locationClientMock.getLocationForIp("203.0.113.7")).thenReturn(new Location(35.9, 14.5));
+        //exercise
+        Location first = cachingLocationClient.getLocationForIp("203.0.113.7");
+        Location neighbour = cachingLocationClient.getLocationForIp("203.0.113.200");
+        //verify
+        Assertions.assertEquals(first, neighbour);
+        Mockito.verify(locationClientMock, Mockito.times(1)).getLocationForIp(Mockito.anyString());
+    }
+
+    @Test
+    public void WhenGettingLocationForIps_DifferentPrefixes_LooksUpEach() throws Exception {
+        //setup
+        Mockito.when(locationClientMock.getLocationForIp(Mockito.anyString())).thenReturn(new Location(35.9, 14.5));
+        //exercise
+        cachingLocationClient.getLocationForIp("203.0.113.7");
+        cachingLocationClient.getLocationForIp("203.0.114.7");
+        cachingLocationClient.getLocationForIp("2001:db8:1:2::1");
+        cachingLocationClient.getLocationForIp("2001:db8:1:3::1");
+        cachingLocationClient.getLocationForIp("2001:db8:2::1");
+        //verify
+        Mockito.verify(locationClientMock, Mockito.times(4)).getLocationForIp(Mockito.anyString());
+    }
+
+    @Test
+    public void WhenGettingLocationForHostName_RefusedWithoutLookup() throws Exception {
+        //exercise
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cachingLocationClient.getLocationForIp("example.com"));
+        //verify
+        Mockito.verify(locationClientMock, Mockito.never()).getLocationForIp(Mockito.anyString());
+    }
+}
@@ -0,0 +1,85 @@
+package org.weatherwear.clients;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.weatherwear.clients.GenericRestClient.ConnectionWarmup;
+import org.weatherwear.clients.GenericRestClient.HttpRequestMethods;
+import org.weatherwear.clients.GenericRestClient.RestClient;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionWarmupTest {
+    private HttpServer server;
+    private Client client;
+    private ExecutorService executor;
+    //method and client port of every request the server received
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRemoteAddress().getPort());
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        client = ClientBuilder.newClient();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void tearDownAfterEach() {
+        server.stop(0);
+        client.close();
+        executor.shutdownNow();
+    }
+
+    private String target() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Test
+    public void warm_unresolvableTarget_isSkippedAndOthersAreWarmed() throws Exception {
+        //setup
+        ConnectionWarmup warmup = new ConnectionWarmup(new RestClient(client), executor);
+        //exercise
+        int warmed = warmup.warm(List.of(target(), "http://unknown.invalid")).get(10, TimeUnit.SECONDS);
+        //verify
+        Assertions.assertEquals(1, warmed);
+        Assertions.assertEquals(1, requests.size());
+        Assertions.assertTrue(requests.get(0).startsWith("HEAD "));
+    }
+
+    @Test
+    public void warm_thenRequest_reusesTheWarmedConnection() throws Exception {
+        //setup
+        RestClient restClient = new RestClient(client);
+        ConnectionWarmup warmup = new ConnectionWarmup(restClient, executor);
+        //exercise
+        warmup.warm(List.of(target())).get(10, TimeUnit.SECONDS);
+        restClient.request(HttpRequestMethods.GET, target(), "/json");
+        //verify
+        Assertions.assertEquals(2, requests.size());
+        String warmupPort = requests.get(0).split(" ")[1];
+        Assertions.assertEquals("GET " + warmupPort, requests.get(1));
+    }
+}
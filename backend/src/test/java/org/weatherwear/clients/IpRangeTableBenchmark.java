@@ -0,0 +1,82 @@
+package org.weatherwear.clients;
+
+import org.weatherwear.clients.LocationClient.IpRangeTable;
+import org.weatherwear.clients.Models.Location;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lookup throughput of the offline IP range table on a synthetic dataset of disjoint IPv4 ranges, about the size
+ * of a city-level GeoIP database, with one thread per core searching the shared mapping.
+ * Run with: java ... org.weatherwear.clients.IpRangeTableBenchmark [ranges]
+ */
+public class IpRangeTableBenchmark {
+    private static final int LOOKUPS_PER_THREAD = 20_000_000;
+
+    private static String ipv4(long address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static long lookups(IpRangeTable table, int lookups) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long found = 0;
+        for (int lookup = 0; lookup < lookups; lookup++) {
+            Location location = table.lookupIpv4(random.nextInt());
+            if (location != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rangeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        List<IpRangeTable.Range> ranges = new ArrayList<>(rangeCount);
+        //ranges of random sizes with random gaps, spread over the whole address space
+        long stride = (1L << 32) / rangeCount;
+        for (int range = 0; range < rangeCount; range++) {
+            long first = range * stride + random.nextInt((int) (stride / 2));
+            long last = first + random.nextInt((int) (stride / 2));
+            ranges.add(new IpRangeTable.Range(ipv4(first), ipv4(last), new Location(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180)));
+        }
+        Path file = Files.createTempFile("ip-ranges", ".table");
+        IpRangeTable.compile(ranges, file);
+        IpRangeTable table = new IpRangeTable(file);
+        //warm up the search and fault the mapping in before measuring
+        lookups(table, LOOKUPS_PER_THREAD);
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            report(table, threads);
+        }
+        if (Integer.bitCount(Runtime.getRuntime().availableProcessors()) != 1) {
+            report(table, Runtime.getRuntime().availableProcessors());
+        }
+        Files.delete(file);
+    }
+
+    private static void report(IpRangeTable table, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int thread = 0; thread < threads; thread++) {
+            results.add(executor.submit(() -> lookups(table, LOOKUPS_PER_THREAD)));
+        }
+        long found = 0;
+        for (Future<Long> result : results) {
+            found += result.get();
+        }
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+        long total = (long) threads * LOOKUPS_PER_THREAD;
+        System.out.printf("%2d threads %,14.0f lookups/s %6.1f ns/lookup per thread (%.0f%% found)%n",
+                threads, total * 1e9 / nanos, (double) nanos * threads / total, 100.0 * found / total);
+    }
+}
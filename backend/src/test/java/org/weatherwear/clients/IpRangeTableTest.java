@@ -0,0 +1,144 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.weatherwear.clients.LocationClient.GeoIpLocationClient;
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.LocationClient.IpRangeTable;
+import org.weatherwear.clients.Models.Location;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class IpRangeTableTest {
+    private static final Location MALTA = new Location(35.857498, 14.4775);
+    private static final Location LONDON = new Location(51.47, -0.4543);
+    private static final Location SYDNEY = new Location(-33.9399, 151.1753);
+    @TempDir
+    Path directory;
+    private IpRangeTable table;
+
+    @BeforeEach
+    public void setupBeforeEachTest() throws IOException {
+        Path csv = directory.resolve("ranges.csv");
+        Files.write(csv, List.of(
+                "# first,last,latitude,longitude",
+                "203.0.113.0,203.0.113.255,35.857498,14.4775",
+                "2001:db8::,2001:db8:ffff:ffff:ffff:ffff:ffff:ffff,-33.9399,151.1753",
+                "",
+                "10.0.0.0,10.0.0.255,51.47,-0.4543",
+                "220.0.0.0,255.255.255.255,51.47,-0.4543"));
+        Path file = directory.resolve("ranges.table");
+        IpRangeTable.compile(IpRangeTable.readCsv(csv), file);
+        table = new IpRangeTable(file);
+    }
+
+    @Test
+    public void WhenLookingUpIpv4_InsideOrAtEdgesOfRange_ReturnsRangeLocation() {
+        //exercise and verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(MALTA, table.lookup("203.0.113.0")),
+                () -> Assertions.assertEquals(MALTA, table.lookup("203.0.113.77")),
+                () -> Assertions.assertEquals(MALTA, table.lookup("203.0.113.255")),
+                () -> Assertions.assertEquals(LONDON, table.lookup("10.0.0.1")),
+                () -> Assertions.assertEquals(3, table.getIpv4RangeCount()));
+    }
+
+    @Test
+    public void WhenLookingUpIpv4_AboveSignBit_ComparedUnsigned() {
+        //exercise and verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(LONDON, table.lookup("255.255.255.255")),
+                () -> Assertions.assertEquals(LONDON, table.lookup("::ffff:220.1.2.3")),
+                () -> Assertions.assertNull(table.lookup("127.0.0.1")));
+    }
+
+    @Test
+    public void WhenLookingUpIp_NotCoveredByAnyRange_ReturnsNull() {
+        //exercise and verify
+        Assertions.assertAll(
+                () -> Assertions.assertNull(table.lookup("203.0.112.255")),
+                () -> Assertions.assertNull(table.lookup("9.255.255.255")),
+                () -> Assertions.assertNull(table.lookup("10.0.1.0")),
+                () -> Assertions.assertNull(table.lookup("2001:db9::1")));
+    }
+
+    @Test
+    public void WhenLookingUpIpv6_InsideRange_ReturnsRangeLocation() {
+        //exercise and verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(SYDNEY, table.lookup("2001:db8::1")),
+                () -> Assertions.assertEquals(SYDNEY, table.lookup("2001:db8:abcd:1234:5678::9")),
+                () -> Assertions.assertEquals(1, table.getIpv6RangeCount()));
+    }
+
+    @Test
+    public void WhenLookingUp_NotAnIpLiteral_RefusedWithoutResolving() {
+        //exercise and verify
+        for (String notAnIp : List.of("300.1.1.1", "localhost:1", "localhost", "1.2.3", "1.2.3.4.5", "1.2.3.04567", "2001:db8::1::2", "2001:db8:1", ":1", "1:2:3:4:5:6:7:8:9", "::ffff:1.2.3.256", "\u0661.2.3.4")) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> table.lookup(notAnIp), notAnIp);
+        }
+    }
+
+    @Test
+    public void WhenLookingUpIpv6_CompressedOrZonedForms_ParsedLikeTheFullForm() {
+        //exercise and verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(SYDNEY, table.lookup("2001:0DB8:0:0:0:0:0:1")),
+                () -> Assertions.assertEquals(SYDNEY, table.lookup("2001:db8::1%eth0")),
+                () -> Assertions.assertEquals(SYDNEY, table.lookup("2001:db8::")),
+                () -> Assertions.assertEquals(LONDON, table.lookup("0:0:0:0:0:ffff:10.0.0.1")),
+                () -> Assertions.assertNull(table.lookup("::")));
+    }
+
+    @Test
+    public void WhenCompiling_Ipv6RangesSharingA64_KeepsTheFirstForIt() throws IOException {
+        //setup - two /120s in one /64, then a /56 the first /64 of which is taken by them
+        List<IpRangeTable.Range> ranges = List.of(
+                new IpRangeTable.Range("2001:db8:0:1::", "2001:db8:0:1::ff", MALTA),
+                new IpRangeTable.Range("2001:db8:0:1::100", "2001:db8:0:1::1ff", LONDON),
+                new IpRangeTable.Range("2001:db8:0:100::", "2001:db8:0:1ff:ffff:ffff:ffff:ffff", SYDNEY),
+                new IpRangeTable.Range("2001:db8:0:1::", "2001:db8:0:2:ffff:ffff:ffff:ffff", SYDNEY));
+        Path file = directory.resolve("sub64.table");
+        //exercise
+        IpRangeTable.compile(ranges, file);
+        //verify
+        IpRangeTable subTable = new IpRangeTable(file);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(MALTA, subTable.lookup("2001:db8:0:1::1ff")),
+                () -> Assertions.assertEquals(SYDNEY, subTable.lookup("2001:db8:0:2::1")),
+                () -> Assertions.assertEquals(SYDNEY, subTable.lookup("2001:db8:0:180::1")),
+                () -> Assertions.assertEquals(3, subTable.getIpv6RangeCount()));
+    }
+
+    @Test
+    public void WhenCompiling_OverlappingRanges_Refused() {
+        //setup
+        List<IpRangeTable.Range> ranges = List.of(
+                new IpRangeTable.Range("203.0.113.0", "203.0.113.255", MALTA),
+                new IpRangeTable.Range("203.0.113.128", "203.0.114.0", LONDON));
+        //exercise and verify
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IpRangeTable.compile(ranges, directory.resolve("overlapping.table")));
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_TableCoversOnlySome_FallsBackUpstreamForTheRest() throws Exception {
+        //setup
+        ILocationClient locationClientMock = Mockito.mock(ILocationClient.class);
+        Mockito.when(locationClientMock.getLocationForIp("198.51.100.7")).thenReturn(SYDNEY);
+        GeoIpLocationClient geoIpLocationClient = new GeoIpLocationClient(locationClientMock, table);
+        //exercise
+        Location covered = geoIpLocationClient.getLocationForIp("203.0.113.7");
+        Location uncovered = geoIpLocationClient.getLocationForIp("198.51.100.7");
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(MALTA, covered),
+                () -> Assertions.assertEquals(SYDNEY, uncovered));
+        Mockito.verify(locationClientMock, Mockito.times(1)).getLocationForIp(Mockito.anyString());
+    }
+}
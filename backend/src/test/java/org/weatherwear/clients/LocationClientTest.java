@@ -2,6 +2,7 @@ package org.weatherwear.clients;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.ws.rs.ProcessingException;
 import org.junit.jupiter.api.*;
 import org.mockito.ArgumentMatchers;
 import org.weatherwear.clients.GenericRestClient.HttpRequestMethods;
@@ -10,9 +11,19 @@ import org.weatherwear.clients.GenericRestClient.HttpStatusCodeUnknown;
 import org.weatherwear.clients.GenericRestClient.IRestClient;
 import org.weatherwear.clients.LocationClient.LocationClient;
 import org.weatherwear.clients.Models.Location;
+import org.weatherwear.telemetry.RequestContext;
 import org.mockito.Mockito;
 
 import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class LocationClientTest {
     private IRestClient restClientMock;
@@ -35,7 +46,7 @@ public class LocationClientTest {
         Mockito.when(restClientMock.request(HttpRequestMethods.GET, "http://ip-api.com", "/json")).thenReturn(GOODLOCATONCLIENTSERVICERESPONSE);
         LocationClient locationClient = new LocationClient(restClientMock);
         Location locationUnderTest = locationClient.getLocation();
-        Assertions.assertAll(() -> Assertions.assertEquals("20.69", locationUnderTest.getLatitude()), () -> Assertions.assertEquals("4.2", locationUnderTest.getLongitude()));
+        Assertions.assertAll(() -> Assertions.assertEquals(20.69, locationUnderTest.getLatitude()), () -> Assertions.assertEquals(4.2, locationUnderTest.getLongitude()));
     }
 
     @Test
@@ -43,7 +54,7 @@ public class LocationClientTest {
         Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://ipapi.co", "/json")).thenReturn(GOODLOCAITONBACKUPCLIENTSERVIERESPONSE);
         LocationClient locationClient = new LocationClient(restClientMock);
         Location locationUnderTest = locationClient.getLocationBackup();
-        Assertions.assertAll(() -> Assertions.assertEquals("694.29", locationUnderTest.getLatitude()), () -> Assertions.assertEquals("3.69", locationUnderTest.getLongitude()));
+        Assertions.assertAll(() -> Assertions.assertEquals(694.29, locationUnderTest.getLatitude()), () -> Assertions.assertEquals(3.69, locationUnderTest.getLongitude()));
     }
 
     @Test
@@ -51,7 +62,7 @@ public class LocationClientTest {
         Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenReturn(GOODLOCATONFROMIATACLIENTSERVICERESPONSE);
         LocationClient locationClient = new LocationClient(restClientMock);
         Location locationUnderTest = locationClient.getLocation(VALID_IATA);
-        Assertions.assertAll(() -> Assertions.assertEquals("35.857498", locationUnderTest.getLatitude()), () -> Assertions.assertEquals("14.4775", locationUnderTest.getLongitude()));
+        Assertions.assertAll(() -> Assertions.assertEquals(35.857498, locationUnderTest.getLatitude()), () -> Assertions.assertEquals(14.4775, locationUnderTest.getLongitude()));
     }
 
     @Test
@@ -151,7 +162,8 @@ public class LocationClientTest {
         Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://ipapi.co", "/json")).thenReturn(UNEXCPECTEDRESPONSE);
         LocationClient locationClient = new LocationClient(restClientMock);
         //assert and verify
-        Assertions.assertThrows(NullPointerException.class, locationClient::getLocationBackup, "NullPointerException is expected");
+        NullPointerException exception = Assertions.assertThrows(NullPointerException.class, locationClient::getLocationBackup, "NullPointerException is expected");
+        Assertions.assertEquals(0, exception.getStackTrace().length);
     }
 
     @Test
@@ -162,4 +174,219 @@ public class LocationClientTest {
         //assert and verify
         Assertions.assertThrows(JsonParseException.class, locationClient::getLocationBackup, "JsonParseException is expected");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void WhenGettingLocationFromIATA_PrimaryAndBackupReturnSamePoint_LocationsAreEqual() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup - primary service returns coordinates as strings, backup service returns them as numbers
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenReturn(new HttpResponse(200, "{\"latitude\":\"35.854115\",\"longitude\":\"14.483279\"}"));
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any())).thenReturn(GOODLOCATONFROMIATACLIENTBACKUPSERVICERESPONSE);
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Location primary = locationClient.getLocation(VALID_IATA);
+        Location backup = locationClient.getLocationBackup(VALID_IATA);
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(primary, backup),
+                () -> Assertions.assertEquals(primary.hashCode(), backup.hashCode()),
+                () -> Assertions.assertEquals(primary.packed(), backup.packed())
+        );
+    }
+
+    @Test
+    public void WhenGettingLocationFromIATA_WithWrappedSocketTimeOut_CallBackUpServiceOnce() throws SocketTimeoutException, JsonProcessingException, HttpStatusCodeUnknown {
+        //setup - the JAX-RS client reports read timeouts as a ProcessingException caused by a SocketTimeoutException
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenThrow(new ProcessingException(new SocketTimeoutException("Read timed out")));
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any())).thenReturn(GOODLOCATONFROMIATACLIENTBACKUPSERVICERESPONSE);
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Location location = locationClient.getLocation(VALID_IATA);
+        //verify
+        Assertions.assertEquals(new Location(35.854115, 14.483279), location);
+    }
+
+    @Test
+    public void WhenGettingLocationFromIATA_WithUnknownStatusCode_ThrowsWithoutCallingBackUpService() throws SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenThrow(new HttpStatusCodeUnknown("Code status 500 is unhandled by this implementation of REST CLIENT"));
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        HttpStatusCodeUnknown exception = Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> locationClient.getLocation(VALID_IATA));
+        //verify
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        Mockito.verify(restClientMock, Mockito.never()).request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void WhenGettingUnknownIATATwice_BothServicesAnswerWithoutCoordinates_SecondLookupSkipsUpstream() throws SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/XQZ")).thenReturn(UNEXCPECTEDRESPONSE);
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any())).thenReturn(UNEXCPECTEDRESPONSE);
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Assertions.assertThrows(NullPointerException.class, () -> locationClient.getLocation("XQZ"));
+        NullPointerException exception = Assertions.assertThrows(NullPointerException.class, () -> locationClient.getLocation("XQZ"));
+        //verify
+        Assertions.assertEquals("IATA XQZ is unknown to the location services", exception.getMessage());
+        Mockito.verify(restClientMock, Mockito.times(1)).request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/XQZ");
+        Mockito.verify(restClientMock, Mockito.times(1)).request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void WhenGettingUnknownIATATwice_PrimaryServiceAnswersNotFound_SecondLookupFailsFastWithoutUpstream() throws SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/XQZ")).thenThrow(new HttpStatusCodeUnknown(404, "Code status 404 is unhandled by this implementation of REST CLIENT"));
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> locationClient.getLocation("XQZ"));
+        HttpStatusCodeUnknown exception = Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> locationClient.getLocation("XQZ"));
+        //verify
+        Assertions.assertEquals("IATA XQZ is unknown to the location services", exception.getMessage());
+        Assertions.assertEquals(404, exception.getStatus());
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        Mockito.verify(restClientMock, Mockito.times(1)).request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/XQZ");
+    }
+
+    @Test
+    public void WhenGettingIATATwice_PrimaryServiceRefusesTheKey_SecondLookupGoesUpstreamAgain() throws SocketTimeoutException, HttpStatusCodeUnknown {
+        for (int status : new int[]{401, 403}) {
+            //setup
+            restClientMock = Mockito.mock(IRestClient.class);
+            Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenThrow(new HttpStatusCodeUnknown(status, "Code status " + status + " is unhandled by this implementation of REST CLIENT"));
+            LocationClient locationClient = new LocationClient(restClientMock);
+            //exercise
+            Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> locationClient.getLocation(VALID_IATA));
+            Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> locationClient.getLocation(VALID_IATA));
+            //verify
+            Mockito.verify(restClientMock, Mockito.times(2)).request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA);
+        }
+    }
+
+    @Test
+    public void WhenGettingIATATwice_BackupServiceTimesOut_SecondLookupGoesUpstreamAgain() throws SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA)).thenReturn(UNEXCPECTEDRESPONSE);
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://airport-info.p.rapidapi.com"), ArgumentMatchers.eq("/airport"), Mockito.any(), Mockito.any())).thenThrow(new SocketTimeoutException("Read timed out"));
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Assertions.assertThrows(SocketTimeoutException.class, () -> locationClient.getLocation(VALID_IATA));
+        Assertions.assertThrows(SocketTimeoutException.class, () -> locationClient.getLocation(VALID_IATA));
+        //verify
+        Mockito.verify(restClientMock, Mockito.times(2)).request(HttpRequestMethods.GET, "https://www.iatageo.com", "/getLatLng/" + VALID_IATA);
+    }
+
+    private static HttpResponse batchAnswer(String jsonBody) {
+        //one successful answer per IP, at a longitude telling which IP it was for
+        StringBuilder answers = new StringBuilder("[");
+        for (String ip : jsonBody.substring(2, jsonBody.length() - 2).split("\",\"")) {
+            answers.append(answers.length() > 1 ? "," : "").append("{\"status\":\"success\",\"query\":\"").append(ip)
+                    .append("\",\"lat\":10.0,\"lon\":").append(ip.substring(ip.lastIndexOf('.') + 1)).append('}');
+        }
+        return new HttpResponse(200, answers.append(']').toString());
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_BatchServiceAnswers_ReturnsLocationFromBatchPost() throws Exception {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.POST), ArgumentMatchers.eq("http://ip-api.com"), ArgumentMatchers.eq("/batch"), Mockito.any(), Mockito.any(), ArgumentMatchers.eq("[\"203.0.113.7\"]")))
+                .thenReturn(new HttpResponse(200, "[{\"status\":\"success\",\"query\":\"203.0.113.7\",\"lat\":35.9,\"lon\":14.5}]"));
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Location location = locationClient.getLocationForIp("203.0.113.7");
+        //verify
+        Assertions.assertEquals(new Location(35.9, 14.5), location);
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_ConcurrentLookupsWhileBatchInFlight_SentTogetherInOneBatch() throws Exception {
+        //setup
+        CountDownLatch firstBatchSent = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.POST), ArgumentMatchers.eq("http://ip-api.com"), ArgumentMatchers.eq("/batch"), Mockito.any(), Mockito.any(), Mockito.anyString()))
+                .thenAnswer(invocation -> {
+                    String body = invocation.getArgument(5);
+                    bodies.add(body);
+                    if (bodies.size() == 1) {
+                        firstBatchSent.countDown();
+                        releaseFirstBatch.await();
+                    }
+                    return batchAnswer(body);
+                });
+        LocationClient locationClient = new LocationClient(restClientMock);
+        ExecutorService callers = Executors.newCachedThreadPool();
+        List<Future<Location>> locations = new ArrayList<>();
+        locations.add(callers.submit(() -> locationClient.getLocationForIp("198.51.100.1")));
+        firstBatchSent.await();
+        List<Thread> waiting = Collections.synchronizedList(new ArrayList<>());
+        for (int ip = 2; ip <= 6; ip++) {
+            String address = "198.51.100." + ip;
+            locations.add(callers.submit(() -> {
+                waiting.add(Thread.currentThread());
+                return locationClient.getLocationForIp(address);
+            }));
+        }
+        //exercise
+        while (waiting.size() < 5 || waiting.stream().anyMatch(thread -> thread.getState() != Thread.State.WAITING)) {
+            Thread.onSpinWait();
+        }
+        releaseFirstBatch.countDown();
+        //verify
+        for (int ip = 1; ip <= 6; ip++) {
+            Assertions.assertEquals(ip, locations.get(ip - 1).get(5, TimeUnit.SECONDS).getLongitude());
+        }
+        callers.shutdown();
+        Assertions.assertEquals(2, bodies.size());
+        Assertions.assertEquals(5, bodies.get(1).split(",").length);
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_BatchServiceHasNoLocation_FallsBackToSingleLookupOfIp() throws Exception {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.POST), ArgumentMatchers.eq("http://ip-api.com"), ArgumentMatchers.eq("/batch"), Mockito.any(), Mockito.any(), Mockito.anyString()))
+                .thenReturn(new HttpResponse(200, "[{\"status\":\"fail\",\"message\":\"reserved range\",\"query\":\"203.0.113.7\"}]"));
+        Mockito.when(restClientMock.request(HttpRequestMethods.GET, "https://ipapi.co", "/203.0.113.7/json")).thenReturn(GOODLOCAITONBACKUPCLIENTSERVIERESPONSE);
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        Location location = locationClient.getLocationForIp("203.0.113.7");
+        //verify
+        Assertions.assertEquals(new Location(694.29, 3.69), location);
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_InsideRequest_BatchSentOutsideTheSendersRequest() throws Exception {
+        //setup
+        List<Long> correlationIds = new ArrayList<>();
+        List<Long> remainingNanos = new ArrayList<>();
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.POST), ArgumentMatchers.eq("http://ip-api.com"), ArgumentMatchers.eq("/batch"), Mockito.any(), Mockito.any(), Mockito.anyString()))
+                .thenAnswer(invocation -> {
+                    correlationIds.add(RequestContext.correlationId());
+                    remainingNanos.add(RequestContext.remainingNanos());
+                    return batchAnswer(invocation.getArgument(5));
+                });
+        LocationClient locationClient = new LocationClient(restClientMock);
+        //exercise
+        RequestContext.beginIfAbsent(Duration.ofSeconds(1));
+        try {
+            locationClient.getLocationForIp("198.51.100.1");
+        } finally {
+            RequestContext.end();
+        }
+        //verify - no correlation id of its own, but the waiting lookup's deadline
+        Assertions.assertEquals(List.of(0L), correlationIds);
+        Assertions.assertTrue(remainingNanos.get(0) > 0 && remainingNanos.get(0) <= Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    public void WhenGettingLocationForIp_SendingBatchThrowsError_LaterLookupsStillSent() throws Exception {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.POST), ArgumentMatchers.eq("http://ip-api.com"), ArgumentMatchers.eq("/batch"), Mockito.any(), Mockito.any(), Mockito.anyString()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> batchAnswer(invocation.getArgument(5)));
+        LocationClient locationClient = new LocationClient(restClientMock);
+        Assertions.assertThrows(StackOverflowError.class, () -> locationClient.getLocationForIp("198.51.100.1"));
+        //exercise
+        Location location = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> locationClient.getLocationForIp("198.51.100.2"));
+        //verify
+        Assertions.assertEquals(2, location.getLongitude());
+    }
+}
@@ -0,0 +1,91 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.weatherwear.clients.LocationClient.NegativeIATACache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class NegativeIATACacheTest {
+    private static final Instant START = Instant.parse("2023-01-01T00:00:00Z");
+
+    private static Clock clockOf(AtomicReference<Instant> now) {
+        return new Clock() {
+            public ZoneId getZone() {
+                return ZoneId.of("UTC");
+            }
+
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            public Instant instant() {
+                return now.get();
+            }
+        };
+    }
+
+    @Test
+    public void isKnownUnknown_markedCode_onlyThatCodeIsKnownUnknown() {
+        //setup
+        NegativeIATACache cache = new NegativeIATACache(Duration.ofHours(1), Clock.fixed(START, ZoneId.of("UTC")));
+        //exercise
+        cache.markUnknown("XQZ");
+        cache.markUnknown("ZZZ");
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(cache.isKnownUnknown("XQZ")),
+                () -> Assertions.assertTrue(cache.isKnownUnknown("ZZZ")),
+                () -> Assertions.assertFalse(cache.isKnownUnknown("AAA")),
+                () -> Assertions.assertFalse(cache.isKnownUnknown("XQY")),
+                () -> Assertions.assertFalse(cache.isKnownUnknown("mla"))
+        );
+    }
+
+    @Test
+    public void isKnownUnknown_afterTtl_codeIsForgotten() {
+        //setup
+        AtomicReference<Instant> now = new AtomicReference<>(START);
+        NegativeIATACache cache = new NegativeIATACache(Duration.ofHours(1), clockOf(now));
+        cache.markUnknown("XQZ");
+        //exercise + verify
+        now.set(START.plus(Duration.ofMinutes(59)));
+        Assertions.assertTrue(cache.isKnownUnknown("XQZ"));
+        now.set(START.plus(Duration.ofHours(1)));
+        Assertions.assertFalse(cache.isKnownUnknown("XQZ"));
+    }
+
+    @Test
+    public void isKnownUnknown_markedAgainLater_keptForAnotherHalfTtlAtLeast() {
+        //setup
+        AtomicReference<Instant> now = new AtomicReference<>(START);
+        NegativeIATACache cache = new NegativeIATACache(Duration.ofHours(1), clockOf(now));
+        cache.markUnknown("XQZ");
+        //exercise
+        now.set(START.plus(Duration.ofMinutes(45)));
+        cache.markUnknown("XQZ");
+        now.set(START.plus(Duration.ofMinutes(89)));
+        //verify
+        Assertions.assertTrue(cache.isKnownUnknown("XQZ"));
+    }
+
+    @Test
+    public void reasonUnknown_markedWithReasons_returnsLatestReasonPerCode() {
+        //setup
+        NegativeIATACache cache = new NegativeIATACache(Duration.ofHours(1), Clock.fixed(START, ZoneId.of("UTC")));
+        //exercise
+        cache.markUnknown("XQZ", NegativeIATACache.Reason.NOT_FOUND);
+        cache.markUnknown("XQY");
+        cache.markUnknown("XQY", NegativeIATACache.Reason.BAD_REQUEST);
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(NegativeIATACache.Reason.NOT_FOUND, cache.reasonUnknown("XQZ")),
+                () -> Assertions.assertEquals(NegativeIATACache.Reason.BAD_REQUEST, cache.reasonUnknown("XQY")),
+                () -> Assertions.assertNull(cache.reasonUnknown("XQX"))
+        );
+    }
+}
@@ -0,0 +1,198 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clients.GenericRestClient.*;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PriorityRestClientTest {
+    private static final String HOST = "https://api.open-meteo.com/v1";
+    private static final HttpResponse GOOD_RESPONSE = new HttpResponse(200, "{}");
+    private IRestClient restClientMock;
+    //path of every call that reached the upstream, in arrival order
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final CountDownLatch releaseBlocked = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        restClientMock = Mockito.mock(IRestClient.class);
+        Mockito.when(restClientMock.request(Mockito.any(), Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            String path = invocation.getArgument(2);
+            calls.add(path);
+            if (path.startsWith("/blocked")) {
+                releaseBlocked.await();
+            } else if (path.startsWith("/slow")) {
+                Thread.sleep(50);
+            } else if (path.startsWith("/timeout")) {
+                throw new SocketTimeoutException("Read timed out");
+            } else if (path.startsWith("/missing")) {
+                throw new HttpStatusCodeUnknown(404, "Code status 404 is unhandled by this implementation of REST CLIENT");
+            } else if (path.startsWith("/unavailable")) {
+                throw new HttpStatusCodeUnknown(503, "Code status 503 is unhandled by this implementation of REST CLIENT");
+            } else if (path.startsWith("/deadline")) {
+                throw new DeadlineExceededException("Request deadline exceeded");
+            }
+            return GOOD_RESPONSE;
+        });
+    }
+
+    @AfterEach
+    public void teardownAfterEach() {
+        releaseBlocked.countDown();
+    }
+
+    private CompletableFuture<Void> requestAsync(PriorityRestClient restClient, Priority priority, String path) {
+        return CompletableFuture.runAsync(RequestContext.withPriority(priority, () -> {
+            try {
+                restClient.request(HttpRequestMethods.GET, HOST, path);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }));
+    }
+
+    private static PriorityScheduler.QueueWait queueWaitOf(PriorityRestClient restClient, Priority priority) {
+        return restClient.getQueueWaits().stream().filter(wait -> wait.queueWait().priority() == priority).findFirst().orElseThrow().queueWait();
+    }
+
+    @Test
+    public void request_slotTaken_interactiveJumpsQueuedBackground() throws Exception {
+        //setup - a single slot held by a background call, with another background call queued first
+        PriorityRestClient restClient = new PriorityRestClient(restClientMock, Map.of(), 1, Duration.ofSeconds(1));
+        requestAsync(restClient, Priority.BACKGROUND, "/blocked");
+        Thread.sleep(100);
+        CompletableFuture<Void> background = requestAsync(restClient, Priority.BACKGROUND, "/background");
+        Thread.sleep(100);
+        CompletableFuture<Void> interactive = requestAsync(restClient, Priority.INTERACTIVE, "/interactive");
+        Thread.sleep(100);
+        //exercise
+        releaseBlocked.countDown();
+        CompletableFuture.allOf(background, interactive).get(5, TimeUnit.SECONDS);
+        //verify
+        Assertions.assertEquals(List.of("/blocked", "/interactive", "/background"), calls);
+        PriorityScheduler.QueueWait interactiveWait = queueWaitOf(restClient, Priority.INTERACTIVE);
+        Assertions.assertEquals(1, interactiveWait.calls());
+        Assertions.assertTrue(interactiveWait.maxWaitMillis() >= 50);
+        Assertions.assertTrue(queueWaitOf(restClient, Priority.BACKGROUND).maxWaitMillis() > interactiveWait.maxWaitMillis());
+    }
+
+    @Test
+    public void request_interactiveLatencyAboveTarget_throttlesBackgroundToOneCall() throws Exception {
+        //setup - interactive calls take 50 ms against a 10 ms target
+        PriorityRestClient restClient = new PriorityRestClient(restClientMock, Map.of(), 4, Duration.ofMillis(10));
+        for (int call = 0; call < 3; call++) {
+            requestAsync(restClient, Priority.INTERACTIVE, "/slow").get(5, TimeUnit.SECONDS);
+        }
+        Assertions.assertTrue(restClient.isThrottlingBackground("api.open-meteo.com"));
+        //exercise
+        requestAsync(restClient, Priority.BACKGROUND, "/blocked");
+        CompletableFuture<Void> heldBack = requestAsync(restClient, Priority.BACKGROUND, "/background");
+        requestAsync(restClient, Priority.INTERACTIVE, "/interactive").get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        //verify - a free slot remains but the second background call waits for the first
+        Assertions.assertFalse(calls.contains("/background"));
+        releaseBlocked.countDown();
+        heldBack.get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(calls.contains("/background"));
+    }
+
+    @Test
+    public void run_noInteractiveCallsForSomeHalfLives_stopsThrottlingBackground() throws Exception {
+        //setup - three 50 ms interactive calls against a 10 ms target, forgotten with a 50 ms half-life
+        PriorityScheduler scheduler = new PriorityScheduler("api.open-meteo.com", AdaptiveConcurrencyLimit.fixed(4), Duration.ofMillis(10), Duration.ofMillis(50));
+        RequestContext.withPriority(Priority.INTERACTIVE, () -> {
+            try {
+                for (int call = 0; call < 3; call++) {
+                    scheduler.run(() -> restClientMock.request(HttpRequestMethods.GET, HOST, "/slow", null, null));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).run();
+        Assertions.assertTrue(scheduler.isThrottled());
+        //exercise
+        Thread.sleep(500);
+        //verify
+        Assertions.assertFalse(scheduler.isThrottled());
+    }
+
+    @Test
+    public void request_freeSlots_doesNotWait() throws Exception {
+        //setup
+        PriorityRestClient restClient = new PriorityRestClient(restClientMock, Map.of(), 2, Duration.ofSeconds(1));
+        //exercise
+        requestAsync(restClient, Priority.BATCH, "/batch").get(5, TimeUnit.SECONDS);
+        //verify
+        PriorityScheduler.QueueWait batchWait = queueWaitOf(restClient, Priority.BATCH);
+        Assertions.assertEquals(1, batchWait.calls());
+        Assertions.assertEquals(0, queueWaitOf(restClient, Priority.INTERACTIVE).calls());
+        Assertions.assertFalse(restClient.isThrottlingBackground("api.open-meteo.com"));
+    }
+
+    @Test
+    public void request_adaptiveHostTimesOut_limitBacksOff() throws Exception {
+        //setup - a maximum of 40 starts the host at 10 slots
+        PriorityRestClient restClient = PriorityRestClient.adaptive(restClientMock, Map.of("api.open-meteo.com", 40), 8, Duration.ofSeconds(1));
+        requestAsync(restClient, Priority.INTERACTIVE, "/interactive").get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(Map.of("api.open-meteo.com", 10), restClient.getLimits());
+        //exercise
+        for (int call = 0; call < 3; call++) {
+            CompletableFuture<Void> timedOut = requestAsync(restClient, Priority.INTERACTIVE, "/timeout");
+            Assertions.assertThrows(Exception.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+        }
+        //verify
+        Assertions.assertEquals(Map.of("api.open-meteo.com", 7), restClient.getLimits());
+    }
+
+    @Test
+    public void request_adaptiveHostUnavailable_limitBacksOff() throws Exception {
+        //setup
+        PriorityRestClient restClient = PriorityRestClient.adaptive(restClientMock, Map.of("api.open-meteo.com", 40), 8, Duration.ofSeconds(1));
+        //exercise
+        for (int call = 0; call < 3; call++) {
+            CompletableFuture<Void> unavailable = requestAsync(restClient, Priority.INTERACTIVE, "/unavailable");
+            Assertions.assertThrows(Exception.class, () -> unavailable.get(5, TimeUnit.SECONDS));
+        }
+        //verify
+        Assertions.assertEquals(Map.of("api.open-meteo.com", 7), restClient.getLimits());
+        Assertions.assertEquals(7, restClient.getQueueWaits().get(0).limit());
+    }
+
+    @Test
+    public void request_adaptiveHostNotFoundOrDeadlinePassed_limitStays() throws Exception {
+        //setup
+        PriorityRestClient restClient = PriorityRestClient.adaptive(restClientMock, Map.of("api.open-meteo.com", 40), 8, Duration.ofSeconds(1));
+        //exercise
+        for (String path : List.of("/missing", "/deadline", "/missing", "/deadline")) {
+            CompletableFuture<Void> failed = requestAsync(restClient, Priority.INTERACTIVE, path);
+            Assertions.assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+        }
+        //verify
+        Assertions.assertEquals(Map.of("api.open-meteo.com", 10), restClient.getLimits());
+    }
+
+    @Test
+    public void request_fixedHostTimesOut_limitStays() throws Exception {
+        //setup
+        PriorityRestClient restClient = new PriorityRestClient(restClientMock, Map.of(), 4, Duration.ofSeconds(1));
+        //exercise
+        CompletableFuture<Void> timedOut = requestAsync(restClient, Priority.INTERACTIVE, "/timeout");
+        Assertions.assertThrows(Exception.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+        //verify
+        Assertions.assertEquals(Map.of("api.open-meteo.com", 4), restClient.getLimits());
+    }
+}
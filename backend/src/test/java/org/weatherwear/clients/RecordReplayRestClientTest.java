@@ -0,0 +1,114 @@
+package org.weatherwear.clients;
+
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.weatherwear.clients.GenericRestClient.*;
+import org.weatherwear.clients.LocationClient.LocationClient;
+import org.weatherwear.clients.WeatherClient.WeatherClient;
+import org.weatherwear.weatherdecider.WeatherDecider;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class RecordReplayRestClientTest {
+    private static final String LOCATION_RESPONSE = "{\"latitude\":35.857498,\"longitude\":14.4775}";
+    private static final String FORECAST_RESPONSE = "{\"daily\":{\"temperature_2m_max\":[11.1,21.3],\"precipitation_sum\":[88,0]}}";
+
+    @TempDir
+    Path directory;
+    private IRestClient restClientMock;
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        restClientMock = Mockito.mock(IRestClient.class);
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(LocationClient.IATA_GEO), ArgumentMatchers.eq("/getLatLng/MLA"), ArgumentMatchers.<MultivaluedMap<String, Object>>any(), ArgumentMatchers.<MultivaluedMap<String, Object>>any()))
+                .thenReturn(new HttpResponse(200, LOCATION_RESPONSE));
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq(WeatherClient.OPEN_METEO), ArgumentMatchers.eq("/forecast"), ArgumentMatchers.<MultivaluedMap<String, Object>>any(), ArgumentMatchers.<MultivaluedMap<String, Object>>any()))
+                .thenReturn(new HttpResponse(200, FORECAST_RESPONSE));
+    }
+
+    private static WeatherDecider weatherDecider(IRestClient restClient) {
+        return new WeatherDecider(new LocationClient(restClient), new WeatherClient(restClient));
+    }
+
+    @Test
+    public void replay_recordedDecisions_decidesTheSameWithoutTheRecordedClient() throws Exception {
+        //setup
+        Path file = directory.resolve("upstream.rec");
+        WeatherPossibility recordedDay0;
+        WeatherPossibility recordedDay1;
+        try (RecordingRestClient recording = new RecordingRestClient(restClientMock, file)) {
+            recordedDay0 = weatherDecider(recording).decideWeather("MLA", 0);
+            recordedDay1 = weatherDecider(recording).decideWeather("MLA", 1);
+        }
+        //exercise
+        ReplayRestClient replay = new ReplayRestClient(file, ReplayRestClient.Latency.NONE);
+        WeatherDecider replayed = weatherDecider(replay);
+        //verify
+        Assertions.assertEquals(recordedDay0, replayed.decideWeather("MLA", 0));
+        Assertions.assertEquals(recordedDay1, replayed.decideWeather("MLA", 1));
+        Assertions.assertEquals(2, replay.size());
+    }
+
+    @Test
+    public void replay_recordedFailures_throwsTheSameKindsOfFailure() throws Exception {
+        //setup
+        Path file = directory.resolve("upstream.rec");
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://example.com"), ArgumentMatchers.eq("/missing"), ArgumentMatchers.<MultivaluedMap<String, Object>>any(), ArgumentMatchers.<MultivaluedMap<String, Object>>any()))
+                .thenThrow(new HttpStatusCodeUnknown("Code status 404 is unhandled by this implementation of REST CLIENT"));
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://example.com"), ArgumentMatchers.eq("/slow"), ArgumentMatchers.<MultivaluedMap<String, Object>>any(), ArgumentMatchers.<MultivaluedMap<String, Object>>any()))
+                .thenThrow(new SocketTimeoutException("Read timed out"));
+        try (RecordingRestClient recording = new RecordingRestClient(restClientMock, file)) {
+            Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> recording.request(HttpRequestMethods.GET, "https://example.com", "/missing"));
+            Assertions.assertThrows(SocketTimeoutException.class, () -> recording.request(HttpRequestMethods.GET, "https://example.com", "/slow"));
+        }
+        //exercise
+        ReplayRestClient replay = new ReplayRestClient(file, ReplayRestClient.Latency.NONE);
+        //verify
+        HttpStatusCodeUnknown badStatus = Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> replay.request(HttpRequestMethods.GET, "https://example.com", "/missing"));
+        Assertions.assertEquals("Code status 404 is unhandled by this implementation of REST CLIENT", badStatus.getMessage());
+        Assertions.assertThrows(SocketTimeoutException.class, () -> replay.request(HttpRequestMethods.GET, "https://example.com", "/slow"));
+        Assertions.assertThrows(IllegalStateException.class, () -> replay.request(HttpRequestMethods.GET, "https://example.com", "/never-recorded"));
+    }
+
+    @Test
+    public void replay_fixedLatency_holdsBackEachAnswer() throws Exception {
+        //setup
+        Path file = directory.resolve("upstream.rec");
+        try (RecordingRestClient recording = new RecordingRestClient(restClientMock, file)) {
+            new LocationClient(recording).getLocation("MLA");
+        }
+        ReplayRestClient replay = new ReplayRestClient(file, ReplayRestClient.Latency.fixed(Duration.ofMillis(50)));
+        //exercise
+        long start = System.nanoTime();
+        new LocationClient(replay).getLocation("MLA");
+        //verify
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    public void replay_interruptedWhileHeldBack_answersEarlyAndKeepsTheInterrupt() throws Exception {
+        //setup
+        Path file = directory.resolve("upstream.rec");
+        try (RecordingRestClient recording = new RecordingRestClient(restClientMock, file)) {
+            new LocationClient(recording).getLocation("MLA");
+        }
+        ReplayRestClient replay = new ReplayRestClient(file, ReplayRestClient.Latency.fixed(Duration.ofMinutes(1)));
+        //exercise
+        Thread.currentThread().interrupt();
+        try {
+            Assertions.assertTimeout(Duration.ofSeconds(5), () -> new LocationClient(replay).getLocation("MLA"));
+            //verify
+            Assertions.assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.weatherwear.clients;
+
+import org.weatherwear.clients.GenericRestClient.ReplayRestClient;
+import org.weatherwear.clients.LocationClient.LocationClient;
+import org.weatherwear.clients.WeatherClient.WeatherClient;
+import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.weatherdecider.WeatherDecider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Replays a recording made with RECORD_UPSTREAM through the uncached WeatherDecider and RecommendClothing,
+ * so that changes can be compared on the same upstream responses and latencies, offline.
+ * Arguments: recording file, latency (none, recorded or a number of milliseconds) and the recorded airports to ask for.
+ */
+public class ReplayBenchmark {
+    private static final int ROUNDS = 200;
+
+    private static ReplayRestClient.Latency latency(String argument) {
+        return switch (argument) {
+            case "none" -> ReplayRestClient.Latency.NONE;
+            case "recorded" -> ReplayRestClient.Latency.RECORDED;
+            default -> ReplayRestClient.Latency.fixed(Duration.ofMillis(Long.parseLong(argument)));
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: ReplayBenchmark <recording> <none|recorded|millis> <IATA>...");
+            return;
+        }
+        ReplayRestClient replay = new ReplayRestClient(Path.of(args[0]), latency(args[1]));
+        RecommendClothing recommendClothing = new RecommendClothing(new WeatherDecider(new LocationClient(replay), new WeatherClient(replay)));
+        String[] airports = Arrays.copyOfRange(args, 2, args.length);
+        LocalDate today = LocalDate.now();
+        //warm up the JIT on the same workload
+        for (int round = 0; round < ROUNDS / 10; round++) {
+            recommendClothing.recommendClothing(airports[round % airports.length], today);
+        }
+        long[] nanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            recommendClothing.recommendClothing(airports[round % airports.length], today.plusDays(round % (WeatherClient.FORECAST_DAYS - 1)));
+            nanos[round] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%d recommendations over %d recorded requests: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", ROUNDS, replay.size(),
+                nanos[ROUNDS / 2] / 1e6, nanos[ROUNDS * 99 / 100] / 1e6, nanos[ROUNDS - 1] / 1e6);
+    }
+}
@@ -12,8 +12,11 @@ import org.weatherwear.clients.GenericRestClient.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.RequestContext;
 
 import java.net.SocketTimeoutException;
+import java.time.Duration;
 
 public class RestClientTest {
     private final String validJsonResponse = "{\"hello\": \"This is a JSON response\"}";
@@ -142,6 +145,18 @@ public class RestClientTest {
         Assertions.assertEquals(unkownStatusCodeExceptionMessage(unrecognisedStatusCode), exception.getMessage());
     }
 
+    @Test
+    void testRestClient_statusCode503_closesTheUnreadResponse() {
+        //setup
+        Mockito.when(responseMock.getStatus()).thenReturn(503);
+        RestClient restClient = new RestClient(clientMock);
+        //exercise
+        Assertions.assertThrows(HttpStatusCodeUnknown.class, () -> restClient.request(HttpRequestMethods.GET, "example.com", "/json"));
+        //verify
+        Mockito.verify(responseMock, Mockito.never()).readEntity(String.class);
+        Mockito.verify(responseMock).close();
+    }
+
     @Test
     void testRestClient_requestIsMade_verifyInteractionsWithClientService() throws SocketTimeoutException, HttpStatusCodeUnknown {
         // setup
@@ -187,4 +202,19 @@ public class RestClientTest {
         );
     }
 
+
+    @Test
+    void testRestClient_deadlineAlreadyPassed_failsWithoutCallingUpstream() throws Exception {
+        //setup
+        RestClient restClient = new RestClient(clientMock);
+        RequestContext.beginIfAbsent(Duration.ZERO);
+        try {
+            //exercise
+            Assertions.assertThrows(DeadlineExceededException.class, () -> restClient.request(HttpRequestMethods.GET, "example.com", "/json"));
+        } finally {
+            RequestContext.end();
+        }
+        //verify
+        Mockito.verify(builderMock, Mockito.never()).get();
+    }
 }
@@ -0,0 +1,173 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.clients.WeatherClient.RoutingWeatherClient;
+import org.weatherwear.telemetry.DeadlineExceededException;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.net.SocketTimeoutException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RoutingWeatherClientTest {
+    private static final Location DUMMY_LOCATION = new Location(35.857498, 14.4775);
+    private static final Weather FAST_WEATHER = new Weather(20, 0);
+    private static final Weather SLOW_WEATHER = new Weather(21, 0);
+    private IWeatherClient fastProviderMock;
+    private IWeatherClient slowProviderMock;
+    private ExecutorService raceExecutor;
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        fastProviderMock = Mockito.mock(IWeatherClient.class);
+        slowProviderMock = Mockito.mock(IWeatherClient.class);
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenReturn(FAST_WEATHER);
+        Mockito.when(slowProviderMock.getWeather(DUMMY_LOCATION)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return SLOW_WEATHER;
+        });
+        raceExecutor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void teardownAfterEach() {
+        raceExecutor.shutdownNow();
+    }
+
+    @Test
+    public void getWeather_afterEveryProviderWasTried_routesToFasterProvider() throws Exception {
+        //setup
+        RoutingWeatherClient routingWeatherClient = new RoutingWeatherClient(List.of(slowProviderMock, fastProviderMock));
+        routingWeatherClient.getWeather(DUMMY_LOCATION);
+        routingWeatherClient.getWeather(DUMMY_LOCATION);
+        //exercise
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(FAST_WEATHER, routingWeatherClient.getWeather(DUMMY_LOCATION));
+        }
+        //verify
+        Mockito.verify(slowProviderMock, Mockito.times(1)).getWeather(DUMMY_LOCATION);
+    }
+
+    @Test
+    public void getWeather_bestProviderFails_fallsBackToNextProvider() throws Exception {
+        //setup
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(SocketTimeoutException.class);
+        RoutingWeatherClient routingWeatherClient = new RoutingWeatherClient(List.of(fastProviderMock, slowProviderMock));
+        //exercise
+        Weather weather = routingWeatherClient.getWeather(DUMMY_LOCATION);
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(SLOW_WEATHER, weather),
+                () -> Assertions.assertEquals(1.0 * 0.2, routingWeatherClient.getScores().get(0).errorRate(), 1e-9)
+        );
+    }
+
+    @Test
+    public void getWeather_bestProviderFailsOnRequestDeadline_isNotDemoted() throws Exception {
+        //setup
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(new DeadlineExceededException("Deadline exceeded calling https://api.open-meteo.com"));
+        RoutingWeatherClient routingWeatherClient = new RoutingWeatherClient(List.of(fastProviderMock, slowProviderMock));
+        //exercise
+        routingWeatherClient.getWeather(DUMMY_LOCATION);
+        //verify
+        Assertions.assertEquals(0, routingWeatherClient.getScores().get(0).errorRate());
+    }
+
+    @Test
+    public void getWeather_everyProviderFails_throwsFirstFailure() throws Exception {
+        //setup
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(SocketTimeoutException.class);
+        Mockito.when(slowProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(IllegalStateException.class);
+        RoutingWeatherClient routingWeatherClient = new RoutingWeatherClient(List.of(fastProviderMock, slowProviderMock));
+        //exercise + verify
+        Assertions.assertThrows(SocketTimeoutException.class, () -> routingWeatherClient.getWeather(DUMMY_LOCATION));
+    }
+
+    @Test
+    public void getWeather_racingTopTwo_returnsFirstAnswer() throws Exception {
+        //setup
+        RoutingWeatherClient routingWeatherClient = RoutingWeatherClient.racing(List.of(slowProviderMock, fastProviderMock), raceExecutor);
+        //exercise
+        Weather weather = interactive(() -> routingWeatherClient.getWeather(DUMMY_LOCATION));
+        //verify
+        Assertions.assertEquals(FAST_WEATHER, weather);
+        Mockito.verify(slowProviderMock, Mockito.timeout(1000)).getWeather(DUMMY_LOCATION);
+    }
+
+    @Test
+    public void getWeather_racingAndFasterProviderFails_returnsSlowerAnswer() throws Exception {
+        //setup
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(SocketTimeoutException.class);
+        RoutingWeatherClient routingWeatherClient = RoutingWeatherClient.racing(List.of(slowProviderMock, fastProviderMock), raceExecutor);
+        //exercise + verify
+        Assertions.assertEquals(SLOW_WEATHER, interactive(() -> routingWeatherClient.getWeather(DUMMY_LOCATION)));
+    }
+
+    @Test
+    public void getWeather_racingBackgroundCall_asksBestProviderOnly() throws Exception {
+        //setup
+        RoutingWeatherClient routingWeatherClient = RoutingWeatherClient.racing(List.of(slowProviderMock, fastProviderMock), raceExecutor);
+        //exercise
+        Weather weather = routingWeatherClient.getWeather(DUMMY_LOCATION);
+        //verify
+        Assertions.assertEquals(SLOW_WEATHER, weather);
+        Thread.sleep(100);
+        Mockito.verifyNoInteractions(fastProviderMock);
+    }
+
+    @Test
+    public void getWeather_demotedProviderLeftAlone_isTriedAgain() throws Exception {
+        //setup - the fast provider fails once and is demoted below the slow one
+        MutableClock clock = new MutableClock();
+        Mockito.when(fastProviderMock.getWeather(DUMMY_LOCATION)).thenThrow(SocketTimeoutException.class).thenReturn(FAST_WEATHER);
+        RoutingWeatherClient routingWeatherClient = new RoutingWeatherClient(List.of(fastProviderMock, slowProviderMock), clock);
+        routingWeatherClient.getWeather(DUMMY_LOCATION);
+        Assertions.assertEquals(SLOW_WEATHER, routingWeatherClient.getWeather(DUMMY_LOCATION));
+        //exercise - calls keep going to the slow provider while the fast one's penalty decays
+        Weather weather = null;
+        for (int i = 0; i < 20; i++) {
+            clock.now = clock.now.plusMillis(RoutingWeatherClient.SCORE_HALF_LIFE_MILLIS);
+            weather = routingWeatherClient.getWeather(DUMMY_LOCATION);
+        }
+        //verify
+        Assertions.assertEquals(FAST_WEATHER, weather);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2023-01-01T00:00:00.00Z");
+
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    //runs the call as part of a request, which makes it interactive
+    private static <T> T interactive(Callable<T> call) throws Exception {
+        RequestContext.beginIfAbsent();
+        try {
+            return call.call();
+        } finally {
+            RequestContext.end();
+        }
+    }
+}
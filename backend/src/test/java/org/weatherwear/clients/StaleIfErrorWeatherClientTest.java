@@ -0,0 +1,94 @@
+package org.weatherwear.clients;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.weatherwear.cache.LastKnownGoodStore;
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.LocationClient.StaleIfErrorLocationClient;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.clients.WeatherClient.StaleIfErrorWeatherClient;
+import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.weatherdecider.WeatherDecider;
+
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+public class StaleIfErrorWeatherClientTest {
+    private static final Location MALTA = new Location(35.857498, 14.4775);
+    //day 0 cold and raining, day 1 warm and dry
+    private static final Forecast FORECAST = new Forecast(new double[]{10, 20}, new double[]{5, 0});
+    private final Clock clock = Clock.fixed(Instant.parse("2023-01-01T10:00:00.00Z"), ZoneId.of("UTC"));
+    private IWeatherClient weatherClientMock;
+    private ILocationClient locationClientMock;
+    private LastKnownGoodStore store;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        weatherClientMock = Mockito.mock(IWeatherClient.class);
+        locationClientMock = Mockito.mock(ILocationClient.class);
+        store = new LastKnownGoodStore(null, Duration.ofDays(1), clock);
+    }
+
+    @Test
+    public void getForecast_upstreamFailsWithoutKnownGood_throwsUpstreamError() throws Exception {
+        //setup
+        Mockito.when(weatherClientMock.getForecast(MALTA)).thenThrow(new SocketTimeoutException("Read timed out"));
+        StaleIfErrorWeatherClient weatherClient = new StaleIfErrorWeatherClient(weatherClientMock, store);
+        //exercise + verify
+        Assertions.assertThrows(SocketTimeoutException.class, () -> weatherClient.getForecast(MALTA));
+    }
+
+    @Test
+    public void getWeather_upstreamFailsAfterEarlierSuccess_servesLastKnownGood() throws Exception {
+        //setup
+        Mockito.when(weatherClientMock.getForecast(MALTA)).thenReturn(FORECAST).thenThrow(new SocketTimeoutException("Read timed out"));
+        StaleIfErrorWeatherClient weatherClient = new StaleIfErrorWeatherClient(weatherClientMock, store);
+        weatherClient.getForecast(MALTA);
+        //exercise + verify
+        Assertions.assertEquals(FORECAST.getDay(1), weatherClient.getWeather(MALTA, 1));
+    }
+
+    @Test
+    public void getWeather_lastDayAfterMidnight_throwsUpstreamError() throws Exception {
+        //setup - an 11 day series fetched yesterday covers today up to day 9
+        Clock yesterday = Clock.offset(clock, Duration.ofDays(-1));
+        LastKnownGoodStore storeYesterday = new LastKnownGoodStore(directory.resolve("lkg.bin"), Duration.ofDays(2), yesterday);
+        storeYesterday.putForecast(MALTA, new Forecast(new double[11], new double[11]));
+        storeYesterday.flush();
+        LastKnownGoodStore storeToday = new LastKnownGoodStore(directory.resolve("lkg.bin"), Duration.ofDays(2), clock);
+        Mockito.when(weatherClientMock.getForecast(MALTA)).thenThrow(new SocketTimeoutException("Read timed out"));
+        StaleIfErrorWeatherClient weatherClient = new StaleIfErrorWeatherClient(weatherClientMock, storeToday);
+        //exercise + verify
+        Assertions.assertNotNull(weatherClient.getWeather(MALTA, 9));
+        Assertions.assertThrows(SocketTimeoutException.class, () -> weatherClient.getWeather(MALTA, 10));
+    }
+
+    @Test
+    public void recommendClothing_upstreamDown_answersMarkedStale() throws Exception {
+        //setup
+        store.putAirport("MLA", MALTA);
+        store.putForecast(MALTA, FORECAST);
+        Mockito.when(locationClientMock.getLocation("MLA")).thenThrow(new SocketTimeoutException("Read timed out"));
+        Mockito.when(weatherClientMock.getForecast(MALTA)).thenThrow(new SocketTimeoutException("Read timed out"));
+        WeatherDecider weatherDecider = new WeatherDecider(new StaleIfErrorLocationClient(locationClientMock, store), new StaleIfErrorWeatherClient(weatherClientMock, store));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider, clock);
+        //exercise
+        String message = recommendClothing.recommendClothing("MLA", "2023-01-02");
+        //verify
+        Assertions.assertEquals("It is warm so you should wear light clothing.\nIt is not raining so you don't need an umbrella.\n"
+                + "The weather service is unavailable, this is based on a forecast from 0 minutes ago.", message);
+        Assertions.assertTrue(recommendClothing.decideWeather("MLA", "2023-01-02").isStale());
+    }
+}
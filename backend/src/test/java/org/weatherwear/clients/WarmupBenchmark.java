@@ -0,0 +1,85 @@
+package org.weatherwear.clients;
+
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.weatherwear.clients.GenericRestClient.ConnectionWarmup;
+import org.weatherwear.clients.GenericRestClient.RestClient;
+import org.weatherwear.clients.LocationClient.LocationClient;
+import org.weatherwear.clients.WeatherClient.WeatherClient;
+import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.weatherdecider.WeatherDecider;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first recommendation against the real upstreams, with and without warmup.
+ * Every run is a fresh JVM so that no DNS result, connection or TLS session survives from the previous one;
+ * the warm runs give the warmup the time a user would spend at the menu before asking.
+ * Needs network access and an X-RapidAPI-Key in .env.
+ */
+public class WarmupBenchmark {
+    private static final int RUNS = 5;
+    private static final Duration THINK_TIME = Duration.ofSeconds(2);
+
+    private static void firstRecommendation(boolean warm) throws Exception {
+        Client client = ClientBuilder.newBuilder()
+                .connectTimeout(3, TimeUnit.SECONDS)
+                .readTimeout(3, TimeUnit.SECONDS)
+                .build();
+        RestClient restClient = new RestClient(client);
+        if (warm) {
+            ConnectionWarmup.keepIdleConnectionsFor(Duration.ofMinutes(1));
+            List<String> targets = new ArrayList<>(LocationClient.TARGETS);
+            targets.add(WeatherClient.OPEN_METEO);
+            new ConnectionWarmup(restClient, Executors.newCachedThreadPool()).warm(targets);
+        }
+        RecommendClothing recommendClothing = new RecommendClothing(new WeatherDecider(new LocationClient(restClient), new WeatherClient(restClient)));
+        Thread.sleep(THINK_TIME.toMillis());
+        long start = System.nanoTime();
+        recommendClothing.recommendClothing("MLA", LocalDate.now().plusDays(1));
+        System.out.println(System.nanoTime() - start);
+        System.exit(0);
+    }
+
+    private static long childRun(boolean warm) throws Exception {
+        Process process = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), WarmupBenchmark.class.getName(), warm ? "warm" : "cold")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line = output.readLine();
+            process.waitFor();
+            if (process.exitValue() != 0 || line == null) {
+                throw new IllegalStateException("benchmark run failed with exit code " + process.exitValue());
+            }
+            return Long.parseLong(line.trim());
+        }
+    }
+
+    private static void report(boolean warm) throws Exception {
+        long[] nanos = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            nanos[run] = childRun(warm);
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-14s median %6.1f ms, min %6.1f ms, max %6.1f ms%n", warm ? "with warmup" : "without warmup",
+                nanos[RUNS / 2] / 1e6, nanos[0] / 1e6, nanos[RUNS - 1] / 1e6);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            firstRecommendation(args[0].equals("warm"));
+            return;
+        }
+        report(false);
+        report(true);
+    }
+}
@@ -8,6 +8,7 @@ import org.weatherwear.clients.GenericRestClient.HttpRequestMethods;
 import org.weatherwear.clients.GenericRestClient.HttpResponse;
 import org.weatherwear.clients.GenericRestClient.HttpStatusCodeUnknown;
 import org.weatherwear.clients.GenericRestClient.IRestClient;
+import org.weatherwear.clients.Models.Forecast;
 import org.weatherwear.clients.Models.Location;
 import org.weatherwear.clients.Models.Weather;
 import org.weatherwear.clients.WeatherClient.WeatherClient;
@@ -22,7 +23,7 @@ public class WeatherClientTest {
 
     private final HttpResponse GOODFUTUREWEATHERSERVICERESPONSE = new HttpResponse(200, "{\"latitude\":22.52,\"longitude\":60.69999,\"generationtime_ms\":0.04494190216064453,\"utc_offset_seconds\":3600,\"timezone\":\"Europe/Berlin\",\"timezone_abbreviation\":\"CET\",\"elevation\":38.0,\"daily_units\":{\"time\":\"iso8601\",\"temperature_2m_max\":\"°C\",\"precipitation_sum\":\"%\"},\"daily\":{\"time\":[\"2023-11-03\"],\"temperature_2m_max\":[11.1,3.6],\"precipitation_sum\":[88,12.1]}}");
     private IRestClient restClientMock;
-    private final Location DUMMYLOCATION = new Location("1.69", "4.20");
+    private final Location DUMMYLOCATION = new Location(1.69, 4.20);
 
     @BeforeEach
     public void setupBeforeEachTest() {
@@ -60,4 +61,27 @@ public class WeatherClientTest {
                 () -> Assertions.assertEquals(3.6, weatherUnderTest.getTempInCelsius())
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getWeather_Location_SendsCanonicalCoordinatesAsQueryParameters() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://api.open-meteo.com/v1"), ArgumentMatchers.eq("/forecast"), Mockito.any(), Mockito.any())).thenReturn(GOODWEATHERSERVICERESPONSE);
+        WeatherClient weatherClient = new WeatherClient(restClientMock);
+        //exercise
+        weatherClient.getWeather(DUMMYLOCATION);
+        //verify
+        Mockito.verify(restClientMock).request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://api.open-meteo.com/v1"), ArgumentMatchers.eq("/forecast"), Mockito.any(),
+                ArgumentMatchers.argThat(queryParams -> "1.69".equals(queryParams.getFirst("latitude")) && "4.2".equals(queryParams.getFirst("longitude"))));
+    }
+
+    @Test
+    public void getForecast_ValidResponse_returnsEveryDayOfTheSeries() throws JsonProcessingException, SocketTimeoutException, HttpStatusCodeUnknown {
+        //setup
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://api.open-meteo.com/v1"), ArgumentMatchers.eq("/forecast"), Mockito.any(), Mockito.any())).thenReturn(GOODFUTUREWEATHERSERVICERESPONSE);
+        WeatherClient weatherClient = new WeatherClient(restClientMock);
+        //exercise
+        Forecast forecast = weatherClient.getForecast(DUMMYLOCATION);
+        //verify
+        Assertions.assertEquals(new Forecast(new double[]{11.1, 3.6}, new double[]{88, 12.1}), forecast);
+    }
+}
@@ -1,13 +1,16 @@
 package org.weatherwear.clothesrecommender;
 
 import org.junit.jupiter.api.*;
+import org.weatherwear.telemetry.RequestContext;
 import org.weatherwear.weatherdecider.WeatherDecider;
 import org.weatherwear.weatherdecider.WeatherPossibility;
 import org.mockito.Mockito;
 
 import java.time.Clock;
 import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.SplittableRandom;
 
@@ -145,4 +148,42 @@ public class RecommendClothingForFutureWeatherTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    public void RecommendClothing_LocalDateTenDaysFromNow_AsksForDayTen() throws Exception {
+        //setup
+        Mockito.when(weatherDecider.decideWeather(validIATA, 10)).thenReturn(new WeatherPossibility(false, false));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider, clock);
+        //exercise
+        String message = recommendClothing.recommendClothing(validIATA, LocalDate.of(2023, 1, 11));
+        //verify
+        Assertions.assertEquals(expectedWarmAndNotRainingClothingRecommendation, message);
+    }
+
+    @Test
+    public void RecommendClothing_InvalidDateFormat_ExpectedDateTimeException() {
+        //setup
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider, clock);
+        //exercise
+        DateTimeException exception = Assertions.assertThrows(DateTimeException.class, () -> recommendClothing.recommendClothing(validIATA, "01-01-2023"));
+        //verify
+        Assertions.assertEquals("Expected argument date to be in format YYYY-MM-DD", exception.getMessage());
+    }
+
+    @Test
+    public void RecommendClothing_WithBudget_DeciderRunsWithinTheRequestDeadline() throws Exception {
+        //setup
+        Duration budget = Duration.ofSeconds(2);
+        long[] remainingNanos = new long[1];
+        Mockito.when(weatherDecider.decideWeather(validIATA, 1)).thenAnswer(invocation -> {
+            remainingNanos[0] = RequestContext.remainingNanos();
+            return new WeatherPossibility(false, false);
+        });
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDecider, clock, null, budget);
+        //exercise
+        recommendClothing.recommendClothing(validIATA, LocalDate.of(2023, 1, 2));
+        //verify
+        Assertions.assertTrue(remainingNanos[0] > 0 && remainingNanos[0] <= budget.toNanos());
+        Assertions.assertEquals(Long.MAX_VALUE, RequestContext.remainingNanos());
+    }
+}
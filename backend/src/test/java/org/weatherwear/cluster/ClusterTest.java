@@ -0,0 +1,228 @@
+package org.weatherwear.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clients.LocationClient.CachingLocationClient;
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.WeatherClient.CachingWeatherClient;
+import org.weatherwear.clients.WeatherClient.IWeatherClient;
+import org.weatherwear.telemetry.Priority;
+import org.weatherwear.telemetry.RequestContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class ClusterTest {
+    private static final int NODES = 3;
+    private static final Location MALTA = new Location(35.857498, 14.4775);
+    private static final Forecast FORECAST = new Forecast(new double[]{20, 10}, new double[]{0, 5});
+    private ILocationClient upstreamLocationClientMock;
+    private IWeatherClient upstreamWeatherClientMock;
+    private final List<PeerServer> servers = new ArrayList<>();
+    private final List<Cluster> clusters = new ArrayList<>();
+    private final List<ILocationClient> locationClients = new ArrayList<>();
+    private final List<IWeatherClient> weatherClients = new ArrayList<>();
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        upstreamLocationClientMock = Mockito.mock(ILocationClient.class);
+        upstreamWeatherClientMock = Mockito.mock(IWeatherClient.class);
+        Mockito.when(upstreamLocationClientMock.getLocation("MLA")).thenReturn(MALTA);
+        Mockito.when(upstreamWeatherClientMock.getForecast(MALTA)).thenReturn(FORECAST);
+        List<ILocationClient> localLocationClients = new ArrayList<>();
+        List<IWeatherClient> localWeatherClients = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            //every node has its own caches in front of the same upstream services
+            ILocationClient localLocationClient = new CachingLocationClient(upstreamLocationClientMock);
+            IWeatherClient localWeatherClient = new CachingWeatherClient(upstreamWeatherClientMock);
+            PeerServer server = new PeerServer(InetAddress.getLoopbackAddress(), 0, localLocationClient, localWeatherClient);
+            servers.add(server);
+            localLocationClients.add(localLocationClient);
+            localWeatherClients.add(localWeatherClient);
+            addresses.add(InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort());
+        }
+        for (int node = 0; node < NODES; node++) {
+            Cluster cluster = new Cluster(addresses.get(node), addresses);
+            clusters.add(cluster);
+            locationClients.add(new ClusteredLocationClient(cluster, localLocationClients.get(node)));
+            weatherClients.add(new ClusteredWeatherClient(cluster, localWeatherClients.get(node)));
+        }
+    }
+
+    @AfterEach
+    public void teardownAfterEach() throws IOException {
+        for (Cluster cluster : clusters) {
+            cluster.close();
+        }
+        for (PeerServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void getLocation_sameAirportOnEveryNode_upstreamCalledOnce() throws Exception {
+        for (ILocationClient locationClient : locationClients) {
+            Assertions.assertEquals(MALTA, locationClient.getLocation("MLA"));
+        }
+        Mockito.verify(upstreamLocationClientMock, Mockito.times(1)).getLocation("MLA");
+    }
+
+    @Test
+    public void getForecast_sameLocationOnEveryNode_upstreamCalledOnce() throws Exception {
+        for (IWeatherClient weatherClient : weatherClients) {
+            Assertions.assertEquals(FORECAST, weatherClient.getForecast(MALTA));
+        }
+        Mockito.verify(upstreamWeatherClientMock, Mockito.times(1)).getForecast(MALTA);
+    }
+
+    @Test
+    public void getForecast_ownerDown_fetchesUpstreamItself() throws Exception {
+        //setup
+        String owner = clusters.get(0).ownerOf(ClusteredWeatherClient.key(MALTA));
+        int ownerIndex = -1;
+        for (int node = 0; node < NODES; node++) {
+            if (owner.endsWith(":" + servers.get(node).getPort())) {
+                ownerIndex = node;
+            }
+        }
+        servers.get(ownerIndex).close();
+        int nonOwner = (ownerIndex + 1) % NODES;
+        //exercise + verify
+        Assertions.assertEquals(FORECAST, weatherClients.get(nonOwner).getForecast(MALTA));
+    }
+
+    @Test
+    public void getForecast_ownerDown_laterLookupsDoNotTryIt() throws Exception {
+        //setup
+        PeerServer server = servers.get(0);
+        PeerClient peerClient = new PeerClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+        server.close();
+        Assertions.assertThrows(IOException.class, () -> peerClient.getForecast(MALTA));
+        //exercise
+        IOException e = Assertions.assertThrows(IOException.class, () -> peerClient.getForecast(MALTA));
+        //verify
+        Assertions.assertTrue(e.getMessage().contains("marked down"), e.getMessage());
+    }
+
+    @Test
+    public void getForecast_backgroundLookup_peerAnswersWithBackgroundPriority() throws Exception {
+        //setup
+        List<Priority> priorities = new ArrayList<>();
+        Mockito.when(upstreamWeatherClientMock.getForecast(MALTA)).thenAnswer(invocation -> {
+            priorities.add(RequestContext.priority());
+            return FORECAST;
+        });
+        try (PeerClient peerClient = new PeerClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), servers.get(0).getPort()))) {
+            //exercise
+            RequestContext.withPriority(Priority.BACKGROUND, () -> {
+                try {
+                    peerClient.getForecast(MALTA);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).run();
+        }
+        //verify
+        Assertions.assertEquals(List.of(Priority.BACKGROUND), priorities);
+    }
+
+    @Test
+    public void getLocation_invalidIATA_peerRefusesWithoutGoingUpstream() throws Exception {
+        //setup
+        try (PeerClient peerClient = new PeerClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), servers.get(0).getPort()))) {
+            //exercise + verify
+            Assertions.assertThrows(PeerException.class, () -> peerClient.getLocation("ml\"a"));
+        }
+        Mockito.verifyNoInteractions(upstreamLocationClientMock);
+    }
+
+    @Test
+    public void getLocation_unlistedAddress_connectionClosedUnanswered() throws Exception {
+        //setup - a server answering only a documentation address
+        Set<InetAddress> allowedPeers = Set.of(InetAddress.getByName("192.0.2.1"));
+        try (PeerServer server = new PeerServer(InetAddress.getLoopbackAddress(), 0, allowedPeers, upstreamLocationClientMock, upstreamWeatherClientMock);
+             PeerClient peerClient = new PeerClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            //exercise + verify
+            Assertions.assertThrows(IOException.class, () -> peerClient.getLocation("MLA"));
+        }
+        Mockito.verifyNoInteractions(upstreamLocationClientMock);
+    }
+
+    @Test
+    public void getLocation_peerAcceptsThenDropsConnection_laterLookupsDoNotTryIt() throws Exception {
+        //setup - connections from an unlisted address are accepted and closed at once, as by a peer shutting down
+        Set<InetAddress> allowedPeers = Set.of(InetAddress.getByName("192.0.2.1"));
+        try (PeerServer server = new PeerServer(InetAddress.getLoopbackAddress(), 0, allowedPeers, upstreamLocationClientMock, upstreamWeatherClientMock);
+             PeerClient peerClient = new PeerClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            Assertions.assertThrows(IOException.class, () -> peerClient.getLocation("MLA"));
+            //exercise
+            IOException e = Assertions.assertThrows(IOException.class, () -> peerClient.getLocation("MLA"));
+            //verify
+            Assertions.assertTrue(e.getMessage().contains("marked down"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void getLocation_upstreamFailsOnOwner_nonOwnerTriesUpstreamItself() throws Exception {
+        //setup
+        Mockito.when(upstreamLocationClientMock.getLocation("XXX")).thenThrow(new IllegalStateException("unknown airport"));
+        //exercise + verify
+        for (ILocationClient locationClient : locationClients) {
+            Assertions.assertThrows(IllegalStateException.class, () -> locationClient.getLocation("XXX"));
+        }
+    }
+
+    @Test
+    public void ring_removingNode_onlyMovesKeysOfThatNode() {
+        //setup
+        ConsistentHashRing ring = new ConsistentHashRing();
+        List<String> nodes = List.of("a:1", "b:1", "c:1", "d:1");
+        nodes.forEach(ring::add);
+        List<String> owners = new ArrayList<>();
+        for (int key = 0; key < 10_000; key++) {
+            owners.add(ring.ownerOf("key" + key));
+        }
+        //exercise
+        ring.remove("c:1");
+        //verify
+        int moved = 0;
+        for (int key = 0; key < 10_000; key++) {
+            String owner = ring.ownerOf("key" + key);
+            if (!owner.equals(owners.get(key))) {
+                Assertions.assertEquals("c:1", owners.get(key));
+                moved++;
+            }
+        }
+        Assertions.assertTrue(moved > 1_500 && moved < 3_500, "expected about a quarter of the keys to move but " + moved + " moved");
+    }
+
+    @Test
+    public void ring_addingNode_onlyMovesKeysToThatNode() {
+        //setup
+        ConsistentHashRing ring = new ConsistentHashRing();
+        List.of("a:1", "b:1", "c:1").forEach(ring::add);
+        List<String> owners = new ArrayList<>();
+        for (int key = 0; key < 10_000; key++) {
+            owners.add(ring.ownerOf("key" + key));
+        }
+        //exercise
+        ring.add("d:1");
+        //verify
+        for (int key = 0; key < 10_000; key++) {
+            String owner = ring.ownerOf("key" + key);
+            if (!owner.equals(owners.get(key))) {
+                Assertions.assertEquals("d:1", owner);
+            }
+        }
+    }
+}
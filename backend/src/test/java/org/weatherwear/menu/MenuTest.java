@@ -3,9 +3,11 @@ package org.weatherwear.menu;
 import org.junit.jupiter.api.*;
 import org.weatherwear.clothesrecommender.IRecommendClothing;
 import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import java.io.*;
+import java.time.LocalDate;
 
 
 public class MenuTest {
@@ -64,7 +66,7 @@ public class MenuTest {
     @Test
     public void whenRunningMenu_option2option3_expectedRecommendedClothingAndQuitMessage() throws Exception {
         //setup
-        Mockito.when(recommendClothingMock.recommendClothing("MLA", "2023-01-01")).thenReturn(CLOTHES_RECOMMENDATION_MESSAGE);
+        Mockito.when(recommendClothingMock.recommendClothing("MLA", LocalDate.of(2023, 1, 1))).thenReturn(CLOTHES_RECOMMENDATION_MESSAGE);
         String option = "2\nMLA\n2023-01-01\n3\n";
         InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
         Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock);
@@ -78,7 +80,7 @@ public class MenuTest {
     @Test
     public void whenRunningMenu_option2WithWrongIATAoption3_expectedWrongIATAMessageAndQuitMessage() throws Exception {
         //setup
-        Mockito.when(recommendClothingMock.recommendClothing("mla", "2023-01-01")).thenThrow(new IllegalArgumentException("IATA is invalid"));
+        Mockito.when(recommendClothingMock.recommendClothing("mla", LocalDate.of(2023, 1, 1))).thenThrow(new IllegalArgumentException("IATA is invalid"));
         String option = "2\nmla\n2023-01-01\n3\n";
         InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
         Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock);
@@ -123,7 +125,6 @@ public class MenuTest {
     public void whenRunningMenu_option2WithInvalidDateFormat_expectedErrorMessageAndQuitMessage() throws Exception {
         //setup
         String invalidDate = "01-01-2023";
-        Mockito.when(recommendClothingMock.recommendClothing("MLA", "01-01-2023")).thenThrow(new IllegalArgumentException("Expected argument date to be in format YYYY-MM-DD"));
         String option = "2\nMLA\n" + invalidDate + "\n3\n";
         InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
         Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock);
@@ -134,5 +135,49 @@ public class MenuTest {
         //verify
         String expectedMenuOutputContent = printMenu() + "Enter 3 digit airport IATA (in uppercase format) : " + "Enter day of arrival (in format YYYY-MM-DD): " + "Error - Expected argument date to be in format YYYY-MM-DD\n" + printMenu() + "Exiting WeatherWear.com";
         Assertions.assertEquals(expectedMenuOutputContent, DUMMY_OUTPUT_STREAM.toString().trim());
+        //the date is rejected by the menu itself, the recommender is never asked
+        Mockito.verify(recommendClothingMock, Mockito.never()).recommendClothing(Mockito.anyString(), Mockito.any(LocalDate.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenRunningMenu_option2WithWrongIATAAndInvalidDate_expectedWrongIATAMessage() throws Exception {
+        //setup
+        String option = "2\nmla\n01-01-2023\n3\n";
+        InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
+        Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock);
+        //exercise
+        menu.start(); // start menu
+        //verify
+        String expectedMenuOutputContent = printMenu() + "Enter 3 digit airport IATA (in uppercase format) : " + "Enter day of arrival (in format YYYY-MM-DD): " + "Error - IATA is invalid\n" + printMenu() + "Exiting WeatherWear.com";
+        Assertions.assertEquals(expectedMenuOutputContent, DUMMY_OUTPUT_STREAM.toString().trim());
+    }
+
+    @Test
+    public void whenRunningMenu_option2WithValidIATA_prefetchesIATABeforeRecommending() throws Exception {
+        //setup
+        Mockito.when(recommendClothingMock.recommendClothing("MLA", LocalDate.of(2023, 1, 1))).thenReturn(CLOTHES_RECOMMENDATION_MESSAGE);
+        String option = "2\nMLA\n2023-01-01\n3\n";
+        InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
+        Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock, Runnable::run);
+        //exercise
+        menu.start();
+        //verify
+        InOrder inOrder = Mockito.inOrder(recommendClothingMock);
+        inOrder.verify(recommendClothingMock).prefetch();
+        inOrder.verify(recommendClothingMock).prefetch("MLA");
+        inOrder.verify(recommendClothingMock).recommendClothing("MLA", LocalDate.of(2023, 1, 1));
+    }
+
+    @Test
+    public void whenRunningMenu_option2WithInvalidIATA_doesNotPrefetchIATA() throws Exception {
+        //setup
+        Mockito.when(recommendClothingMock.recommendClothing("mla", LocalDate.of(2023, 1, 1))).thenThrow(new IllegalArgumentException("IATA is invalid"));
+        String option = "2\nmla\n2023-01-01\n3\n";
+        InputStream dummyInputStream = new ByteArrayInputStream(option.getBytes());
+        Menu menu = new Menu(dummyInputStream, PRINT_STREAM, recommendClothingMock, Runnable::run);
+        //exercise
+        menu.start();
+        //verify
+        Mockito.verify(recommendClothingMock, Mockito.never()).prefetch(Mockito.anyString());
+    }
+}
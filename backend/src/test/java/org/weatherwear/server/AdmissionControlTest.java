@@ -0,0 +1,77 @@
+package org.weatherwear.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControlTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void admit_burstWithinInterval_isAdmitted() {
+        //setup
+        AdmissionControl admissionControl = new AdmissionControl(Duration.ofMillis(10), Duration.ofMillis(100));
+        long now = System.nanoTime();
+        //exercise - a burst queues up to 80 ms but the queue drains within the interval
+        boolean admitted = true;
+        for (int request = 0; request < 10; request++) {
+            admitted &= admissionControl.admit(request * 8 * MS, now + request * MS);
+        }
+        admitted &= admissionControl.admit(0, now + 20 * MS);
+        admitted &= admissionControl.admit(5 * MS, now + 150 * MS);
+        //verify
+        Assertions.assertTrue(admitted);
+        Assertions.assertFalse(admissionControl.isOverloaded());
+        Assertions.assertEquals(0, admissionControl.getShed());
+    }
+
+    @Test
+    public void admit_queueDelayAboveIntervalEvenOnce_isShed() {
+        //setup
+        AdmissionControl admissionControl = new AdmissionControl(Duration.ofMillis(10), Duration.ofMillis(100));
+        //exercise
+        boolean admitted = admissionControl.admit(150 * MS, System.nanoTime());
+        //verify
+        Assertions.assertFalse(admitted);
+        Assertions.assertEquals(1, admissionControl.getShed());
+    }
+
+    @Test
+    public void admit_standingQueue_shedsAboveTargetUntilItDrains() {
+        //setup
+        AdmissionControl admissionControl = new AdmissionControl(Duration.ofMillis(10), Duration.ofMillis(100));
+        long now = System.nanoTime();
+        //exercise - a whole interval never below 30 ms
+        for (int request = 0; request < 10; request++) {
+            admissionControl.admit(30 * MS, now + request * 10 * MS);
+        }
+        boolean aboveTarget = admissionControl.admit(30 * MS, now + 101 * MS);
+        boolean belowTarget = admissionControl.admit(5 * MS, now + 102 * MS);
+        boolean overloaded = admissionControl.isOverloaded();
+        //the queue drained below the target during that interval
+        boolean afterDrain = admissionControl.admit(30 * MS, now + 210 * MS);
+        //verify
+        Assertions.assertTrue(overloaded);
+        Assertions.assertFalse(aboveTarget);
+        Assertions.assertTrue(belowTarget);
+        Assertions.assertTrue(afterDrain);
+        Assertions.assertFalse(admissionControl.isOverloaded());
+    }
+
+    @Test
+    public void admit_afterIdleInterval_isNotOverloaded() {
+        //setup
+        AdmissionControl admissionControl = new AdmissionControl(Duration.ofMillis(10), Duration.ofMillis(100));
+        long now = System.nanoTime();
+        for (int request = 0; request < 20; request++) {
+            admissionControl.admit(50 * MS, now + request * 10 * MS);
+        }
+        //exercise - the queue stood during the last interval, but then nothing queued for more than an interval
+        boolean admitted = admissionControl.admit(50 * MS, now + 500 * MS);
+        //verify
+        Assertions.assertTrue(admitted);
+        Assertions.assertFalse(admissionControl.isOverloaded());
+    }
+}
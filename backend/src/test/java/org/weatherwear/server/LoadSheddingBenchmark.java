@@ -0,0 +1,111 @@
+package org.weatherwear.server;
+
+import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Goodput of the binary server past saturation, with and without shedding. Requests are sent open loop at a multiple
+ * of the capacity of the workers; one in five is cached and answered instantly, the others take {@link #SERVICE_TIME}.
+ * A request counts towards goodput when it is answered OK within {@link #DEADLINE}, as a client would give up then.
+ * Run with: java ... org.weatherwear.server.LoadSheddingBenchmark
+ */
+public class LoadSheddingBenchmark {
+    private static final int WORKERS = 16;
+    private static final Duration SERVICE_TIME = Duration.ofMillis(20);
+    private static final Duration DEADLINE = Duration.ofSeconds(1);
+    private static final Duration RUN = Duration.ofSeconds(3);
+    private static final int CAPACITY = (int) (WORKERS * 1000 / SERVICE_TIME.toMillis());
+
+    private static final IRecommendClothing SLOW_UNLESS_CACHED = new IRecommendClothing() {
+        public String recommendClothing() {
+            throw new UnsupportedOperationException();
+        }
+
+        public String recommendClothing(String IATA, String date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public String recommendClothing(String IATA, LocalDate date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public WeatherPossibility decideWeather(String IATA, String date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public WeatherPossibility decideWeather(String IATA, LocalDate date) throws Exception {
+            if (!IATA.equals("MLA")) {
+                if (RequestContext.isCacheOnly()) {
+                    throw new NotCachedException("Not cached: " + IATA);
+                }
+                Thread.sleep(SERVICE_TIME.toMillis());
+            }
+            return new WeatherPossibility(true, false);
+        }
+
+        public WeatherPossibility decideWeatherForIp(String ip, LocalDate date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void prefetch() {
+        }
+
+        public void prefetch(String IATA) {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("capacity %,d requests/s of uncached requests%n", CAPACITY);
+        for (double load : new double[]{0.5, 1, 1.5, 2, 3}) {
+            double withoutShedding = goodput(load, null);
+            double withShedding = goodput(load, new AdmissionControl(Duration.ofMillis(10), Duration.ofMillis(100)));
+            System.out.printf("offered %3.1fx: goodput %,7.0f requests/s without shedding, %,7.0f requests/s with shedding%n", load, withoutShedding, withShedding);
+        }
+    }
+
+    private static double goodput(double load, AdmissionControl admissionControl) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        AtomicLong good = new AtomicLong();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (NioRecommendationServer server = new NioRecommendationServer(address, SLOW_UNLESS_CACHED, workers, admissionControl);
+             BinaryProtocolClient client = new BinaryProtocolClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            //uncached requests make up four in five of the offered load
+            double perMillisecond = load * CAPACITY / 0.8 / 1000;
+            LocalDate date = LocalDate.now();
+            long start = System.nanoTime();
+            long end = start + RUN.toNanos();
+            double owed = 0;
+            long sent = 0;
+            while (System.nanoTime() < end) {
+                owed += perMillisecond;
+                for (; owed >= 1; owed--) {
+                    long sentAt = System.nanoTime();
+                    client.decideWeather(sent++ % 5 == 0 ? "MLA" : "LHR", date).thenRun(() -> {
+                        if (System.nanoTime() - sentAt <= DEADLINE.toNanos()) {
+                            good.incrementAndGet();
+                        }
+                    });
+                }
+                client.flush();
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            //let the answers still within their deadline arrive
+            Thread.sleep(DEADLINE.toMillis());
+            return good.get() / seconds;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.weatherwear.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.telemetry.NotCachedException;
+import org.weatherwear.telemetry.RequestContext;
+import org.weatherwear.utilities.InvalidIATAException;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class RecommendationServerTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 31);
+    private IRecommendClothing recommendClothingMock;
+    private ExecutorService workers;
+    private NioRecommendationServer nioServer;
+    private HttpRecommendationServer httpServer;
+    private BinaryProtocolClient client;
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        recommendClothingMock = Mockito.mock(IRecommendClothing.class);
+        Mockito.when(recommendClothingMock.decideWeather("MLA", DATE)).thenReturn(new WeatherPossibility(true, false));
+        Mockito.when(recommendClothingMock.decideWeather("LHR", DATE)).thenReturn(new WeatherPossibility(false, true));
+        Mockito.when(recommendClothingMock.decideWeather("ABC", DATE)).thenThrow(new InvalidIATAException());
+        Mockito.when(recommendClothingMock.decideWeather("BAD", DATE)).thenThrow(new NumberFormatException("For input string: \"north\""));
+        Mockito.when(recommendClothingMock.decideWeather("MLA", DATE.plusDays(20))).thenThrow(new DateTimeException("out of range"));
+        Mockito.when(recommendClothingMock.decideWeather("JFK", DATE)).thenThrow(new IOException("upstream down"));
+        workers = Executors.newFixedThreadPool(4);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        nioServer = new NioRecommendationServer(address, recommendClothingMock, workers);
+        httpServer = new HttpRecommendationServer(address, recommendClothingMock, workers);
+        client = new BinaryProtocolClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), nioServer.getPort()));
+    }
+
+    @AfterEach
+    public void teardownAfterEach() throws IOException {
+        client.close();
+        nioServer.close();
+        httpServer.close();
+        workers.shutdownNow();
+    }
+
+    @Test
+    public void testPipelinedRequestsAreAnsweredOnOneConnection() throws Exception {
+        //setup
+        List<CompletableFuture<WeatherPossibility>> responses = new ArrayList<>();
+        //exercise
+        for (int i = 0; i < 500; i++) {
+            responses.add(client.decideWeather(i % 2 == 0 ? "MLA" : "LHR", DATE));
+        }
+        client.flush();
+        //verify
+        for (int i = 0; i < responses.size(); i++) {
+            WeatherPossibility expected = i % 2 == 0 ? new WeatherPossibility(true, false) : new WeatherPossibility(false, true);
+            Assertions.assertEquals(expected, responses.get(i).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testConnectionWithTooManyOutstandingRequestsIsNotReadFrom() throws Exception {
+        //setup - workers that only run what they were given when told to
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        try (NioRecommendationServer heldServer = new NioRecommendationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), recommendClothingMock, tasks::add);
+             BinaryProtocolClient heldClient = new BinaryProtocolClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), heldServer.getPort()))) {
+            List<CompletableFuture<WeatherPossibility>> responses = new ArrayList<>();
+            //exercise
+            for (int i = 0; i < NioRecommendationServer.MAX_OUTSTANDING + 100; i++) {
+                responses.add(heldClient.decideWeather("MLA", DATE));
+            }
+            heldClient.flush();
+            Thread.sleep(200);
+            //verify - the rest waits in the socket until responses go out
+            Assertions.assertEquals(NioRecommendationServer.MAX_OUTSTANDING, tasks.size());
+            for (int i = 0; i < responses.size(); i++) {
+                Runnable task = tasks.poll(5, TimeUnit.SECONDS);
+                Assertions.assertNotNull(task);
+                task.run();
+            }
+            for (CompletableFuture<WeatherPossibility> response : responses) {
+                Assertions.assertEquals(new WeatherPossibility(true, false), response.get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void testErrorsAreReturnedAsStatusCodes() throws Exception {
+        //exercise
+        CompletableFuture<WeatherPossibility> invalidIATA = client.decideWeather("ABC", DATE);
+        CompletableFuture<WeatherPossibility> invalidDate = client.decideWeather("MLA", DATE.plusDays(20));
+        CompletableFuture<WeatherPossibility> upstreamError = client.decideWeather("JFK", DATE);
+        CompletableFuture<WeatherPossibility> malformedUpstreamAnswer = client.decideWeather("BAD", DATE);
+        client.flush();
+        //verify
+        Assertions.assertEquals(BinaryProtocol.INVALID_IATA, statusOf(invalidIATA));
+        Assertions.assertEquals(BinaryProtocol.INVALID_DATE, statusOf(invalidDate));
+        Assertions.assertEquals(BinaryProtocol.UPSTREAM_ERROR, statusOf(upstreamError));
+        Assertions.assertEquals(BinaryProtocol.UPSTREAM_ERROR, statusOf(malformedUpstreamAnswer));
+    }
+
+    @Test
+    public void testHttpModeAnswersWithJson() throws Exception {
+        //setup
+        HttpClient httpClient = HttpClient.newHttpClient();
+        String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + httpServer.getPort() + "/recommend";
+        //exercise
+        HttpResponse<String> ok = httpClient.send(HttpRequest.newBuilder(URI.create(base + "?iata=MLA&date=" + DATE)).build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> invalid = httpClient.send(HttpRequest.newBuilder(URI.create(base + "?iata=ABC&date=" + DATE)).build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> upstreamError = httpClient.send(HttpRequest.newBuilder(URI.create(base + "?iata=JFK&date=" + DATE)).build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> malformedUpstreamAnswer = httpClient.send(HttpRequest.newBuilder(URI.create(base + "?iata=BAD&date=" + DATE)).build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> bothInvalid = httpClient.send(HttpRequest.newBuilder(URI.create(base + "?iata=mla&date=31-01-2024")).build(), HttpResponse.BodyHandlers.ofString());
+        //verify
+        Assertions.assertEquals(200, ok.statusCode());
+        Assertions.assertEquals("{\"isRaining\":true,\"isCold\":false}", ok.body());
+        Assertions.assertEquals(400, invalid.statusCode());
+        Assertions.assertEquals(502, upstreamError.statusCode());
+        Assertions.assertEquals(502, malformedUpstreamAnswer.statusCode());
+        Assertions.assertEquals("{\"error\":\"IATA is invalid\"}", bothInvalid.body());
+    }
+
+    @Test
+    public void testRequestsQueuedTooLongAreAnsweredOnlyFromCache() throws Exception {
+        //setup - one worker kept busy, so that the requests behind it queue far past the shedding interval
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(recommendClothingMock.decideWeather("BLK", DATE)).thenAnswer(invocation -> {
+            release.await();
+            return new WeatherPossibility(false, false);
+        });
+        Mockito.when(recommendClothingMock.decideWeather("CDG", DATE)).thenAnswer(invocation -> {
+            if (RequestContext.isCacheOnly()) {
+                throw new NotCachedException("Not cached: CDG");
+            }
+            return new WeatherPossibility(false, false);
+        });
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        //started up front, so that starting the thread is not counted as the first request's queue delay
+        worker.submit(() -> { }).get();
+        AdmissionControl admissionControl = new AdmissionControl(Duration.ofMillis(1), Duration.ofMillis(10));
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (NioRecommendationServer sheddingNioServer = new NioRecommendationServer(address, recommendClothingMock, worker, admissionControl);
+             HttpRecommendationServer sheddingHttpServer = new HttpRecommendationServer(address, recommendClothingMock, worker, admissionControl);
+             BinaryProtocolClient sheddingClient = new BinaryProtocolClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), sheddingNioServer.getPort()))) {
+            //exercise
+            CompletableFuture<WeatherPossibility> blocking = sheddingClient.decideWeather("BLK", DATE);
+            CompletableFuture<WeatherPossibility> cached = sheddingClient.decideWeather("MLA", DATE);
+            CompletableFuture<WeatherPossibility> notCached = sheddingClient.decideWeather("CDG", DATE);
+            sheddingClient.flush();
+            String uri = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + sheddingHttpServer.getPort() + "/recommend?iata=CDG&date=" + DATE;
+            CompletableFuture<HttpResponse<String>> overloadedResponse = HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+            Thread.sleep(200);
+            release.countDown();
+            HttpResponse<String> overloaded = overloadedResponse.get(5, TimeUnit.SECONDS);
+            //verify
+            Assertions.assertEquals(new WeatherPossibility(false, false), blocking.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(new WeatherPossibility(true, false), cached.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(BinaryProtocol.OVERLOADED, statusOf(notCached));
+            Assertions.assertEquals(503, overloaded.statusCode());
+            Assertions.assertEquals("1", overloaded.headers().firstValue("Retry-After").orElse(null));
+            //at least the three requests behind the blocked one; on a slow machine the blocked one may queue too long as well
+            Assertions.assertTrue(admissionControl.getShed() >= 3);
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    private static byte statusOf(CompletableFuture<WeatherPossibility> response) throws Exception {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        return ((RecommendationServerException) e.getCause()).getStatus();
+    }
+}
@@ -0,0 +1,121 @@
+package org.weatherwear.server;
+
+import org.weatherwear.clothesrecommender.IRecommendClothing;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the request rate of the binary and the HTTP server mode with a decider answering instantly,
+ * so that only framing and I/O are measured. Run with: java ... org.weatherwear.server.ServerThroughputBenchmark [requests]
+ */
+public class ServerThroughputBenchmark {
+    //requests kept in flight by both modes, so that the HTTP mode is not penalised for lacking pipelining
+    private static final int IN_FLIGHT = 64;
+
+    private static final IRecommendClothing INSTANT = new IRecommendClothing() {
+        public String recommendClothing() {
+            throw new UnsupportedOperationException();
+        }
+
+        public String recommendClothing(String IATA, String date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public String recommendClothing(String IATA, LocalDate date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public WeatherPossibility decideWeather(String IATA, String date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public WeatherPossibility decideWeather(String IATA, LocalDate date) {
+            return new WeatherPossibility(true, false);
+        }
+
+        public WeatherPossibility decideWeatherForIp(String ip, LocalDate date) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void prefetch() {
+        }
+
+        public void prefetch(String IATA) {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (NioRecommendationServer nioServer = new NioRecommendationServer(address, INSTANT, workers);
+             HttpRecommendationServer httpServer = new HttpRecommendationServer(address, INSTANT, workers);
+             BinaryProtocolClient client = new BinaryProtocolClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), nioServer.getPort()))) {
+            LocalDate date = LocalDate.now();
+            //warm up both paths before measuring
+            binary(client, date, requests / 10);
+            String uri = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + httpServer.getPort() + "/recommend?iata=MLA&date=" + date;
+            HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            http(httpClient, uri, requests / 100);
+
+            long start = System.nanoTime();
+            binary(client, date, requests);
+            report("binary", requests, System.nanoTime() - start);
+
+            int httpRequests = requests / 10;
+            start = System.nanoTime();
+            http(httpClient, uri, httpRequests);
+            report("http", httpRequests, System.nanoTime() - start);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void binary(BinaryProtocolClient client, LocalDate date, int requests) throws Exception {
+        List<CompletableFuture<WeatherPossibility>> window = new ArrayList<>(IN_FLIGHT);
+        for (int sent = 0; sent < requests; sent++) {
+            window.add(client.decideWeather("MLA", date));
+            if (window.size() == IN_FLIGHT) {
+                client.flush();
+                for (CompletableFuture<WeatherPossibility> response : window) {
+                    response.get();
+                }
+                window.clear();
+            }
+        }
+        client.flush();
+        for (CompletableFuture<WeatherPossibility> response : window) {
+            response.get();
+        }
+    }
+
+    private static void http(HttpClient httpClient, String uri, int requests) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).build();
+        List<CompletableFuture<HttpResponse<String>>> window = new ArrayList<>(IN_FLIGHT);
+        for (int sent = 0; sent < requests; sent++) {
+            window.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            if (window.size() == IN_FLIGHT || sent == requests - 1) {
+                for (CompletableFuture<HttpResponse<String>> response : window) {
+                    response.get();
+                }
+                window.clear();
+            }
+        }
+    }
+
+    private static void report(String mode, int requests, long nanos) {
+        System.out.printf("%-6s %,10d requests in %,8d ms = %,12.0f requests/s%n", mode, requests, nanos / 1_000_000, requests * 1e9 / nanos);
+    }
+}
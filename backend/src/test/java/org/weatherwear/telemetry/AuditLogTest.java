@@ -0,0 +1,182 @@
+package org.weatherwear.telemetry;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.weatherdecider.IWeatherDecider;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AuditLogTest {
+    @TempDir
+    Path directory;
+
+    //holds the consumer inside its first write until released
+    private static class StalledFile extends RotatingFile {
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        StalledFile(Path path) throws IOException {
+            super(path, Long.MAX_VALUE, 0);
+        }
+
+        @Override
+        public void write(ByteBuffer batch) throws IOException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(batch);
+        }
+    }
+
+    @Test
+    public void record_withTrail_writesOneJsonLineOnClose() throws Exception {
+        //setup
+        Path path = directory.resolve("audit.log");
+        AuditLog auditLog = AuditLog.start(new RotatingFile(path, 1024 * 1024, 1), 16, AuditLog.FullPolicy.BLOCK);
+        AuditTrail trail = new AuditTrail();
+        trail.upstreamCall("https://api.open-meteo.com", 2_500_000);
+        trail.resolved(new Location(35.85, 14.48), new Weather(11.1, 88));
+        //exercise
+        boolean recorded = auditLog.record(7, "MLA", LocalDate.of(2023, 1, 2).toEpochDay(), trail, new WeatherPossibility(true, false), Outcome.OK);
+        auditLog.close();
+        //verify
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(recorded),
+                () -> Assertions.assertEquals(1, lines.size()),
+                () -> Assertions.assertTrue(lines.get(0).contains("\"correlationId\":7,\"iata\":\"MLA\",\"date\":\"2023-01-02\",\"latitude\":35.85,\"longitude\":14.48,\"tempInCelsius\":11.1,\"precipitation\":88.0,\"isRaining\":true,\"isCold\":false,\"outcome\":\"OK\",\"upstreamCalls\":1,\"upstream\":[{\"host\":\"https://api.open-meteo.com\",\"millis\":2.5}]}"), lines.get(0))
+        );
+    }
+
+    @Test
+    public void recommendClothing_withAuditLog_recordsFailedRequestWithoutDecision() throws Exception {
+        //setup
+        Path path = directory.resolve("audit.log");
+        AuditLog auditLog = AuditLog.start(new RotatingFile(path, 1024 * 1024, 1), 16, AuditLog.FullPolicy.BLOCK);
+        IWeatherDecider weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        Clock clock = Clock.fixed(Instant.parse("2023-01-01T00:00:00.00Z"), ZoneId.of("UTC"));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDeciderMock, clock, auditLog);
+        //exercise
+        Assertions.assertThrows(Exception.class, () -> recommendClothing.recommendClothing("MLA", "2023-01-20"));
+        auditLog.close();
+        //verify
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, lines.size()),
+                () -> Assertions.assertTrue(lines.get(0).contains("\"iata\":\"MLA\",\"date\":\"2023-01-20\",\"outcome\":\"INVALID_INPUT\""), lines.get(0)),
+                () -> Assertions.assertFalse(lines.get(0).contains("isRaining"), lines.get(0))
+        );
+    }
+
+    @Test
+    public void record_quoteAndNewlineInFields_staysOneEscapedLine() throws Exception {
+        //setup
+        Path path = directory.resolve("audit.log");
+        AuditLog auditLog = AuditLog.start(new RotatingFile(path, 1024 * 1024, 1), 16, AuditLog.FullPolicy.BLOCK);
+        AuditTrail trail = new AuditTrail();
+        trail.upstreamCall("a\\b", 1_000_000);
+        //exercise
+        auditLog.record(7, "M\",\"outcome\":\"OK\"}\n{\"iata\":\"X", AuditLog.NO_DATE, trail, null, Outcome.ERROR);
+        auditLog.close();
+        //verify
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, lines.size()),
+                () -> Assertions.assertTrue(lines.get(0).contains("\"iata\":\"M\\\",\\\"outcome\\\":\\\"OK\\\"}\\u000a{\\\"iata\\\":\\\"X\",\"outcome\":\"ERROR\""), lines.get(0)),
+                () -> Assertions.assertTrue(lines.get(0).contains("{\"host\":\"a\\\\b\","), lines.get(0))
+        );
+    }
+
+    @Test
+    public void recommendClothing_invalidIATA_recordsPlaceholderInsteadOfInput() throws Exception {
+        //setup
+        Path path = directory.resolve("audit.log");
+        AuditLog auditLog = AuditLog.start(new RotatingFile(path, 1024 * 1024, 1), 16, AuditLog.FullPolicy.BLOCK);
+        IWeatherDecider weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        Clock clock = Clock.fixed(Instant.parse("2023-01-01T00:00:00.00Z"), ZoneId.of("UTC"));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDeciderMock, clock, auditLog);
+        //exercise
+        Assertions.assertThrows(IllegalArgumentException.class, () -> recommendClothing.recommendClothing("ML\"A", "2023-01-02"));
+        auditLog.close();
+        //verify
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, lines.size()),
+                () -> Assertions.assertTrue(lines.get(0).contains("\"iata\":\"" + AuditLog.INVALID_IATA + "\""), lines.get(0))
+        );
+    }
+
+    @Test
+    public void record_ringFullWithDropPolicy_dropsAndCounts() throws Exception {
+        //setup
+        StalledFile file = new StalledFile(directory.resolve("audit.log"));
+        AuditLog auditLog = AuditLog.start(file, 2, AuditLog.FullPolicy.DROP);
+        auditLog.record(1, "MLA", AuditLog.NO_DATE, null, null, Outcome.OK);
+        file.writing.await();
+        //exercise
+        boolean second = auditLog.record(2, "MLA", AuditLog.NO_DATE, null, null, Outcome.OK);
+        boolean third = auditLog.record(3, "MLA", AuditLog.NO_DATE, null, null, Outcome.OK);
+        boolean fourth = auditLog.record(4, "MLA", AuditLog.NO_DATE, null, null, Outcome.OK);
+        file.release.countDown();
+        auditLog.close();
+        //verify
+        List<String> lines = Files.readAllLines(directory.resolve("audit.log"));
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(second),
+                () -> Assertions.assertTrue(third),
+                () -> Assertions.assertFalse(fourth),
+                () -> Assertions.assertEquals(1, auditLog.getDropped()),
+                () -> Assertions.assertEquals(3, lines.size())
+        );
+    }
+
+    @Test
+    public void record_afterClose_isDropped() throws Exception {
+        //setup
+        AuditLog auditLog = AuditLog.start(new RotatingFile(directory.resolve("audit.log"), 1024, 1), 4, AuditLog.FullPolicy.BLOCK);
+        auditLog.close();
+        //exercise
+        boolean recorded = auditLog.record(1, "MLA", AuditLog.NO_DATE, null, null, Outcome.OK);
+        //verify
+        Assertions.assertFalse(recorded);
+        Assertions.assertEquals(1, auditLog.getDropped());
+    }
+
+    @Test
+    public void write_pastMaxBytes_rotatesBetweenBatches() throws Exception {
+        //setup
+        Path path = directory.resolve("audit.log");
+        RotatingFile file = new RotatingFile(path, 10, 2);
+        //exercise
+        for (String batch : List.of("first\n", "second\n", "third\n", "fourth\n")) {
+            file.write(StandardCharsets.UTF_8.encode(batch));
+        }
+        file.close();
+        //verify
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("fourth\n", Files.readString(path)),
+                () -> Assertions.assertEquals("third\n", Files.readString(directory.resolve("audit.log.1"))),
+                () -> Assertions.assertEquals("second\n", Files.readString(directory.resolve("audit.log.2"))),
+                () -> Assertions.assertFalse(Files.exists(directory.resolve("audit.log.3")))
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package org.weatherwear.telemetry;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.weatherwear.clients.GenericRestClient.HttpRequestMethods;
+import org.weatherwear.clients.GenericRestClient.HttpResponse;
+import org.weatherwear.clients.GenericRestClient.IRestClient;
+import org.weatherwear.clients.Models.Location;
+import org.weatherwear.clients.Models.Weather;
+import org.weatherwear.clients.WeatherClient.WeatherClient;
+import org.weatherwear.clothesrecommender.RecommendClothing;
+import org.weatherwear.weatherdecider.IWeatherDecider;
+import org.weatherwear.weatherdecider.WeatherPossibility;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+public class FlightRecorderEventsTest {
+    private static final HttpResponse FORECAST_RESPONSE = new HttpResponse(200, "{\"daily\":{\"temperature_2m_max\":[11.1],\"precipitation_sum\":[88]}}");
+
+    private List<RecordedEvent> record(String eventName, ThrowingRunnable runnable) throws Exception {
+        Path file = Files.createTempFile("weatherwear", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withoutThreshold();
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream().filter(event -> event.getEventType().getName().equals(eventName)).toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void recommendClothing_validRequest_emitsRecommendationEventWithCorrelationId() throws Exception {
+        //setup
+        IWeatherDecider weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 1)).thenReturn(new WeatherPossibility(false, false));
+        Clock clock = Clock.fixed(Instant.parse("2023-01-01T00:00:00.00Z"), ZoneId.of("UTC"));
+        RecommendClothing recommendClothing = new RecommendClothing(weatherDeciderMock, clock);
+        //exercise
+        List<RecordedEvent> events = record("org.weatherwear.Recommendation", () -> recommendClothing.recommendClothing("MLA", "2023-01-02"));
+        //verify
+        Assertions.assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("MLA", event.getString("iata")),
+                () -> Assertions.assertEquals(1, event.getInt("day")),
+                () -> Assertions.assertEquals(Outcome.OK, event.getString("outcome")),
+                () -> Assertions.assertNotEquals(0, event.getLong("correlationId"))
+        );
+    }
+
+    @Test
+    public void recommendClothing_invalidIATA_emitsRecommendationEventWithInvalidInputOutcome() throws Exception {
+        //setup
+        RecommendClothing recommendClothing = new RecommendClothing(Mockito.mock(IWeatherDecider.class));
+        //exercise
+        List<RecordedEvent> events = record("org.weatherwear.Recommendation", () ->
+                Assertions.assertThrows(IllegalArgumentException.class, () -> recommendClothing.recommendClothing("mla", "2023-01-02")));
+        //verify
+        Assertions.assertEquals(Outcome.INVALID_INPUT, events.get(0).getString("outcome"));
+    }
+
+    @Test
+    public void getWeather_goodResponse_emitsForecastFetchEvent() throws Exception {
+        //setup
+        IRestClient restClientMock = Mockito.mock(IRestClient.class);
+        Mockito.when(restClientMock.request(ArgumentMatchers.eq(HttpRequestMethods.GET), ArgumentMatchers.eq("https://api.open-meteo.com/v1"), ArgumentMatchers.eq("/forecast"), Mockito.any(), Mockito.any())).thenReturn(FORECAST_RESPONSE);
+        WeatherClient weatherClient = new WeatherClient(restClientMock);
+        //exercise
+        List<RecordedEvent> events = record("org.weatherwear.ForecastFetch", () -> Assertions.assertEquals(new Weather(11.1, 88), weatherClient.getWeather(new Location(1, 2))));
+        //verify
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("https://api.open-meteo.com/v1", events.get(0).getString("host")),
+                () -> Assertions.assertEquals(FORECAST_RESPONSE.getResponseBody().length(), events.get(0).getLong("bytes")),
+                () -> Assertions.assertEquals(Outcome.OK, events.get(0).getString("outcome"))
+        );
+    }
+}
@@ -0,0 +1,65 @@
+package org.weatherwear.utilities;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+public class TodayTest {
+    //clock whose time the test moves by hand
+    private static final class SettableClock extends Clock {
+        private final ZoneId zone;
+        private Instant instant;
+
+        private SettableClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new SettableClock(instant, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    @Test
+    public void get_beforeAndAfterMidnightOfTheClockZone_rollsOverAtMidnight() {
+        //setup - 23:59:59 in Malta is 22:59:59 UTC in winter
+        SettableClock clock = new SettableClock(Instant.parse("2023-01-01T22:59:59Z"), ZoneId.of("Europe/Malta"));
+        Today today = new Today(clock);
+        //exercise
+        LocalDate beforeMidnight = today.get();
+        clock.instant = clock.instant.plusSeconds(1);
+        LocalDate afterMidnight = today.get();
+        //verify
+        Assertions.assertEquals(LocalDate.of(2023, 1, 1), beforeMidnight);
+        Assertions.assertEquals(LocalDate.of(2023, 1, 2), afterMidnight);
+    }
+
+    @Test
+    public void get_clockMovesBackwardsAcrossMidnight_dateDoesNotMoveBackwards() {
+        //setup
+        SettableClock clock = new SettableClock(Instant.parse("2023-01-02T00:00:00Z"), ZoneId.of("UTC"));
+        Today today = new Today(clock);
+        today.get();
+        //exercise
+        clock.instant = clock.instant.minus(Duration.ofMinutes(5));
+        //verify
+        Assertions.assertEquals(LocalDate.of(2023, 1, 2), today.get());
+        Assertions.assertEquals(LocalDate.of(2023, 1, 2).toEpochDay(), today.epochDay());
+    }
+}
@@ -2,12 +2,19 @@ package org.weatherwear.weatherdecider;
 
 import org.junit.jupiter.api.*;
 import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Forecast;
 import org.weatherwear.clients.Models.Location;
 import org.weatherwear.clients.Models.Weather;
 import org.weatherwear.clients.WeatherClient.IWeatherClient;
 import org.mockito.Mockito;
 import org.weatherwear.clients.WeatherClient.WeatherClient;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class DecideFutureWeatherTest {
     private   final String IATA = "MLA";
@@ -24,7 +31,7 @@ public class DecideFutureWeatherTest {
 
     @BeforeAll
     public void setupBeforeAll() throws Exception {
-        dummyLocation = new Location("20","21") ;
+        dummyLocation = new Location(20, 21) ;
         locationClientMock = Mockito.mock(ILocationClient.class);
         Mockito.when(locationClientMock.getLocation()).thenReturn(dummyLocation);
         Mockito.when(locationClientMock.getLocation(Mockito.anyString())).thenReturn(dummyLocation);
@@ -93,4 +100,14 @@ public class DecideFutureWeatherTest {
         WeatherDecider weatherDecider = new WeatherDecider(locationClientMock, weatherClientMock);
         Assertions.assertTrue(weatherDecider.decideWeather(IATA,day).isRaining());
     }
+
+    @Test
+    public void decideWhatIsFutureWeather_withForecastColumns_keepsTheForecastForQueries() throws Exception {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-31T10:00:00.00Z"), ZoneId.of("UTC"));
+        ForecastColumns forecastColumns = new ForecastColumns(clock);
+        Mockito.when(weatherClientMock.getForecast(dummyLocation)).thenReturn(new Forecast(new double[]{20, 20, 0}, new double[]{0, 0, 1}));
+        WeatherDecider weatherDecider = new WeatherDecider(locationClientMock, weatherClientMock, forecastColumns);
+        Assertions.assertEquals(new WeatherPossibility(true, true), weatherDecider.decideWeather(IATA,day));
+        Assertions.assertEquals(List.of(IATA), forecastColumns.airportsWhere(LocalDate.now(clock).plusDays(day), new WeatherPossibility(true, true)));
+    }
 }
@@ -0,0 +1,79 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Weather;
+
+import java.time.Clock;
+import java.util.Random;
+
+/**
+ * Throughput of "which airports and dates will be cold and raining" over every stored forecast: the scalar decider
+ * run on each day's {@link Weather}, against the columnar store's kernel and bitmap scan.
+ * The columns are re-decided on every round so that the kernel is measured, not only the scan of cached bitmaps.
+ * Run with: java ... org.weatherwear.weatherdecider.ForecastColumnsBenchmark [airports]
+ */
+public class ForecastColumnsBenchmark {
+    private static final int ROUNDS = 50;
+    private static final WeatherPossibility COLD_AND_RAINING = new WeatherPossibility(true, true);
+
+    public static void main(String[] args) {
+        int airports = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Random random = new Random(42);
+        Forecast[] forecasts = new Forecast[airports];
+        ForecastColumns columns = new ForecastColumns(Clock.systemDefaultZone());
+        for (int airport = 0; airport < airports; airport++) {
+            double[] temps = new double[11];
+            double[] precipitation = new double[11];
+            for (int day = 0; day < temps.length; day++) {
+                temps[day] = random.nextDouble() * 40 - 10;
+                precipitation[day] = random.nextBoolean() ? 0 : random.nextDouble() * 100;
+            }
+            forecasts[airport] = new Forecast(temps, precipitation);
+            columns.put("A" + airport, forecasts[airport]);
+        }
+        int cells = airports * 11;
+        //warm up both paths before measuring
+        for (int round = 0; round < ROUNDS; round++) {
+            scalar(forecasts);
+            columnar(columns, forecasts);
+        }
+        long start = System.nanoTime();
+        int scalarMatches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            scalarMatches = scalar(forecasts);
+        }
+        report("scalar", cells, System.nanoTime() - start);
+        start = System.nanoTime();
+        int columnarMatches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            columnarMatches = columnar(columns, forecasts);
+        }
+        report("columnar", cells, System.nanoTime() - start);
+        if (scalarMatches != columnarMatches) {
+            throw new IllegalStateException("scalar found " + scalarMatches + " but columnar found " + columnarMatches);
+        }
+    }
+
+    private static int scalar(Forecast[] forecasts) {
+        int matches = 0;
+        for (Forecast forecast : forecasts) {
+            for (int day = 0; day < forecast.getDays(); day++) {
+                WeatherPossibility possibility = WeatherDecider.getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(forecast.getDay(day));
+                if (possibility.isCold() && possibility.isRaining()) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int columnar(ForecastColumns columns, Forecast[] forecasts) {
+        //storing one forecast again marks every date as changed, so the count re-runs the kernel
+        columns.put("A0", forecasts[0]);
+        return columns.count(COLD_AND_RAINING);
+    }
+
+    private static void report(String path, int cells, long nanos) {
+        System.out.printf("%-8s %,12.0f airport-days/s%n", path, (double) cells * ROUNDS * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,164 @@
+package org.weatherwear.weatherdecider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.weatherwear.clients.Models.Forecast;
+import org.weatherwear.clients.Models.Weather;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ForecastColumnsTest {
+    private static final WeatherPossibility COLD_AND_RAINING = new WeatherPossibility(true, true);
+    private static final WeatherPossibility WARM_AND_DRY = new WeatherPossibility(false, false);
+    private MutableClock clock;
+    private LocalDate today;
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-31T10:00:00.00Z");
+
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setupBeforeEach() {
+        clock = new MutableClock();
+        today = LocalDate.now(clock);
+    }
+
+    //the same weather on every day of the forecast
+    private static Forecast constant(double tempInCelsius, double precipitationProbability) {
+        double[] temps = new double[11];
+        double[] precipitation = new double[11];
+        Arrays.fill(temps, tempInCelsius);
+        Arrays.fill(precipitation, precipitationProbability);
+        return new Forecast(temps, precipitation);
+    }
+
+    @Test
+    public void decide_anyValues_agreesWithScalarDecider() {
+        //setup - the thresholds, signed zeros and random values over more than two bitmap words
+        double[] temps = new double[150];
+        double[] precipitation = new double[150];
+        double[] edges = {15, Math.nextUp(15.0), Math.nextDown(15.0), -0.0, 0, -40, 45};
+        double[] precipitationEdges = {0, -0.0, Double.MIN_VALUE, 0.5, 100};
+        Random random = new Random(42);
+        for (int lane = 0; lane < temps.length; lane++) {
+            temps[lane] = lane < edges.length ? edges[lane] : random.nextDouble() * 60 - 20;
+            precipitation[lane] = lane < precipitationEdges.length ? precipitationEdges[lane] : random.nextBoolean() ? 0 : random.nextDouble() * 100;
+        }
+        long[] cold = new long[3];
+        long[] raining = new long[3];
+        //exercise
+        ForecastColumns.decide(temps, precipitation, temps.length, cold, raining);
+        //verify
+        for (int lane = 0; lane < temps.length; lane++) {
+            WeatherPossibility expected = WeatherDecider.getWeatherPossibilityOutOfTemperatureInCelsiusAndPrecipitation(new Weather(temps[lane], precipitation[lane]));
+            Assertions.assertEquals(expected.isCold(), (cold[lane / 64] >>> lane & 1) == 1, "cold at lane " + lane);
+            Assertions.assertEquals(expected.isRaining(), (raining[lane / 64] >>> lane & 1) == 1, "raining at lane " + lane);
+        }
+    }
+
+    @Test
+    public void airportsWhere_date_returnsAirportsWithThatWeather() {
+        //setup
+        ForecastColumns columns = new ForecastColumns(clock);
+        columns.put("MLA", constant(10, 80));
+        columns.put("LHR", constant(25, 0));
+        columns.put("JFK", constant(5, 20));
+        //exercise
+        List<String> coldAndRaining = columns.airportsWhere(today.plusDays(3), COLD_AND_RAINING);
+        List<String> warmAndDry = columns.airportsWhere(today, WARM_AND_DRY);
+        List<String> beyondForecast = columns.airportsWhere(today.plusDays(12), COLD_AND_RAINING);
+        //verify
+        Assertions.assertEquals(List.of("MLA", "JFK"), coldAndRaining);
+        Assertions.assertEquals(List.of("LHR"), warmAndDry);
+        Assertions.assertEquals(List.of(), beyondForecast);
+    }
+
+    @Test
+    public void put_sameAirportAgain_replacesItsForecast() {
+        //setup
+        ForecastColumns columns = new ForecastColumns(clock);
+        columns.put("MLA", constant(10, 80));
+        //exercise
+        columns.put("MLA", constant(25, 0));
+        //verify
+        Assertions.assertEquals(List.of(), columns.airportsWhere(today, COLD_AND_RAINING));
+        Assertions.assertEquals(List.of("MLA"), columns.airportsWhere(today, WARM_AND_DRY));
+        Assertions.assertEquals(1, columns.getAirportCount());
+    }
+
+    @Test
+    public void where_manyAirports_scansEveryAirportAndDate() {
+        //setup - more airports than the initial capacity, every third one cold and raining
+        ForecastColumns columns = new ForecastColumns(clock);
+        for (int airport = 0; airport < 1000; airport++) {
+            columns.put("A" + airport, airport % 3 == 0 ? constant(0, 50) : constant(20, 0));
+        }
+        //exercise
+        List<ForecastColumns.Match> matches = columns.where(COLD_AND_RAINING);
+        //verify
+        Assertions.assertEquals(334 * 11, matches.size());
+        Assertions.assertEquals(334 * 11, columns.count(COLD_AND_RAINING));
+        Assertions.assertEquals(new ForecastColumns.Match("A0", today), matches.get(0));
+        Assertions.assertEquals(new ForecastColumns.Match("A999", today.plusDays(10)), matches.get(matches.size() - 1));
+    }
+
+    @Test
+    public void where_daysLater_forgetsPastDatesAndReusesTheirSlots() {
+        //setup
+        ForecastColumns columns = new ForecastColumns(clock);
+        columns.put("MLA", constant(10, 80));
+        clock.now = clock.now.plus(Duration.ofDays(ForecastColumns.DATES));
+        //exercise
+        columns.put("LHR", constant(10, 80));
+        //verify - the slot of the old today now holds the new today, with only the airport stored since
+        Assertions.assertEquals(List.of("LHR"), columns.airportsWhere(LocalDate.now(clock), COLD_AND_RAINING));
+        Assertions.assertEquals(List.of(), columns.airportsWhere(today, COLD_AND_RAINING));
+        Assertions.assertEquals(11, columns.count(COLD_AND_RAINING));
+    }
+
+    @Test
+    public void airportsWhere_forecastNotStoredAgainForMaxAge_leavesAirportOut() {
+        //setup
+        ForecastColumns columns = new ForecastColumns(clock);
+        columns.put("MLA", constant(10, 80));
+        columns.put("LHR", constant(10, 80));
+        clock.now = clock.now.plus(ForecastColumns.MAX_AGE).plusSeconds(1);
+        //exercise
+        columns.put("LHR", constant(10, 80));
+        //verify - same day, but only the airport looked up again is current
+        Assertions.assertEquals(List.of("LHR"), columns.airportsWhere(today, COLD_AND_RAINING));
+        Assertions.assertEquals(11, columns.count(COLD_AND_RAINING));
+    }
+
+    @Test
+    public void put_shorterForecast_forgetsDatesOnlyTheOldOneCovered() {
+        //setup
+        ForecastColumns columns = new ForecastColumns(clock);
+        columns.put("MLA", constant(10, 80));
+        //exercise
+        columns.put("MLA", new Forecast(new double[]{10}, new double[]{80}));
+        //verify
+        Assertions.assertEquals(List.of("MLA"), columns.airportsWhere(today, COLD_AND_RAINING));
+        Assertions.assertEquals(List.of(), columns.airportsWhere(today.plusDays(1), COLD_AND_RAINING));
+    }
+}
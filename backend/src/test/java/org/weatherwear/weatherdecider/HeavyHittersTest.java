@@ -0,0 +1,58 @@
+package org.weatherwear.weatherdecider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class HeavyHittersTest {
+    @Test
+    public void add_skewedStream_keepsMostFrequentKeysInOrder() {
+        //setup
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(3, 1024);
+        Random random = new Random(42);
+        //exercise
+        for (int i = 0; i < 10_000; i++) {
+            int draw = random.nextInt(100);
+            String key = draw < 40 ? "MLA" : draw < 65 ? "LHR" : draw < 80 ? "CDG" : "X" + random.nextInt(5_000);
+            heavyHitters.add(key);
+        }
+        //verify
+        Assertions.assertEquals(List.of("MLA", "LHR", "CDG"), heavyHitters.top());
+        Assertions.assertTrue(heavyHitters.isTop("CDG"));
+        Assertions.assertFalse(heavyHitters.isTop("X1"));
+    }
+
+    @Test
+    public void estimate_neverBelowTrueCount() {
+        //setup
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(2, 16);
+        //exercise
+        for (int i = 0; i < 500; i++) {
+            heavyHitters.add("K" + (i % 50));
+        }
+        //verify
+        for (int key = 0; key < 50; key++) {
+            Assertions.assertTrue(heavyHitters.estimate("K" + key) >= 10);
+        }
+    }
+
+    @Test
+    public void decay_halvesCountsSoNewDemandTakesOver() {
+        //setup
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(1, 1024);
+        for (int i = 0; i < 100; i++) {
+            heavyHitters.add("MLA");
+        }
+        //exercise
+        heavyHitters.decay();
+        heavyHitters.decay();
+        for (int i = 0; i < 26; i++) {
+            heavyHitters.add("LHR");
+        }
+        //verify
+        Assertions.assertEquals(25, heavyHitters.estimate("MLA"));
+        Assertions.assertEquals(List.of("LHR"), heavyHitters.top());
+    }
+}
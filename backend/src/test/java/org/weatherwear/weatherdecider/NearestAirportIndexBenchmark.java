@@ -0,0 +1,127 @@
+package org.weatherwear.weatherdecider;
+
+import org.weatherwear.clients.Models.Location;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Query latency and heap footprint of the nearest-airport index at the size of the full airport dataset
+ * (about 9,000 airports have an IATA code), against scanning every airport.
+ * Airports are clustered around synthetic cities the way real ones are, and queries are spread over the globe,
+ * so that many of them have no airport within the distance.
+ * Run with: java ... org.weatherwear.weatherdecider.NearestAirportIndexBenchmark [airports]
+ */
+public class NearestAirportIndexBenchmark {
+    private static final int QUERIES = 1_000_000;
+    private static final double MAX_DISTANCE_KM = 50;
+
+    private static Location randomOnSphere(Random random) {
+        return new Location(Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)), random.nextDouble() * 360 - 180);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int collection = 0; collection < 3; collection++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        int airportCount = args.length > 0 ? Integer.parseInt(args[0]) : 9_000;
+        Random random = new Random(42);
+        List<Location> cities = new ArrayList<>();
+        for (int city = 0; city < airportCount / 10; city++) {
+            cities.add(randomOnSphere(random));
+        }
+        Map<String, Location> airports = new LinkedHashMap<>();
+        for (int airport = 0; airport < airportCount; airport++) {
+            Location city = cities.get(random.nextInt(cities.size()));
+            String code = String.valueOf(new char[]{(char) ('A' + airport / 676 % 26), (char) ('A' + airport / 26 % 26), (char) ('A' + airport % 26)}) + (airport / 17_576 == 0 ? "" : airport / 17_576);
+            airports.put(code, new Location(Math.max(-90, Math.min(90, city.getLatitude() + random.nextGaussian())), city.getLongitude() + random.nextGaussian()));
+        }
+        List<Location> queries = new ArrayList<>(QUERIES);
+        for (int query = 0; query < QUERIES; query++) {
+            //half near a city, half anywhere
+            Location city = cities.get(random.nextInt(cities.size()));
+            queries.add(query % 2 == 0 ? new Location(Math.max(-90, Math.min(90, city.getLatitude() + random.nextGaussian())), city.getLongitude() + random.nextGaussian()) : randomOnSphere(random));
+        }
+
+        long before = usedHeap();
+        NearestAirportIndex index = new NearestAirportIndex(airports);
+        long after = usedHeap();
+        System.out.printf("%,d airports, index %,d bytes on the heap excluding the IATA strings shared with the input (%.1f bytes per airport)%n",
+                index.size(), after - before, (double) (after - before) / index.size());
+
+        //warm up before measuring
+        String[] nearest = null;
+        for (int round = 0; round < 5; round++) {
+            nearest = index.nearest(queries, MAX_DISTANCE_KM);
+        }
+        long start = System.nanoTime();
+        nearest = index.nearest(queries, MAX_DISTANCE_KM);
+        report("bulk", QUERIES, System.nanoTime() - start, nearest);
+
+        start = System.nanoTime();
+        for (int query = 0; query < QUERIES; query++) {
+            nearest[query] = index.nearest(queries.get(query), MAX_DISTANCE_KM);
+        }
+        report("single", QUERIES, System.nanoTime() - start, nearest);
+
+        int scanned = QUERIES / 100;
+        //the scan gets the same unit vectors the index keeps, computed up front
+        String[] names = airports.keySet().toArray(new String[0]);
+        double[][] points = airports.values().stream().map(NearestAirportIndexBenchmark::unit).toArray(double[][]::new);
+        String[] scanNearest = new String[scanned];
+        double maxSquared = NearestAirportIndex.squaredChord(MAX_DISTANCE_KM);
+        start = System.nanoTime();
+        for (int query = 0; query < scanned; query++) {
+            scanNearest[query] = scan(names, points, queries.get(query), maxSquared);
+        }
+        report("scan", scanned, System.nanoTime() - start, scanNearest);
+        for (int query = 0; query < scanned; query++) {
+            if (!String.valueOf(scanNearest[query]).equals(String.valueOf(nearest[query]))) {
+                throw new IllegalStateException("index found " + nearest[query] + " but scan found " + scanNearest[query] + " for " + queries.get(query));
+            }
+        }
+    }
+
+    private static double[] unit(Location location) {
+        double latitude = Math.toRadians(location.getLatitude());
+        double longitude = Math.toRadians(location.getLongitude());
+        return new double[]{Math.cos(latitude) * Math.cos(longitude), Math.cos(latitude) * Math.sin(longitude), Math.sin(latitude)};
+    }
+
+    private static String scan(String[] names, double[][] points, Location query, double maxSquared) {
+        double[] point = unit(query);
+        String best = null;
+        double bestSquared = maxSquared;
+        for (int airport = 0; airport < names.length; airport++) {
+            double[] other = points[airport];
+            double dx = point[0] - other[0];
+            double dy = point[1] - other[1];
+            double dz = point[2] - other[2];
+            double squared = dx * dx + dy * dy + dz * dz;
+            if (squared <= bestSquared) {
+                bestSquared = squared;
+                best = names[airport];
+            }
+        }
+        return best;
+    }
+
+    private static void report(String path, int queries, long nanos, String[] nearest) {
+        int found = 0;
+        for (int query = 0; query < queries; query++) {
+            if (nearest[query] != null) {
+                found++;
+            }
+        }
+        System.out.printf("%-7s %8.1f ns/query %,14.0f queries/s (%.0f%% within %.0f km)%n",
+                path, (double) nanos / queries, queries * 1e9 / nanos, 100.0 * found / queries, MAX_DISTANCE_KM);
+    }
+}
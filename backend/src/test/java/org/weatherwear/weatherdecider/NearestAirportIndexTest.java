@@ -0,0 +1,122 @@
+package org.weatherwear.weatherdecider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weatherwear.clients.GenericRestClient.HttpStatusCodeUnknown;
+import org.weatherwear.clients.LocationClient.ILocationClient;
+import org.weatherwear.clients.Models.Location;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class NearestAirportIndexTest {
+    private static final Location MALTA_AIRPORT = new Location(35.857498, 14.4775);
+    private static final Location VALLETTA = new Location(35.8989, 14.5146);
+    private static final Map<String, Location> AIRPORTS = Map.of(
+            "MLA", MALTA_AIRPORT,
+            "LHR", new Location(51.47, -0.4543),
+            "CDG", new Location(49.0097, 2.5479),
+            "SUV", new Location(-18.0433, 178.5592),
+            "TVU", new Location(-16.6906, -179.8767));
+
+    private static double distanceKm(Location a, Location b) {
+        double latitudeA = Math.toRadians(a.getLatitude());
+        double latitudeB = Math.toRadians(b.getLatitude());
+        double haversine = Math.pow(Math.sin((latitudeB - latitudeA) / 2), 2)
+                + Math.cos(latitudeA) * Math.cos(latitudeB) * Math.pow(Math.sin(Math.toRadians(b.getLongitude() - a.getLongitude()) / 2), 2);
+        return 2 * NearestAirportIndex.EARTH_RADIUS_KM * Math.asin(Math.sqrt(haversine));
+    }
+
+    @Test
+    public void nearest_placeNearAirport_returnsIt() {
+        //setup
+        NearestAirportIndex index = new NearestAirportIndex(AIRPORTS);
+        //exercise and verify
+        Assertions.assertEquals("MLA", index.nearest(VALLETTA, 50));
+        Assertions.assertEquals("CDG", index.nearest(new Location(48.8566, 2.3522), 50));
+    }
+
+    @Test
+    public void nearest_noAirportWithinDistance_returnsNull() {
+        //setup
+        NearestAirportIndex index = new NearestAirportIndex(AIRPORTS);
+        //exercise and verify
+        Assertions.assertNull(index.nearest(VALLETTA, 2));
+        Assertions.assertNull(index.nearest(new Location(0, 0), 500));
+    }
+
+    @Test
+    public void nearest_acrossAntimeridian_findsAirportOnOtherSide() {
+        //setup
+        NearestAirportIndex index = new NearestAirportIndex(AIRPORTS);
+        //exercise and verify
+        Assertions.assertEquals("TVU", index.nearest(new Location(-16.7, 179.9), 100));
+    }
+
+    @Test
+    public void nearest_bulkRandomQueries_matchBruteForce() {
+        //setup
+        Random random = new Random(42);
+        Map<String, Location> airports = new LinkedHashMap<>();
+        for (int airport = 0; airport < 2_000; airport++) {
+            airports.put("A" + airport, new Location(Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)), random.nextDouble() * 360 - 180));
+        }
+        NearestAirportIndex index = new NearestAirportIndex(airports);
+        List<Location> queries = new ArrayList<>();
+        for (int query = 0; query < 1_000; query++) {
+            queries.add(new Location(Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)), random.nextDouble() * 360 - 180));
+        }
+        //exercise
+        String[] nearest = index.nearest(queries, 300);
+        //verify
+        for (int query = 0; query < queries.size(); query++) {
+            String expected = null;
+            double expectedKm = 300;
+            for (Map.Entry<String, Location> airport : airports.entrySet()) {
+                double km = distanceKm(queries.get(query), airport.getValue());
+                if (km <= expectedKm) {
+                    expected = airport.getKey();
+                    expectedKm = km;
+                }
+            }
+            Assertions.assertEquals(expected, nearest[query], "query " + queries.get(query));
+        }
+    }
+
+    @Test
+    public void decideWeather_currentLocationNearAirport_decidedAsThatAirport() throws Exception {
+        //setup
+        IWeatherDecider weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        ILocationClient locationClientMock = Mockito.mock(ILocationClient.class);
+        Mockito.when(locationClientMock.getLocation()).thenReturn(VALLETTA);
+        Mockito.when(locationClientMock.getLocationForIp("198.51.100.7")).thenReturn(new Location(0, 0));
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 0)).thenReturn(new WeatherPossibility(true, false));
+        NearestAirportWeatherDecider weatherDecider = new NearestAirportWeatherDecider(weatherDeciderMock, locationClientMock, new NearestAirportIndex(AIRPORTS), 50);
+        //exercise
+        WeatherPossibility current = weatherDecider.decideWeather();
+        weatherDecider.decideWeatherForIp("198.51.100.7", 2);
+        //verify
+        Assertions.assertTrue(current.isRaining());
+        Mockito.verify(weatherDeciderMock, Mockito.never()).decideWeather();
+        Mockito.verify(weatherDeciderMock).decideWeatherForIp("198.51.100.7", 2);
+    }
+
+    @Test
+    public void decideWeatherForIp_airportCannotBeLookedUp_decidedForThePlace() throws Exception {
+        //setup
+        IWeatherDecider weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        ILocationClient locationClientMock = Mockito.mock(ILocationClient.class);
+        Mockito.when(locationClientMock.getLocationForIp("198.51.100.7")).thenReturn(VALLETTA);
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 2)).thenThrow(new HttpStatusCodeUnknown(404, "Code status 404 is unhandled by this implementation of REST CLIENT"));
+        Mockito.when(weatherDeciderMock.decideWeatherForIp("198.51.100.7", 2)).thenReturn(new WeatherPossibility(true, false));
+        NearestAirportWeatherDecider weatherDecider = new NearestAirportWeatherDecider(weatherDeciderMock, locationClientMock, new NearestAirportIndex(AIRPORTS), 50);
+        //exercise
+        WeatherPossibility possibility = weatherDecider.decideWeatherForIp("198.51.100.7", 2);
+        //verify
+        Assertions.assertTrue(possibility.isRaining());
+    }
+}
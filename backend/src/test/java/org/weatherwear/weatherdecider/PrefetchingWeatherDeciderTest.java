@@ -0,0 +1,70 @@
+package org.weatherwear.weatherdecider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class PrefetchingWeatherDeciderTest {
+    private IWeatherDecider weatherDeciderMock;
+    private ScheduledExecutorService scheduler;
+    private PrefetchingWeatherDecider prefetchingWeatherDecider;
+
+    @BeforeEach
+    public void setupBeforeEach() {
+        weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        //rounds are run by the tests themselves
+        prefetchingWeatherDecider = PrefetchingWeatherDecider.start(weatherDeciderMock, 2, scheduler, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void teardownAfterEach() {
+        prefetchingWeatherDecider.close();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void prefetchTop_prefetchesOnlyTheMostRequestedAirports() throws Exception {
+        //setup
+        for (String IATA : List.of("MLA", "MLA", "MLA", "LHR", "LHR", "CDG")) {
+            prefetchingWeatherDecider.decideWeather(IATA, 1);
+        }
+        //exercise
+        prefetchingWeatherDecider.prefetchTop();
+        //verify
+        Assertions.assertEquals(List.of("MLA", "LHR"), prefetchingWeatherDecider.getTopAirports());
+        Mockito.verify(weatherDeciderMock).prefetch("MLA");
+        Mockito.verify(weatherDeciderMock).prefetch("LHR");
+        Mockito.verify(weatherDeciderMock, Mockito.never()).prefetch("CDG");
+    }
+
+    @Test
+    public void decideWeather_afterPrefetchRound_countsHitsForWarmedAirportsOnly() throws Exception {
+        //setup
+        prefetchingWeatherDecider.decideWeather("MLA", 1);
+        Mockito.doThrow(new RuntimeException("upstream down")).when(weatherDeciderMock).prefetch("LHR");
+        prefetchingWeatherDecider.decideWeather("LHR", 1);
+        prefetchingWeatherDecider.prefetchTop();
+        //exercise
+        prefetchingWeatherDecider.decideWeather("MLA", 2);
+        prefetchingWeatherDecider.decideWeather("LHR", 2);
+        //verify
+        Assertions.assertEquals(0.25, prefetchingWeatherDecider.getPrefetchHitRate());
+    }
+
+    @Test
+    public void prefetch_speculativeLookups_doNotCountAsDemand() throws Exception {
+        //exercise
+        prefetchingWeatherDecider.prefetch("MLA");
+        //verify
+        Mockito.verify(weatherDeciderMock).prefetch("MLA");
+        Assertions.assertFalse(prefetchingWeatherDecider.isTopAirport("MLA"));
+    }
+}
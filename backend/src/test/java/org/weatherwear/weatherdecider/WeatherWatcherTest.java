@@ -0,0 +1,173 @@
+package org.weatherwear.weatherdecider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WeatherWatcherTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 1, 1);
+    private static final WeatherPossibility WARM_AND_DRY = new WeatherPossibility(false, false);
+    private static final WeatherPossibility COLD_AND_DRY = new WeatherPossibility(false, true);
+    private final Clock clock = Clock.fixed(Instant.parse("2023-01-01T10:00:00.00Z"), ZoneId.of("UTC"));
+    private IWeatherDecider weatherDeciderMock;
+    private ScheduledExecutorService scheduler;
+    private WeatherWatcher weatherWatcher;
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<WatchUpdate> {
+        private final BlockingQueue<WatchUpdate> updates = new LinkedBlockingQueue<>();
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        public void onNext(WatchUpdate item) {
+            updates.add(item);
+        }
+
+        public void onError(Throwable throwable) {
+        }
+
+        public void onComplete() {
+        }
+
+        private WatchUpdate next() throws InterruptedException {
+            return updates.poll(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @BeforeEach
+    public void setupBeforeEach() throws Exception {
+        //day 0 warm and dry, day 1 cold and dry
+        weatherDeciderMock = Mockito.mock(IWeatherDecider.class);
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 0)).thenReturn(WARM_AND_DRY);
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 1)).thenReturn(COLD_AND_DRY);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        weatherWatcher = WeatherWatcher.start(weatherDeciderMock, scheduler, Duration.ofHours(1), clock);
+    }
+
+    @AfterEach
+    public void teardownAfterEach() {
+        weatherWatcher.close();
+        scheduler.shutdownNow();
+    }
+
+    private CollectingSubscriber subscribe(LocalDate date) {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        weatherWatcher.watch("MLA", date).subscribe(subscriber);
+        return subscriber;
+    }
+
+    @Test
+    public void watch_subscribed_receivesCurrentPossibility() throws Exception {
+        CollectingSubscriber subscriber = subscribe(TODAY.plusDays(1));
+        Assertions.assertEquals(new WatchUpdate("MLA", TODAY.plusDays(1), COLD_AND_DRY), subscriber.next());
+    }
+
+    @Test
+    public void watch_subscribedAfterItWasDecided_laterSubscriberReceivesCurrentPossibilityAlone() throws Exception {
+        //setup
+        Flow.Publisher<WatchUpdate> watch = weatherWatcher.watch("MLA", TODAY.plusDays(1));
+        CollectingSubscriber first = new CollectingSubscriber();
+        watch.subscribe(first);
+        Assertions.assertEquals(new WatchUpdate("MLA", TODAY.plusDays(1), COLD_AND_DRY), first.next());
+        //exercise
+        CollectingSubscriber second = new CollectingSubscriber();
+        watch.subscribe(second);
+        //verify
+        Assertions.assertEquals(new WatchUpdate("MLA", TODAY.plusDays(1), COLD_AND_DRY), second.next());
+        Assertions.assertNull(first.updates.poll(100, TimeUnit.MILLISECONDS));
+        Mockito.verify(weatherDeciderMock, Mockito.times(1)).decideWeather("MLA", 1);
+    }
+
+    @Test
+    public void poll_manyWatchesOnOneTrip_decidesOncePerPoll() throws Exception {
+        //setup
+        CollectingSubscriber first = subscribe(TODAY);
+        CollectingSubscriber second = subscribe(TODAY);
+        first.next();
+        second.next();
+        Mockito.clearInvocations(weatherDeciderMock);
+        //exercise
+        weatherWatcher.poll();
+        //verify
+        Mockito.verify(weatherDeciderMock, Mockito.times(1)).decideWeather("MLA", 0);
+    }
+
+    @Test
+    public void poll_onlyOneDayChanged_notifiesOnlyThatWatch() throws Exception {
+        //setup
+        CollectingSubscriber today = subscribe(TODAY);
+        CollectingSubscriber tomorrow = subscribe(TODAY.plusDays(1));
+        today.next();
+        tomorrow.next();
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 0)).thenReturn(new WeatherPossibility(true, false));
+        //exercise
+        weatherWatcher.poll();
+        //verify
+        Assertions.assertEquals(new WeatherPossibility(true, false), today.next().weatherPossibility());
+        Assertions.assertTrue(tomorrow.updates.isEmpty());
+    }
+
+    @Test
+    public void poll_possibilityUnchanged_noNotification() throws Exception {
+        //setup
+        CollectingSubscriber today = subscribe(TODAY);
+        today.next();
+        //exercise
+        weatherWatcher.poll();
+        //verify
+        Assertions.assertNull(today.updates.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void poll_subscriberNeverRequests_pollingIsNotHeldUp() throws Exception {
+        //setup - a subscriber that takes nothing, so every update stays buffered for it
+        weatherWatcher.watch("MLA", TODAY).subscribe(new Flow.Subscriber<>() {
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            public void onNext(WatchUpdate item) {
+            }
+
+            public void onError(Throwable throwable) {
+            }
+
+            public void onComplete() {
+            }
+        });
+        AtomicInteger decisions = new AtomicInteger();
+        Mockito.when(weatherDeciderMock.decideWeather("MLA", 0)).thenAnswer(invocation -> decisions.incrementAndGet() % 2 == 0 ? WARM_AND_DRY : COLD_AND_DRY);
+        //exercise + verify - more changes than the publisher buffers
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int poll = 0; poll < 2 * Flow.defaultBufferSize(); poll++) {
+                weatherWatcher.poll();
+            }
+        });
+    }
+
+    @Test
+    public void watch_dateMoreThanTenDaysAway_throwsDateTimeException() {
+        Assertions.assertThrows(DateTimeException.class, () -> weatherWatcher.watch("MLA", TODAY.plusDays(11)));
+    }
+
+    @Test
+    public void watch_invalidIATA_throwsIllegalArgumentException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> weatherWatcher.watch("mla", TODAY));
+    }
+}